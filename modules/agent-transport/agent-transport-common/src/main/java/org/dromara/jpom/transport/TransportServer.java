@@ -9,8 +9,12 @@
  */
 package org.dromara.jpom.transport;
 
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.fastjson2.TypeReference;
 
+import java.net.Proxy;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.Consumer;
 
 /**
@@ -30,6 +34,16 @@ public interface TransportServer {
 
     String TRANSPORT_ENCRYPTION = "transport-encryption";
 
+    /**
+     * 中继转发下游节点的请求地址
+     */
+    String RELAY_URL = "url";
+
+    /**
+     * 中继转发下游节点的超时时间
+     */
+    String RELAY_TIMEOUT = "timeout";
+
     /**
      * 执行请求
      *
@@ -89,4 +103,26 @@ public interface TransportServer {
      * @return websocket
      */
     IProxyWebSocket websocket(INodeInfo nodeInfo, IUrlItem urlItem, Object... parameters);
+
+    /**
+     * 中继转发（插件端之间转发数据）时下游节点的描述，由插件端按照描述直接请求下游节点
+     * <p>
+     * 需要通过代理通讯的节点插件端无法直接访问，不支持中继
+     *
+     * @param nodeInfo 节点信息
+     * @param urlItem  请求 item
+     * @return 下游节点描述，不支持中继时返回 null
+     */
+    default Map<String, Object> relayTarget(INodeInfo nodeInfo, IUrlItem urlItem) {
+        Proxy proxy = nodeInfo.proxy();
+        if (proxy != null && proxy.type() != Proxy.Type.DIRECT) {
+            return null;
+        }
+        Map<String, Object> target = new HashMap<>(8);
+        target.put(RELAY_URL, StrUtil.format("{}://{}/{}", nodeInfo.scheme(), nodeInfo.url(), StrUtil.removePrefix(urlItem.path(), StrUtil.SLASH)));
+        target.put(RELAY_TIMEOUT, urlItem.timeout());
+        target.put(JPOM_AGENT_AUTHORIZE, nodeInfo.authorize());
+        target.put(WORKSPACE_ID_REQ_HEADER, urlItem.workspaceId());
+        return target;
+    }
 }
@@ -105,6 +105,14 @@ public abstract class BaseUnixProjectCommander extends AbstractProjectCommander
      */
     @Override
     protected String bySystemPs(String tag) {
+        if (JvmUtil.hasSnapshot()) {
+            // 批量查询时共用一份完整的进程列表
+            Integer pid = JvmUtil.getPidByTag("ps -ef", 1, tag);
+            if (pid == null || pid <= 0) {
+                return AbstractProjectCommander.STOP_TAG;
+            }
+            return StrUtil.format("{}:{}", AbstractProjectCommander.RUNNING_TAG, pid);
+        }
         String execSystemCommand = CommandUtil.execSystemCommand("ps -ef | grep " + tag);
         log.debug("getPsStatus {} {}", tag, execSystemCommand);
         List<String> list = StrSplitter.splitTrim(execSystemCommand, StrUtil.LF, true);
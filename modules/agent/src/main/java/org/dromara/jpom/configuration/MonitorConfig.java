@@ -21,6 +21,14 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class MonitorConfig {
 
     private NetworkConfig network;
+    /**
+     * 后台采集系统状态的间隔，单位秒
+     */
+    private Integer statInterval = 5;
+    /**
+     * 保留最近采集的系统状态条数
+     */
+    private Integer statHistorySize = 12;
 
     @Data
     @ConfigurationProperties("jpom.monitor.network")
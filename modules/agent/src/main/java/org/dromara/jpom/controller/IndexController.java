@@ -31,6 +31,7 @@ import org.dromara.jpom.model.data.NodeScriptModel;
 import org.dromara.jpom.plugin.PluginFactory;
 import org.dromara.jpom.service.manage.ProjectInfoService;
 import org.dromara.jpom.service.script.NodeScriptServer;
+import org.dromara.jpom.system.SystemStatSampler;
 import org.dromara.jpom.util.JvmUtil;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
@@ -60,17 +61,20 @@ public class IndexController extends BaseAgentController {
     private final SystemCommander systemCommander;
     private final ProjectCommander projectCommander;
     private final AgentConfig agentConfig;
+    private final SystemStatSampler systemStatSampler;
 
     public IndexController(ProjectInfoService projectInfoService,
                            NodeScriptServer nodeScriptServer,
                            SystemCommander systemCommander,
                            ProjectCommander projectCommander,
-                           AgentConfig agentConfig) {
+                           AgentConfig agentConfig,
+                           SystemStatSampler systemStatSampler) {
         this.projectInfoService = projectInfoService;
         this.nodeScriptServer = nodeScriptServer;
         this.systemCommander = systemCommander;
         this.projectCommander = projectCommander;
         this.agentConfig = agentConfig;
+        this.systemStatSampler = systemStatSampler;
     }
 
     @RequestMapping(value = {"index", "", "index.html", "/"}, produces = MediaType.TEXT_PLAIN_VALUE)
@@ -103,12 +107,18 @@ public class IndexController extends BaseAgentController {
     public IJsonMessage<JSONObject> getDirectTop() {
         JSONObject jsonObject = new JSONObject();
         try {
-            Optional<MonitorConfig> monitorConfig = Optional.ofNullable(agentConfig).map(AgentConfig::getMonitor);
-
-            JSONObject topInfo = org.dromara.jpom.util.OshiUtils.getSimpleInfo(monitorConfig.orElse(null));
+            JSONObject topInfo = systemStatSampler.latest();
+            if (topInfo == null) {
+                // 后台还未采集到数据
+                Optional<MonitorConfig> monitorConfig = Optional.ofNullable(agentConfig).map(AgentConfig::getMonitor);
+                topInfo = org.dromara.jpom.util.OshiUtils.getSimpleInfo(monitorConfig.orElse(null));
+                // 系统固定休眠时间
+                jsonObject.put("systemSleep", org.dromara.jpom.util.OshiUtils.NET_STAT_SLEEP + org.dromara.jpom.util.OshiUtils.CPU_STAT_SLEEP);
+            } else {
+                jsonObject.put("systemSleep", 0);
+                jsonObject.put("simpleStatusHistory", systemStatSampler.history());
+            }
             jsonObject.put("simpleStatus", topInfo);
-            // 系统固定休眠时间
-            jsonObject.put("systemSleep", org.dromara.jpom.util.OshiUtils.NET_STAT_SLEEP + org.dromara.jpom.util.OshiUtils.CPU_STAT_SLEEP);
 
             JSONObject systemInfo = org.dromara.jpom.util.OshiUtils.getSystemInfo();
             jsonObject.put("systemInfo", systemInfo);
@@ -11,22 +11,29 @@ package org.dromara.jpom.controller.manage;
 
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
 import cn.keepbx.jpom.IJsonMessage;
 import cn.keepbx.jpom.model.JsonMessage;
+import com.alibaba.fastjson2.JSONArray;
 import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.BaseAgentController;
 import org.dromara.jpom.common.commander.CommandOpResult;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.common.validator.ValidatorItem;
 import org.dromara.jpom.configuration.AgentConfig;
+import org.dromara.jpom.service.manage.ShardingRelayService;
 import org.dromara.jpom.util.CompressionFileUtil;
 import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author bwcx_jzy
@@ -38,9 +45,12 @@ import java.io.File;
 public class FileManageController extends BaseAgentController {
 
     private final AgentConfig agentConfig;
+    private final ShardingRelayService shardingRelayService;
 
-    public FileManageController(AgentConfig agentConfig) {
+    public FileManageController(AgentConfig agentConfig,
+                                ShardingRelayService shardingRelayService) {
         this.agentConfig = agentConfig;
+        this.shardingRelayService = shardingRelayService;
     }
 
     @RequestMapping(value = "upload-sharding", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -54,6 +64,64 @@ public class FileManageController extends BaseAgentController {
         return JsonMessage.success(I18nMessageUtil.get("i18n.upload_success.a769"));
     }
 
+    /**
+     * 查询已经上传完成的分片，用于断点续传
+     *
+     * @param sliceId 上传id
+     * @return key 分片序号，value 分片签名
+     */
+    @RequestMapping(value = "sharding-status", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public IJsonMessage<Map<Integer, String>> shardingStatus(String sliceId) {
+        String tempPathName = agentConfig.getFixedTempPathName();
+        return JsonMessage.success("", this.shardingStatus(tempPathName, sliceId));
+    }
+
+    /**
+     * 中继转发分片，校验签名后保存到当前节点（一个节点多个项目时保存多份），再转发给下游节点
+     *
+     * @param file         分片
+     * @param sliceIds     当前节点的上传id，多个逗号分隔
+     * @param relayKey     当前节点标识
+     * @param relayTargets 下游节点
+     * @return key 节点标识，value 是否接收成功
+     */
+    @RequestMapping(value = "relay-sharding", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public IJsonMessage<Map<String, Boolean>> relaySharding(MultipartFile file,
+                                                            String sliceIds,
+                                                            String relayKey,
+                                                            Integer totalSlice,
+                                                            Integer nowSlice,
+                                                            String sliceMd5,
+                                                            String fileSumMd5,
+                                                            String relayTargets) throws Exception {
+        Assert.notNull(file, I18nMessageUtil.get("i18n.no_uploaded_file.07ef"));
+        Assert.notNull(totalSlice, I18nMessageUtil.get("i18n.incomplete_upload_info_total_slice.7e85"));
+        Assert.notNull(nowSlice, I18nMessageUtil.get("i18n.incomplete_upload_info_now_slice.34aa"));
+        byte[] bytes = file.getBytes();
+        // 每一跳都校验分片签名，不一致时不保存也不继续转发
+        String md5 = SecureUtil.md5().digestHex(bytes);
+        Assert.state(StrUtil.equals(md5, sliceMd5), I18nMessageUtil.get("i18n.slice_md5_mismatch.5b1e") + nowSlice);
+        String tempPathName = agentConfig.getFixedTempPathName();
+        String originalFilename = file.getOriginalFilename();
+        Map<String, Boolean> result = new HashMap<>();
+        boolean saved = true;
+        try {
+            for (String sliceId : StrUtil.splitTrim(sliceIds, StrUtil.COMMA)) {
+                this.saveSharding(bytes, originalFilename, tempPathName, sliceId, nowSlice, md5);
+            }
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.relay_sharding_failure.0b6c"), nowSlice, e.getMessage());
+            saved = false;
+        }
+        // 当前节点保存失败也继续转发，避免影响下游节点
+        JSONArray targets = JSONArray.parseArray(relayTargets);
+        result.putAll(shardingRelayService.relay(bytes, originalFilename, nowSlice, totalSlice, md5, fileSumMd5, targets));
+        if (StrUtil.isNotEmpty(relayKey)) {
+            result.put(relayKey, saved);
+        }
+        return JsonMessage.success("", result);
+    }
+
     @RequestMapping(value = "sharding-merge", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     public IJsonMessage<CommandOpResult> shardingMerge(String type,
                                                        @ValidatorItem(msg = "i18n.file_directory_missing.6b1d") String path,
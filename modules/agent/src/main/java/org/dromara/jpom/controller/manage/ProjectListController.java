@@ -10,6 +10,7 @@
 package org.dromara.jpom.controller.manage;
 
 import cn.hutool.core.lang.Tuple;
+import cn.hutool.core.util.ObjectUtil;
 import cn.keepbx.jpom.IJsonMessage;
 import cn.keepbx.jpom.model.JsonMessage;
 import com.alibaba.fastjson2.JSONObject;
@@ -98,4 +99,17 @@ public class ProjectListController extends BaseAgentController {
         List<NodeProjectInfoModel> nodeProjectInfoModels = projectInfoService.list();
         return JsonMessage.success("", nodeProjectInfoModels);
     }
+
+    /**
+     * 增量查询项目信息
+     *
+     * @param epoch    服务端记录的版本标识
+     * @param revision 服务端记录的版本号
+     * @return json
+     */
+    @RequestMapping(value = "getProjectInfoChanges", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public IJsonMessage<JSONObject> getProjectInfoChanges(String epoch, Long revision) {
+        JSONObject changes = projectInfoService.changes(epoch, ObjectUtil.defaultIfNull(revision, 0L));
+        return JsonMessage.success("", changes);
+    }
 }
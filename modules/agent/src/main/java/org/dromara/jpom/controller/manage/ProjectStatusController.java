@@ -25,12 +25,15 @@ import org.dromara.jpom.common.validator.ValidatorRule;
 import org.dromara.jpom.model.data.NodeProjectInfoModel;
 import org.dromara.jpom.socket.ConsoleCommandOp;
 import org.dromara.jpom.util.CommandUtil;
+import org.dromara.jpom.util.JvmUtil;
 import org.springframework.http.MediaType;
 import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.function.BiConsumer;
+
 /**
  * 项目文件管理
  *
@@ -61,10 +64,7 @@ public class ProjectStatusController extends BaseAgentController {
         try {
             CommandUtil.openCache();
             try {
-                CommandOpResult status = projectCommander.execCommand(ConsoleCommandOp.status, nodeProjectInfoModel);
-                jsonObject.put("pId", status.getPid());
-                jsonObject.put("pIds", status.getPids());
-                jsonObject.put("statusMsg", status.getStatusMsg());
+                this.putStatus(nodeProjectInfoModel, jsonObject);
             } catch (Exception e) {
                 log.error(I18nMessageUtil.get("i18n.get_project_pid_failure.17b0"), e);
             }
@@ -82,37 +82,76 @@ public class ProjectStatusController extends BaseAgentController {
      */
     @RequestMapping(value = "getProjectPort", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     public IJsonMessage<JSONObject> getProjectPort(String ids) {
+        return this.eachProject(ids, "i18n.get_port_error.0698", (projectInfoServiceItem, itemObj) -> {
+            itemObj.put("name", projectInfoServiceItem.getName());
+            CommandOpResult commandOpResult = projectCommander.execCommand(ConsoleCommandOp.status, projectInfoServiceItem);
+            Integer pid = commandOpResult.getPid();
+            //
+            itemObj.put("pid", pid);
+            itemObj.put("pids", commandOpResult.getPids());
+            itemObj.put("statusMsg", commandOpResult.getStatusMsg());
+            if (StrUtil.isNotEmpty(commandOpResult.getPorts())) {
+                itemObj.put("port", commandOpResult.getPorts());
+            } else {
+                String port = projectCommander.getMainPort(pid);
+                itemObj.put("port", port);
+            }
+        });
+    }
+
+    /**
+     * 批量获取项目的进程id，所有项目共用一份进程表快照
+     *
+     * @param ids 项目id 数组
+     * @return json
+     */
+    @RequestMapping(value = "getProjectStatusBatch", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public IJsonMessage<JSONObject> getProjectStatusBatch(String ids) {
+        return this.eachProject(ids, "i18n.get_project_pid_failure.17b0", this::putStatus);
+    }
+
+    /**
+     * 查询项目状态
+     *
+     * @param nodeProjectInfoModel 项目
+     * @param jsonObject           写入状态信息
+     */
+    private void putStatus(NodeProjectInfoModel nodeProjectInfoModel, JSONObject jsonObject) {
+        CommandOpResult status = projectCommander.execCommand(ConsoleCommandOp.status, nodeProjectInfoModel);
+        jsonObject.put("pId", status.getPid());
+        jsonObject.put("pIds", status.getPids());
+        jsonObject.put("statusMsg", status.getStatusMsg());
+    }
+
+    /**
+     * 逐个处理项目，所有项目共用一份进程表快照
+     *
+     * @param ids      项目id 数组
+     * @param errorKey 处理异常的日志
+     * @param consumer 处理单个项目
+     * @return 项目id -> 结果
+     */
+    private IJsonMessage<JSONObject> eachProject(String ids, String errorKey, BiConsumer<NodeProjectInfoModel, JSONObject> consumer) {
         Assert.hasText(ids, I18nMessageUtil.get("i18n.info_to_retrieve_not_found.96d7"));
         JSONArray jsonArray = JSONArray.parseArray(ids);
         JSONObject jsonObject = new JSONObject();
         try {
-            CommandUtil.openCache();
+            JvmUtil.openSnapshot();
             for (Object object : jsonArray) {
                 String item = object.toString();
                 JSONObject itemObj = new JSONObject();
                 try {
                     NodeProjectInfoModel projectInfoServiceItem = projectInfoService.getItem(item);
-                    itemObj.put("name", projectInfoServiceItem.getName());
-                    CommandOpResult commandOpResult = projectCommander.execCommand(ConsoleCommandOp.status, projectInfoServiceItem);
-                    Integer pid = commandOpResult.getPid();
-                    //
-                    itemObj.put("pid", pid);
-                    itemObj.put("pids", commandOpResult.getPids());
-                    itemObj.put("statusMsg", commandOpResult.getStatusMsg());
-                    if (StrUtil.isNotEmpty(commandOpResult.getPorts())) {
-                        itemObj.put("port", commandOpResult.getPorts());
-                    } else {
-                        String port = projectCommander.getMainPort(pid);
-                        itemObj.put("port", port);
-                    }
+                    Assert.notNull(projectInfoServiceItem, I18nMessageUtil.get("i18n.project_id_does_not_exist.6b9b"));
+                    consumer.accept(projectInfoServiceItem, itemObj);
                 } catch (Exception e) {
-                    log.error(I18nMessageUtil.get("i18n.get_port_error.0698"), e);
+                    log.error(I18nMessageUtil.get(errorKey), e);
                     itemObj.put("error", e.getMessage());
                 }
                 jsonObject.put(item, itemObj);
             }
         } finally {
-            CommandUtil.closeCache();
+            JvmUtil.closeSnapshot();
         }
         return JsonMessage.success("", jsonObject);
     }
@@ -14,6 +14,7 @@ import cn.hutool.core.convert.Convert;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Opt;
 import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.keepbx.jpom.IJsonMessage;
 import cn.keepbx.jpom.model.JsonMessage;
@@ -69,6 +70,18 @@ public class ScriptController extends BaseAgentController {
         return JsonMessage.success("", nodeScriptServer.list());
     }
 
+    /**
+     * 增量查询脚本
+     *
+     * @param epoch    服务端记录的版本标识
+     * @param revision 服务端记录的版本号
+     * @return json
+     */
+    @RequestMapping(value = "list-changes", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public IJsonMessage<JSONObject> listChanges(String epoch, Long revision) {
+        return JsonMessage.success("", nodeScriptServer.changes(epoch, ObjectUtil.defaultIfNull(revision, 0L)));
+    }
+
     @RequestMapping(value = "item.json", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
     public IJsonMessage<NodeScriptModel> item(String id) {
         return JsonMessage.success("", nodeScriptServer.getItem(id));
@@ -94,6 +94,8 @@ public class AgentCacheManageController extends BaseAgentController implements I
 
         int oneLineCount = AgentFileTailWatcher.getOneLineCount();
         jsonObject.put("readFileOnLineCount", oneLineCount);
+        // 实时日志的发送积压情况
+        jsonObject.put("readFileLagStat", AgentFileTailWatcher.allLagStat());
         jsonObject.put("taskList", CronUtils.list());
         jsonObject.put("pluginSize", PluginFactory.size());
         //
@@ -11,7 +11,6 @@ package org.dromara.jpom.service;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.bean.copier.CopyOptions;
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.thread.lock.LockUtil;
@@ -23,10 +22,10 @@ import org.dromara.jpom.JpomApplication;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.model.BaseModel;
 import org.dromara.jpom.system.JpomRuntimeException;
+import org.dromara.jpom.util.JsonFileStore;
 import org.dromara.jpom.util.JsonFileUtil;
 import org.springframework.util.Assert;
 
-import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -59,8 +58,8 @@ public abstract class BaseOperService<T extends BaseModel> {
     }
 
     public int size() {
-        List<T> list = this.list();
-        return CollUtil.size(list);
+        JSONObject jsonObject = getJSONObject();
+        return MapUtil.size(jsonObject);
     }
 
     public <E> List<E> list(Class<E> cls) {
@@ -72,6 +71,22 @@ public abstract class BaseOperService<T extends BaseModel> {
         return jsonArray.toJavaList(cls);
     }
 
+    /**
+     * 查询指定版本之后变化的数据，用于服务端增量同步
+     *
+     * @param epoch    调用方记录的版本标识
+     * @param revision 调用方记录的版本号
+     * @return json
+     * @see JsonFileStore#changes(String, long)
+     */
+    public JSONObject changes(String epoch, long revision) {
+        Objects.requireNonNull(fileName, I18nMessageUtil.get("i18n.file_name_not_configured.39fa"));
+        JSONObject changes = getJsonFileStore(fileName).changes(epoch, revision);
+        JSONArray jsonArray = JsonFileUtil.formatToArray(changes.getJSONObject("items"));
+        changes.put("items", jsonArray.toJavaList(typeArgument));
+        return changes;
+    }
+
     public JSONObject getJSONObject() {
         Objects.requireNonNull(fileName, I18nMessageUtil.get("i18n.file_name_not_configured.39fa"));
         return getJSONObject(fileName);
@@ -96,12 +111,7 @@ public abstract class BaseOperService<T extends BaseModel> {
      */
     public void addItem(T t) {
         Objects.requireNonNull(fileName, I18nMessageUtil.get("i18n.file_name_not_configured.39fa"));
-        try {
-            lock.lock();
-            saveJson(fileName, t);
-        } finally {
-            lock.unlock();
-        }
+        saveJson(fileName, t);
     }
 
     /**
@@ -111,12 +121,7 @@ public abstract class BaseOperService<T extends BaseModel> {
      */
     public void deleteItem(String id) {
         Objects.requireNonNull(fileName, I18nMessageUtil.get("i18n.file_name_not_configured.39fa"));
-        try {
-            lock.lock();
-            deleteJson(fileName, id);
-        } finally {
-            lock.unlock();
-        }
+        deleteJson(fileName, id);
     }
 
     /**
@@ -126,12 +131,7 @@ public abstract class BaseOperService<T extends BaseModel> {
      */
     public void updateItem(T t) {
         Objects.requireNonNull(fileName, I18nMessageUtil.get("i18n.file_name_not_configured.39fa"));
-        try {
-            lock.lock();
-            updateJson(fileName, t);
-        } finally {
-            lock.unlock();
-        }
+        updateJson(fileName, t);
     }
 
     /**
@@ -171,18 +171,19 @@ public abstract class BaseOperService<T extends BaseModel> {
      */
     protected void saveJson(String filename, BaseModel json) {
         String key = json.getId();
-        // 读取文件，如果存在记录，则抛出异常
-        JSONObject allData = getJSONObject(filename);
-        if (allData != null) {
-            // 判断是否存在数据
-            if (allData.containsKey(key)) {
-                throw new JpomRuntimeException(StrUtil.format(I18nMessageUtil.get("i18n.data_id_already_exists.28b6"), filename, key));
+        getJsonFileStore(filename).update(allData -> {
+            // 如果存在记录，则抛出异常
+            if (allData != null) {
+                // 判断是否存在数据
+                if (allData.containsKey(key)) {
+                    throw new JpomRuntimeException(StrUtil.format(I18nMessageUtil.get("i18n.data_id_already_exists.28b6"), filename, key));
+                }
+            } else {
+                allData = new JSONObject();
             }
-        } else {
-            allData = new JSONObject();
-        }
-        allData.put(key, json.toJson());
-        JsonFileUtil.saveJson(getDataFilePath(filename), allData);
+            allData.put(key, json.toJson());
+            return allData;
+        });
     }
 
     /**
@@ -193,17 +194,16 @@ public abstract class BaseOperService<T extends BaseModel> {
      */
     protected void updateJson(String filename, BaseModel json) {
         String key = json.getId();
-        // 读取文件，如果不存在记录，则抛出异常
-        JSONObject allData = getJSONObject(filename);
-        JSONObject data = allData.getJSONObject(key);
-
-        // 判断是否存在数据
-        if (MapUtil.isEmpty(data)) {
-            throw new JpomRuntimeException(I18nMessageUtil.get("i18n.data_does_not_exist_with_details.d9b5") + key);
-        } else {
+        getJsonFileStore(filename).update(allData -> {
+            // 如果不存在记录，则抛出异常
+            JSONObject data = allData == null ? null : allData.getJSONObject(key);
+            // 判断是否存在数据
+            if (MapUtil.isEmpty(data)) {
+                throw new JpomRuntimeException(I18nMessageUtil.get("i18n.data_does_not_exist_with_details.d9b5") + key);
+            }
             allData.put(key, json.toJson());
-            JsonFileUtil.saveJson(getDataFilePath(filename), allData);
-        }
+            return allData;
+        });
     }
 
     /**
@@ -213,30 +213,38 @@ public abstract class BaseOperService<T extends BaseModel> {
      * @param key      key
      */
     protected void deleteJson(String filename, String key) {
-        // 读取文件，如果存在记录，则抛出异常
-        JSONObject allData = getJSONObject(filename);
-        if (allData == null) {
-            return;
-        }
-        //Assert.notNull(allData, "没有任何数据");
-        //JSONObject data = allData.getJSONObject(key);
-        allData.remove(key);
-        JsonFileUtil.saveJson(getDataFilePath(filename), allData);
+        getJsonFileStore(filename).update(allData -> {
+            if (allData == null || !allData.containsKey(key)) {
+                return null;
+            }
+            allData.remove(key);
+            return allData;
+        });
+    }
 
+    /**
+     * 覆盖保存整个json文件
+     *
+     * @param filename 文件名
+     * @param json     json数据
+     */
+    protected void saveJSONObject(String filename, Object json) {
+        JSONObject jsonObject = JSONObject.from(json);
+        getJsonFileStore(filename).update(allData -> jsonObject);
     }
 
     /**
-     * 读取整个json文件
+     * 读取整个json文件，数据来自内存缓存，返回的对象不能修改
      *
      * @param filename 文件名
      * @return json
      */
     protected JSONObject getJSONObject(String filename) {
-        try {
-            return (JSONObject) JsonFileUtil.readJson(getDataFilePath(filename));
-        } catch (FileNotFoundException e) {
-            return null;
-        }
+        return getJsonFileStore(filename).read();
+    }
+
+    private JsonFileStore getJsonFileStore(String filename) {
+        return JsonFileStore.of(getDataFilePath(filename));
     }
 
     protected T getJsonObjectById(String file, String id, Class<T> cls) {
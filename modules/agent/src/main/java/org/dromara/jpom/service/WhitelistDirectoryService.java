@@ -16,7 +16,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.AgentConst;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.model.data.AgentWhitelist;
-import org.dromara.jpom.util.JsonFileUtil;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -88,7 +87,6 @@ public class WhitelistDirectoryService extends BaseOperService<AgentWhitelist> {
      * @param jsonObject 实体
      */
     public void saveWhitelistDirectory(AgentWhitelist jsonObject) {
-        String path = getDataFilePath(AgentConst.WHITELIST_DIRECTORY);
-        JsonFileUtil.saveJson(path, jsonObject.toJson());
+        saveJSONObject(AgentConst.WHITELIST_DIRECTORY, jsonObject.toJson());
     }
 }
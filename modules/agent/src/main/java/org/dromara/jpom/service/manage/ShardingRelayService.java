@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.service.manage;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.io.resource.BytesResource;
+import cn.hutool.core.map.SafeConcurrentHashMap;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpStatus;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.Const;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.common.i18n.I18nThreadUtil;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 分片中继转发，保存分片后转发给服务端指定的下游节点
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Service
+@Slf4j
+public class ShardingRelayService {
+
+    /**
+     * 转发分片给下游节点，下游节点校验签名、保存后继续转发
+     *
+     * @param bytes      分片
+     * @param fileName   分片文件名
+     * @param nowSlice   当前分片
+     * @param totalSlice 分片总数
+     * @param sliceMd5   分片签名
+     * @param fileSumMd5 文件签名
+     * @param targets    下游节点
+     * @return 下游所有节点（包含下游的下游）是否接收成功
+     */
+    public Map<String, Boolean> relay(byte[] bytes, String fileName, int nowSlice, int totalSlice, String sliceMd5, String fileSumMd5, JSONArray targets) {
+        Map<String, Boolean> result = new SafeConcurrentHashMap<>();
+        if (targets == null || targets.isEmpty()) {
+            return result;
+        }
+        List<Future<?>> futures = new ArrayList<>(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            JSONObject target = targets.getJSONObject(i);
+            futures.add(I18nThreadUtil.execAsync(() -> this.relayTarget(target, bytes, fileName, nowSlice, totalSlice, sliceMd5, fileSumMd5, result)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                log.warn(I18nMessageUtil.get("i18n.relay_sharding_failure.0b6c"), nowSlice, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private void relayTarget(JSONObject target, byte[] bytes, String fileName, int nowSlice, int totalSlice,
+                             String sliceMd5, String fileSumMd5, Map<String, Boolean> result) {
+        String key = target.getString("key");
+        JSONArray children = Optional.ofNullable(target.getJSONArray("children")).orElseGet(JSONArray::new);
+        try {
+            HttpRequest httpRequest = HttpRequest.post(target.getString("url"));
+            Optional.ofNullable(target.getInteger("timeout")).ifPresent(timeout -> httpRequest.timeout(timeout * 1000));
+            httpRequest.header(Const.JPOM_AGENT_AUTHORIZE, target.getString(Const.JPOM_AGENT_AUTHORIZE));
+            httpRequest.header(Const.WORKSPACE_ID_REQ_HEADER, target.getString(Const.WORKSPACE_ID_REQ_HEADER));
+            // 节点之间转发不加密参数
+            httpRequest.header("transport-encryption", "0");
+            httpRequest.form("file", new BytesResource(bytes, fileName));
+            httpRequest.form("nowSlice", nowSlice);
+            httpRequest.form("totalSlice", totalSlice);
+            httpRequest.form("sliceMd5", sliceMd5);
+            httpRequest.form("fileSumMd5", fileSumMd5);
+            httpRequest.form("sliceIds", target.getString("sliceIds"));
+            httpRequest.form("relayKey", key);
+            httpRequest.form("relayTargets", children.toString());
+            JSONObject message = httpRequest.thenFunction(response -> {
+                if (response.getStatus() != HttpStatus.HTTP_OK) {
+                    throw new IllegalStateException("status " + response.getStatus());
+                }
+                return JSONObject.parseObject(response.body());
+            });
+            if (message != null && message.getIntValue("code") == HttpStatus.HTTP_OK) {
+                JSONObject data = message.getJSONObject("data");
+                Optional.ofNullable(data).ifPresent(map -> map.forEach((name, value) -> result.put(name, Convert.toBool(value, false))));
+                return;
+            }
+            log.warn(I18nMessageUtil.get("i18n.relay_sharding_target_failure.41d8"), key, nowSlice, message);
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.relay_sharding_target_failure.41d8"), key, nowSlice, e.getMessage());
+        }
+        // 下游节点失败，整棵子树都没有收到分片
+        this.markFailed(target, result);
+    }
+
+    private void markFailed(JSONObject target, Map<String, Boolean> result) {
+        result.put(target.getString("key"), false);
+        JSONArray children = target.getJSONArray("children");
+        if (children == null) {
+            return;
+        }
+        for (int i = 0; i < children.size(); i++) {
+            this.markFailed(children.getJSONObject(i), result);
+        }
+    }
+}
@@ -21,7 +21,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Collection;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -43,6 +45,20 @@ public class AgentFileTailWatcher<T extends AutoCloseable> extends BaseFileTailW
         return CONCURRENT_HASH_MAP.size();
     }
 
+    /**
+     * 所有监听文件的会话发送情况
+     *
+     * @return key 为文件路径
+     * @see BaseFileTailWatcher#lagStat()
+     */
+    public static Map<String, Map<String, Map<String, Long>>> allLagStat() {
+        Map<String, Map<String, Map<String, Long>>> map = new HashMap<>(CONCURRENT_HASH_MAP.size());
+        for (Map.Entry<File, AgentFileTailWatcher<Session>> entry : CONCURRENT_HASH_MAP.entrySet()) {
+            map.put(FileUtil.getAbsolutePath(entry.getKey()), entry.getValue().lagStat());
+        }
+        return map;
+    }
+
     /**
      * 添加文件监听
      *
@@ -81,8 +97,7 @@ public class AgentFileTailWatcher<T extends AutoCloseable> extends BaseFileTailW
     public static void offline(Session session) {
         Collection<AgentFileTailWatcher<Session>> collection = CONCURRENT_HASH_MAP.values();
         for (AgentFileTailWatcher<Session> agentFileTailWatcher : collection) {
-            agentFileTailWatcher.socketSessions.removeIf(session::equals);
-            if (agentFileTailWatcher.socketSessions.isEmpty()) {
+            if (agentFileTailWatcher.remove(session)) {
                 agentFileTailWatcher.close();
             }
         }
@@ -98,7 +113,7 @@ public class AgentFileTailWatcher<T extends AutoCloseable> extends BaseFileTailW
         if (null == agentFileTailWatcher) {
             return;
         }
-        Set<Session> socketSessions = agentFileTailWatcher.socketSessions;
+        List<Session> socketSessions = agentFileTailWatcher.sessions();
         for (Session socketSession : socketSessions) {
             offline(socketSession);
         }
@@ -128,14 +143,10 @@ public class AgentFileTailWatcher<T extends AutoCloseable> extends BaseFileTailW
         if (null == agentFileTailWatcher) {
             return;
         }
-        Set<Session> socketSessions = agentFileTailWatcher.socketSessions;
-        for (Session socketSession : socketSessions) {
-            if (socketSession.equals(session)) {
-                offline(socketSession);
-                break;
-            }
+        if (agentFileTailWatcher.sessions().contains(session)) {
+            offline(session);
         }
-        if (agentFileTailWatcher.socketSessions.isEmpty()) {
+        if (agentFileTailWatcher.sessions().isEmpty()) {
             agentFileTailWatcher.close();
         }
 
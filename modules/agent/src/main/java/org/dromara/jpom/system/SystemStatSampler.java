@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.system;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.system.oshi.OshiUtil;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.JpomApplication;
+import org.dromara.jpom.common.ILoadEvent;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.configuration.AgentConfig;
+import org.dromara.jpom.configuration.MonitorConfig;
+import org.dromara.jpom.util.OshiUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import oshi.hardware.CentralProcessor;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台定时采集系统状态
+ * <p>
+ * cpu、网络流量通过和上一次采集的累计值做差计算，不需要在请求中休眠等待
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+@Configuration
+public class SystemStatSampler implements ILoadEvent, Runnable {
+
+    private final MonitorConfig monitorConfig;
+    private final LinkedList<JSONObject> history = new LinkedList<>();
+    private long[] preTicks;
+    private OshiUtils.NetIoInfo preNetInfo;
+    private long preTime;
+
+    public SystemStatSampler(AgentConfig agentConfig) {
+        this.monitorConfig = Optional.ofNullable(agentConfig.getMonitor()).orElseGet(MonitorConfig::new);
+    }
+
+    @Override
+    public void afterPropertiesSet(ApplicationContext applicationContext) throws Exception {
+        int statInterval = Math.max(Optional.ofNullable(monitorConfig.getStatInterval()).orElse(5), 1);
+        JpomApplication.getScheduledExecutorService().scheduleWithFixedDelay(this, 0, statInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void run() {
+        try {
+            this.sample();
+        } catch (Throwable e) {
+            log.error(I18nMessageUtil.get("i18n.oshi_system_monitoring_exception.5c1c"), e);
+        }
+    }
+
+    /**
+     * 获取最近一次采集的系统状态
+     *
+     * @return 还未采集到数据返回 null
+     */
+    public synchronized JSONObject latest() {
+        return history.peekLast();
+    }
+
+    /**
+     * 获取最近采集的系统状态，时间正序
+     *
+     * @return list
+     */
+    public synchronized List<JSONObject> history() {
+        return new ArrayList<>(history);
+    }
+
+    private void sample() {
+        long now = SystemClock.now();
+        CentralProcessor processor = OshiUtil.getProcessor();
+        long[] ticks = processor.getSystemCpuLoadTicks();
+        OshiUtils.NetIoInfo netInfo = OshiUtils.getNetInfo(monitorConfig.getNetwork());
+        long[] preTicks = this.preTicks;
+        OshiUtils.NetIoInfo preNetInfo = this.preNetInfo;
+        long preTime = this.preTime;
+        this.preTicks = ticks;
+        this.preNetInfo = netInfo;
+        this.preTime = now;
+        if (preTicks == null) {
+            // 第一次采集只记录累计值
+            return;
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("time", now);
+        JSONObject cpuInfo = this.cpuInfo(processor, preTicks, ticks);
+        jsonObject.put("cpu", cpuInfo.get("used"));
+        jsonObject.put("cpuInfo", cpuInfo);
+        //
+        OshiUtils.fillMemoryDiskInfo(jsonObject);
+        // 换算为每秒的流量，和之前休眠 1 秒统计的口径保持一致
+        long time = Math.max(now - preTime, 1);
+        jsonObject.put("netTxBytes", (netInfo.getTxbyt() - preNetInfo.getTxbyt()) * 1000 / time);
+        jsonObject.put("netRxBytes", (netInfo.getRxbyt() - preNetInfo.getRxbyt()) * 1000 / time);
+        jsonObject.put("monitorIfsNames", netInfo.getIfsNames());
+        int statHistorySize = Math.max(Optional.ofNullable(monitorConfig.getStatHistorySize()).orElse(12), 1);
+        synchronized (this) {
+            history.addLast(jsonObject);
+            while (history.size() > statHistorySize) {
+                history.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * 计算两次采集之间的 cpu 使用情况，字段和 {@link cn.hutool.system.oshi.CpuInfo} 保持一致
+     *
+     * @param processor cpu
+     * @param preTicks  上一次的累计值
+     * @param ticks     本次的累计值
+     * @return json
+     */
+    private JSONObject cpuInfo(CentralProcessor processor, long[] preTicks, long[] ticks) {
+        long idle = this.tick(preTicks, ticks, CentralProcessor.TickType.IDLE);
+        long nice = this.tick(preTicks, ticks, CentralProcessor.TickType.NICE);
+        long irq = this.tick(preTicks, ticks, CentralProcessor.TickType.IRQ);
+        long softIrq = this.tick(preTicks, ticks, CentralProcessor.TickType.SOFTIRQ);
+        long steal = this.tick(preTicks, ticks, CentralProcessor.TickType.STEAL);
+        long cSys = this.tick(preTicks, ticks, CentralProcessor.TickType.SYSTEM);
+        long user = this.tick(preTicks, ticks, CentralProcessor.TickType.USER);
+        long ioWait = this.tick(preTicks, ticks, CentralProcessor.TickType.IOWAIT);
+        long totalCpu = Math.max(user + nice + cSys + idle + ioWait + irq + softIrq + steal, 0);
+        //
+        JSONObject ticksJson = new JSONObject();
+        ticksJson.put("idle", idle);
+        ticksJson.put("nice", nice);
+        ticksJson.put("irq", irq);
+        ticksJson.put("softIrq", softIrq);
+        ticksJson.put("steal", steal);
+        ticksJson.put("cSys", cSys);
+        ticksJson.put("user", user);
+        ticksJson.put("ioWait", ioWait);
+        //
+        JSONObject cpuInfo = new JSONObject();
+        cpuInfo.put("cpuNum", processor.getLogicalProcessorCount());
+        cpuInfo.put("toTal", totalCpu);
+        cpuInfo.put("sys", this.percent(cSys, totalCpu));
+        cpuInfo.put("user", this.percent(user, totalCpu));
+        cpuInfo.put("wait", this.percent(ioWait, totalCpu));
+        double free = this.percent(idle, totalCpu);
+        cpuInfo.put("free", free);
+        cpuInfo.put("used", NumberUtil.sub(100, free));
+        cpuInfo.put("cpuModel", processor.toString());
+        cpuInfo.put("ticks", ticksJson);
+        return cpuInfo;
+    }
+
+    private long tick(long[] preTicks, long[] ticks, CentralProcessor.TickType tickType) {
+        int index = tickType.getIndex();
+        return ticks[index] - preTicks[index];
+    }
+
+    private double percent(long value, long total) {
+        if (total <= 0) {
+            return 0D;
+        }
+        return NumberUtil.div(value * 100, total, 2);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.util;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.SecureUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.JpomApplication;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 文件行号稀疏索引
+ * <p>
+ * 每隔 {@link #INTERVAL} 行记录一次行首的字节位置，按行号读取时可以直接跳转到最近的记录位置。
+ * 日志文件一般只追加，索引只需要扫描新增的内容。文件变小、文件标识（inode）变化、修改时间倒退或者文件开头的内容变化时
+ * （被清空、复制后截断、被替换）重新建立。
+ * 索引保存在临时目录中，重启后可以继续使用
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class FileLineIndex {
+
+    /**
+     * 记录间隔行数
+     */
+    private static final int INTERVAL = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * 校验文件开头内容的字节数
+     */
+    private static final int HEAD_SIZE = 4096;
+    /**
+     * 索引文件格式版本
+     */
+    private static final int VERSION = 2;
+    private static final LRUCache<String, FileLineIndex> INDEX_CACHE = CacheUtil.newLRUCache(100);
+
+    private final File file;
+    private final File indexFile;
+    /**
+     * 已扫描到的字节位置（最后一个换行符之后）
+     */
+    private long scannedLength;
+    /**
+     * 已扫描的完整行数
+     */
+    private long scannedLines;
+    /**
+     * offsets[i] 为第 i * INTERVAL + 1 行的行首位置
+     */
+    private long[] offsets = new long[]{0};
+    private int offsetSize = 1;
+    /**
+     * 建立索引时的文件标识（inode 等，部分系统不支持为空）
+     */
+    private String fileKey = "";
+    private long lastModified;
+    /**
+     * 文件开头 headLength 个字节的校验值
+     */
+    private int headLength;
+    private long headHash;
+
+    private FileLineIndex(File file) {
+        this.file = file;
+        this.indexFile = resolveIndexFile(file);
+        this.loadIndex();
+    }
+
+    /**
+     * 获取文件对应的索引
+     *
+     * @param file 文件
+     * @return 索引
+     */
+    public static FileLineIndex of(File file) {
+        String path = FileUtil.getAbsolutePath(file);
+        synchronized (INDEX_CACHE) {
+            FileLineIndex index = INDEX_CACHE.get(path);
+            if (index == null) {
+                index = new FileLineIndex(file);
+                INDEX_CACHE.put(path, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 查找不大于指定行号的最近记录位置
+     *
+     * @param lineNumber 行号，从 1 开始
+     * @return 数组 [行号, 字节位置]，行号超出文件总行数时返回最后的记录位置
+     * @throws IOException io
+     */
+    public synchronized long[] seek(long lineNumber) throws IOException {
+        this.scan(lineNumber);
+        int i = (int) Math.min((Math.max(lineNumber, 1) - 1) / INTERVAL, offsetSize - 1);
+        return new long[]{(long) i * INTERVAL + 1, offsets[i]};
+    }
+
+    /**
+     * 扫描文件直到包含指定行号或者文件末尾
+     *
+     * @param lineNumber 行号
+     * @throws IOException io
+     */
+    private void scan(long lineNumber) throws IOException {
+        long length = file.length();
+        if (scannedLength > 0 && !this.isSameFile(length)) {
+            // 文件被清空、截断或者替换
+            this.reset();
+        }
+        if (scannedLength >= length || scannedLines >= lineNumber) {
+            return;
+        }
+        long oldLength = scannedLength;
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            inputStream.getChannel().position(scannedLength);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = scannedLength;
+            int read;
+            while (scannedLines < lineNumber && (read = inputStream.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    scannedLines++;
+                    scannedLength = position + i + 1;
+                    if (scannedLines % INTERVAL == 0) {
+                        this.addOffset(scannedLength);
+                    }
+                }
+                position += read;
+            }
+        }
+        if (scannedLength != oldLength) {
+            this.fileKey = fileKey(file);
+            this.lastModified = file.lastModified();
+            this.headLength = (int) Math.min(HEAD_SIZE, scannedLength);
+            this.headHash = this.headHash(headLength);
+            this.saveIndex();
+        }
+    }
+
+    /**
+     * 判断文件是否还是建立索引时的文件
+     *
+     * @param length 当前文件大小
+     * @return false 需要重建索引
+     * @throws IOException io
+     */
+    private boolean isSameFile(long length) throws IOException {
+        if (length < scannedLength) {
+            return false;
+        }
+        if (file.lastModified() < lastModified) {
+            return false;
+        }
+        String nowFileKey = fileKey(file);
+        if (!fileKey.isEmpty() && !nowFileKey.isEmpty() && !fileKey.equals(nowFileKey)) {
+            return false;
+        }
+        // 复制后截断的日志文件，文件标识不变，再次写入后文件大小可能已经超过之前的大小
+        return headLength <= 0 || this.headHash(headLength) == headHash;
+    }
+
+    private long headHash(int size) throws IOException {
+        if (size <= 0) {
+            return 0;
+        }
+        byte[] bytes = new byte[size];
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.readFully(bytes);
+        } catch (EOFException e) {
+            return -1;
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return crc32.getValue();
+    }
+
+    private static String fileKey(File file) {
+        try {
+            Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+            return fileKey == null ? "" : fileKey.toString();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private void addOffset(long offset) {
+        if (offsetSize == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsetSize * 2);
+        }
+        offsets[offsetSize++] = offset;
+    }
+
+    private void reset() {
+        scannedLength = 0;
+        scannedLines = 0;
+        offsets = new long[]{0};
+        offsetSize = 1;
+        fileKey = "";
+        lastModified = 0;
+        headLength = 0;
+        headHash = 0;
+    }
+
+    private void loadIndex() {
+        if (indexFile == null || !indexFile.exists()) {
+            return;
+        }
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (inputStream.readInt() != VERSION) {
+                return;
+            }
+            String fileKey = inputStream.readUTF();
+            long lastModified = inputStream.readLong();
+            int headLength = inputStream.readInt();
+            long headHash = inputStream.readLong();
+            long scannedLength = inputStream.readLong();
+            long scannedLines = inputStream.readLong();
+            int size = inputStream.readInt();
+            long[] offsets = new long[Math.max(size, 1)];
+            for (int i = 0; i < size; i++) {
+                offsets[i] = inputStream.readLong();
+            }
+            if (size < 1 || scannedLength > file.length()) {
+                return;
+            }
+            this.scannedLength = scannedLength;
+            this.scannedLines = scannedLines;
+            this.offsets = offsets;
+            this.offsetSize = size;
+            this.fileKey = fileKey;
+            this.lastModified = lastModified;
+            this.headLength = headLength;
+            this.headHash = headHash;
+        } catch (Exception e) {
+            log.debug(I18nMessageUtil.get("i18n.load_line_index_failure.5b27"), indexFile, e.getMessage());
+            this.reset();
+        }
+    }
+
+    private void saveIndex() {
+        if (indexFile == null) {
+            return;
+        }
+        FileUtil.mkParentDirs(indexFile);
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            outputStream.writeInt(VERSION);
+            outputStream.writeUTF(fileKey);
+            outputStream.writeLong(lastModified);
+            outputStream.writeInt(headLength);
+            outputStream.writeLong(headHash);
+            outputStream.writeLong(scannedLength);
+            outputStream.writeLong(scannedLines);
+            outputStream.writeInt(offsetSize);
+            for (int i = 0; i < offsetSize; i++) {
+                outputStream.writeLong(offsets[i]);
+            }
+        } catch (Exception e) {
+            log.debug(I18nMessageUtil.get("i18n.save_line_index_failure.90f3"), indexFile, e.getMessage());
+        }
+    }
+
+    private static File resolveIndexFile(File file) {
+        JpomApplication application;
+        try {
+            application = JpomApplication.getInstance();
+        } catch (Exception e) {
+            return null;
+        }
+        if (application == null) {
+            return null;
+        }
+        String name = SecureUtil.md5(FileUtil.getAbsolutePath(file));
+        return FileUtil.file(application.getTempPath(), "line-index", name + ".idx");
+    }
+}
@@ -9,32 +9,30 @@
  */
 package org.dromara.jpom.util;
 
-import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Tuple;
-import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.IOException;
-import java.io.LineNumberReader;
+import java.io.*;
 import java.nio.charset.Charset;
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * 文件搜索工具
+ * <p>
+ * 读取文件最后几行时从文件末尾反向查找换行符，按行号范围读取时通过 {@link FileLineIndex} 跳转到最近的行
  *
  * @author bwcx_jzy
  * @since 2022/5/15
  */
 public class FileSearchUtil {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     /**
      * @param file             文件
      * @param charset          编码格式
@@ -55,86 +53,263 @@ public class FileSearchUtil {
                                     boolean first, Consumer<Tuple> consumer) throws IOException {
 
         int[] calculate = FileSearchUtil.calculate(head, tailCount, first);
-        Collection<Tuple> strings;
+        LineMatcher lineMatcher = new LineMatcher(searchKey, cacheBeforeCount, afterCount, consumer);
+        int readLine;
         if (calculate.length == 1) {
-            strings = FileSearchUtil.readLastLine(file, charset, calculate[0]);
+            readLine = FileSearchUtil.eachLastLine(file, charset, calculate[0], lineMatcher);
         } else {
-            strings = FileSearchUtil.readRangeLine(file, charset, calculate);
+            readLine = FileSearchUtil.eachRangeLine(file, charset, calculate, lineMatcher);
         }
-        int showLine = searchList(strings, searchKey, cacheBeforeCount, afterCount, consumer);
-        return StrUtil.format(I18nMessageUtil.get("i18n.search_result_display.d2c3"), CollUtil.size(strings), showLine);
+        return StrUtil.format(I18nMessageUtil.get("i18n.search_result_display.d2c3"), readLine, lineMatcher.showLine);
     }
 
-    private static int searchList(Collection<Tuple> strings, String searchKey, int beforeCount, int afterCount, Consumer<Tuple> consumer) {
-        AtomicInteger hitIndex = new AtomicInteger(0);
-        LimitQueue<Tuple> beforeQueue = new LimitQueue<>(beforeCount);
-        List<Integer> cacheLineNum = new LinkedList<>();
-        strings.forEach(tuple -> {
+    /**
+     * 逐行匹配关键词，输出命中行和前后的行
+     */
+    private static class LineMatcher implements Predicate<Tuple> {
+        private final String searchKey;
+        private final Pattern pattern;
+        private final int beforeCount;
+        private final int afterCount;
+        private final Consumer<Tuple> consumer;
+        private final Deque<Tuple> beforeQueue;
+        private int hitIndex;
+        /**
+         * 已经输出的最大行号，行按顺序输出，小于等于此行号的都已经输出过
+         */
+        private int echoIndex;
+        private int showLine;
+
+        private LineMatcher(String searchKey, int beforeCount, int afterCount, Consumer<Tuple> consumer) {
+            this.searchKey = searchKey;
+            this.pattern = compile(searchKey);
+            this.beforeCount = Math.max(beforeCount, 0);
+            this.afterCount = afterCount;
+            this.consumer = consumer;
+            this.beforeQueue = new ArrayDeque<>(this.beforeCount + 1);
+        }
+
+        private static Pattern compile(String searchKey) {
+            if (StrUtil.isEmpty(searchKey)) {
+                return null;
+            }
+            try {
+                return Pattern.compile(searchKey, Pattern.DOTALL);
+            } catch (PatternSyntaxException e) {
+                // 不是正则表达式，只按关键词匹配
+                return null;
+            }
+        }
+
+        @Override
+        public boolean test(Tuple tuple) {
             String s = tuple.get(1);
-            Integer index = tuple.get(0);
-            // System.out.println(s);
-            if (StrUtil.isEmpty(searchKey) || StrUtil.containsIgnoreCase(s, searchKey) || ReUtil.isMatch(searchKey, s)) {
+            int index = tuple.get(0);
+            if (StrUtil.isEmpty(searchKey) || StrUtil.containsIgnoreCase(s, searchKey) || (pattern != null && pattern.matcher(s).matches())) {
                 // 先输出之前的
                 for (Tuple before : beforeQueue) {
-                    checkEchoCache(cacheLineNum, before, consumer);
+                    this.echo(before);
                 }
-                checkEchoCache(cacheLineNum, tuple, consumer);
-                hitIndex.set(index);
+                this.echo(tuple);
+                hitIndex = index;
             }
             // 是否需要输出后面的内容
-            int i = hitIndex.get();
-            if (i > 0 && index > i && index <= i + afterCount) {
-                checkEchoCache(cacheLineNum, tuple, consumer);
+            if (hitIndex > 0 && index > hitIndex && index <= hitIndex + afterCount) {
+                this.echo(tuple);
             }
             if (beforeCount > 0) {
-                //
-                beforeQueue.offerFirst(tuple);
+                if (beforeQueue.size() >= beforeCount) {
+                    beforeQueue.pollFirst();
+                }
+                beforeQueue.offerLast(tuple);
             }
-        });
-        return CollUtil.size(cacheLineNum);
-    }
+            return true;
+        }
 
-    private static void checkEchoCache(List<Integer> cacheLineNum, Tuple tuple, Consumer<Tuple> consumer) {
-        int index = tuple.get(0);
-        if (cacheLineNum.contains(index)) {
-            return;
+        private void echo(Tuple tuple) {
+            int index = tuple.get(0);
+            if (index <= echoIndex) {
+                return;
+            }
+            consumer.accept(tuple);
+            echoIndex = index;
+            showLine++;
         }
-        consumer.accept(tuple);
-        cacheLineNum.add(index);
     }
 
     public static Collection<Tuple> readLastLine(File file, Charset charset, int line) throws IOException {
-        BufferedReader reader = FileUtil.getReader(file, charset);
-        LineNumberReader lineNumberReader = new LineNumberReader(reader);
-        LimitQueue<Tuple> limitQueue = new LimitQueue<>(line);
-        while (true) {
-            String readLine = lineNumberReader.readLine();
-            if (readLine == null) {
-                break;
+        List<Tuple> list = new ArrayList<>();
+        eachLastLine(file, charset, line, list::add);
+        return list;
+    }
+
+    public static Collection<Tuple> readRangeLine(File file, Charset charset, int[] range) throws IOException {
+        List<Tuple> list = new ArrayList<>();
+        eachRangeLine(file, charset, range, list::add);
+        return list;
+    }
+
+    /**
+     * 读取文件最后几行，行号从 1 开始计算（相对读取的第一行）
+     *
+     * @param file     文件
+     * @param charset  编码格式
+     * @param line     行数
+     * @param consumer 回调，返回 false 停止读取
+     * @return 读取的行数
+     * @throws IOException io
+     */
+    private static int eachLastLine(File file, Charset charset, int line, Predicate<Tuple> consumer) throws IOException {
+        if (line <= 0) {
+            return 0;
+        }
+        if (!isAsciiCompatible(charset)) {
+            // 换行符不是单字节的编码只能从头读取
+            LimitQueue<Tuple> limitQueue = new LimitQueue<>(line - 1);
+            eachLine(file, 0, charset, 1, limitQueue::offerLast);
+            int i = 0;
+            for (Tuple tuple : limitQueue) {
+                consumer.test(new Tuple(++i, tuple.get(1)));
             }
-            limitQueue.add(new Tuple(lineNumberReader.getLineNumber(), readLine));
+            return i;
         }
-        return limitQueue;
+        long offset;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            offset = tailOffset(randomAccessFile, line);
+        }
+        return eachLine(file, offset, charset, 1, consumer);
     }
 
-    public static Collection<Tuple> readRangeLine(File file, Charset charset, int[] range) throws IOException {
-        BufferedReader reader = FileUtil.getReader(file, charset);
-        LineNumberReader lineNumberReader = new LineNumberReader(reader);
-        List<Tuple> list = new LinkedList<>();
-        while (true) {
-            String readLine = lineNumberReader.readLine();
-            if (readLine == null) {
-                break;
+    /**
+     * 读取指定行号范围内的行
+     *
+     * @param file     文件
+     * @param charset  编码格式
+     * @param range    行号范围 [开始, 结束]
+     * @param consumer 回调，返回 false 停止读取
+     * @return 读取的行数
+     * @throws IOException io
+     */
+    private static int eachRangeLine(File file, Charset charset, int[] range, Predicate<Tuple> consumer) throws IOException {
+        long startLine = 1;
+        long offset = 0;
+        if (isAsciiCompatible(charset)) {
+            long[] seek = FileLineIndex.of(file).seek(range[0]);
+            startLine = seek[0];
+            offset = seek[1];
+        }
+        int[] count = new int[]{0};
+        eachLine(file, offset, charset, startLine, tuple -> {
+            int lineNumber = tuple.get(0);
+            if (lineNumber > range[1]) {
+                return false;
             }
-            int lineNumber = lineNumberReader.getLineNumber();
-            if (lineNumber >= range[0] && lineNumber <= range[1]) {
-                list.add(new Tuple(lineNumber, readLine));
+            if (lineNumber >= range[0]) {
+                count[0]++;
+                return consumer.test(tuple);
             }
-            if (lineNumber > range[1]) {
-                break;
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * 从文件末尾反向查找倒数第 line 行的行首位置
+     *
+     * @param randomAccessFile 文件
+     * @param line             行数
+     * @return 字节位置
+     * @throws IOException io
+     */
+    private static long tailOffset(RandomAccessFile randomAccessFile, int line) throws IOException {
+        long length = randomAccessFile.length();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long end = length;
+        int count = 0;
+        while (end > 0) {
+            int size = (int) Math.min(buffer.length, end);
+            long start = end - size;
+            randomAccessFile.seek(start);
+            randomAccessFile.readFully(buffer, 0, size);
+            for (int i = size - 1; i >= 0; i--) {
+                if (buffer[i] != '\n') {
+                    continue;
+                }
+                long position = start + i;
+                if (position == length - 1) {
+                    // 文件末尾的换行符
+                    continue;
+                }
+                if (++count == line) {
+                    return position + 1;
+                }
             }
+            end = start;
         }
-        return list;
+        return 0;
+    }
+
+    /**
+     * 从指定位置开始按行读取，以 \n 作为换行符（去掉行尾的 \r）
+     *
+     * @param file      文件
+     * @param offset    开始读取的字节位置
+     * @param charset   编码格式
+     * @param startLine 开始位置的行号
+     * @param consumer  回调，返回 false 停止读取
+     * @return 读取的行数
+     * @throws IOException io
+     */
+    private static int eachLine(File file, long offset, Charset charset, long startLine, Predicate<Tuple> consumer) throws IOException {
+        int count = 0;
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            inputStream.getChannel().position(offset);
+            Reader reader = new InputStreamReader(inputStream, charset);
+            char[] buffer = new char[BUFFER_SIZE];
+            StringBuilder builder = new StringBuilder();
+            int lineNumber = (int) startLine;
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] != '\n') {
+                        continue;
+                    }
+                    builder.append(buffer, lineStart, i - lineStart);
+                    lineStart = i + 1;
+                    count++;
+                    if (!consumer.test(new Tuple(lineNumber++, trimLine(builder)))) {
+                        return count;
+                    }
+                    builder.setLength(0);
+                }
+                builder.append(buffer, lineStart, read - lineStart);
+            }
+            if (builder.length() > 0) {
+                count++;
+                consumer.test(new Tuple(lineNumber, trimLine(builder)));
+            }
+        }
+        return count;
+    }
+
+    private static String trimLine(StringBuilder builder) {
+        int length = builder.length();
+        if (length > 0 && builder.charAt(length - 1) == '\r') {
+            length--;
+        }
+        return builder.substring(0, length);
+    }
+
+    /**
+     * 换行符是否为单字节的 \n，可以直接按字节查找
+     *
+     * @param charset 编码格式
+     * @return true 可以按字节查找
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        byte[] bytes = "\n".getBytes(charset);
+        return bytes.length == 1 && bytes[0] == '\n';
     }
 
     /**
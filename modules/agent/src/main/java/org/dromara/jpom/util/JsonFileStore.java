@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.util;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.map.SafeConcurrentHashMap;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * json 数据文件内存缓存
+ * <p>
+ * 每个数据文件对应一个实例，读取时直接返回内存中已解析的数据（以数据 id 为 key），
+ * 写入时先写临时文件再重命名替换，成功后同步更新内存数据。
+ * 文件被外部修改时（修改时间或大小变化）会重新加载
+ * <p>
+ * 每次写入会对比新旧数据，为变化的数据记录递增的版本号（删除的数据保留墓碑记录），
+ * 便于服务端只拉取指定版本之后的变化。版本信息保存在数据文件同目录的 .rev 文件中，
+ * 文件被外部修改后重新生成版本标识（epoch），调用方需要全量同步
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class JsonFileStore {
+
+    private static final Map<String, JsonFileStore> STORE_MAP = new SafeConcurrentHashMap<>();
+    /**
+     * 检查文件是否被外部修改的间隔（毫秒）
+     */
+    private static final long CHECK_INTERVAL = 1000;
+    /**
+     * 最多保留的删除记录数
+     */
+    private static final int MAX_TOMBSTONE = 1000;
+
+    private final File file;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 文件内容，文件不存在时为 null
+     */
+    private volatile JSONObject data;
+    private volatile boolean loaded;
+    private volatile long lastModified;
+    private volatile long length;
+    private volatile long lastCheckTime;
+    /**
+     * 版本信息
+     */
+    private final File revisionFile;
+    private String epoch;
+    private long revision;
+    /**
+     * 比此版本更早的删除记录已经被清理，低于此版本的增量请求需要全量同步
+     */
+    private long minRevision;
+    private final Map<String, Long> itemRevision = new HashMap<>();
+    private final LinkedHashMap<String, Long> tombstone = new LinkedHashMap<>();
+
+    private JsonFileStore(String path) {
+        this.file = new File(path);
+        this.revisionFile = new File(path + ".rev");
+    }
+
+    /**
+     * 获取数据文件对应的缓存
+     *
+     * @param path 文件路径
+     * @return store
+     */
+    public static JsonFileStore of(String path) {
+        return STORE_MAP.computeIfAbsent(FileUtil.normalize(path), JsonFileStore::new);
+    }
+
+    /**
+     * 读取文件内容，返回的对象为共享数据不能修改
+     *
+     * @return 文件不存在返回 null
+     */
+    public JSONObject read() {
+        if (this.loaded && !this.needReload()) {
+            return this.data;
+        }
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (!this.loaded || this.needReload()) {
+                this.load();
+            }
+            return this.data;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 修改文件内容
+     *
+     * @param function 入参为当前数据的浅拷贝（文件不存在为 null），返回需要保存的新数据，返回 null 则不保存
+     */
+    public void update(Function<JSONObject, JSONObject> function) {
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (!this.loaded || this.needReload()) {
+                this.load();
+            }
+            JSONObject copy = this.data == null ? null : new JSONObject(this.data);
+            JSONObject newData = function.apply(copy);
+            if (newData == null) {
+                return;
+            }
+            this.write(newData);
+            this.updateRevision(this.data, newData);
+            this.data = newData;
+            this.markLoaded();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 查询指定版本之后的变化
+     *
+     * @param epoch    调用方记录的版本标识
+     * @param revision 调用方记录的版本号
+     * @return full 是否为全量数据，items 变化（全量）的数据，deleted 删除的数据 id，epoch、revision 当前的版本
+     */
+    public JSONObject changes(String epoch, long revision) {
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (!this.loaded || this.needReload()) {
+                this.load();
+            }
+            JSONObject data = ObjectUtil.defaultIfNull(this.data, new JSONObject());
+            boolean full = !StrUtil.equals(epoch, this.epoch) || revision < this.minRevision || revision > this.revision;
+            JSONObject items = new JSONObject();
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                if (full || this.itemRevision.getOrDefault(entry.getKey(), 0L) > revision) {
+                    items.put(entry.getKey(), entry.getValue());
+                }
+            }
+            List<String> deleted = new ArrayList<>();
+            if (!full) {
+                this.tombstone.forEach((id, aLong) -> {
+                    if (aLong > revision) {
+                        deleted.add(id);
+                    }
+                });
+            }
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("epoch", this.epoch);
+            jsonObject.put("revision", this.revision);
+            jsonObject.put("full", full);
+            jsonObject.put("items", items);
+            jsonObject.put("deleted", deleted);
+            return jsonObject;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 对比新旧数据，记录变化的版本号
+     *
+     * @param oldData 旧数据
+     * @param newData 新数据
+     */
+    private void updateRevision(JSONObject oldData, JSONObject newData) {
+        for (Map.Entry<String, Object> entry : newData.entrySet()) {
+            Object oldValue = oldData == null ? null : oldData.get(entry.getKey());
+            // 未修改的数据在浅拷贝中还是同一个对象
+            if (oldValue == entry.getValue() || (oldValue != null && oldValue.equals(entry.getValue()))) {
+                continue;
+            }
+            this.itemRevision.put(entry.getKey(), ++this.revision);
+            this.tombstone.remove(entry.getKey());
+        }
+        if (oldData != null) {
+            for (String key : oldData.keySet()) {
+                if (newData.containsKey(key)) {
+                    continue;
+                }
+                this.itemRevision.remove(key);
+                this.tombstone.put(key, ++this.revision);
+            }
+        }
+        Iterator<Map.Entry<String, Long>> iterator = this.tombstone.entrySet().iterator();
+        while (this.tombstone.size() > MAX_TOMBSTONE && iterator.hasNext()) {
+            this.minRevision = Math.max(this.minRevision, iterator.next().getValue());
+            iterator.remove();
+        }
+        // 数据文件已经重新写入，即使没有变化也需要保存最新的文件信息，否则重新加载时会认为文件被外部修改
+        this.saveRevision();
+    }
+
+    private void loadRevision() {
+        this.itemRevision.clear();
+        this.tombstone.clear();
+        JSONObject jsonObject = null;
+        if (revisionFile.exists()) {
+            try {
+                jsonObject = JSON.parseObject(FileUtil.readUtf8String(revisionFile));
+            } catch (Exception e) {
+                jsonObject = null;
+            }
+        }
+        if (jsonObject == null || jsonObject.getLongValue("lastModified") != this.lastModified || jsonObject.getLongValue("length") != this.length) {
+            // 没有版本信息或者数据文件被外部修改
+            this.epoch = IdUtil.fastSimpleUUID();
+            this.revision = 0;
+            this.minRevision = 0;
+            this.saveRevision();
+            return;
+        }
+        this.epoch = jsonObject.getString("epoch");
+        this.revision = jsonObject.getLongValue("revision");
+        this.minRevision = jsonObject.getLongValue("minRevision");
+        Optional.ofNullable(jsonObject.getJSONObject("items"))
+            .ifPresent(items -> items.forEach((key, value) -> this.itemRevision.put(key, Convert.toLong(value, 0L))));
+        Optional.ofNullable(jsonObject.getJSONObject("deleted"))
+            .ifPresent(deleted -> deleted.forEach((key, value) -> this.tombstone.put(key, Convert.toLong(value, 0L))));
+    }
+
+    private void saveRevision() {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("epoch", this.epoch);
+        jsonObject.put("revision", this.revision);
+        jsonObject.put("minRevision", this.minRevision);
+        jsonObject.put("lastModified", file.lastModified());
+        jsonObject.put("length", file.length());
+        jsonObject.put("items", this.itemRevision);
+        jsonObject.put("deleted", this.tombstone);
+        try {
+            FileUtil.writeUtf8String(JSON.toJSONString(jsonObject), revisionFile);
+        } catch (Exception e) {
+            // 版本信息写入失败不影响数据，下次加载时重新生成版本标识
+            FileUtil.del(revisionFile);
+        }
+    }
+
+    private boolean needReload() {
+        long now = SystemClock.now();
+        if (now - lastCheckTime < CHECK_INTERVAL) {
+            return false;
+        }
+        lastCheckTime = now;
+        return file.lastModified() != lastModified || file.length() != length;
+    }
+
+    private void load() {
+        try {
+            this.data = JsonFileUtil.readJson(file);
+        } catch (FileNotFoundException e) {
+            this.data = null;
+        }
+        this.markLoaded();
+        this.loadRevision();
+    }
+
+    private void markLoaded() {
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+        this.lastCheckTime = SystemClock.now();
+        this.loaded = true;
+    }
+
+    /**
+     * 先写入临时文件，再重命名覆盖，避免写入中断导致数据文件损坏
+     *
+     * @param newData 数据
+     */
+    private void write(JSONObject newData) {
+        File temp = FileUtil.file(file.getParentFile(), file.getName() + ".tmp");
+        FileUtil.writeString(JSON.toJSONString(newData), temp, CharsetUtil.CHARSET_UTF_8);
+        try {
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+}
@@ -110,6 +110,27 @@ public class OshiUtils {
         jsonObject.put("cpu", cpuInfo.getUsed());
         jsonObject.put("cpuInfo", cpuInfo);
         //
+        fillMemoryDiskInfo(jsonObject);
+        //
+
+        MonitorConfig.NetworkConfig networkConfig1 = Optional.ofNullable(monitorConfig)
+            .map(MonitorConfig::getNetwork).orElse(null);
+        NetIoInfo startNetInfo = getNetInfo(networkConfig1);
+        //暂停1秒
+        Util.sleep(NET_STAT_SLEEP);
+        NetIoInfo endNetInfo = getNetInfo(networkConfig1);
+        jsonObject.put("netTxBytes", endNetInfo.getTxbyt() - startNetInfo.getTxbyt());
+        jsonObject.put("netRxBytes", endNetInfo.getRxbyt() - startNetInfo.getRxbyt());
+        jsonObject.put("monitorIfsNames", endNetInfo.getIfsNames());
+        return jsonObject;
+    }
+
+    /**
+     * 填充内存、交换空间、磁盘的占用信息
+     *
+     * @param jsonObject json
+     */
+    public static void fillMemoryDiskInfo(JSONObject jsonObject) {
         GlobalMemory globalMemory = OshiUtil.getMemory();
         // 在不使用交换空间的情况下，启动一个新的应用最大可用内存的大小，
         // 计算方式：MemFree+Active(file)+Inactive(file)-(watermark+min(watermark,Active(file)+Inactive(file)/2))
@@ -135,21 +156,15 @@ public class OshiUtils {
             used += (fs.getTotalSpace() - fs.getUsableSpace());
         }
         jsonObject.put("disk", NumberUtil.div(used, total, 2) * 100);
-        //
-
-        MonitorConfig.NetworkConfig networkConfig1 = Optional.ofNullable(monitorConfig)
-            .map(MonitorConfig::getNetwork).orElse(null);
-        NetIoInfo startNetInfo = getNetInfo(networkConfig1);
-        //暂停1秒
-        Util.sleep(NET_STAT_SLEEP);
-        NetIoInfo endNetInfo = getNetInfo(networkConfig1);
-        jsonObject.put("netTxBytes", endNetInfo.getTxbyt() - startNetInfo.getTxbyt());
-        jsonObject.put("netRxBytes", endNetInfo.getRxbyt() - startNetInfo.getRxbyt());
-        jsonObject.put("monitorIfsNames", endNetInfo.getIfsNames());
-        return jsonObject;
     }
 
-    private static NetIoInfo getNetInfo(MonitorConfig.NetworkConfig networkConfig) {
+    /**
+     * 获取网卡累计的流量信息
+     *
+     * @param networkConfig 网卡配置
+     * @return 累计流量
+     */
+    public static NetIoInfo getNetInfo(MonitorConfig.NetworkConfig networkConfig) {
         //
         List<String> statExcludeNames = Optional.ofNullable(networkConfig)
             .map(MonitorConfig.NetworkConfig::getStatExcludeNames)
@@ -346,7 +361,7 @@ public class OshiUtils {
     }
 
     @Data
-    private static class NetIoInfo {
+    public static class NetIoInfo {
         /**
          * 接收的数据包,rxpck/s
          */
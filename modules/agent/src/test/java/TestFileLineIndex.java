@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import org.dromara.jpom.util.FileLineIndex;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 行号索引在日志文件截断、替换后重建
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class TestFileLineIndex {
+
+    private File file;
+
+    @Before
+    public void before() {
+        file = FileUtil.file(FileUtil.getTmpDir(), "jpom-test", IdUtil.fastSimpleUUID() + ".log");
+    }
+
+    @After
+    public void after() {
+        FileUtil.del(file);
+    }
+
+    @Test
+    public void testSeek() throws IOException {
+        this.writeLines("line", 3000);
+        this.assertSeek(2049, "line");
+        this.assertSeek(3000, "line");
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        this.writeLines("line", 3000);
+        this.assertSeek(2049, "line");
+        // 文件被清空后重新写入，内容比之前少
+        this.writeLines("new", 1500);
+        this.assertSeek(1025, "new");
+    }
+
+    @Test
+    public void testCopyTruncateGrow() throws IOException {
+        this.writeLines("line", 3000);
+        this.assertSeek(2049, "line");
+        // 截断后再次写入，文件标识不变并且文件大小已经超过之前的大小
+        this.writeLines("again", 4000);
+        this.assertSeek(3073, "again");
+    }
+
+    @Test
+    public void testReplace() throws IOException {
+        this.writeLines("line", 3000);
+        this.assertSeek(2049, "line");
+        // 使用新文件替换
+        File newFile = FileUtil.file(file.getParentFile(), IdUtil.fastSimpleUUID() + ".log");
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1; i <= 3500; i++) {
+            builder.append("replace-").append(i).append('\n');
+        }
+        FileUtil.writeString(builder.toString(), newFile, StandardCharsets.UTF_8);
+        FileUtil.move(newFile, file, true);
+        this.assertSeek(3073, "replace");
+    }
+
+    private void writeLines(String prefix, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1; i <= count; i++) {
+            builder.append(prefix).append('-').append(i).append('\n');
+        }
+        FileUtil.writeString(builder.toString(), file, StandardCharsets.UTF_8);
+    }
+
+    private void assertSeek(long lineNumber, String prefix) throws IOException {
+        long[] seek = FileLineIndex.of(file).seek(lineNumber);
+        Assert.assertTrue(seek[0] <= lineNumber);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(seek[1]);
+            Assert.assertEquals(prefix + "-" + seek[0], randomAccessFile.readLine());
+        }
+    }
+}
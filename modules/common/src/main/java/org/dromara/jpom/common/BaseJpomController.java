@@ -12,12 +12,12 @@ package org.dromara.jpom.common;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.*;
-import cn.hutool.crypto.SecureUtil;
+import cn.hutool.core.lang.Validator;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
 import cn.hutool.extra.servlet.ServletUtil;
-import lombok.Lombok;
 import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
-import org.dromara.jpom.util.FileUtils;
 import org.springframework.util.Assert;
 import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -26,12 +26,14 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.nio.channels.FileChannel;
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 /**
  * controller
@@ -89,8 +91,64 @@ public abstract class BaseJpomController {
         assert originalFilename != null;
         File slice = FileUtil.file(sliceItemPath, originalFilename);
         FileUtil.mkParentDirs(slice);
-        // 保存
-        file.transferTo(slice);
+        // 保存，同时计算分片签名
+        MessageDigest digest = DigestUtil.digester(DigestAlgorithm.MD5).getDigest();
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+            FileUtil.writeFromStream(inputStream, slice, false);
+        }
+        String md5 = HexUtil.encodeHexStr(digest.digest());
+        String sliceMd5 = this.getParameter("sliceMd5");
+        if (StrUtil.isNotEmpty(sliceMd5) && !StrUtil.equals(md5, sliceMd5)) {
+            FileUtil.del(slice);
+            throw new IllegalStateException(I18nMessageUtil.get("i18n.slice_md5_mismatch.5b1e") + nowSlice);
+        }
+        // 记录已完成的分片，断点续传时可以跳过
+        FileUtil.writeUtf8String(md5, FileUtil.file(slicePath, "md5", String.valueOf(nowSlice)));
+    }
+
+    /**
+     * 保存分片（中继转发的分片，已经校验过签名）
+     *
+     * @param bytes            分片内容
+     * @param originalFilename 分片文件名 xxxxx.avi.1
+     * @param tempPath         临时保存目录
+     * @param sliceId          上传id
+     * @param nowSlice         当前分片
+     * @param md5              分片签名
+     */
+    public void saveSharding(byte[] bytes, String originalFilename, String tempPath, String sliceId, int nowSlice, String md5) {
+        Assert.state(StrUtil.isNotEmpty(sliceId) && Validator.isGeneral(sliceId), I18nMessageUtil.get("i18n.no_shard_id_info.30f8"));
+        File slicePath = FileUtil.file(tempPath, "slice", sliceId);
+        File slice = FileUtil.file(slicePath, "items", FileUtil.getName(originalFilename));
+        FileUtil.writeBytes(bytes, slice);
+        // 记录已完成的分片，断点续传时可以跳过
+        FileUtil.writeUtf8String(md5, FileUtil.file(slicePath, "md5", String.valueOf(nowSlice)));
+    }
+
+    /**
+     * 查询已经上传完成的分片
+     *
+     * @param tempPath 临时保存目录
+     * @param sliceId  上传id
+     * @return key 分片序号，value 分片签名
+     */
+    public Map<Integer, String> shardingStatus(String tempPath, String sliceId) {
+        Assert.hasText(sliceId, I18nMessageUtil.get("i18n.no_shard_id_info.30f8"));
+        Assert.state(Validator.isGeneral(sliceId), I18nMessageUtil.get("i18n.no_shard_id_info.30f8"));
+        File md5Path = FileUtil.file(tempPath, "slice", sliceId, "md5");
+        File[] files = md5Path.listFiles();
+        Map<Integer, String> map = new TreeMap<>();
+        if (files == null) {
+            return map;
+        }
+        for (File file : files) {
+            Integer index = Convert.toInt(file.getName(), null);
+            if (index == null) {
+                continue;
+            }
+            map.put(index, FileUtil.readUtf8String(file));
+        }
+        return map;
     }
 
     /**
@@ -124,26 +182,30 @@ public abstract class BaseJpomController {
         String name = files[0].getName();
         name = StrUtil.subBefore(name, StrUtil.DOT, true);
         File successFile = FileUtil.file(slicePath, name);
-        try (FileOutputStream fileOutputStream = new FileOutputStream(successFile)) {
-            try (FileChannel channel = fileOutputStream.getChannel()) {
-                Arrays.stream(files).sorted((o1, o2) -> {
-                    // 排序
-                    Integer o1Int = Convert.toInt(FileUtil.extName(o1), 0);
-                    Integer o2Int = Convert.toInt(FileUtil.extName(o2), 0);
-                    return o1Int.compareTo(o2Int);
-                }).forEach(file12 -> {
-                    try {
-                        FileUtils.appendChannel(file12, channel);
-                    } catch (Exception e) {
-                        throw Lombok.sneakyThrow(e);
+        Arrays.sort(files, (o1, o2) -> {
+            // 排序
+            Integer o1Int = Convert.toInt(FileUtil.extName(o1), 0);
+            Integer o2Int = Convert.toInt(FileUtil.extName(o2), 0);
+            return o1Int.compareTo(o2Int);
+        });
+        // 合并的同时计算签名，避免合并后再完整读取一次文件
+        MessageDigest digest = DigestUtil.digester(DigestAlgorithm.MD5).getDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream outputStream = new DigestOutputStream(new FileOutputStream(successFile), digest)) {
+            for (File item : files) {
+                try (FileInputStream inputStream = new FileInputStream(item)) {
+                    int read;
+                    while ((read = inputStream.read(buffer)) > 0) {
+                        outputStream.write(buffer, 0, read);
                     }
-                });
+                }
             }
         }
         // 删除分片信息
         FileUtil.del(sliceItemPath);
+        FileUtil.del(FileUtil.file(slicePath, "md5"));
         // 对比文件信息
-        String newMd5 = SecureUtil.md5(successFile);
+        String newMd5 = HexUtil.encodeHexStr(digest.digest());
         Assert.state(StrUtil.equals(newMd5, fileSumMd5), () -> {
             log.warn(I18nMessageUtil.get("i18n.file_merge_exception_details.e9d0"), FileUtil.getAbsolutePath(successFile), newMd5, fileSumMd5);
             return I18nMessageUtil.get("i18n.file_merge_error.f32f");
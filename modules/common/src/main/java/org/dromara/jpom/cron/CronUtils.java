@@ -27,6 +27,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -63,11 +64,25 @@ public class CronUtils {
          * 描述
          */
         private final String desc;
+        /**
+         * 任务自定义的统计项
+         */
+        private final Map<String, AtomicLong> counter = new ConcurrentHashMap<>(8);
 
         public TaskStat(String desc) {
             this.desc = desc;
         }
 
+        /**
+         * 自定义统计项计数
+         *
+         * @param key   统计项
+         * @param delta 增加的数量
+         */
+        public void increment(String key, long delta) {
+            this.counter.computeIfAbsent(key, s -> new AtomicLong()).addAndGet(delta);
+        }
+
         public void onStart() {
             this.lastExecuteTime = SystemClock.now();
             this.executeCount.incrementAndGet();
@@ -156,6 +171,7 @@ public class CronUtils {
                     jsonObject.put("succeedCount", taskStat.succeedCount.get());
                     jsonObject.put("lastExecuteTime", taskStat.lastExecuteTime);
                     jsonObject.put("desc", taskStat.desc);
+                    taskStat.counter.forEach((key, value) -> jsonObject.put(key, value.get()));
                 }
                 return jsonObject;
             })
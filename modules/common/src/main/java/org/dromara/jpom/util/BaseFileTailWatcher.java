@@ -10,11 +10,14 @@
 package org.dromara.jpom.util;
 
 import cn.hutool.core.date.DateUnit;
+import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.io.file.Tailer;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.JpomApplication;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.springframework.util.Assert;
 
@@ -22,12 +25,15 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.charset.Charset;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 文件跟随器工具
+ * <p>
+ * 一个文件只有一个 Tailer，新的日志行先合并（按时间、行数、字符数），再放入每个会话各自的发送队列，
+ * 由独立的线程发送。会话发送过慢时丢弃最早的消息，不会阻塞 Tailer 和其他会话
  *
  * @author bwcx_jzy
  * @since 2019/7/21
@@ -36,6 +42,30 @@ import java.util.Set;
 public abstract class BaseFileTailWatcher<T extends AutoCloseable> {
 
     private static int initReadLine = 10;
+    /**
+     * 合并发送的间隔（毫秒）
+     */
+    private static final long FLUSH_INTERVAL = 200;
+    /**
+     * 单条消息最多合并的行数
+     */
+    private static final int MAX_BATCH_LINE = 500;
+    /**
+     * 单条消息最多合并的字符数
+     */
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+    /**
+     * 每个会话最多积压的消息数
+     */
+    private static final int MAX_QUEUE_SIZE = 100;
+    /**
+     * 会话积压的消息超过此时间（毫秒）还没有发送，自动关闭会话
+     */
+    private static final long MAX_LAG = TimeUnit.MINUTES.toMillis(1);
+    /**
+     * 消息发送线程池
+     */
+    private static final ExecutorService SEND_EXECUTOR = Executors.newCachedThreadPool(ThreadUtil.newNamedThreadFactory("jpom-tail-send-", true));
 
     public static void setInitReadLine(int initReadLine) {
         BaseFileTailWatcher.initReadLine = initReadLine;
@@ -48,11 +78,17 @@ public abstract class BaseFileTailWatcher<T extends AutoCloseable> {
      */
     private final LimitQueue<String> limitQueue = new LimitQueue<>(initReadLine);
     private Tailer tailer;
+    private ScheduledFuture<?> flushFuture;
+    /**
+     * 等待合并发送的日志行
+     */
+    private final List<String> pendingLines = new ArrayList<>();
+    private int pendingChars;
 
     /**
-     * 所有会话
+     * 所有会话，key 为会话 id
      */
-    protected final Set<T> socketSessions = new HashSet<>();
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
 
     public BaseFileTailWatcher(File logFile, Charset charset) {
         this.logFile = logFile;
@@ -72,33 +108,62 @@ public abstract class BaseFileTailWatcher<T extends AutoCloseable> {
     /**
      * 有新的日志
      *
-     * @param msg 日志
-     */
-    private void sendAll(String msg) {
-        Iterator<T> iterator = socketSessions.iterator();
-        while (iterator.hasNext()) {
-            T socketSession = iterator.next();
-            try {
-                boolean send = this.send(socketSession, msg);
-                if (!send) {
-                    //
-                    this.errorAutoClose(socketSession);
-                    iterator.remove();
-                }
-            } catch (Exception e) {
-                log.error(I18nMessageUtil.get("i18n.send_message_failure.9621"), e);
-                this.errorAutoClose(socketSession);
-                iterator.remove();
+     * @param line 日志
+     */
+    private void onLine(String line) {
+        limitQueue.offerLast(line);
+        synchronized (pendingLines) {
+            pendingLines.add(line);
+            pendingChars += line.length();
+            if (pendingLines.size() < MAX_BATCH_LINE && pendingChars < MAX_BATCH_CHARS) {
+                return;
             }
         }
-        if (this.socketSessions.isEmpty()) {
-            this.close();
+        this.flush();
+    }
+
+    /**
+     * 将合并的日志行放入所有会话的发送队列
+     */
+    private void flush() {
+        String msg;
+        int lineCount;
+        synchronized (pendingLines) {
+            if (pendingLines.isEmpty()) {
+                return;
+            }
+            lineCount = pendingLines.size();
+            // 前端按 \r\n 拆分为多行显示
+            msg = String.join(StrUtil.CRLF, pendingLines);
+            pendingLines.clear();
+            pendingChars = 0;
+        }
+        this.sendAll(msg, lineCount);
+    }
+
+    /**
+     * 发送消息到所有会话
+     *
+     * @param msg       消息
+     * @param lineCount 消息包含的行数
+     */
+    private void sendAll(String msg, int lineCount) {
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.offer(msg, lineCount);
         }
     }
 
-    private void errorAutoClose(T socketSession) {
-        log.warn(I18nMessageUtil.get("i18n.message_send_failed.4dbe"), this.getId(socketSession));
-        IoUtil.close(socketSession);
+    private void errorAutoClose(Subscriber subscriber) {
+        log.warn(I18nMessageUtil.get("i18n.message_send_failed.4dbe"), subscriber.id);
+        this.remove(subscriber);
+        IoUtil.close(subscriber.session);
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber.id, subscriber);
+        if (subscribers.isEmpty()) {
+            this.close();
+        }
     }
 
     private String getId(T session) {
@@ -115,53 +180,202 @@ public abstract class BaseFileTailWatcher<T extends AutoCloseable> {
      */
     protected boolean add(T session, String name) throws IOException {
         String id = getId(session);
-        Method byName = ReflectUtil.getMethodByName(session.getClass(), "getId");
-        boolean match = this.socketSessions.stream()
-            .anyMatch(t -> {
-                String itemId = ReflectUtil.invoke(t, byName);
-                return StrUtil.equals(id, itemId);
-            });
-        if (match) {
+        Subscriber subscriber = new Subscriber(session, id);
+        if (subscribers.putIfAbsent(id, subscriber) != null) {
             return false;
         }
-        if (this.socketSessions.add(session)) {
-            this.send(session, StrUtil.format(I18nMessageUtil.get("i18n.listen_log_success_currently_sessions_viewing.a74a"), name, this.socketSessions.size()));
-            // 开发发送头信息
-            for (String s : limitQueue) {
-                this.send(session, s);
-            }
+        subscriber.offer(StrUtil.format(I18nMessageUtil.get("i18n.listen_log_success_currently_sessions_viewing.a74a"), name, subscribers.size()), 1);
+        // 开发发送头信息
+        List<String> lines = new ArrayList<>(limitQueue);
+        if (!lines.isEmpty()) {
+            subscriber.offer(String.join(StrUtil.CRLF, lines), lines.size());
         }
         return true;
     }
 
-    public void start() {
+    /**
+     * 移除会话
+     *
+     * @param session 会话
+     * @return 移除后是否已经没有会话
+     */
+    protected boolean remove(T session) {
+        subscribers.values().removeIf(subscriber -> subscriber.session.equals(session));
+        return subscribers.isEmpty();
+    }
+
+    /**
+     * 获取所有会话
+     *
+     * @return list
+     */
+    protected List<T> sessions() {
+        List<T> list = new ArrayList<>(subscribers.size());
+        for (Subscriber subscriber : subscribers.values()) {
+            list.add(subscriber.session);
+        }
+        return list;
+    }
+
+    /**
+     * 会话的发送情况，key 为会话 id
+     *
+     * @return map，queueSize 积压的消息数，droppedLines 丢弃的行数，lag 最早积压消息的等待时间（毫秒）
+     */
+    public Map<String, Map<String, Long>> lagStat() {
+        Map<String, Map<String, Long>> map = new HashMap<>(subscribers.size());
+        long now = SystemClock.now();
+        for (Subscriber subscriber : subscribers.values()) {
+            Map<String, Long> stat = new HashMap<>(4);
+            synchronized (subscriber.queue) {
+                stat.put("queueSize", (long) subscriber.queue.size());
+                stat.put("lag", subscriber.lag(now));
+            }
+            stat.put("droppedLines", subscriber.totalDroppedLines);
+            map.put(subscriber.id, stat);
+        }
+        return map;
+    }
+
+    public synchronized void start() {
         //this.tailWatcherRun = new FileTailWatcherRun(logFile, this::sendAll);
         if (this.tailer != null) {
             return;
         }
-        this.tailer = new Tailer(logFile, charset, line -> {
-            limitQueue.offer(line);
-            this.sendAll(line);
-        }, initReadLine, DateUnit.SECOND.getMillis());
+        this.tailer = new Tailer(logFile, charset, this::onLine, initReadLine, DateUnit.SECOND.getMillis());
         this.tailer.start(true);
+        this.flushFuture = JpomApplication.getScheduledExecutorService().scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
     }
 
-    public void restart() {
+    public synchronized void restart() {
         if (this.tailer != null) {
             this.close();
         }
-        this.sendAll("Relisten to the file............");
+        this.sendAll("Relisten to the file............", 1);
         this.start();
     }
 
     /**
      * 关闭
      */
-    protected void close() {
+    protected synchronized void close() {
         if (this.tailer == null) {
             return;
         }
         this.tailer.stop();
         this.tailer = null;
+        if (this.flushFuture != null) {
+            this.flushFuture.cancel(false);
+            this.flushFuture = null;
+        }
+        this.flush();
+    }
+
+    /**
+     * 会话订阅，每个会话有独立的发送队列
+     */
+    private class Subscriber implements Runnable {
+        private final T session;
+        private final String id;
+        /**
+         * 待发送的消息
+         */
+        private final Deque<Frame> queue = new ArrayDeque<>();
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+        /**
+         * 上次发送之后丢弃的行数
+         */
+        private long droppedLines;
+        private volatile long totalDroppedLines;
+
+        private Subscriber(T session, String id) {
+            this.session = session;
+            this.id = id;
+        }
+
+        private void offer(String msg, int lineCount) {
+            long now = SystemClock.now();
+            synchronized (queue) {
+                if (this.lag(now) > MAX_LAG) {
+                    log.warn(I18nMessageUtil.get("i18n.log_session_lag_too_long.91c4"), id, this.lag(now));
+                    queue.clear();
+                    SEND_EXECUTOR.execute(() -> errorAutoClose(this));
+                    return;
+                }
+                while (queue.size() >= MAX_QUEUE_SIZE) {
+                    // 丢弃最早的消息
+                    Frame dropped = queue.pollFirst();
+                    droppedLines += dropped.lineCount;
+                    totalDroppedLines += dropped.lineCount;
+                }
+                queue.offerLast(new Frame(msg, lineCount, now));
+            }
+            if (sending.compareAndSet(false, true)) {
+                SEND_EXECUTOR.execute(this);
+            }
+        }
+
+        private long lag(long now) {
+            Frame first = queue.peekFirst();
+            return first == null ? 0 : now - first.time;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                String msg;
+                long skipLines;
+                synchronized (queue) {
+                    Frame frame = queue.pollFirst();
+                    if (frame == null) {
+                        sending.set(false);
+                        return;
+                    }
+                    msg = frame.msg;
+                    skipLines = droppedLines;
+                    droppedLines = 0;
+                }
+                try {
+                    if (skipLines > 0) {
+                        msg = StrUtil.format(I18nMessageUtil.get("i18n.log_lines_skipped_slow_session.6f2a"), skipLines) + StrUtil.CRLF + msg;
+                    }
+                    if (!send(session, msg)) {
+                        errorAutoClose(this);
+                        this.stop();
+                        return;
+                    }
+                } catch (Exception e) {
+                    log.error(I18nMessageUtil.get("i18n.send_message_failure.9621"), e);
+                    errorAutoClose(this);
+                    this.stop();
+                    return;
+                }
+            }
+        }
+
+        private void stop() {
+            synchronized (queue) {
+                queue.clear();
+                sending.set(false);
+            }
+        }
+    }
+
+    /**
+     * 合并后的消息
+     */
+    private static class Frame {
+        private final String msg;
+        private final int lineCount;
+        /**
+         * 入队时间
+         */
+        private final long time;
+
+        private Frame(String msg, int lineCount, long time) {
+            this.msg = msg;
+            this.lineCount = lineCount;
+            this.time = time;
+        }
     }
 }
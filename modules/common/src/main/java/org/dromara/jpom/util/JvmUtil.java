@@ -11,6 +11,7 @@ package org.dromara.jpom.util;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
+import cn.hutool.core.map.CaseInsensitiveMap;
 import cn.hutool.core.text.StrSplitter;
 import cn.hutool.core.util.StrUtil;
 import org.dromara.jpom.common.JpomManifest;
@@ -18,6 +19,8 @@ import org.dromara.jpom.common.i18n.I18nMessageUtil;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -46,6 +49,10 @@ public class JvmUtil {
      * 支持的标签数组
      */
     private static final String[] JPOM_PID_TAG = new String[]{"DJpom.application", "Jpom.application"};
+    /**
+     * 进程表快照（执行的命令 -> 项目标识与进程id 对应关系）
+     */
+    private static final ThreadLocal<Map<String, Map<String, Integer>>> PID_TAG_SNAPSHOT = new ThreadLocal<>();
 
     /**
      * 检查 jps 命令是否正常
@@ -95,6 +102,33 @@ public class JvmUtil {
         return StrUtil.isNotEmpty(pidCommandInfo);
     }
 
+    /**
+     * 开启进程表快照，开启后同一线程内相同的进程列表命令只执行、解析一次
+     * <p>
+     * 批量查询项目状态时所有项目共用一份进程表，避免每个项目都执行一次 jps
+     */
+    public static void openSnapshot() {
+        PID_TAG_SNAPSHOT.set(new ConcurrentHashMap<>(4));
+        CommandUtil.openCache();
+    }
+
+    /**
+     * 关闭进程表快照
+     */
+    public static void closeSnapshot() {
+        PID_TAG_SNAPSHOT.remove();
+        CommandUtil.closeCache();
+    }
+
+    /**
+     * 当前线程是否开启了进程表快照
+     *
+     * @return true 开启
+     */
+    public static boolean hasSnapshot() {
+        return PID_TAG_SNAPSHOT.get() != null;
+    }
+
     /**
      * 工具Jpom运行项目的id 获取进程ID
      *
@@ -102,19 +136,64 @@ public class JvmUtil {
      * @return 进程ID
      */
     public static Integer getPidByTag(String tag) {
-        String execSystemCommand = CommandUtil.execSystemCommand("jps -mv");
+        return getPidByTag("jps -mv", 0, tag);
+    }
+
+    /**
+     * 从进程列表中获取项目的进程ID
+     *
+     * @param command  列出进程的命令
+     * @param pidIndex 进程ID 在每行中的下标
+     * @param tag      项目id
+     * @return 进程ID
+     */
+    public static Integer getPidByTag(String command, int pidIndex, String tag) {
+        Map<String, Map<String, Integer>> snapshot = PID_TAG_SNAPSHOT.get();
+        if (snapshot != null) {
+            Map<String, Integer> pidTag = snapshot.computeIfAbsent(command, key -> parsePidTag(CommandUtil.execSystemCommand(key), pidIndex));
+            return pidTag.get(tag);
+        }
+        String execSystemCommand = CommandUtil.execSystemCommand(command);
         List<String> list = StrSplitter.splitTrim(execSystemCommand, StrUtil.LF, true);
         return list.stream()
             .filter(s -> checkCommandLineIsJpom(s, tag))
             .map(s -> {
-                List<String> split = StrUtil.split(s, StrUtil.SPACE);
-                return CollUtil.getFirst(split);
+                List<String> split = StrSplitter.splitTrim(s, StrUtil.SPACE, true);
+                return CollUtil.get(split, pidIndex);
             })
             .findAny()
             .map(Convert::toInt)
             .orElse(null);
     }
 
+    /**
+     * 解析进程列表中所有 jpom 项目的标识和进程ID
+     *
+     * @param commandResult 进程列表
+     * @param pidIndex      进程ID 在每行中的下标
+     * @return 项目标识（忽略大小写） -> 进程ID
+     */
+    private static Map<String, Integer> parsePidTag(String commandResult, int pidIndex) {
+        Map<String, Integer> pidTag = new CaseInsensitiveMap<>();
+        List<String> list = StrSplitter.splitTrim(commandResult, StrUtil.LF, true);
+        for (String line : list) {
+            List<String> split = StrSplitter.splitTrim(line, StrUtil.SPACE, true);
+            Integer pid = Convert.toInt(CollUtil.get(split, pidIndex), null);
+            if (pid == null) {
+                continue;
+            }
+            for (String item : split) {
+                for (String pidTagName : JPOM_PID_TAG) {
+                    String prefix = StrUtil.format("-{}=", pidTagName);
+                    if (StrUtil.startWithIgnoreCase(item, prefix)) {
+                        pidTag.putIfAbsent(item.substring(prefix.length()), pid);
+                    }
+                }
+            }
+        }
+        return pidTag;
+    }
+
     /**
      * 判断命令行是否为jpom 标识
      *
@@ -11,26 +11,32 @@ package org.dromara.jpom.util;
 
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
 import cn.hutool.core.io.IoUtil;
-import cn.hutool.core.io.file.FileWriter;
 import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.keepbx.jpom.log.ILogRecorder;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.JpomApplication;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.exception.LogRecorderCloseException;
 import org.springframework.util.Assert;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.*;
 import java.nio.charset.Charset;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 日志记录
+ * <p>
+ * 缓冲模式（{@link Builder#buffered(boolean)}）下普通日志先写入内存缓冲区，缓冲区满（64KB）或者定时（200 毫秒）统一写入文件，
+ * 系统日志、异常日志和 {@link #flush()} 会立即写入文件
  *
  * @author bwcx_jzy
  * @since 2022/1/26
@@ -39,20 +45,71 @@ import java.nio.charset.Charset;
 @Getter
 public class LogRecorder extends OutputStream implements ILogRecorder, AutoCloseable {
 
+    /**
+     * 缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * 缓冲模式定时写入文件的间隔（毫秒）
+     */
+    private static final long FLUSH_INTERVAL = 200;
+    /**
+     * 缓冲模式的日志记录器
+     */
+    private static final Set<LogRecorder> BUFFERED_RECORDERS = ConcurrentHashMap.newKeySet();
+    private static ScheduledFuture<?> flushFuture;
+
     private File file;
     private PrintWriter writer;
     private final Charset charset;
+    private final boolean buffered;
+    @Getter(AccessLevel.NONE)
+    private BufferedOutputStream outputStream;
+    /**
+     * 是否有还未写入文件的内容
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile boolean dirty;
 
-    private LogRecorder(File file, Charset charset) {
+    private LogRecorder(File file, Charset charset, boolean buffered) {
+        this.charset = charset;
+        this.buffered = buffered;
         if (file == null) {
             this.writer = null;
             this.file = null;
-            this.charset = charset;
             return;
         }
         this.file = file;
-        this.charset = charset;
-        this.writer = FileWriter.create(file, charset).getPrintWriter(true);
+        FileUtil.mkParentDirs(file);
+        try {
+            this.outputStream = new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE);
+        } catch (FileNotFoundException e) {
+            throw new IORuntimeException(e);
+        }
+        // 字符先写入缓冲区，缓冲模式下由定时任务统一写入文件。
+        // getPrintWriter 返回的 writer 会交给外部（如 git 插件）直接写入，写入和 flush 都需要标记有待写入的内容
+        OutputStream writerStream = new FilterOutputStream(outputStream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                if (LogRecorder.this.buffered) {
+                    dirty = true;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (LogRecorder.this.buffered) {
+                    dirty = true;
+                } else {
+                    out.flush();
+                }
+            }
+        };
+        this.writer = new PrintWriter(new OutputStreamWriter(writerStream, charset), true);
+        if (buffered) {
+            registerFlush(this);
+        }
     }
 
     public static Builder builder() {
@@ -62,6 +119,7 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
     public static class Builder {
         private File file;
         private Charset charset;
+        private boolean buffered;
 
         Builder() {
         }
@@ -76,16 +134,73 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
             return this;
         }
 
+        /**
+         * 使用缓冲模式，适用于输出量大的构建、发布日志
+         *
+         * @param buffered 是否缓冲
+         * @return this
+         */
+        public Builder buffered(final boolean buffered) {
+            this.buffered = buffered;
+            return this;
+        }
+
         public LogRecorder build() {
             Charset charset1 = ObjectUtil.defaultIfNull(this.charset, CharsetUtil.CHARSET_UTF_8);
-            return new LogRecorder(this.file, charset1);
+            return new LogRecorder(this.file, charset1, this.buffered);
         }
 
         public String toString() {
-            return "LogRecorder.LogRecorderBuilder(file=" + this.file + ", charset=" + this.charset + ")";
+            return "LogRecorder.LogRecorderBuilder(file=" + this.file + ", charset=" + this.charset + ", buffered=" + this.buffered + ")";
+        }
+    }
+
+    private static synchronized void registerFlush(LogRecorder logRecorder) {
+        BUFFERED_RECORDERS.add(logRecorder);
+        if (flushFuture == null) {
+            flushFuture = JpomApplication.getScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                for (LogRecorder recorder : BUFFERED_RECORDERS) {
+                    if (!recorder.dirty) {
+                        continue;
+                    }
+                    try {
+                        recorder.flush();
+                    } catch (Exception e) {
+                        log.warn(I18nMessageUtil.get("i18n.log_recorder_flush_failure.c2d8"), recorder.file, e.getMessage());
+                    }
+                }
+            }, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 写入完成，非缓冲模式立即写入文件
+     *
+     * @param force 是否立即写入文件
+     */
+    private void afterWrite(boolean force) {
+        if (buffered && !force) {
+            dirty = true;
+            return;
         }
+        this.flushFile();
     }
 
+    /**
+     * 将缓冲区的内容写入文件
+     */
+    private synchronized void flushFile() {
+        if (writer == null) {
+            return;
+        }
+        dirty = false;
+        writer.flush();
+        try {
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
 
     /**
      * 记录错误信息
@@ -98,10 +213,12 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
         if (writer == null) {
             throw new LogRecorderCloseException();
         }
-        writer.println(title);
         String s = ExceptionUtil.stacktraceToString(throwable);
-        writer.println(s);
-        writer.flush();
+        synchronized (this) {
+            writer.println(title);
+            writer.println(s);
+        }
+        this.afterWrite(true);
     }
 
     /**
@@ -110,12 +227,16 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
      * @param info 日志
      */
     public String info(String info, Object... vals) {
+        return this.info(false, info, vals);
+    }
+
+    private String info(boolean force, String info, Object... vals) {
         if (writer == null) {
             throw new LogRecorderCloseException();
         }
         String format = StrUtil.format(info, vals);
         writer.println(format);
-        writer.flush();
+        this.afterWrite(force);
         return format;
     }
 
@@ -125,7 +246,7 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
      * @param info 日志
      */
     public String system(String info, Object... vals) {
-        return this.info("[SYSTEM-INFO] " + info, vals);
+        return this.info(true, "[SYSTEM-INFO] " + info, vals);
     }
 
     /**
@@ -134,7 +255,7 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
      * @param info 日志
      */
     public String systemError(String info, Object... vals) {
-        return this.info("[SYSTEM-ERROR] " + info, vals);
+        return this.info(true, "[SYSTEM-ERROR] " + info, vals);
     }
 
     /**
@@ -143,7 +264,7 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
      * @param info 日志
      */
     public String systemWarning(String info, Object... vals) {
-        return this.info("[SYSTEM-WARNING] " + info, vals);
+        return this.info(true, "[SYSTEM-WARNING] " + info, vals);
     }
 
     /**
@@ -156,8 +277,7 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
             throw new LogRecorderCloseException();
         }
         writer.append(StrUtil.format(info, vals));
-        writer.flush();
-
+        this.afterWrite(false);
     }
 
     /**
@@ -169,23 +289,47 @@ public class LogRecorder extends OutputStream implements ILogRecorder, AutoClose
         return writer;
     }
 
+    @Override
+    public void flush() {
+        this.flushFile();
+    }
+
     @Override
     public void close() {
-        IoUtil.close(writer);
-        this.writer = null;
-        this.file = null;
+        BUFFERED_RECORDERS.remove(this);
+        synchronized (this) {
+            if (writer != null) {
+                writer.flush();
+            }
+            IoUtil.close(writer);
+            IoUtil.close(outputStream);
+            this.writer = null;
+            this.outputStream = null;
+            this.file = null;
+        }
     }
 
     public long size() {
         Assert.notNull(writer, I18nMessageUtil.get("i18n.log_recorder_not_enabled.5a4e"));
+        this.flushFile();
         return FileUtil.size(this.file);
     }
 
     @Override
     public void write(int b) throws IOException {
-        if (writer == null) {
-            throw new LogRecorderCloseException();
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        synchronized (this) {
+            if (writer == null) {
+                throw new LogRecorderCloseException();
+            }
+            // 先把字符缓冲写入字节缓冲区，保证顺序
+            writer.flush();
+            outputStream.write(b, off, len);
         }
-        writer.write((byte) b);
+        this.afterWrite(false);
     }
 }
@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.build;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
+import cn.hutool.core.lang.Filter;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.hutool.extra.spring.SpringUtil;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ParallelScatterZipCreator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.configuration.BuildExtConfig;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+
+/**
+ * 构建产物打包
+ * <p>
+ * 1. 打包后在压缩包旁边保存文件清单（路径、大小、修改时间、sha1），同一个构建再次打包时文件没有变化直接使用已有的压缩包<br>
+ * 2. zip 格式按文件 sha1 查找之前构建的压缩包，内容相同的文件直接复制已经压缩好的数据，其他文件多线程压缩<br>
+ * 3. tar.gz 格式使用多线程 gzip 压缩
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class ArtifactPackager {
+
+    private static final String MANIFEST_SUFFIX = ".manifest.json";
+    /**
+     * 向前查找可复用的构建压缩包数量
+     */
+    private static final int SEARCH_PREVIOUS = 10;
+
+    private static BuildExtConfig buildExtConfig;
+
+    private static int getThreads() {
+        int threads = 0;
+        try {
+            buildExtConfig = buildExtConfig == null ? SpringUtil.getBean(BuildExtConfig.class) : buildExtConfig;
+            threads = buildExtConfig.getArtifactPackThreads();
+        } catch (Exception e) {
+            log.debug("get build config error {}", e.getMessage());
+        }
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 打包文件夹
+     *
+     * @param id            构建id
+     * @param buildNumberId 构建序号
+     * @param dir           需要打包的文件夹
+     * @param archive       压缩包文件
+     * @param tarGz         是否为 tar.gz 格式
+     * @return 压缩包文件
+     */
+    public static File pack(String id, int buildNumberId, File dir, File archive, boolean tarGz) {
+        long startTime = SystemClock.now();
+        List<Item> items = new ArrayList<>();
+        scan(dir, StrUtil.EMPTY, items);
+        File manifestFile = FileUtil.file(archive.getParentFile(), archive.getName() + MANIFEST_SUFFIX);
+        Map<String, Item> oldManifest = FileUtil.isFile(archive) ? readManifest(manifestFile) : null;
+        if (oldManifest != null && isSame(items, oldManifest)) {
+            log.debug("artifact unchanged, reuse {}", archive);
+            return archive;
+        }
+        for (Item item : items) {
+            if (item.dir) {
+                continue;
+            }
+            Item old = oldManifest == null ? null : oldManifest.get(item.path);
+            if (old != null && old.size == item.size && old.lastModified == item.lastModified && StrUtil.isNotEmpty(old.sha1)) {
+                item.sha1 = old.sha1;
+            } else if (!tarGz) {
+                item.sha1 = SecureUtil.sha1(item.file);
+            }
+        }
+        FileUtil.mkdir(archive.getParentFile());
+        File temp = FileUtil.file(archive.getParentFile(), archive.getName() + ".tmp");
+        int threads = getThreads();
+        int reuse = 0;
+        try {
+            if (tarGz) {
+                writeTarGz(dir, items, temp, threads);
+            } else {
+                reuse = writeZip(id, buildNumberId, archive.getName(), items, temp, threads);
+            }
+            Files.move(temp.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            FileUtil.del(temp);
+            throw new IORuntimeException(e);
+        } catch (InterruptedException e) {
+            FileUtil.del(temp);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            FileUtil.del(temp);
+            throw new IllegalStateException(e.getCause());
+        }
+        writeManifest(manifestFile, items);
+        log.debug("artifact packed {} files:{} reuse:{} threads:{} {}ms", archive, items.size(), reuse, threads, SystemClock.now() - startTime);
+        return archive;
+    }
+
+    private static int writeZip(String id, int buildNumberId, String archiveName, List<Item> items, File temp, int threads)
+        throws IOException, InterruptedException, ExecutionException {
+        ZipFile previousZip = null;
+        Map<String, String> previousIndex = new HashMap<>();
+        for (int i = buildNumberId - 1; i >= Math.max(buildNumberId - SEARCH_PREVIOUS, 1); i--) {
+            File previous = FileUtil.file(BuildUtil.getHistoryPackageZipFile(id, i), archiveName);
+            Map<String, Item> manifest = readManifest(FileUtil.file(previous.getParentFile(), archiveName + MANIFEST_SUFFIX));
+            if (manifest == null || !FileUtil.isFile(previous)) {
+                continue;
+            }
+            for (Item item : manifest.values()) {
+                if (StrUtil.isNotEmpty(item.sha1)) {
+                    previousIndex.putIfAbsent(item.sha1, item.path);
+                }
+            }
+            previousZip = new ZipFile(previous);
+            break;
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, ThreadUtil.newNamedThreadFactory("jpom-artifact-pack-", true));
+        int reuse = 0;
+        try (ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(temp)) {
+            ParallelScatterZipCreator creator = new ParallelScatterZipCreator(executorService);
+            for (Item item : items) {
+                if (item.dir) {
+                    if (item.emptyDir) {
+                        zipOut.putArchiveEntry(new ZipArchiveEntry(item.path + StrUtil.SLASH));
+                        zipOut.closeArchiveEntry();
+                    }
+                    continue;
+                }
+                String previousPath = previousIndex.get(item.sha1);
+                ZipArchiveEntry previousEntry = previousZip == null || previousPath == null ? null : previousZip.getEntry(previousPath);
+                if (previousEntry != null && previousEntry.getSize() == item.size) {
+                    // 内容相同，直接复制压缩后的数据
+                    ZipArchiveEntry entry = new ZipArchiveEntry(item.path);
+                    entry.setMethod(previousEntry.getMethod());
+                    entry.setCrc(previousEntry.getCrc());
+                    entry.setSize(previousEntry.getSize());
+                    entry.setCompressedSize(previousEntry.getCompressedSize());
+                    entry.setTime(item.lastModified);
+                    try (InputStream rawInputStream = previousZip.getRawInputStream(previousEntry)) {
+                        zipOut.addRawArchiveEntry(entry, rawInputStream);
+                    }
+                    reuse++;
+                    continue;
+                }
+                ZipArchiveEntry entry = new ZipArchiveEntry(item.path);
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setTime(item.lastModified);
+                File file = item.file;
+                creator.addArchiveEntry(entry, () -> {
+                    try {
+                        return Files.newInputStream(file.toPath());
+                    } catch (IOException e) {
+                        throw new IORuntimeException(e);
+                    }
+                });
+            }
+            creator.writeTo(zipOut);
+        } finally {
+            executorService.shutdownNow();
+            if (previousZip != null) {
+                previousZip.close();
+            }
+        }
+        return reuse;
+    }
+
+    private static void writeTarGz(File dir, List<Item> items, File temp, int threads) throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, ThreadUtil.newNamedThreadFactory("jpom-artifact-pack-", true));
+        String prefix = dir.getName();
+        OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temp.toPath()), 256 * 1024);
+        try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(new ParallelGzipOutputStream(outputStream, executorService, threads), Charset.defaultCharset().name())) {
+            tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+            tarOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            // 和之前的格式保持一致，包含文件夹名
+            tarOut.putArchiveEntry(new TarArchiveEntry(dir, prefix));
+            tarOut.closeArchiveEntry();
+            for (Item item : items) {
+                File file = FileUtil.file(dir, item.path);
+                tarOut.putArchiveEntry(new TarArchiveEntry(file, prefix + StrUtil.SLASH + item.path));
+                if (!item.dir) {
+                    Files.copy(file.toPath(), tarOut);
+                }
+                tarOut.closeArchiveEntry();
+            }
+            tarOut.finish();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 扫描文件夹，记录所有文件和文件夹
+     *
+     * @param dir   文件夹
+     * @param path  相对路径
+     * @param items 结果
+     */
+    private static void scan(File dir, String path, List<Item> items) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (File file : files) {
+            String itemPath = StrUtil.isEmpty(path) ? file.getName() : path + StrUtil.SLASH + file.getName();
+            if (file.isDirectory()) {
+                Item item = new Item();
+                item.path = itemPath;
+                item.dir = true;
+                File[] children = file.listFiles();
+                item.emptyDir = children == null || children.length == 0;
+                items.add(item);
+                scan(file, itemPath, items);
+            } else {
+                Item item = new Item();
+                item.path = itemPath;
+                item.file = file;
+                item.size = file.length();
+                item.lastModified = file.lastModified();
+                items.add(item);
+            }
+        }
+    }
+
+    private static boolean isSame(List<Item> items, Map<String, Item> manifest) {
+        if (items.size() != manifest.size()) {
+            return false;
+        }
+        for (Item item : items) {
+            Item old = manifest.get(item.path);
+            if (old == null || old.dir != item.dir) {
+                return false;
+            }
+            if (!item.dir && (old.size != item.size || old.lastModified != item.lastModified)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Item> readManifest(File manifestFile) {
+        if (!FileUtil.isFile(manifestFile)) {
+            return null;
+        }
+        try {
+            JSONObject jsonObject = JSONObject.parseObject(FileUtil.readString(manifestFile, CharsetUtil.CHARSET_UTF_8));
+            JSONArray files = jsonObject.getJSONArray("files");
+            Map<String, Item> map = new LinkedHashMap<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                JSONArray array = files.getJSONArray(i);
+                Item item = new Item();
+                item.path = array.getString(0);
+                item.dir = array.getBooleanValue(1);
+                item.size = array.getLongValue(2);
+                item.lastModified = array.getLongValue(3);
+                item.sha1 = array.getString(4);
+                map.put(item.path, item);
+            }
+            return map;
+        } catch (Exception e) {
+            log.warn("read artifact manifest error {} {}", manifestFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeManifest(File manifestFile, List<Item> items) {
+        JSONArray files = new JSONArray(items.size());
+        for (Item item : items) {
+            JSONArray array = new JSONArray(5);
+            array.add(item.path);
+            array.add(item.dir);
+            array.add(item.size);
+            array.add(item.lastModified);
+            array.add(item.sha1);
+            files.add(array);
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("files", files);
+        FileUtil.writeString(jsonObject.toString(), manifestFile, CharsetUtil.CHARSET_UTF_8);
+    }
+
+    /**
+     * 复制构建产物到历史目录，和上一次构建的历史产物相同（大小、修改时间一致）的文件使用硬链接指向上一次的历史产物。
+     * <p>
+     * 只在历史目录之间建立硬链接，历史产物保存后不会再被修改。不和构建目录中的文件建立硬链接，
+     * 避免构建命令修改构建目录中的文件时同时修改了已经保存的历史产物（回滚时使用）。
+     * 不支持硬链接（跨磁盘等）时自动使用复制
+     *
+     * @param src      源文件（夹）
+     * @param dest     目标文件（夹）
+     * @param previous 上一次构建的历史产物，可以为空
+     * @param filter   过滤
+     * @return 使用硬链接的文件数
+     */
+    public static int linkCopy(File src, File dest, File previous, Filter<File> filter) {
+        if (src.isFile()) {
+            return copy(src, dest, previous) ? 1 : 0;
+        }
+        int count = 0;
+        File[] files = src.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        FileUtil.mkdir(dest);
+        for (File file : files) {
+            if (filter != null && !filter.accept(file)) {
+                continue;
+            }
+            File target = FileUtil.file(dest, file.getName());
+            File previousFile = previous == null ? null : FileUtil.file(previous, file.getName());
+            if (file.isDirectory()) {
+                count += linkCopy(file, target, previousFile, filter);
+            } else {
+                count += copy(file, target, previousFile) ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 复制文件
+     *
+     * @param src      源文件
+     * @param dest     目标文件
+     * @param previous 上一次构建的历史文件
+     * @return true 使用了硬链接
+     */
+    private static boolean copy(File src, File dest, File previous) {
+        FileUtil.mkParentDirs(dest);
+        try {
+            Files.deleteIfExists(dest.toPath());
+            // 历史文件复制时保留了修改时间，大小和修改时间都没有变化认为文件内容相同
+            if (previous != null && previous.isFile() && previous.length() == src.length() && previous.lastModified() == src.lastModified()) {
+                try {
+                    Files.createLink(dest.toPath(), previous.toPath());
+                    return true;
+                } catch (IOException | UnsupportedOperationException e) {
+                    log.debug(I18nMessageUtil.get("i18n.artifact_hard_link_failure.2d5c"), dest, e.getMessage());
+                }
+            }
+            Files.copy(src.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            return false;
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+    }
+
+    private static class Item {
+        private String path;
+        /**
+         * 扫描到的文件，从清单读取和文件夹为 null
+         */
+        private File file;
+        private boolean dir;
+        private boolean emptyDir;
+        private long size;
+        private long lastModified;
+        private String sha1;
+    }
+}
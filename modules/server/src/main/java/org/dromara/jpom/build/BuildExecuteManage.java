@@ -16,6 +16,7 @@ import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.io.file.FileCopier;
+import cn.hutool.core.lang.Filter;
 import cn.hutool.core.lang.Opt;
 import cn.hutool.core.lang.Tuple;
 import cn.hutool.core.map.SafeConcurrentHashMap;
@@ -66,7 +67,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -144,31 +144,53 @@ public class BuildExecuteManage implements Runnable {
         this.loadService();
         submitTaskTime = SystemClock.now();
         language = I18nMessageUtil.getLanguageByRequest();
-        // 创建线程池
-        ThreadPoolExecutor threadPoolExecutor = buildExecutorPoolService.getThreadPoolExecutor();
         //
         BuildInfoModel buildInfoModel = taskData.buildInfoModel;
         File logFile = BuildUtil.getLogFile(buildInfoModel.getId(), buildInfoModel.getBuildId());
-        this.logRecorder = LogRecorder.builder().file(logFile).build();
+        this.logRecorder = LogRecorder.builder().file(logFile).buffered(true).build();
         //
-        int queueSize = threadPoolExecutor.getQueue().size();
+        int queueSize = buildExecutorPoolService.queueSize();
         int size = BUILD_MANAGE_MAP.size();
         logRecorder.system(I18nMessageUtil.get("i18n.build_task_count_and_queue_count.f0b6"), size, queueSize,
             size > buildExtConfig.getPoolSize() ? I18nMessageUtil.get("i18n.build_task_queue_waiting.5f06") : StrUtil.EMPTY);
         //BuildInfoManage manage = new BuildInfoManage(taskData);
         BUILD_MANAGE_MAP.put(buildInfoModel.getId(), this);
-        threadPoolExecutor.execute(this);
+        int priority = BuildExecutorPoolService.priority(taskData.triggerBuildType);
+        if (!buildExecutorPoolService.submit(buildInfoModel.getId(), buildInfoModel.getWorkspaceId(), priority, this)) {
+            this.rejectedExecution();
+            return;
+        }
+        int position = buildExecutorPoolService.queuePosition(buildInfoModel.getId());
+        if (position > 0) {
+            logRecorder.system(I18nMessageUtil.get("i18n.build_queue_position.6b2d"), position, priority, buildExecutorPoolService.currentLimit());
+        }
+    }
+
+    /**
+     * 合并重复的构建触发
+     *
+     * @param triggerBuildType 新的触发类型
+     */
+    public void mergeTrigger(int triggerBuildType) {
+        logRecorder.system(I18nMessageUtil.get("i18n.build_trigger_merged.9e0a"), triggerBuildType);
+    }
+
+    /**
+     * 构建编号
+     *
+     * @return 构建编号
+     */
+    public int getBuildNumberId() {
+        return taskData.buildInfoModel.getBuildId();
     }
 
     /**
      * 取消任务(拒绝执行)
      */
     public void rejectedExecution() {
-        ThreadPoolExecutor threadPoolExecutor = buildExecutorPoolService.getThreadPoolExecutor();
-        int queueSize = threadPoolExecutor.getQueue().size();
-        int limitPoolSize = threadPoolExecutor.getPoolSize();
-        int corePoolSize = threadPoolExecutor.getCorePoolSize();
-        String format = StrUtil.format(I18nMessageUtil.get("i18n.build_status_message.42a7"), BUILD_MANAGE_MAP.size(), queueSize, limitPoolSize, corePoolSize);
+        int queueSize = buildExecutorPoolService.queueSize();
+        String format = StrUtil.format(I18nMessageUtil.get("i18n.build_status_message.42a7"), BUILD_MANAGE_MAP.size(), queueSize,
+            BUILD_MANAGE_MAP.size() - queueSize, buildExecutorPoolService.currentLimit());
         logRecorder.system(format);
         this.cancelTask(format);
     }
@@ -177,6 +199,8 @@ public class BuildExecuteManage implements Runnable {
      * 取消任务
      */
     private void cancelTask(String desc) {
+        // 还在排队中直接移出队列
+        buildExecutorPoolService.remove(taskData.buildInfoModel.getId());
         CommandUtil.kill(process);
         ApacheExecUtil.kill(this.logId);
         Integer buildMode = taskData.buildInfoModel.getBuildMode();
@@ -325,19 +349,26 @@ public class BuildExecuteManage implements Runnable {
             File toFile = BuildUtil.getHistoryPackageFile(buildInfoModel.getId(), buildInfoModel.getBuildId(), resultDirFile);
             //
             String rootDir = FileUtil.getAbsolutePath(gitFile);
-            FileCopier.create(file, toFile)
-                .setCopyContentIfDir(true)
-                .setOverride(true)
-                .setCopyAttributes(true)
-                .setCopyFilter(file12 -> {
-                    if (!releaseHideFile && file12.isHidden()) {
-                        return false;
-                    }
-                    String subPath = FileUtil.subPath(rootDir, file12);
-                    subPath = FileUtil.normalize(StrUtil.SLASH + subPath);
-                    return predicate.test(subPath);
-                })
-                .copy();
+            Filter<File> copyFilter = file12 -> {
+                if (!releaseHideFile && file12.isHidden()) {
+                    return false;
+                }
+                String subPath = FileUtil.subPath(rootDir, file12);
+                subPath = FileUtil.normalize(StrUtil.SLASH + subPath);
+                return predicate.test(subPath);
+            };
+            if (buildExtConfig.isArtifactHardLink()) {
+                // 和上一次构建的历史产物相同的文件使用硬链接，避免大文件重复占用磁盘空间
+                File previous = this.previousHistoryPackageFile(resultDirFile);
+                ArtifactPackager.linkCopy(file, toFile, previous, copyFilter);
+            } else {
+                FileCopier.create(file, toFile)
+                    .setCopyContentIfDir(true)
+                    .setOverride(true)
+                    .setCopyAttributes(true)
+                    .setCopyFilter(copyFilter)
+                    .copy();
+            }
         }
         if (CollUtil.isNotEmpty(excludeReleaseAnts)) {
             logRecorder.system(I18nMessageUtil.get("i18n.cumulative_filter_files.448d"), excludeReleaseAnt, excludeReleaseAntCount[0]);
@@ -345,6 +376,27 @@ public class BuildExecuteManage implements Runnable {
         return null;
     }
 
+    /**
+     * 查找最近一次还存在的历史产物
+     *
+     * @param resultDirFile 产物路径
+     * @return 不存在返回 null
+     */
+    private File previousHistoryPackageFile(String resultDirFile) {
+        BuildInfoModel buildInfoModel = taskData.buildInfoModel;
+        int buildId = buildInfoModel.getBuildId();
+        for (int i = 1; i <= 10; i++) {
+            File file = BuildUtil.getHistoryPackageFile(buildInfoModel.getId(), buildId - i, resultDirFile);
+            if (file == null) {
+                return null;
+            }
+            if (file.exists()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
     /**
      * 准备构建
      *
@@ -429,11 +481,16 @@ public class BuildExecuteManage implements Runnable {
                     // 使用系统
                     map.put("gitProcessType", "SystemGit");
                 }
+                if (buildExtConfig.isGitMirror()) {
+                    // 同一个仓库共用本地镜像，分支和标签直接从同步后的镜像中读取
+                    map.put("mirrorPath", BuildUtil.getRepositoryMirror(repositoryModel.getId()));
+                    map.put("mirrorFetchInterval", buildExtConfig.getGitMirrorFetchInterval());
+                }
+                map.put("reduceProgressRatio", buildExtConfig.getLogReduceProgressRatio());
+                map.put("logWriter", logRecorder.getPrintWriter());
                 Tuple tuple = (Tuple) plugin.execute("branchAndTagList", map);
                 //GitUtil.getBranchAndTagList(repositoryModel);
                 Assert.notNull(tuple, I18nMessageUtil.get("i18n.get_repository_branch_failure.37cc"));
-                map.put("reduceProgressRatio", buildExtConfig.getLogReduceProgressRatio());
-                map.put("logWriter", logRecorder.getPrintWriter());
                 map.put("savePath", gitFile);
                 map.put("strictlyEnforce", buildExtraModule.strictlyEnforce());
                 // 模糊匹配 标签
@@ -1014,7 +1071,7 @@ public class BuildExecuteManage implements Runnable {
         ScriptExecuteLogModel logModel = scriptExecuteLogServer.create(scriptModel, 3, this.taskData.buildInfoModel.getWorkspaceId());
         File logFile = scriptModel.logFile(logModel.getId());
         File scriptFile = null;
-        LogRecorder scriptLog = LogRecorder.builder().file(logFile).build();
+        LogRecorder scriptLog = LogRecorder.builder().file(logFile).buffered(true).build();
         final String[] lastMsg = new String[1];
         try {
             // 创建执行器
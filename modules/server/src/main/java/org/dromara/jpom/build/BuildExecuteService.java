@@ -118,6 +118,12 @@ public class BuildExecuteService {
                                        int triggerBuildType, String buildRemark, String checkRepositoryDiff,
                                        Object... parametersEnv) {
         synchronized (buildInfoId.intern()) {
+            // 还在排队中的构建直接合并本次触发
+            BuildExecuteManage queued = BuildExecuteManage.BUILD_MANAGE_MAP.get(buildInfoId);
+            if (queued != null && buildExecutorPoolService.coalesce(buildInfoId, BuildExecutorPoolService.priority(triggerBuildType))) {
+                queued.mergeTrigger(triggerBuildType);
+                return JsonMessage.success(StrUtil.format(I18nMessageUtil.get("i18n.build_merged_into_queue.1c5f"), queued.getBuildNumberId()), queued.getBuildNumberId());
+            }
             BuildInfoModel buildInfoModel = buildService.getByKey(buildInfoId);
             String e = this.checkStatus(buildInfoModel);
             Assert.isNull(e, () -> e);
@@ -192,7 +198,7 @@ public class BuildExecuteService {
             EnvironmentMapBuilder environmentMapBuilder = buildHistoryLog.toEnvironmentMapBuilder();
             //
             File logFile = BuildUtil.getLogFile(item.getId(), buildId);
-            LogRecorder logRecorder = LogRecorder.builder().file(logFile).build();
+            LogRecorder logRecorder = LogRecorder.builder().file(logFile).buffered(true).build();
             ReleaseManage manage = ReleaseManage.builder()
                 .buildExtraModule(buildExtraModule)
                 .logId(buildHistoryLog.getId())
@@ -205,7 +211,7 @@ public class BuildExecuteService {
             //
             logRecorder.system(I18nMessageUtil.get("i18n.prepare_rollback.dba6"), fromBuildNumberId, buildId);
             //
-            buildExecutorPoolService.execute(() -> manage.rollback(item));
+            buildExecutorPoolService.execute(item.getWorkspaceId(), () -> manage.rollback(item));
             return buildId;
         }
     }
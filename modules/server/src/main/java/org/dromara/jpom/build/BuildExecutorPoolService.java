@@ -9,36 +9,399 @@
  */
 package org.dromara.jpom.build;
 
+import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.RuntimeUtil;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
 import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.JpomApplication;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.configuration.BuildExtConfig;
 import org.springframework.stereotype.Service;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 构建调度
+ * <p>
+ * 按工作空间分队列排队，优先级高的触发方式优先执行（手动 &gt; 触发器 &gt; 定时），同一优先级按照工作空间权重公平调度。
+ * 系统负载过高时暂停启动新的构建
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
 @Service
 @Slf4j
 public class BuildExecutorPoolService {
+    /**
+     * 等待超过此时间提升一级优先级，避免低优先级任务一直等待
+     */
+    private static final long AGING_TIME = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * 手动构建、回滚
+     */
+    public static final int PRIORITY_MANUAL = 3;
+    /**
+     * 触发器（webhook、api）
+     */
+    public static final int PRIORITY_TRIGGER = 2;
+    /**
+     * 定时构建
+     */
+    public static final int PRIORITY_CRON = 1;
+
     /**
      * 构建线程池
      */
     private volatile ThreadPoolExecutor threadPoolExecutor;
     private final BuildExtConfig buildExtConfig;
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * 工作空间 -> 排队中的任务
+     */
+    private final Map<String, List<QueueItem>> queues = new HashMap<>();
+    /**
+     * 工作空间 -> 运行中的任务数
+     */
+    private final Map<String, Integer> runningCount = new HashMap<>();
+    private int running;
 
     public BuildExecutorPoolService(BuildExtConfig buildExtConfig) {
         this.buildExtConfig = buildExtConfig;
     }
 
-    public ThreadPoolExecutor getThreadPoolExecutor() {
-        this.initPool();
-        return threadPoolExecutor;
+    /**
+     * 触发类型转换为优先级
+     *
+     * @param triggerBuildType 触发类型{0，手动，1 触发器,2 自动触发,3 手动回滚}
+     * @return 优先级
+     */
+    public static int priority(int triggerBuildType) {
+        switch (triggerBuildType) {
+            case 1:
+                return PRIORITY_TRIGGER;
+            case 2:
+                return PRIORITY_CRON;
+            default:
+                return PRIORITY_MANUAL;
+        }
+    }
+
+    /**
+     * 直接提交任务（回滚等不需要合并的任务）
+     *
+     * @param workspaceId 工作空间
+     * @param command     任务
+     */
+    public void execute(String workspaceId, Runnable command) {
+        this.submit(null, workspaceId, PRIORITY_MANUAL, command, true);
     }
 
-    public void execute(Runnable command) {
+    /**
+     * 提交构建任务进入排队
+     *
+     * @param buildId     构建ID
+     * @param workspaceId 工作空间
+     * @param priority    优先级
+     * @param command     任务
+     * @return false 超出最大等待数量
+     */
+    public boolean submit(String buildId, String workspaceId, int priority, Runnable command) {
+        return this.submit(buildId, workspaceId, priority, command, false);
+    }
+
+    private boolean submit(String buildId, String workspaceId, int priority, Runnable command, boolean force) {
         this.initPool();
-        threadPoolExecutor.execute(command);
+        synchronized (this) {
+            if (!force && this.queueSize() >= Math.max(buildExtConfig.getPoolWaitQueue(), 1)) {
+                return false;
+            }
+            QueueItem item = new QueueItem(buildId, ObjectUtil.defaultIfNull(workspaceId, ""), priority, command, sequence.incrementAndGet());
+            queues.computeIfAbsent(item.workspaceId, s -> new ArrayList<>()).add(item);
+        }
+        this.dispatch();
+        return true;
+    }
+
+    /**
+     * 合并重复的构建触发，构建还在排队时直接复用排队中的任务并提升优先级
+     *
+     * @param buildId  构建ID
+     * @param priority 新触发的优先级
+     * @return true 已经合并
+     */
+    public synchronized boolean coalesce(String buildId, int priority) {
+        if (!buildExtConfig.isQueueCoalesce()) {
+            return false;
+        }
+        QueueItem item = this.findQueued(buildId);
+        if (item == null) {
+            return false;
+        }
+        item.priority = Math.max(item.priority, priority);
+        return true;
+    }
+
+    /**
+     * 移除排队中的构建（取消构建）
+     *
+     * @param buildId 构建ID
+     * @return true 排队中并且已经移除
+     */
+    public synchronized boolean remove(String buildId) {
+        QueueItem item = this.findQueued(buildId);
+        if (item == null) {
+            return false;
+        }
+        this.removeQueued(item);
+        return true;
+    }
+
+    /**
+     * 排队中的任务数
+     *
+     * @return 数量
+     */
+    public synchronized int queueSize() {
+        return queues.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * 构建在队列中的位置，不在队列中返回 -1
+     *
+     * @param buildId 构建ID
+     * @return 位置（从 1 开始）
+     */
+    public synchronized int queuePosition(String buildId) {
+        List<QueueItem> order = this.dispatchOrder();
+        for (int i = 0; i < order.size(); i++) {
+            if (Objects.equals(order.get(i).buildId, buildId)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 调度统计信息
+     *
+     * @return json
+     */
+    public synchronized JSONObject statInfo() {
+        long now = SystemClock.now();
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("running", running);
+        jsonObject.put("runningWorkspace", new HashMap<>(runningCount));
+        jsonObject.put("limit", this.currentLimit());
+        jsonObject.put("maxLimit", this.maxLimit());
+        jsonObject.put("loadAverage", this.loadAverage());
+        jsonObject.put("freeMemoryRatio", this.freeMemoryRatio());
+        JSONArray array = new JSONArray();
+        List<QueueItem> order = this.dispatchOrder();
+        for (int i = 0; i < order.size(); i++) {
+            QueueItem item = order.get(i);
+            JSONObject itemJson = new JSONObject();
+            itemJson.put("buildId", item.buildId);
+            itemJson.put("workspaceId", item.workspaceId);
+            itemJson.put("priority", item.priority);
+            itemJson.put("effectivePriority", item.effectivePriority(now));
+            itemJson.put("position", i + 1);
+            itemJson.put("waitTime", now - item.submitTime);
+            array.add(itemJson);
+        }
+        jsonObject.put("queue", array);
+        return jsonObject;
+    }
+
+    /**
+     * 当前允许同时运行的构建数
+     *
+     * @return 数量
+     */
+    public synchronized int currentLimit() {
+        int maxLimit = this.maxLimit();
+        if (running > 0 && this.overload()) {
+            // 负载过高，不再启动新的构建
+            return Math.min(running, maxLimit);
+        }
+        return maxLimit;
+    }
+
+    private int maxLimit() {
+        int poolSize = buildExtConfig.getPoolSize();
+        return poolSize > 0 ? poolSize : Integer.MAX_VALUE;
+    }
+
+    private boolean overload() {
+        double maxLoad = buildExtConfig.getPoolMaxLoad();
+        if (maxLoad > 0) {
+            double loadAverage = this.loadAverage();
+            if (loadAverage >= 0 && loadAverage / RuntimeUtil.getProcessorCount() > maxLoad) {
+                return true;
+            }
+        }
+        double minFreeMemory = buildExtConfig.getPoolMinFreeMemory();
+        if (minFreeMemory > 0) {
+            double freeMemoryRatio = this.freeMemoryRatio();
+            return freeMemoryRatio >= 0 && freeMemoryRatio < minFreeMemory;
+        }
+        return false;
+    }
+
+    private double loadAverage() {
+        return ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+    }
+
+    private double freeMemoryRatio() {
+        OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+        if (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean osBean = (com.sun.management.OperatingSystemMXBean) operatingSystemMXBean;
+            long total = osBean.getTotalPhysicalMemorySize();
+            if (total > 0) {
+                return NumberUtil.div(osBean.getFreePhysicalMemorySize(), total, 4);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 启动可以执行的任务
+     */
+    private void dispatch() {
+        List<QueueItem> startList = new ArrayList<>();
+        synchronized (this) {
+            int limit = this.currentLimit();
+            while (running < limit) {
+                QueueItem item = this.pick(runningCount, SystemClock.now());
+                if (item == null) {
+                    break;
+                }
+                this.removeQueued(item);
+                running++;
+                runningCount.merge(item.workspaceId, 1, Integer::sum);
+                startList.add(item);
+            }
+        }
+        for (QueueItem item : startList) {
+            threadPoolExecutor.execute(() -> {
+                try {
+                    item.command.run();
+                } finally {
+                    this.done(item);
+                }
+            });
+        }
+    }
+
+    private void done(QueueItem item) {
+        synchronized (this) {
+            running--;
+            runningCount.computeIfPresent(item.workspaceId, (s, integer) -> integer > 1 ? integer - 1 : null);
+        }
+        this.dispatch();
+    }
+
+    /**
+     * 选择下一个执行的任务
+     * <p>
+     * 先比较优先级，优先级相同时选择运行中任务数 / 权重 最小的工作空间，最后按照提交顺序
+     *
+     * @param running 工作空间运行中的数量
+     * @param now     当前时间
+     * @return 任务
+     */
+    private QueueItem pick(Map<String, Integer> running, long now) {
+        QueueItem best = null;
+        double bestShare = 0;
+        for (List<QueueItem> list : queues.values()) {
+            QueueItem head = null;
+            for (QueueItem item : list) {
+                if (head == null || item.compareTo(head, now) < 0) {
+                    head = item;
+                }
+            }
+            if (head == null) {
+                continue;
+            }
+            double share = (double) running.getOrDefault(head.workspaceId, 0) / this.weight(head.workspaceId);
+            if (best == null) {
+                best = head;
+                bestShare = share;
+                continue;
+            }
+            int compare = Integer.compare(head.effectivePriority(now), best.effectivePriority(now));
+            if (compare > 0 || (compare == 0 && (share < bestShare || (share == bestShare && head.sequence < best.sequence)))) {
+                best = head;
+                bestShare = share;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 模拟调度顺序（用于计算排队位置）
+     *
+     * @return 排序后的任务
+     */
+    private List<QueueItem> dispatchOrder() {
+        long now = SystemClock.now();
+        Map<String, List<QueueItem>> backup = new HashMap<>(queues.size());
+        queues.forEach((s, list) -> backup.put(s, new ArrayList<>(list)));
+        Map<String, Integer> running = new HashMap<>(runningCount);
+        List<QueueItem> order = new ArrayList<>();
+        try {
+            QueueItem item;
+            while ((item = this.pick(running, now)) != null) {
+                order.add(item);
+                queues.get(item.workspaceId).remove(item);
+                running.merge(item.workspaceId, 1, Integer::sum);
+            }
+        } finally {
+            queues.clear();
+            queues.putAll(backup);
+        }
+        return order;
+    }
+
+    private int weight(String workspaceId) {
+        Map<String, Integer> workspaceWeight = buildExtConfig.getWorkspaceWeight();
+        Integer weight = workspaceWeight == null ? null : workspaceWeight.get(workspaceId);
+        return weight == null || weight <= 0 ? 1 : weight;
+    }
+
+    private QueueItem findQueued(String buildId) {
+        if (buildId == null) {
+            return null;
+        }
+        for (List<QueueItem> list : queues.values()) {
+            for (QueueItem item : list) {
+                if (buildId.equals(item.buildId)) {
+                    return item;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void removeQueued(QueueItem item) {
+        List<QueueItem> list = queues.get(item.workspaceId);
+        if (list == null) {
+            return;
+        }
+        list.remove(item);
+        if (list.isEmpty()) {
+            queues.remove(item.workspaceId);
+        }
     }
 
     /**
@@ -51,25 +414,52 @@ public class BuildExecutorPoolService {
                     ExecutorBuilder executorBuilder = ExecutorBuilder.create();
                     int poolSize = buildExtConfig.getPoolSize();
                     if (poolSize > 0) {
+                        // 并发数由调度控制，线程池只需要保证线程数量
                         executorBuilder.setCorePoolSize(poolSize).setMaxPoolSize(poolSize);
+                        executorBuilder.setWorkQueue(new LinkedBlockingQueue<>());
+                    } else {
+                        executorBuilder.setCorePoolSize(0).setMaxPoolSize(Integer.MAX_VALUE);
+                        executorBuilder.setWorkQueue(new SynchronousQueue<>());
                     }
-                    executorBuilder.useArrayBlockingQueue(Math.max(buildExtConfig.getPoolWaitQueue(), 1));
-                    executorBuilder.setHandler(new ThreadPoolExecutor.DiscardPolicy() {
-                        @Override
-                        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
-                            if (r instanceof BuildExecuteManage) {
-                                // 取消任务
-                                BuildExecuteManage buildExecuteManage = (BuildExecuteManage) r;
-                                buildExecuteManage.rejectedExecution();
-                            } else {
-                                log.warn(I18nMessageUtil.get("i18n.build_thread_pool_rejected_task.3bad"), r.getClass());
-                            }
-                        }
-                    });
                     threadPoolExecutor = executorBuilder.build();
                     JpomApplication.register("build", threadPoolExecutor);
+                    // 负载降低后需要主动启动排队中的任务
+                    JpomApplication.getScheduledExecutorService().scheduleWithFixedDelay(() -> {
+                        try {
+                            this.dispatch();
+                        } catch (Exception e) {
+                            log.error(I18nMessageUtil.get("i18n.build_dispatch_failure.4a7c"), e);
+                        }
+                    }, 5, 5, TimeUnit.SECONDS);
                 }
             }
         }
     }
+
+    private static class QueueItem {
+        private final String buildId;
+        private final String workspaceId;
+        private final Runnable command;
+        private final long sequence;
+        private final long submitTime;
+        private volatile int priority;
+
+        private QueueItem(String buildId, String workspaceId, int priority, Runnable command, long sequence) {
+            this.buildId = buildId;
+            this.workspaceId = workspaceId;
+            this.priority = priority;
+            this.command = command;
+            this.sequence = sequence;
+            this.submitTime = SystemClock.now();
+        }
+
+        private int effectivePriority(long now) {
+            return priority + (int) ((now - submitTime) / AGING_TIME);
+        }
+
+        private int compareTo(QueueItem other, long now) {
+            int compare = Integer.compare(other.effectivePriority(now), this.effectivePriority(now));
+            return compare != 0 ? compare : Long.compare(this.sequence, other.sequence);
+        }
+    }
 }
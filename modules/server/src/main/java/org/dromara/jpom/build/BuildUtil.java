@@ -12,10 +12,7 @@ package org.dromara.jpom.build;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
-import cn.hutool.core.util.ZipUtil;
 import cn.hutool.crypto.SecureUtil;
-import cn.hutool.extra.compress.CompressUtil;
-import cn.hutool.extra.compress.archiver.Archiver;
 import org.dromara.jpom.JpomApplication;
 import org.dromara.jpom.common.ServerConst;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
@@ -24,7 +21,6 @@ import org.dromara.jpom.model.data.RepositoryModel;
 import org.springframework.util.Assert;
 
 import java.io.File;
-import java.nio.charset.Charset;
 import java.util.function.BiFunction;
 
 /**
@@ -75,6 +71,16 @@ public class BuildUtil {
         return FileUtil.file(BuildUtil.getBuildDataFile(id), "source");
     }
 
+    /**
+     * 获取仓库本地镜像路径
+     *
+     * @param repositoryId 仓库ID
+     * @return file
+     */
+    public static File getRepositoryMirror(String repositoryId) {
+        return FileUtil.file(JpomApplication.getInstance().getDataPath(), "git-mirror", repositoryId);
+    }
+
     public static File getBuildDataDir() {
         return FileUtil.file(JpomApplication.getInstance().getDataPath(), "build");
     }
@@ -165,15 +171,8 @@ public class BuildUtil {
         // 保存目录存放值 history 路径
         File packageFile = BuildUtil.getHistoryPackageZipFile(id, buildNumberId);
         File zipFile = tarGz ? FileUtil.file(packageFile, name + ".tar.gz") : FileUtil.file(packageFile, name + ".zip");
-        // 不存在则打包
-        if (tarGz) {
-            try (Archiver archiver = CompressUtil.createArchiver(Charset.defaultCharset(), "tar.gz", zipFile)) {
-                archiver.add(file);
-            }
-        } else {
-            ZipUtil.zip(file.getAbsolutePath(), zipFile.getAbsolutePath());
-        }
-        return zipFile;
+        // 文件没有变化时复用已有的压缩包
+        return ArtifactPackager.pack(id, buildNumberId, file, zipFile, tarGz);
     }
 
     /**
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.build;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程 gzip 压缩输出流（和 pigz 的方式相同）
+ * <p>
+ * 数据按块切分后并行压缩，每块使用上一块末尾 32KB 作为字典，非最后一块以 SYNC_FLUSH 结束，
+ * 按顺序拼接后仍然是一个标准的单成员 gzip 文件
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int DICT_SIZE = 32 * 1024;
+    private static final byte[] HEADER = new byte[]{0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final OutputStream out;
+    private final ExecutorService executorService;
+    private final int maxPending;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockSize;
+    private byte[] dictionary;
+    private long totalSize;
+    private boolean closed;
+
+    ParallelGzipOutputStream(OutputStream out, ExecutorService executorService, int threads) throws IOException {
+        this.out = out;
+        this.executorService = executorService;
+        this.maxPending = Math.max(threads, 1) * 2;
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        crc.update(b, off, len);
+        totalSize += len;
+        while (len > 0) {
+            int size = Math.min(len, BLOCK_SIZE - blockSize);
+            System.arraycopy(b, off, block, blockSize, size);
+            blockSize += size;
+            off += size;
+            len -= size;
+            if (blockSize == BLOCK_SIZE) {
+                this.submit(false);
+            }
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] data = block;
+        int size = blockSize;
+        byte[] dict = dictionary;
+        if (!last) {
+            dictionary = Arrays.copyOfRange(data, size - DICT_SIZE, size);
+            block = new byte[BLOCK_SIZE];
+            blockSize = 0;
+        }
+        pending.offerLast(executorService.submit(() -> deflate(data, size, dict, last)));
+        while (pending.size() >= maxPending) {
+            this.writeFirst();
+        }
+    }
+
+    private static byte[] deflate(byte[] data, int size, byte[] dict, boolean last) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dict != null) {
+                deflater.setDictionary(dict);
+            }
+            deflater.setInput(data, 0, size);
+            ByteArrayBuilder builder = new ByteArrayBuilder(size / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    builder.write(buffer, n);
+                }
+            } else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    builder.write(buffer, n);
+                } while (n == buffer.length);
+            }
+            return builder.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeFirst() throws IOException {
+        Future<byte[]> future = pending.pollFirst();
+        if (future == null) {
+            return;
+        }
+        try {
+            out.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            this.submit(true);
+            while (!pending.isEmpty()) {
+                this.writeFirst();
+            }
+            writeInt((int) crc.getValue());
+            writeInt((int) totalSize);
+            out.flush();
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            out.close();
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    /**
+     * 简单的字节数组拼接，避免 ByteArrayOutputStream 的同步开销
+     */
+    private static class ByteArrayBuilder {
+        private byte[] bytes;
+        private int size;
+
+        private ByteArrayBuilder(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void write(byte[] b, int len) {
+            if (size + len > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + len));
+            }
+            System.arraycopy(b, 0, bytes, size, len);
+            size += len;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
@@ -450,8 +450,9 @@ public class ReleaseManage {
         MachineSshModel machineSshModel = sshService.getMachineSshModel(item);
         Session session = null;
         ChannelSftp channelSftp = null;
+        boolean discard = true;
         try {
-            session = sshService.getSessionByModel(machineSshModel);
+            session = sshService.borrowSession(machineSshModel);
             Charset charset = machineSshModel.charset();
             int timeout = machineSshModel.timeout();
             String releasePath = this.buildExtraModule.getReleasePath();
@@ -492,14 +493,16 @@ public class ReleaseManage {
             // 执行发布后命令
             if (StrUtil.isEmpty(this.buildExtraModule.getReleaseCommand())) {
                 logRecorder.systemWarning(I18nMessageUtil.get("i18n.no_ssh_commands_to_execute_after_publish.89ba"));
+                discard = false;
                 return;
             }
             //
             logRecorder.system(I18nMessageUtil.get("i18n.start_executing_post_release_command.fd06"), item.getName());
             JschUtils.execCallbackLine(session, charset, timeout, this.buildExtraModule.getReleaseCommand(), StrUtil.EMPTY, envFileMap, logRecorder::info);
+            discard = false;
         } finally {
             JschUtil.close(channelSftp);
-            JschUtil.close(session);
+            sshService.releaseSession(session, discard);
         }
     }
 
@@ -16,9 +16,12 @@ import cn.hutool.core.io.unit.DataSize;
 import cn.hutool.core.lang.Opt;
 import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.EnumUtil;
+import cn.hutool.core.util.HexUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.crypto.SecureUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
 import cn.hutool.extra.servlet.ServletUtil;
 import cn.hutool.extra.spring.SpringUtil;
 import cn.keepbx.jpom.model.BaseIdModel;
@@ -42,6 +45,7 @@ import org.dromara.jpom.system.ServerConfig;
 import org.dromara.jpom.transport.*;
 import org.dromara.jpom.util.StrictSyncFinisher;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.util.Assert;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
@@ -53,14 +57,18 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -72,6 +80,11 @@ import java.util.function.Function;
 @Slf4j
 public class NodeForward {
 
+    /**
+     * 正在上传中的分片上传 id
+     */
+    private static final Set<String> UPLOADING_SLICE_ID = ConcurrentHashMap.newKeySet();
+
     /**
      * 创建代理
      *
@@ -300,7 +313,7 @@ public class NodeForward {
      */
     public static <T> JsonMessage<T> requestSharding(NodeModel nodeModel, NodeUrl nodeUrl, JSONObject jsonObject, File file, Function<JSONObject, JsonMessage<T>> doneCallback, BiConsumer<Long, Long> streamProgress) throws IOException {
         INodeInfo nodeInfo = parseNodeInfo(nodeModel);
-        return requestSharding(nodeInfo, nodeModel.getWorkspaceId(), nodeUrl, jsonObject, file, File::getName, doneCallback, streamProgress);
+        return requestSharding(nodeInfo, nodeModel.getWorkspaceId(), nodeUrl, jsonObject, file, File::getName, null, doneCallback, streamProgress);
     }
 
     /**
@@ -312,8 +325,56 @@ public class NodeForward {
      * @return JSON
      */
     public static <T> JsonMessage<T> requestSharding(NodeModel nodeModel, NodeUrl nodeUrl, JSONObject jsonObject, File file, String fileName, Function<JSONObject, JsonMessage<T>> doneCallback, BiConsumer<Long, Long> streamProgress) throws IOException {
+        return requestSharding(nodeModel, nodeUrl, jsonObject, file, fileName, null, doneCallback, streamProgress);
+    }
+
+    /**
+     * 分片上传文件
+     *
+     * @param nodeModel      节点
+     * @param nodeUrl        节点的url
+     * @param jsonObject     数据
+     * @param shardingDigest 预先计算的文件签名，为空时边读取边计算
+     * @return JSON
+     */
+    public static <T> JsonMessage<T> requestSharding(NodeModel nodeModel, NodeUrl nodeUrl, JSONObject jsonObject, File file, String fileName, ShardingDigest shardingDigest, Function<JSONObject, JsonMessage<T>> doneCallback, BiConsumer<Long, Long> streamProgress) throws IOException {
         INodeInfo nodeInfo = parseNodeInfo(nodeModel);
-        return requestSharding(nodeInfo, nodeModel.getWorkspaceId(), nodeUrl, jsonObject, file, file1 -> fileName, doneCallback, streamProgress);
+        return requestSharding(nodeInfo, nodeModel.getWorkspaceId(), nodeUrl, jsonObject, file, file1 -> fileName, shardingDigest, doneCallback, streamProgress);
+    }
+
+    /**
+     * 分片上传的上传 id，只用于断点续传判断。相同的上传正在进行时，上传会使用新的随机上传 id
+     *
+     * @param nodeModel  节点
+     * @param nodeUrl    节点的url
+     * @param jsonObject 上传参数
+     * @param file       文件
+     * @param fileName   文件名
+     * @param chunkSize  分片大小
+     * @return 上传 id
+     */
+    public static String shardingSliceId(NodeModel nodeModel, NodeUrl nodeUrl, JSONObject jsonObject, File file, String fileName, int chunkSize) {
+        INodeInfo nodeInfo = parseNodeInfo(nodeModel);
+        IUrlItem urlItem = parseUrlItem(nodeInfo, nodeModel.getWorkspaceId(), nodeUrl, DataContentType.FORM_URLENCODED);
+        return shardingSliceId(nodeInfo, urlItem, jsonObject, file, fileName, chunkSize);
+    }
+
+    private static String shardingSliceId(INodeInfo nodeInfo, IUrlItem urlItem, JSONObject jsonObject, File file, String fileName, int chunkSize) {
+        return SecureUtil.md5(StrUtil.join(StrUtil.COLON, nodeInfo.url(), urlItem.path(), jsonObject.toString(),
+            file.getAbsolutePath(), fileName, file.length(), file.lastModified(), chunkSize));
+    }
+
+    /**
+     * 按照当前配置的分片大小计算文件签名，用于同一个文件上传到多个节点
+     *
+     * @param file 文件
+     * @return 签名
+     * @throws IOException io
+     */
+    public static ShardingDigest shardingDigest(File file) throws IOException {
+        ServerConfig serverConfig = SpringUtil.getBean(ServerConfig.class);
+        int fileSliceSize = serverConfig.getNode().getUploadFileSliceSize();
+        return ShardingDigest.of(file, (int) DataSize.ofMegabytes(fileSliceSize).toBytes());
     }
 
     /**
@@ -326,7 +387,7 @@ public class NodeForward {
      */
     public static <T> JsonMessage<T> requestSharding(MachineNodeModel machineNodeModel, NodeUrl nodeUrl, JSONObject jsonObject, File file, Function<JSONObject, JsonMessage<T>> doneCallback, BiConsumer<Long, Long> streamProgress) throws IOException {
         INodeInfo nodeInfo = coverNodeInfo(machineNodeModel);
-        return requestSharding(nodeInfo, StrUtil.EMPTY, nodeUrl, jsonObject, file, File::getName, doneCallback, streamProgress);
+        return requestSharding(nodeInfo, StrUtil.EMPTY, nodeUrl, jsonObject, file, File::getName, null, doneCallback, streamProgress);
     }
 
     /**
@@ -337,103 +398,245 @@ public class NodeForward {
      * @param streamProgress 进度回调
      * @param nodeUrl        节点的url
      * @param jsonObject     数据
+     * @param shardingDigest 预先计算的文件签名
      * @return JSON
      */
-    private static <T> JsonMessage<T> requestSharding(INodeInfo nodeInfo, String workspaceId, NodeUrl nodeUrl, JSONObject jsonObject, File file, Function<File, String> fileNameFn, Function<JSONObject, JsonMessage<T>> doneCallback, BiConsumer<Long, Long> streamProgress) throws IOException {
+    private static <T> JsonMessage<T> requestSharding(INodeInfo nodeInfo, String workspaceId, NodeUrl nodeUrl, JSONObject jsonObject, File file, Function<File, String> fileNameFn, ShardingDigest shardingDigest, Function<JSONObject, JsonMessage<T>> doneCallback, BiConsumer<Long, Long> streamProgress) throws IOException {
         IUrlItem urlItem = parseUrlItem(nodeInfo, workspaceId, nodeUrl, DataContentType.FORM_URLENCODED);
         ServerConfig serverConfig = SpringUtil.getBean(ServerConfig.class);
         NodeConfig nodeConfig = serverConfig.getNode();
         long length = file.length();
         String fileName = fileNameFn.apply(file);
         Assert.state(length > 0, I18nMessageUtil.get("i18n.empty_file_cannot_upload.88df") + file.getAbsolutePath());
-        String md5 = SecureUtil.md5(file);
         int fileSliceSize = nodeConfig.getUploadFileSliceSize();
         //如果小数点大于1，整数加一 例如4.1 =》5
-        long chunkSize = DataSize.ofMegabytes(fileSliceSize).toBytes();
-        int total = (int) Math.ceil((double) length / chunkSize);
-        Queue<Integer> queueList = new ConcurrentLinkedDeque<>();
-        for (int i = 0; i < total; i++) {
-            queueList.offer(i);
+        int chunkSize = (int) DataSize.ofMegabytes(fileSliceSize).toBytes();
+        // 文件未变化时直接使用已经计算好的签名
+        ShardingDigest digest = shardingDigest != null && shardingDigest.match(file, chunkSize) ? shardingDigest : null;
+        // 相同的文件、相同的上传目标使用相同的上传 id，上传中断后重试可以跳过已经上传的分片
+        String baseSliceId = shardingSliceId(nodeInfo, urlItem, jsonObject, file, fileName, chunkSize);
+        if (!UPLOADING_SLICE_ID.add(baseSliceId)) {
+            // 相同的上传正在进行，使用新的上传 id，避免先完成的上传合并时删除另一个上传还需要的分片
+            String sliceId = SecureUtil.md5(baseSliceId + StrUtil.COLON + IdUtil.fastSimpleUUID());
+            return requestSharding(nodeInfo, workspaceId, nodeUrl, urlItem, jsonObject, file, fileName, sliceId, Collections.emptyMap(), digest, doneCallback, streamProgress);
+        }
+        try {
+            Map<Integer, String> uploaded = shardingStatus(nodeInfo, workspaceId, baseSliceId);
+            return requestSharding(nodeInfo, workspaceId, nodeUrl, urlItem, jsonObject, file, fileName, baseSliceId, uploaded, digest, doneCallback, streamProgress);
+        } finally {
+            UPLOADING_SLICE_ID.remove(baseSliceId);
         }
-        List<Integer> success = Collections.synchronizedList(new ArrayList<>(total));
+    }
+
+    /**
+     * 分片上传
+     *
+     * @param sliceId  上传 id
+     * @param uploaded 插件端已经上传完成的分片
+     * @param digest   预先计算的文件签名，可以为空
+     */
+    private static <T> JsonMessage<T> requestSharding(INodeInfo nodeInfo, String workspaceId, NodeUrl nodeUrl, IUrlItem urlItem, JSONObject jsonObject, File file, String fileName,
+                                                      String sliceId, Map<Integer, String> uploaded, ShardingDigest digest,
+                                                      Function<JSONObject, JsonMessage<T>> doneCallback, BiConsumer<Long, Long> streamProgress) throws IOException {
+        ServerConfig serverConfig = SpringUtil.getBean(ServerConfig.class);
+        NodeConfig nodeConfig = serverConfig.getNode();
+        long length = file.length();
+        int fileSliceSize = nodeConfig.getUploadFileSliceSize();
+        int chunkSize = (int) DataSize.ofMegabytes(fileSliceSize).toBytes();
+        int total = (int) Math.ceil((double) length / chunkSize);
         // 并发数
-        int concurrent = nodeConfig.getUploadFileConcurrent();
+        int concurrent = Math.max(Math.min(nodeConfig.getUploadFileConcurrent(), total), 1);
         AtomicReference<JsonMessage<T>> failureMessage = new AtomicReference<>();
         AtomicReference<JsonMessage<T>> succeedMessage = new AtomicReference<>();
         AtomicLong atomicProgressSize = new AtomicLong(0);
+        AtomicInteger success = new AtomicInteger();
         JSONObject sliceData = new JSONObject();
-        sliceData.put("sliceId", IdUtil.fastSimpleUUID());
+        sliceData.put("sliceId", sliceId);
         sliceData.put("totalSlice", total);
-        sliceData.put("fileSumMd5", md5);
+        // 完整文件的签名在读取完所有分片后才能得到，分片上传时先使用占位值（兼容旧版本插件端的非空校验）
+        sliceData.put("fileSumMd5", sliceId);
         TransportServer transportServer = TransportServerFactory.get();
         TypeReference<JsonMessage<T>> typeReference = new TypeReference<JsonMessage<T>>() {
         };
-        // 需要计算 并发数和最大任务数，如果任务数小于并发数则使用任务数
-        try (StrictSyncFinisher syncFinisher = new StrictSyncFinisher(Math.min(concurrent, total), total)) {
-            Runnable runnable = () -> {
-                // 取出任务
-                Integer currentChunk = queueList.poll();
-                if (currentChunk == null) {
-                    return;
-                }
-                JSONObject uploadData = jsonObject.clone();
+        // 顺序读取文件，读取的同时计算完整文件签名，分片交给上传线程。缓冲区循环使用，内存占用为固定的分片数
+        BlockingQueue<byte[]> bufferPool = new ArrayBlockingQueue<>(concurrent * 2);
+        BlockingQueue<ShardingChunk> chunkQueue = new ArrayBlockingQueue<>(concurrent);
+        MessageDigest fileDigest = DigestUtil.digester(DigestAlgorithm.MD5).getDigest();
+        CountDownLatch countDownLatch = new CountDownLatch(concurrent);
+        try (StrictSyncFinisher syncFinisher = new StrictSyncFinisher(concurrent, concurrent)) {
+            syncFinisher.addRepeatWorker(() -> {
                 try {
-                    try (FileInputStream inputStream = new FileInputStream(file)) {
-                        try (FileChannel inputChannel = inputStream.getChannel()) {
-                            //分配缓冲区，设定每次读的字节数
-                            ByteBuffer byteBuffer = ByteBuffer.allocate((int) chunkSize);
-                            // 移动到指定位置开始读取
-                            inputChannel.position(currentChunk * chunkSize);
-                            inputChannel.read(byteBuffer);
-                            //上面把数据写入到了buffer，所以可知上面的buffer是写模式，调用flip把buffer切换到读模式，读取数据
-                            byteBuffer.flip();
-                            byte[] array = new byte[byteBuffer.remaining()];
-                            byteBuffer.get(array, 0, array.length);
-                            uploadData.put("file", new BytesResource(array, fileName + StrUtil.DOT + currentChunk));
-                            uploadData.put("nowSlice", currentChunk);
+                    while (true) {
+                        ShardingChunk chunk = chunkQueue.take();
+                        if (chunk.index < 0) {
+                            break;
+                        }
+                        try {
+                            if (failureMessage.get() != null) {
+                                // 已经失败，只回收缓冲区
+                                continue;
+                            }
+                            JSONObject uploadData = jsonObject.clone();
+                            byte[] array = chunk.size == chunk.buffer.length ? chunk.buffer : Arrays.copyOf(chunk.buffer, chunk.size);
+                            uploadData.put("file", new BytesResource(array, fileName + StrUtil.DOT + chunk.index));
+                            uploadData.put("nowSlice", chunk.index);
+                            uploadData.put("sliceMd5", chunk.md5);
                             uploadData.putAll(sliceData);
+                            // 上传
+                            JsonMessage<T> message = transportServer.executeToType(nodeInfo, urlItem, uploadData, typeReference);
+                            if (message.success()) {
+                                success.incrementAndGet();
+                                streamProgress.accept(length, atomicProgressSize.addAndGet(chunk.size));
+                                succeedMessage.set(message);
+                            } else {
+                                log.warn(I18nMessageUtil.get("i18n.chunk_upload_exception.87c1"), nodeUrl, message);
+                                // 终止上传
+                                failureMessage.compareAndSet(null, message);
+                            }
+                        } catch (Exception e) {
+                            log.error(I18nMessageUtil.get("i18n.chunk_upload_file_exception.0dc3"), e);
+                            // 终止上传
+                            failureMessage.compareAndSet(null, new JsonMessage<>(500, I18nMessageUtil.get("i18n.upload_exception.cd6c") + e.getMessage()));
+                        } finally {
+                            bufferPool.offer(chunk.buffer);
                         }
                     }
-                    // 上传
-                    JsonMessage<T> message = transportServer.executeToType(nodeInfo, urlItem, uploadData, typeReference);
-                    if (message.success()) {
-                        // 使用成功的个数计算
-                        success.add(currentChunk);
-                        long end = Math.min(length, ((success.size() - 1) * chunkSize) + chunkSize);
-                        // 保存线程安全顺序回调进度信息
-                        atomicProgressSize.set(Math.max(end, atomicProgressSize.get()));
-                        streamProgress.accept(length, atomicProgressSize.get());
-                        succeedMessage.set(message);
-                    } else {
-                        log.warn(I18nMessageUtil.get("i18n.chunk_upload_exception.87c1"), nodeUrl, message);
-                        // 终止上传
-                        queueList.clear();
-                        failureMessage.set(message);
-                    }
-                } catch (Exception e) {
-                    log.error(I18nMessageUtil.get("i18n.chunk_upload_file_exception.0dc3"), e);
-                    // 终止上传
-                    queueList.clear();
-                    failureMessage.set(new JsonMessage<>(500, I18nMessageUtil.get("i18n.upload_exception.cd6c") + e.getMessage()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    countDownLatch.countDown();
                 }
-            };
-            for (int i = 0; i < total; i++) {
-                syncFinisher.addWorker(runnable);
+            });
+            syncFinisher.start(false);
+            try {
+                readSharding(file, chunkSize, total, bufferPool, chunkQueue, fileDigest, digest, uploaded, failureMessage, chunk -> {
+                    // 插件端已经存在相同的分片，跳过上传
+                    success.incrementAndGet();
+                    streamProgress.accept(length, atomicProgressSize.addAndGet(chunk.size));
+                });
+            } finally {
+                for (int i = 0; i < concurrent; i++) {
+                    chunkQueue.put(new ShardingChunk(-1, null, 0, null));
+                }
+                countDownLatch.await();
             }
-            syncFinisher.start();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new JsonMessage<>(500, I18nMessageUtil.get("i18n.upload_exception.cd6c") + e.getMessage());
         }
         JsonMessage<T> message = failureMessage.get();
         if (message != null) {
             return message;
         }
         // 判断是否都成功
-        Assert.state(success.size() == total, StrUtil.format(I18nMessageUtil.get("i18n.upload_exception_mismatched_count.687f"), success.size(), total));
+        Assert.state(success.get() == total, StrUtil.format(I18nMessageUtil.get("i18n.upload_exception_mismatched_count.687f"), success.get(), total));
+        sliceData.put("fileSumMd5", digest != null ? digest.getFileMd5() : HexUtil.encodeHexStr(fileDigest.digest()));
         //
         return Optional.ofNullable(doneCallback)
             .map(function -> function.apply(sliceData))
             .orElseGet(succeedMessage::get);
     }
 
+    /**
+     * 顺序读取文件分片
+     *
+     * @param file           文件
+     * @param chunkSize      分片大小
+     * @param total          分片总数
+     * @param bufferPool     缓冲区池
+     * @param chunkQueue     待上传的分片
+     * @param fileDigest     完整文件签名
+     * @param digest         预先计算的文件签名，不为空时不再重复计算签名，已经上传的分片不再读取
+     * @param uploaded       插件端已经上传完成的分片
+     * @param failureMessage 上传失败信息，失败后停止读取
+     * @param skipConsumer   跳过的分片回调
+     * @throws IOException          io
+     * @throws InterruptedException 中断
+     */
+    private static void readSharding(File file, int chunkSize, int total,
+                                     BlockingQueue<byte[]> bufferPool, BlockingQueue<ShardingChunk> chunkQueue,
+                                     MessageDigest fileDigest, ShardingDigest digest, Map<Integer, String> uploaded,
+                                     AtomicReference<?> failureMessage,
+                                     Consumer<ShardingChunk> skipConsumer) throws IOException, InterruptedException {
+        MessageDigest chunkDigest = DigestUtil.digester(DigestAlgorithm.MD5).getDigest();
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            for (int i = 0; i < total; i++) {
+                if (failureMessage.get() != null) {
+                    return;
+                }
+                if (digest != null && StrUtil.equals(uploaded.get(i), digest.getChunkMd5()[i])) {
+                    int size = (int) Math.min(chunkSize, digest.getLength() - (long) i * chunkSize);
+                    inputStream.getChannel().position((long) i * chunkSize + size);
+                    skipConsumer.accept(new ShardingChunk(i, null, size, digest.getChunkMd5()[i]));
+                    continue;
+                }
+                byte[] buffer = bufferPool.poll();
+                if (buffer == null) {
+                    buffer = new byte[chunkSize];
+                }
+                int size = 0;
+                int read;
+                while (size < buffer.length && (read = inputStream.read(buffer, size, buffer.length - size)) > 0) {
+                    size += read;
+                }
+                String md5;
+                if (digest != null) {
+                    md5 = digest.getChunkMd5()[i];
+                } else {
+                    fileDigest.update(buffer, 0, size);
+                    chunkDigest.update(buffer, 0, size);
+                    md5 = HexUtil.encodeHexStr(chunkDigest.digest());
+                }
+                ShardingChunk chunk = new ShardingChunk(i, buffer, size, md5);
+                if (StrUtil.equals(uploaded.get(i), chunk.md5)) {
+                    bufferPool.offer(buffer);
+                    skipConsumer.accept(chunk);
+                    continue;
+                }
+                chunkQueue.put(chunk);
+            }
+        }
+    }
+
+    /**
+     * 查询插件端已经上传完成的分片，旧版本插件端没有此接口时全部重新上传
+     *
+     * @param nodeInfo    节点
+     * @param workspaceId 工作空间id
+     * @param sliceId     上传id
+     * @return key 分片序号，value 分片签名
+     */
+    private static Map<Integer, String> shardingStatus(INodeInfo nodeInfo, String workspaceId, String sliceId) {
+        try {
+            JsonMessage<JSONObject> message = request(nodeInfo, workspaceId, NodeUrl.Manage_File_Sharding_Status2, "sliceId", sliceId);
+            if (message.success() && message.getData() != null) {
+                Map<Integer, String> map = new HashMap<>(message.getData().size());
+                message.getData().forEach((key, value) -> map.put(Convert.toInt(key), StrUtil.toStringOrNull(value)));
+                return map;
+            }
+        } catch (Exception e) {
+            log.debug("sharding status {} {}", nodeInfo.url(), e.getMessage());
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * 待上传的分片
+     */
+    private static class ShardingChunk {
+        private final int index;
+        private final byte[] buffer;
+        private final int size;
+        private final String md5;
+
+        private ShardingChunk(int index, byte[] buffer, int size, String md5) {
+            this.index = index;
+            this.buffer = buffer;
+            this.size = size;
+            this.md5 = md5;
+        }
+    }
+
     /**
      * 普通消息转发
      *
@@ -653,6 +856,25 @@ public class NodeForward {
         });
     }
 
+    /**
+     * 判断节点响应是否为接口不存在（旧版本节点没有对应的接口）
+     *
+     * @param jsonMessage 节点响应
+     * @param nodeUrl     请求的接口
+     * @return true 接口不存在
+     */
+    public static boolean isUnsupportedUrl(JsonMessage<?> jsonMessage, NodeUrl nodeUrl) {
+        if (jsonMessage == null) {
+            return false;
+        }
+        if (jsonMessage.getCode() == HttpStatus.NOT_FOUND.value()) {
+            return true;
+        }
+        // 节点的错误页面返回请求的地址
+        Object data = jsonMessage.getData();
+        return data instanceof String && StrUtil.endWith((String) data, nodeUrl.getUrl());
+    }
+
     public static <T> T toJsonMessage(String body, TypeReference<T> tTypeReference) {
         if (StrUtil.isEmpty(body)) {
             throw new AgentException(I18nMessageUtil.get("i18n.agent_response_empty.cc8e"));
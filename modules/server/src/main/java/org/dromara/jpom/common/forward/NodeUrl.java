@@ -69,6 +69,10 @@ public enum NodeUrl {
     Manage_ChangeWorkspaceId("/manage/change-workspace-id"),
 
     Manage_GetProjectInfo("/manage/getProjectInfo"),
+    /**
+     * 增量查询项目信息
+     */
+    Manage_GetProjectInfoChanges("/manage/getProjectInfoChanges"),
 
 //    Manage_Jude_Lib("/manage/judge_lib.json"),
 
@@ -78,6 +82,8 @@ public enum NodeUrl {
 
     Manage_GetProjectStatus("/manage/getProjectStatus"),
 
+    Manage_GetProjectStatusBatch("/manage/getProjectStatusBatch"),
+
     Manage_Operate("/manage/operate"),
 
     Manage_GetProjectPort("/manage/getProjectPort"),
@@ -96,6 +102,14 @@ public enum NodeUrl {
     Manage_File_Sharding_Merge("/manage/file/sharding-merge", true),
     Manage_File_Upload_Sharding2("/manage/file2/upload-sharding", true),
     Manage_File_Sharding_Merge2("/manage/file2/sharding-merge", true),
+    /**
+     * 分片中继转发（插件端保存分片后转发给下游插件端）
+     */
+    Manage_File_Relay_Sharding2("/manage/file2/relay-sharding", true),
+    /**
+     * 查询已经上传完成的分片
+     */
+    Manage_File_Sharding_Status2("/manage/file2/sharding-status"),
 
     Manage_File_DeleteFile("/manage/file/deleteFile"),
     /**
@@ -134,6 +148,10 @@ public enum NodeUrl {
 
 
     Script_List("/script/list.json"),
+    /**
+     * 增量查询脚本
+     */
+    Script_ListChanges("/script/list-changes"),
     Script_ChangeWorkspaceId("/script/change-workspace-id"),
     SCRIPT_PULL_EXEC_LOG("/script/pull_exec_log"),
     SCRIPT_DEL_EXEC_LOG("/script/del_exec_log"),
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.common.forward;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+
+/**
+ * 分片上传的文件签名，同一个文件分发到多个节点时只读取、计算一次签名
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Getter
+public class ShardingDigest {
+
+    private final String path;
+    private final long length;
+    private final long lastModified;
+    private final int chunkSize;
+    /**
+     * 每个分片的签名
+     */
+    private final String[] chunkMd5;
+    /**
+     * 完整文件的签名
+     */
+    private final String fileMd5;
+
+    private ShardingDigest(File file, int chunkSize, String[] chunkMd5, String fileMd5) {
+        this.path = file.getAbsolutePath();
+        this.length = file.length();
+        this.lastModified = file.lastModified();
+        this.chunkSize = chunkSize;
+        this.chunkMd5 = chunkMd5;
+        this.fileMd5 = fileMd5;
+    }
+
+    /**
+     * 顺序读取文件计算分片签名和完整文件签名
+     *
+     * @param file      文件
+     * @param chunkSize 分片大小
+     * @return 签名
+     * @throws IOException io
+     */
+    public static ShardingDigest of(File file, int chunkSize) throws IOException {
+        long length = file.length();
+        int total = (int) Math.ceil((double) length / chunkSize);
+        String[] chunkMd5 = new String[total];
+        MessageDigest fileDigest = DigestUtil.digester(DigestAlgorithm.MD5).getDigest();
+        MessageDigest chunkDigest = DigestUtil.digester(DigestAlgorithm.MD5).getDigest();
+        byte[] buffer = new byte[(int) Math.min(chunkSize, Math.max(length, 1))];
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            for (int i = 0; i < total; i++) {
+                long remaining = chunkSize;
+                int read;
+                while (remaining > 0 && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                    fileDigest.update(buffer, 0, read);
+                    chunkDigest.update(buffer, 0, read);
+                    remaining -= read;
+                }
+                chunkMd5[i] = HexUtil.encodeHexStr(chunkDigest.digest());
+            }
+        }
+        return new ShardingDigest(file, chunkSize, chunkMd5, HexUtil.encodeHexStr(fileDigest.digest()));
+    }
+
+    /**
+     * 签名是否还能用于当前文件（文件未被修改且分片大小一致）
+     *
+     * @param file      文件
+     * @param chunkSize 分片大小
+     * @return true 可以使用
+     */
+    public boolean match(File file, int chunkSize) {
+        return this.chunkSize == chunkSize
+            && this.length == file.length()
+            && this.lastModified == file.lastModified()
+            && this.path.equals(file.getAbsolutePath());
+    }
+}
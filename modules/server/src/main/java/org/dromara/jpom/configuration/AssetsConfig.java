@@ -75,6 +75,26 @@ public class AssetsConfig {
          * 禁用监控的分组名 （如果想禁用所有配置 * 即可）
          */
         private List<String> disableMonitorGroupName;
+        /**
+         * 是否复用 ssh 会话（监控、命令执行、发布等共享已经建立的连接）
+         */
+        private boolean sessionPoolEnable = true;
+        /**
+         * 单个会话同时借出的最大次数，每次借出可能同时打开 2 个通道，需要小于 sshd 的 MaxSessions（默认 10）
+         */
+        private int sessionMaxLease = 4;
+        /**
+         * 同一个 ssh 最多保持的会话数，超出后使用临时会话
+         */
+        private int sessionMaxSize = 4;
+        /**
+         * 会话空闲超时时间，单位秒
+         */
+        private int sessionIdleTimeout = 300;
+        /**
+         * 会话保活心跳间隔，单位秒
+         */
+        private int sessionKeepAlive = 30;
 
     }
 
@@ -13,6 +13,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Map;
+
 /**
  * 构建相关配置
  *
@@ -45,10 +47,43 @@ public class BuildExtConfig {
      * 构建任务等待数量，超过此数量将取消构建任务，值最小为 1
      */
     private int poolWaitQueue = 10;
+    /**
+     * 系统 1 分钟平均负载 / CPU 核心数超过此值时暂停启动新的构建（至少保持一个构建运行），小于等于 0 不限制
+     */
+    private double poolMaxLoad = 2;
+    /**
+     * 系统空闲内存比例低于此值时暂停启动新的构建（至少保持一个构建运行），小于等于 0 不限制
+     */
+    private double poolMinFreeMemory = 0.05;
+    /**
+     * 工作空间调度权重（工作空间ID: 权重），相同优先级下权重越大可以同时运行的构建越多，默认 1
+     */
+    private Map<String, Integer> workspaceWeight;
+    /**
+     * 同一个构建还在排队时，合并重复的触发
+     */
+    private boolean queueCoalesce = true;
     /**
      * 压缩折叠显示进度比例 范围 1-100
      */
     private int logReduceProgressRatio = 5;
+    /**
+     * 构建产物打包（压缩）线程数，小于等于 0 为 CPU 核心数
+     */
+    private int artifactPackThreads = 0;
+    /**
+     * 构建产物保存到历史目录时，和上一次构建的历史产物相同的文件使用硬链接代替复制（历史目录需要在同一个磁盘）。
+     * 只在历史产物之间建立硬链接，构建目录中的文件被修改不会影响已经保存的历史产物
+     */
+    private boolean artifactHardLink = false;
+    /**
+     * git 仓库使用本地镜像（同一个仓库的多个构建共用一个裸仓库，构建目录通过 alternates 引用镜像中的对象）
+     */
+    private boolean gitMirror = true;
+    /**
+     * git 镜像拉取完成后多少秒内不再重复拉取（直接复用镜像中的分支和标签），小于等于 0 只合并同时发起的拉取
+     */
+    private int gitMirrorFetchInterval = 0;
 
     public void setLogReduceProgressRatio(int logReduceProgressRatio) {
         // 修正值
@@ -40,4 +40,8 @@ public class FileStorageConfig {
      * 监听深度
      */
     private Integer watchMonitorMaxDepth = 1;
+    /**
+     * 静态目录扫描并发数，按一级子目录并行扫描
+     */
+    private Integer scanConcurrent = 4;
 }
@@ -44,6 +44,44 @@ public class NodeConfig {
      * 节点文件分片上传并发数,最小1 最大 服务端 CPU 核心数
      */
     private int uploadFileConcurrent = 2;
+    /**
+     * 节点分发同时上传的节点数，最小 1
+     */
+    private int outGivingConcurrent = 10;
+    /**
+     * 顺序重启分发时每一批次的节点比例（百分比），小于等于 0 时每一批次一个节点
+     */
+    private int outGivingBatchPercent = 0;
+    /**
+     * 顺序重启分发时是否检查项目运行状态，检查通过后立即开始下一批次（分发间隔时间作为最长等待时间）
+     */
+    private boolean outGivingHealthCheck = true;
+
+    /**
+     * 节点分发是否开启中继转发（服务端只上传给种子节点，由节点之间转发分片），需要节点之间网络互通
+     */
+    private boolean outGivingRelay = false;
+    /**
+     * 中继转发的种子节点数，最小 1
+     */
+    private int outGivingRelaySeeds = 2;
+    /**
+     * 中继转发每个节点转发的下游节点数，最小 1
+     */
+    private int outGivingRelayFanOut = 3;
+
+    public int getOutGivingConcurrent() {
+        return Math.max(this.outGivingConcurrent, 1);
+    }
+
+    public int getOutGivingRelaySeeds() {
+        return Math.max(this.outGivingRelaySeeds, 1);
+    }
+
+    public int getOutGivingRelayFanOut() {
+        return Math.max(this.outGivingRelayFanOut, 1);
+    }
+
     /**
      * web socket 消息最大长度
      */
@@ -65,4 +103,20 @@ public class NodeConfig {
      * 节点统计日志保留天数，如果小于等于 0 不自动删除
      */
     private int statLogKeepDays = 3;
+    /**
+     * 节点统计 1 分钟汇总数据保留天数，如果小于等于 0 不自动删除
+     */
+    private int statMinuteRollupKeepDays = 15;
+    /**
+     * 节点统计 1 小时汇总数据保留天数，如果小于等于 0 不自动删除
+     */
+    private int statHourRollupKeepDays = 365;
+    /**
+     * 节点统计日志批量写入的间隔时间，单位秒，最小 1 秒
+     */
+    private int statLogFlushSecond = 10;
+
+    public int getStatLogFlushSecond() {
+        return Math.max(this.statLogFlushSecond, 1);
+    }
 }
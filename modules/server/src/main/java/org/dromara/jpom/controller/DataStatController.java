@@ -10,7 +10,6 @@
 package org.dromara.jpom.controller;
 
 import cn.hutool.core.util.ObjectUtil;
-import cn.hutool.db.Entity;
 import cn.keepbx.jpom.IJsonMessage;
 import cn.keepbx.jpom.model.JsonMessage;
 import lombok.extern.slf4j.Slf4j;
@@ -31,6 +30,7 @@ import org.dromara.jpom.service.node.ssh.SshCommandService;
 import org.dromara.jpom.service.node.ssh.SshService;
 import org.dromara.jpom.service.outgiving.OutGivingServer;
 import org.dromara.jpom.service.script.ScriptServer;
+import org.dromara.jpom.service.system.DataStatCacheService;
 import org.dromara.jpom.service.system.WorkspaceService;
 import org.dromara.jpom.service.user.UserService;
 import org.springframework.http.MediaType;
@@ -40,7 +40,6 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -69,6 +68,7 @@ public class DataStatController {
     private final MachineNodeServer machineNodeServer;
     private final MachineSshServer machineSshServer;
     private final MachineDockerServer machineDockerServer;
+    private final DataStatCacheService dataStatCacheService;
 
     public DataStatController(NodeService nodeService,
                               ProjectInfoCacheService projectInfoCacheService,
@@ -86,7 +86,8 @@ public class DataStatController {
                               ClusterInfoService clusterInfoService,
                               MachineNodeServer machineNodeServer,
                               MachineSshServer machineSshServer,
-                              MachineDockerServer machineDockerServer) {
+                              MachineDockerServer machineDockerServer,
+                              DataStatCacheService dataStatCacheService) {
         this.nodeService = nodeService;
         this.projectInfoCacheService = projectInfoCacheService;
         this.nodeScriptServer = nodeScriptServer;
@@ -104,24 +105,23 @@ public class DataStatController {
         this.machineNodeServer = machineNodeServer;
         this.machineSshServer = machineSshServer;
         this.machineDockerServer = machineDockerServer;
+        this.dataStatCacheService = dataStatCacheService;
     }
 
     @RequestMapping(value = "workspace", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
     public IJsonMessage<Map<String, Number>> workspace(HttpServletRequest request) {
         String workspaceId = nodeService.getCheckUserWorkspace(request);
-        Entity entity = Entity.create();
-        entity.set("workspaceId", workspaceId);
         Map<String, Number> map = new HashMap<>(10);
-        map.put("nodeCount", nodeService.count(entity));
-        map.put("projectCount", projectInfoCacheService.count(entity));
-        map.put("nodeScriptCount", nodeScriptServer.count(entity));
-        map.put("outGivingCount", outGivingServer.count(entity));
-        map.put("sshCount", sshService.count(entity));
-        map.put("sshCommandCount", sshCommandService.count(entity));
-        map.put("scriptCount", scriptServer.count(entity));
-        map.put("dockerCount", dockerInfoService.count(entity));
-        map.put("dockerSwarmCount", dockerSwarmInfoService.count(entity));
-        map.put("fileCount", fileStorageService.count(entity));
+        map.put("nodeCount", dataStatCacheService.countByWorkspace(nodeService, workspaceId));
+        map.put("projectCount", dataStatCacheService.countByWorkspace(projectInfoCacheService, workspaceId));
+        map.put("nodeScriptCount", dataStatCacheService.countByWorkspace(nodeScriptServer, workspaceId));
+        map.put("outGivingCount", dataStatCacheService.countByWorkspace(outGivingServer, workspaceId));
+        map.put("sshCount", dataStatCacheService.countByWorkspace(sshService, workspaceId));
+        map.put("sshCommandCount", dataStatCacheService.countByWorkspace(sshCommandService, workspaceId));
+        map.put("scriptCount", dataStatCacheService.countByWorkspace(scriptServer, workspaceId));
+        map.put("dockerCount", dataStatCacheService.countByWorkspace(dockerInfoService, workspaceId));
+        map.put("dockerSwarmCount", dataStatCacheService.countByWorkspace(dockerSwarmInfoService, workspaceId));
+        map.put("fileCount", dataStatCacheService.countByWorkspace(fileStorageService, workspaceId));
         //map.put("staticFileCount", staticFileStorageService.count(entity));
         return JsonMessage.success("", map);
     }
@@ -130,46 +130,39 @@ public class DataStatController {
     @SystemPermission
     public IJsonMessage<Map<String, Object>> system(HttpServletRequest request) {
         Map<String, Object> map = new HashMap<>(10);
+        map.putAll(dataStatCacheService.get(userService, "system", this::userStat));
+        map.put("workspaceCount", dataStatCacheService.get(workspaceService, "count", workspaceService::count));
+        map.put("clusterCount", dataStatCacheService.get(clusterInfoService, "count", clusterInfoService::count));
+        map.put("dockerStat", dataStatCacheService.statusStat(machineDockerServer));
+        map.put("sshStat", dataStatCacheService.statusStat(machineSshServer));
+        map.put("nodeStat", dataStatCacheService.statusStat(machineNodeServer));
+        return JsonMessage.success("", map);
+    }
+
+    /**
+     * 统计用户数据
+     *
+     * @return map
+     */
+    private Map<String, Object> userStat() {
+        Map<String, Object> map = new HashMap<>(4);
+        long count = userService.count();
+        map.put("userCount", count);
         {
-            long count = userService.count();
-            map.put("userCount", count);
-            {
-                UserModel userModel = new UserModel();
-                userModel.setSystemUser(1);
-                long systemUserCount = userService.count(userModel);
-                map.put("systemUserCount", systemUserCount);
-            }
-            {
-                UserModel userModel = new UserModel();
-                userModel.setStatus(0);
-                long disableUserCount = userService.count(userModel);
-                map.put("disableUserCount", disableUserCount);
-            }
-            String sql = "select count(1) from " + userService.getTableName() + " where twoFactorAuthKey is null or twoFactorAuthKey=''";
-            Number closeTwoFactorAuth = ObjectUtil.defaultIfNull(userService.queryNumber(sql), 0);
-            map.put("openTwoFactorAuth", count - closeTwoFactorAuth.intValue());
-        }
-        {
-            long workspaceCount = workspaceService.count();
-            long clusterCount = clusterInfoService.count();
-            map.put("workspaceCount", workspaceCount);
-            map.put("clusterCount", clusterCount);
-        }
-        {
-            String sql = "select status,count(1) as count from " + machineDockerServer.getTableName() + " group by status";
-            List<Entity> query = machineDockerServer.query(sql);
-            map.put("dockerStat", query);
-        }
-        {
-            String sql = "select status,count(1) as count from " + machineSshServer.getTableName() + " group by status";
-            List<Entity> query = machineSshServer.query(sql);
-            map.put("sshStat", query);
+            UserModel userModel = new UserModel();
+            userModel.setSystemUser(1);
+            long systemUserCount = userService.count(userModel);
+            map.put("systemUserCount", systemUserCount);
         }
         {
-            String sql = "select status,count(1) as count from " + machineNodeServer.getTableName() + " group by status";
-            List<Entity> query = machineNodeServer.query(sql);
-            map.put("nodeStat", query);
+            UserModel userModel = new UserModel();
+            userModel.setStatus(0);
+            long disableUserCount = userService.count(userModel);
+            map.put("disableUserCount", disableUserCount);
         }
-        return JsonMessage.success("", map);
+        String sql = "select count(1) from " + userService.getTableName() + " where twoFactorAuthKey is null or twoFactorAuthKey=''";
+        Number closeTwoFactorAuth = ObjectUtil.defaultIfNull(userService.queryNumber(sql), 0);
+        map.put("openTwoFactorAuth", count - closeTwoFactorAuth.intValue());
+        return map;
     }
 }
@@ -15,6 +15,7 @@ import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.keepbx.jpom.IJsonMessage;
 import cn.keepbx.jpom.model.JsonMessage;
+import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import org.dromara.jpom.build.*;
 import org.dromara.jpom.common.BaseServerController;
@@ -65,15 +66,18 @@ public class BuildInfoManageController extends BaseServerController {
     private final DbBuildHistoryLogService dbBuildHistoryLogService;
     private final BuildExecuteService buildExecuteService;
     private final WorkspaceEnvVarService workspaceEnvVarService;
+    private final BuildExecutorPoolService buildExecutorPoolService;
 
     public BuildInfoManageController(BuildInfoService buildInfoService,
                                      DbBuildHistoryLogService dbBuildHistoryLogService,
                                      BuildExecuteService buildExecuteService,
-                                     WorkspaceEnvVarService workspaceEnvVarService) {
+                                     WorkspaceEnvVarService workspaceEnvVarService,
+                                     BuildExecutorPoolService buildExecutorPoolService) {
         this.buildInfoService = buildInfoService;
         this.dbBuildHistoryLogService = dbBuildHistoryLogService;
         this.buildExecuteService = buildExecuteService;
         this.workspaceEnvVarService = workspaceEnvVarService;
+        this.buildExecutorPoolService = buildExecutorPoolService;
     }
 
     /**
@@ -252,8 +256,41 @@ public class BuildInfoManageController extends BaseServerController {
         data.put("status", status);
         data.put("statusMsg", queryByBean.getStatusMsg());
         data.put("environment", queryByBean.toEnvironmentMapBuilder().clonePrivacyData());
+        // 排队位置（-1 表示未在排队）
+        if (buildId == item.getBuildId()) {
+            data.put("queuePosition", buildExecutorPoolService.queuePosition(item.getId()));
+        }
         // 构建中
         //data.put("buildRun", status == BuildStatus.Ing.getCode());
         return JsonMessage.success("", data);
     }
+
+    /**
+     * 构建排队信息（当前工作空间的排队位置、等待时间）
+     *
+     * @return json
+     */
+    @RequestMapping(value = "/build/manage/queue-info", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Feature(method = MethodFeature.LIST)
+    public IJsonMessage<JSONObject> queueInfo(HttpServletRequest request) {
+        String workspaceId = getWorkspaceId();
+        JSONObject statInfo = buildExecutorPoolService.statInfo();
+        JSONArray queue = statInfo.getJSONArray("queue");
+        JSONArray workspaceQueue = new JSONArray();
+        for (int i = 0; i < queue.size(); i++) {
+            JSONObject jsonObject = queue.getJSONObject(i);
+            if (!StrUtil.equals(jsonObject.getString("workspaceId"), workspaceId)) {
+                continue;
+            }
+            BuildInfoModel buildInfoModel = buildInfoService.getByKey(jsonObject.getString("buildId"), false);
+            Optional.ofNullable(buildInfoModel).ifPresent(model -> jsonObject.put("name", model.getName()));
+            workspaceQueue.add(jsonObject);
+        }
+        statInfo.put("queue", workspaceQueue);
+        statInfo.put("queueSize", queue.size());
+        Map<?, ?> runningWorkspace = statInfo.getObject("runningWorkspace", Map.class);
+        statInfo.remove("runningWorkspace");
+        statInfo.put("workspaceRunning", runningWorkspace == null ? 0 : ObjectUtil.defaultIfNull(runningWorkspace.get(workspaceId), 0));
+        return JsonMessage.success("", statInfo);
+    }
 }
@@ -516,6 +516,8 @@ public class RepositoryController extends BaseServerController {
         repositoryService.delByKey(keyAndGlobal.getId());
         File rsaFile = BuildUtil.getRepositoryRsaFile(id + ServerConst.ID_RSA);
         FileUtil.del(rsaFile);
+        // 引用了此镜像的构建目录会在下次构建时检查镜像版本标识并重新初始化
+        FileUtil.del(BuildUtil.getRepositoryMirror(id));
         return JsonMessage.success(I18nMessageUtil.get("i18n.delete_success.0007"));
     }
 
@@ -11,6 +11,7 @@ package org.dromara.jpom.controller.node;
 
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.db.Entity;
 import cn.hutool.db.Page;
@@ -27,6 +28,7 @@ import org.dromara.jpom.configuration.NodeConfig;
 import org.dromara.jpom.func.assets.model.MachineNodeModel;
 import org.dromara.jpom.func.assets.model.MachineNodeStatLogModel;
 import org.dromara.jpom.func.assets.server.MachineNodeStatLogServer;
+import org.dromara.jpom.func.assets.server.MachineNodeStatRollupServer;
 import org.dromara.jpom.model.BaseMachineModel;
 import org.dromara.jpom.model.data.NodeModel;
 import org.dromara.jpom.permission.SystemPermission;
@@ -38,6 +40,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 节点统计信息
@@ -49,11 +52,14 @@ import java.util.Optional;
 public class NodeWelcomeController extends BaseServerController {
 
     private final MachineNodeStatLogServer machineNodeStatLogServer;
+    private final MachineNodeStatRollupServer machineNodeStatRollupServer;
     private final NodeConfig nodeConfig;
 
     public NodeWelcomeController(MachineNodeStatLogServer machineNodeStatLogServer,
+                                 MachineNodeStatRollupServer machineNodeStatRollupServer,
                                  ServerConfig serverConfig) {
         this.machineNodeStatLogServer = machineNodeStatLogServer;
+        this.machineNodeStatRollupServer = machineNodeStatRollupServer;
         this.nodeConfig = serverConfig.getNode();
     }
 
@@ -82,6 +88,13 @@ public class NodeWelcomeController extends BaseServerController {
             endDate = DateUtil.endOfDay(endDate);
         }
         long endTime = endDate.getTime();
+        long range = endTime - startTime;
+        long rawKeepTime = TimeUnit.DAYS.toMillis(Math.max(nodeConfig.getStatLogKeepDays(), 1));
+        if (range > TimeUnit.DAYS.toMillis(1) || startTime < SystemClock.now() - rawKeepTime) {
+            // 时间跨度较大或者原始数据已经被清理，查询汇总数据
+            int period = range <= TimeUnit.DAYS.toMillis(7) ? MachineNodeStatRollupServer.MINUTE : MachineNodeStatRollupServer.HOUR;
+            return machineNodeStatRollupServer.listAsStatLog(useMachineId, period, startTime, endTime, 5000);
+        }
         // 开启了节点信息采集
         Page pageObj = new Page(1, 5000);
         pageObj.addOrder(new Order("monitorTime", Direction.DESC));
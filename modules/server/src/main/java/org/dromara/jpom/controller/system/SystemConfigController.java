@@ -33,6 +33,7 @@ import org.dromara.jpom.common.Const;
 import org.dromara.jpom.common.forward.NodeUrl;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.db.DbExtConfig;
+import org.dromara.jpom.db.SqlStatCollector;
 import org.dromara.jpom.db.StorageServiceFactory;
 import org.dromara.jpom.model.data.SystemIpConfigModel;
 import org.dromara.jpom.permission.ClassFeature;
@@ -41,6 +42,7 @@ import org.dromara.jpom.permission.MethodFeature;
 import org.dromara.jpom.permission.SystemPermission;
 import org.dromara.jpom.service.system.SystemParametersServer;
 import org.dromara.jpom.system.ExtConfigBean;
+import org.dromara.jpom.system.db.DbStatReportService;
 import org.dromara.jpom.system.init.ProxySelectorConfig;
 import org.springframework.beans.factory.config.YamlMapFactoryBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -76,13 +78,16 @@ public class SystemConfigController extends BaseServerController {
     private final SystemParametersServer systemParametersServer;
     private final ProxySelectorConfig proxySelectorConfig;
     private final DbExtConfig dbExtConfig;
+    private final DbStatReportService dbStatReportService;
 
     public SystemConfigController(SystemParametersServer systemParametersServer,
                                   ProxySelectorConfig proxySelectorConfig,
-                                  DbExtConfig dbExtConfig) {
+                                  DbExtConfig dbExtConfig,
+                                  DbStatReportService dbStatReportService) {
         this.systemParametersServer = systemParametersServer;
         this.proxySelectorConfig = proxySelectorConfig;
         this.dbExtConfig = dbExtConfig;
+        this.dbStatReportService = dbStatReportService;
     }
 
     /**
@@ -263,6 +268,30 @@ public class SystemConfigController extends BaseServerController {
         return JsonMessage.success("", array);
     }
 
+    /**
+     * 数据库慢 sql 和索引使用情况
+     *
+     * @return json
+     */
+    @GetMapping(value = "db-stat-report", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Feature(method = MethodFeature.LIST)
+    public IJsonMessage<JSONObject> dbStatReport() {
+        JSONObject report = dbStatReportService.report(50);
+        return JsonMessage.success("", report);
+    }
+
+    /**
+     * 清空已经统计的 sql 耗时
+     *
+     * @return json
+     */
+    @PostMapping(value = "db-stat-report/clear", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Feature(method = MethodFeature.EDIT)
+    public IJsonMessage<String> clearDbStatReport() {
+        SqlStatCollector.clear();
+        return JsonMessage.success(I18nMessageUtil.get("i18n.clear_success.2685"));
+    }
+
     /**
      * 保存代理
      *
@@ -17,7 +17,9 @@ import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.configuration.AssetsConfig;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
@@ -26,6 +28,10 @@ public class AssetsExecutorPoolService {
      * 监控线程池
      */
     private volatile ThreadPoolExecutor threadPoolExecutor;
+    /**
+     * 被拒绝的任务数
+     */
+    private final AtomicLong rejectedCount = new AtomicLong();
 
     private final AssetsConfig assetsConfig;
 
@@ -34,8 +40,44 @@ public class AssetsExecutorPoolService {
     }
 
     public void execute(Runnable command) {
+        if (!this.tryExecute(command)) {
+            log.warn(I18nMessageUtil.get("i18n.asset_monitoring_thread_pool_rejected_task.222e"), command.getClass());
+        }
+    }
+
+    /**
+     * 提交任务，线程池已满时不会静默丢弃，而是返回 false 交给调用方处理
+     *
+     * @param command 任务
+     * @return false 任务被拒绝
+     */
+    public boolean tryExecute(Runnable command) {
         this.createPool();
-        threadPoolExecutor.execute(command);
+        try {
+            threadPoolExecutor.execute(command);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * 当前排队中的任务数
+     *
+     * @return 数量
+     */
+    public int getQueueSize() {
+        return threadPoolExecutor == null ? 0 : threadPoolExecutor.getQueue().size();
+    }
+
+    /**
+     * 累计被拒绝的任务数
+     *
+     * @return 数量
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
     }
 
     private void createPool() {
@@ -50,12 +92,7 @@ public class AssetsExecutorPoolService {
                     }
                     executorBuilder.setCorePoolSize(poolSize).setMaxPoolSize(poolSize);
                     executorBuilder.useArrayBlockingQueue(Math.max(assetsConfig.getMonitorPoolWaitQueue(), 1));
-                    executorBuilder.setHandler(new ThreadPoolExecutor.DiscardPolicy() {
-                        @Override
-                        public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
-                            log.warn(I18nMessageUtil.get("i18n.asset_monitoring_thread_pool_rejected_task.222e"), r.getClass());
-                        }
-                    });
+                    executorBuilder.setHandler(new ThreadPoolExecutor.AbortPolicy());
                     threadPoolExecutor = executorBuilder.build();
                     JpomApplication.register("assets-monitor", threadPoolExecutor);
                 }
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.func.assets;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.extra.ssh.JschUtil;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.JpomApplication;
+import org.dromara.jpom.common.ILoadEvent;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.configuration.AssetsConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * ssh 会话池
+ * <p>
+ * 按照 ssh 连接信息复用已经建立的会话，同一个会话上可以同时打开多个通道，避免每次执行都重新握手认证
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Service
+@Slf4j
+public class SshSessionPoolService implements ILoadEvent, DisposableBean {
+
+    private final AssetsConfig.SshConfig sshConfig;
+    /**
+     * 连接信息 -> 会话列表
+     */
+    private final Map<String, List<PooledSession>> pool = new HashMap<>();
+    /**
+     * 已经借出的会话
+     */
+    private final Map<Session, PooledSession> leased = new IdentityHashMap<>();
+
+    public SshSessionPoolService(AssetsConfig assetsConfig) {
+        this.sshConfig = assetsConfig.getSsh();
+    }
+
+    /**
+     * 借出会话，使用完成后需要调用 {@link #release(Session, boolean)} 归还（不能直接关闭）
+     *
+     * @param key     连接信息 key（连接信息变更后 key 需要跟随变化）
+     * @param creator 创建新会话
+     * @return 会话
+     */
+    public Session borrow(String key, Supplier<Session> creator) {
+        if (!sshConfig.isSessionPoolEnable()) {
+            return creator.get();
+        }
+        int maxLease = Math.max(sshConfig.getSessionMaxLease(), 1);
+        synchronized (this) {
+            List<PooledSession> list = pool.get(key);
+            if (list != null) {
+                // 优先使用借出次数最少的会话，让通道尽量均匀
+                PooledSession best = null;
+                for (PooledSession item : list) {
+                    if (!item.isUsable() || item.lease >= maxLease) {
+                        continue;
+                    }
+                    if (best == null || item.lease < best.lease) {
+                        best = item;
+                    }
+                }
+                if (best != null) {
+                    return this.lease(best);
+                }
+                if (list.size() >= Math.max(sshConfig.getSessionMaxSize(), 1)) {
+                    // 达到上限使用临时会话，归还时直接关闭
+                    return creator.get();
+                }
+            }
+        }
+        // 握手比较耗时，不在锁内创建
+        Session session = creator.get();
+        this.keepAlive(session);
+        PooledSession item = new PooledSession(key, session);
+        synchronized (this) {
+            pool.computeIfAbsent(key, s -> new ArrayList<>()).add(item);
+            return this.lease(item);
+        }
+    }
+
+    private Session lease(PooledSession item) {
+        item.lease++;
+        item.lastUseTime = SystemClock.now();
+        leased.put(item.session, item);
+        return item.session;
+    }
+
+    /**
+     * 归还会话
+     *
+     * @param session 会话
+     * @param discard 是否丢弃（执行出现异常时会话状态不可预知）
+     */
+    public void release(Session session, boolean discard) {
+        if (session == null) {
+            return;
+        }
+        boolean close;
+        synchronized (this) {
+            PooledSession item = leased.get(session);
+            if (item == null) {
+                // 临时会话
+                close = true;
+            } else {
+                item.lease--;
+                item.lastUseTime = SystemClock.now();
+                if (item.lease <= 0) {
+                    leased.remove(session);
+                }
+                if (discard || !session.isConnected()) {
+                    item.invalid = true;
+                }
+                close = item.invalid && item.lease <= 0;
+                if (close) {
+                    this.remove(item);
+                }
+            }
+        }
+        if (close) {
+            JschUtil.close(session);
+        }
+    }
+
+    /**
+     * 归还会话
+     *
+     * @param session 会话
+     */
+    public void release(Session session) {
+        this.release(session, false);
+    }
+
+    /**
+     * 作废指定前缀的会话，正在使用的会话在归还后关闭
+     *
+     * @param keyPrefix key 前缀
+     */
+    public void invalidate(String keyPrefix) {
+        List<Session> closeList = new ArrayList<>();
+        synchronized (this) {
+            for (List<PooledSession> list : pool.values()) {
+                for (PooledSession item : list) {
+                    if (item.key.startsWith(keyPrefix)) {
+                        item.invalid = true;
+                    }
+                }
+            }
+            closeList.addAll(this.removeIf(item -> item.invalid && item.lease <= 0));
+        }
+        closeList.forEach(JschUtil::close);
+    }
+
+    /**
+     * 清理空闲、断开的会话
+     */
+    private void evict() {
+        long idleTimeout = TimeUnit.SECONDS.toMillis(Math.max(sshConfig.getSessionIdleTimeout(), 1));
+        long now = SystemClock.now();
+        List<Session> closeList;
+        synchronized (this) {
+            closeList = this.removeIf(item -> item.lease <= 0 && (!item.isUsable() || now - item.lastUseTime > idleTimeout));
+        }
+        closeList.forEach(JschUtil::close);
+    }
+
+    private List<Session> removeIf(Predicate<PooledSession> predicate) {
+        List<Session> closeList = new ArrayList<>();
+        Iterator<Map.Entry<String, List<PooledSession>>> iterator = pool.entrySet().iterator();
+        while (iterator.hasNext()) {
+            List<PooledSession> list = iterator.next().getValue();
+            list.removeIf(item -> {
+                if (predicate.test(item)) {
+                    closeList.add(item.session);
+                    return true;
+                }
+                return false;
+            });
+            if (list.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        return closeList;
+    }
+
+    private void remove(PooledSession item) {
+        List<PooledSession> list = pool.get(item.key);
+        if (list == null) {
+            return;
+        }
+        list.remove(item);
+        if (list.isEmpty()) {
+            pool.remove(item.key);
+        }
+    }
+
+    private void keepAlive(Session session) {
+        try {
+            // 心跳连续无响应后会话线程会自动断开，借出时通过 isConnected 判断健康
+            session.setServerAliveInterval((int) TimeUnit.SECONDS.toMillis(Math.max(sshConfig.getSessionKeepAlive(), 1)));
+            session.setServerAliveCountMax(3);
+        } catch (JSchException e) {
+            log.warn(I18nMessageUtil.get("i18n.ssh_session_keep_alive_config_error.6a2d"), e);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet(ApplicationContext applicationContext) throws Exception {
+        JpomApplication.getScheduledExecutorService().scheduleWithFixedDelay(() -> {
+            try {
+                this.evict();
+            } catch (Exception e) {
+                log.error(I18nMessageUtil.get("i18n.ssh_session_pool_evict_failure.3e8a"), e);
+            }
+        }, 30, 30, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        List<Session> closeList;
+        synchronized (this) {
+            closeList = this.removeIf(item -> true);
+            leased.clear();
+        }
+        closeList.forEach(JschUtil::close);
+    }
+
+    private static class PooledSession {
+        private final String key;
+        private final Session session;
+        /**
+         * 当前借出次数
+         */
+        private int lease;
+        private long lastUseTime;
+        private boolean invalid;
+
+        private PooledSession(String key, Session session) {
+            this.key = key;
+            this.session = session;
+            this.lastUseTime = SystemClock.now();
+        }
+
+        private boolean isUsable() {
+            return !invalid && session.isConnected();
+        }
+    }
+}
@@ -237,6 +237,9 @@ public class MachineSshController extends BaseGroupNameController {
         }
         sshModel.setStatus(1);
         int i = add ? machineSshServer.insert(sshModel) : machineSshServer.updateById(sshModel);
+        if (!add) {
+            machineSshServer.invalidateSession(sshModel.getId());
+        }
         return JsonMessage.success(I18nMessageUtil.get("i18n.operation_succeeded.3313"));
     }
 
@@ -247,6 +250,7 @@ public class MachineSshController extends BaseGroupNameController {
         long count = sshService.countByMachine(id);
         Assert.state(count <= 0, StrUtil.format(I18nMessageUtil.get("i18n.ssh_connections_warning.1ddb"), count));
         machineSshServer.delByKey(id);
+        machineSshServer.invalidateSession(id);
         return JsonMessage.success(I18nMessageUtil.get("i18n.operation_succeeded.3313"));
     }
 
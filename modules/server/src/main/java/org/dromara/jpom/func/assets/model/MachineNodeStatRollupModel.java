@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.func.assets.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.dromara.jpom.db.TableName;
+import org.dromara.jpom.model.BaseDbModel;
+
+/**
+ * 机器节点统计按时间段汇总的数据，用于查询长时间范围的监控图表
+ *
+ * @author bwcx_jzy
+ * @see MachineNodeStatLogModel
+ * @since 2026/10/17
+ */
+@EqualsAndHashCode(callSuper = true)
+@TableName(value = "MACHINE_NODE_STAT_ROLLUP",
+    nameKey = "i18n.asset_machine_node_statistics_rollup.7c1e")
+@Data
+public class MachineNodeStatRollupModel extends BaseDbModel {
+    /**
+     * 机器id
+     */
+    private String machineId;
+    /**
+     * 汇总的时间跨度，单位秒
+     */
+    private Integer periodSecond;
+    /**
+     * 时间段的开始时间
+     */
+    private Long bucketTime;
+    /**
+     * 时间段内的采样次数
+     */
+    private Integer sampleCount;
+    /**
+     * 平均占用cpu
+     */
+    private Double occupyCpu;
+    /**
+     * 最大占用cpu
+     */
+    private Double maxOccupyCpu;
+    /**
+     * 平均占用内存
+     */
+    private Double occupyMemory;
+    /**
+     * 最大占用内存
+     */
+    private Double maxOccupyMemory;
+    /**
+     * 平均交互内存
+     */
+    private Double occupySwapMemory;
+    /**
+     * 平均虚拟内存
+     */
+    private Double occupyVirtualMemory;
+    /**
+     * 平均占用磁盘
+     */
+    private Double occupyDisk;
+    /**
+     * 平均网络耗时（延迟）
+     */
+    private Integer networkDelay;
+    /**
+     * 平均每秒发送的字节数
+     */
+    private Long netTxBytes;
+    /**
+     * 平均每秒接收的字节数
+     */
+    private Long netRxBytes;
+}
@@ -9,6 +9,8 @@
  */
 package org.dromara.jpom.func.assets.server;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.collection.CollStreamUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.comparator.CompareUtil;
@@ -55,6 +57,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -74,6 +78,14 @@ public class MachineNodeServer extends BaseDbService<MachineNodeModel> implement
     private final AssetsExecutorPoolService assetsExecutorPoolService;
 
     private static final String TASK_ID = "system_monitor_node";
+    /**
+     * 正在执行心跳的机器 id
+     */
+    private final Set<String> heartbeatRunning = ConcurrentHashMap.newKeySet();
+    /**
+     * 机器节点上一次上报的工作空间项目、脚本数量，定时过期保证新关联的节点也能更新
+     */
+    private final TimedCache<String, String> workspaceStatCache = CacheUtil.newTimedCache(TimeUnit.MINUTES.toMillis(10));
 
     public MachineNodeServer(NodeService nodeService,
                              ServerConfig serverConfig,
@@ -210,7 +222,7 @@ public class MachineNodeServer extends BaseDbService<MachineNodeModel> implement
             //MachineNodeModel machineNodeModel = new MachineNodeModel();
             //machineNodeModel.setTransportMode(0);
             List<MachineNodeModel> machineNodeModels = this.listByEntity(entity);
-            this.checkList(machineNodeModels);
+            this.checkList(machineNodeModels, taskStat);
             taskStat.onSucceeded();
         } catch (Throwable throwable) {
             CronUtils.TaskStat taskStat = CronUtils.getTaskStat(TASK_ID, StrUtil.format(I18nMessageUtil.get("i18n.execution_frequency.d014"), heartSecond));
@@ -219,42 +231,74 @@ public class MachineNodeServer extends BaseDbService<MachineNodeModel> implement
     }
 
 
-    private void checkList(List<MachineNodeModel> machineNodeModels) {
+    private void checkList(List<MachineNodeModel> machineNodeModels, CronUtils.TaskStat taskStat) {
         if (CollUtil.isEmpty(machineNodeModels)) {
             return;
         }
-        machineNodeModels.forEach(machineNodeModel -> {
-            // 超时时间统一，避免长时间无响应
-            machineNodeModel.setJpomTimeout(30);
-            //
-            assetsExecutorPoolService.execute(() -> {
-                try {
-                    BaseServerController.resetInfo(UserModel.EMPTY);
-                    long timeMillis = SystemClock.now();
-                    JsonMessage<JSONObject> message = NodeForward.request(machineNodeModel, NodeUrl.GetStatInfo, new JSONObject());
-                    int networkTime = (int) (System.currentTimeMillis() - timeMillis);
-                    JSONObject jsonObject;
-                    if (message.success()) {
-                        jsonObject = message.getData(JSONObject.class);
-                    } else {
-                        // 状态码错
-                        this.updateStatus(machineNodeModel, 3, message.toString());
-                        return;
-                    }
-                    jsonObject.put("networkDelay", networkTime);
-                    this.saveStatInfo(machineNodeModel, jsonObject);
-                } catch (AgentAuthorizeException agentException) {
-                    this.updateStatus(machineNodeModel, 2, agentException.getMessage());
-                } catch (AgentException e) {
-                    this.updateStatus(machineNodeModel, 0, e.getMessage());
-                } catch (Exception e) {
-                    this.updateStatus(machineNodeModel, 0, e.getMessage());
-                    log.error(I18nMessageUtil.get("i18n.get_node_monitoring_info_failure.595a"), e);
-                } finally {
-                    BaseServerController.removeEmpty();
+        long interval = TimeUnit.SECONDS.toMillis(nodeConfig.getHeartSecond());
+        // 超时时间统一且不超过心跳间隔，避免长时间无响应导致心跳堆积
+        int timeout = Math.min(30, nodeConfig.getHeartSecond());
+        ScheduledExecutorService scheduler = JpomApplication.getScheduledExecutorService();
+        for (MachineNodeModel machineNodeModel : machineNodeModels) {
+            String id = machineNodeModel.getId();
+            if (!heartbeatRunning.add(id)) {
+                // 上一轮心跳还未结束，本轮跳过
+                taskStat.increment("lateCount", 1);
+                continue;
+            }
+            machineNodeModel.setJpomTimeout(timeout);
+            // 按机器 id 将请求分散在前半个心跳间隔内，避免同一时刻集中请求
+            long delay = (id.hashCode() & Integer.MAX_VALUE) % Math.max(interval / 2, 1);
+            long deadline = SystemClock.now() + delay + interval;
+            scheduler.schedule(() -> {
+                boolean submit = assetsExecutorPoolService.tryExecute(() -> this.heartbeat(machineNodeModel, deadline, taskStat));
+                if (!submit) {
+                    heartbeatRunning.remove(id);
+                    taskStat.increment("rejectedCount", 1);
+                    log.warn(I18nMessageUtil.get("i18n.asset_monitoring_thread_pool_rejected_task.222e"), machineNodeModel.getName());
                 }
-            });
-        });
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 执行单个机器的心跳
+     *
+     * @param machineNodeModel 机器
+     * @param deadline         截止时间，排队超过截止时间的心跳直接放弃
+     * @param taskStat         统计
+     */
+    private void heartbeat(MachineNodeModel machineNodeModel, long deadline, CronUtils.TaskStat taskStat) {
+        try {
+            if (SystemClock.now() > deadline) {
+                taskStat.increment("expiredCount", 1);
+                return;
+            }
+            BaseServerController.resetInfo(UserModel.EMPTY);
+            long timeMillis = SystemClock.now();
+            JsonMessage<JSONObject> message = NodeForward.request(machineNodeModel, NodeUrl.GetStatInfo, new JSONObject());
+            int networkTime = (int) (System.currentTimeMillis() - timeMillis);
+            JSONObject jsonObject;
+            if (message.success()) {
+                jsonObject = message.getData(JSONObject.class);
+            } else {
+                // 状态码错
+                this.updateStatus(machineNodeModel, 3, message.toString());
+                return;
+            }
+            jsonObject.put("networkDelay", networkTime);
+            this.saveStatInfo(machineNodeModel, jsonObject);
+        } catch (AgentAuthorizeException agentException) {
+            this.updateStatus(machineNodeModel, 2, agentException.getMessage());
+        } catch (AgentException e) {
+            this.updateStatus(machineNodeModel, 0, e.getMessage());
+        } catch (Exception e) {
+            this.updateStatus(machineNodeModel, 0, e.getMessage());
+            log.error(I18nMessageUtil.get("i18n.get_node_monitoring_info_failure.595a"), e);
+        } finally {
+            BaseServerController.removeEmpty();
+            heartbeatRunning.remove(machineNodeModel.getId());
+        }
     }
 
     /**
@@ -345,7 +389,7 @@ public class MachineNodeServer extends BaseDbService<MachineNodeModel> implement
         machineNodeModel.setExtendInfo(extendInfo.toString());
         this.updateById(machineNodeModel);
         if (machineNodeStatLogModel.getMonitorTime() != null) {
-            machineNodeStatLogServer.insert(machineNodeStatLogModel);
+            machineNodeStatLogServer.offer(machineNodeStatLogModel);
         }
         //
         Optional.ofNullable(jpomInfo).ifPresent(jsonObject -> {
@@ -358,6 +402,13 @@ public class MachineNodeServer extends BaseDbService<MachineNodeModel> implement
                 JSONObject value = (JSONObject) entry.getValue();
                 int projectCount = value.getIntValue("projectCount", 0);
                 int scriptCount = value.getIntValue("scriptCount", 0);
+                String cacheKey = StrUtil.format("{}:{}", machineNodeModel.getId(), key);
+                String cacheValue = StrUtil.format("{}:{}", projectCount, scriptCount);
+                if (StrUtil.equals(workspaceStatCache.get(cacheKey, false), cacheValue)) {
+                    // 数量没有变化不需要更新
+                    continue;
+                }
+                workspaceStatCache.put(cacheKey, cacheValue);
                 Entity entity = Entity.create();
                 entity.set("jpomProjectCount", projectCount);
                 entity.set("jpomScriptCount", scriptCount);
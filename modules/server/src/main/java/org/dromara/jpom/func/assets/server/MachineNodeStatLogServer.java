@@ -11,42 +11,143 @@ package org.dromara.jpom.func.assets.server;
 
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.db.Entity;
 import cn.keepbx.jpom.event.ISystemTask;
 import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.JpomApplication;
+import org.dromara.jpom.common.ILoadEvent;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.configuration.NodeConfig;
 import org.dromara.jpom.func.assets.model.MachineNodeStatLogModel;
 import org.dromara.jpom.service.h2db.BaseDbService;
 import org.dromara.jpom.system.ServerConfig;
+import org.dromara.jpom.system.db.InitDb;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author bwcx_jzy
  * @since 2023/2/18
  */
 @Service
 @Slf4j
-public class MachineNodeStatLogServer extends BaseDbService<MachineNodeStatLogModel> implements ISystemTask {
+public class MachineNodeStatLogServer extends BaseDbService<MachineNodeStatLogModel> implements ISystemTask, ILoadEvent, DisposableBean {
+
+    /**
+     * 单次批量写入的最大条数
+     */
+    private static final int BATCH_SIZE = 500;
+    /**
+     * 写入失败后放回队列的最大条数
+     */
+    private static final int MAX_BUFFER_SIZE = 50000;
 
     private final NodeConfig nodeConfig;
+    private final MachineNodeStatRollupServer machineNodeStatRollupServer;
+    /**
+     * 等待写入的统计日志
+     */
+    private final Queue<MachineNodeStatLogModel> buffer = new ConcurrentLinkedQueue<>();
 
-    public MachineNodeStatLogServer(ServerConfig serverConfig) {
+    public MachineNodeStatLogServer(ServerConfig serverConfig,
+                                    MachineNodeStatRollupServer machineNodeStatRollupServer) {
         this.nodeConfig = serverConfig.getNode();
+        this.machineNodeStatRollupServer = machineNodeStatRollupServer;
+    }
+
+    /**
+     * 添加统计日志，定时批量写入
+     *
+     * @param model 统计日志
+     */
+    public void offer(MachineNodeStatLogModel model) {
+        buffer.offer(model);
+        machineNodeStatRollupServer.accept(model);
+    }
+
+    /**
+     * 批量写入缓存的统计日志和已经结束的汇总数据
+     *
+     * @param force 是否写入所有汇总数据（包含还未结束的时间段）
+     */
+    public synchronized void flush(boolean force) {
+        List<MachineNodeStatLogModel> list = new ArrayList<>(BATCH_SIZE);
+        MachineNodeStatLogModel model;
+        try {
+            while ((model = buffer.poll()) != null) {
+                list.add(model);
+                if (list.size() >= BATCH_SIZE) {
+                    this.insert(list);
+                    list = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!list.isEmpty()) {
+                this.insert(list);
+                list = new ArrayList<>(BATCH_SIZE);
+            }
+        } catch (Exception e) {
+            // 写入失败的批次已经整批回滚，放回队列，下次继续写入。队列中数据过多时丢弃，避免数据库一直异常时内存溢出
+            if (buffer.size() + list.size() <= MAX_BUFFER_SIZE) {
+                buffer.addAll(list);
+            } else {
+                log.warn(I18nMessageUtil.get("i18n.machine_node_stat_log_dropped.4a61"), list.size());
+            }
+            throw e;
+        } finally {
+            machineNodeStatRollupServer.flush(force);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet(ApplicationContext applicationContext) throws Exception {
+        int flushSecond = nodeConfig.getStatLogFlushSecond();
+        JpomApplication.getScheduledExecutorService().scheduleWithFixedDelay(() -> {
+            try {
+                this.flush(false);
+            } catch (Exception e) {
+                log.error(I18nMessageUtil.get("i18n.flush_machine_node_stat_log_failure.3b7d"), e);
+            }
+        }, flushSecond, flushSecond, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 保证在数据库启动成功之后
+     *
+     * @return 想要比数据库晚加载
+     * @see InitDb#getOrder()
+     */
+    @Override
+    public int getOrder() {
+        return HIGHEST_PRECEDENCE + 1;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        try {
+            this.flush(true);
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.flush_machine_node_stat_log_failure.3b7d"), e);
+        }
     }
 
     @Override
     public void executeTask() {
         int statLogKeepDays = nodeConfig.getStatLogKeepDays();
         log.debug(I18nMessageUtil.get("i18n.log_retention_days.99d1"), statLogKeepDays);
-        if (statLogKeepDays <= 0) {
-            return;
+        if (statLogKeepDays > 0) {
+            DateTime dateTime = DateUtil.beginOfDay(DateTime.now());
+            dateTime = DateUtil.offsetDay(dateTime, -statLogKeepDays);
+            // 按小时分段删除，避免一次删除大量数据
+            int del = this.delBeforeTimeByChunk("monitorTime", dateTime.getTime(), TimeUnit.HOURS.toMillis(1));
+            log.info(I18nMessageUtil.get("i18n.auto_clear_machine_node_stats_logs.5279"), del);
         }
-        Entity entity = Entity.create();
-        DateTime dateTime = DateUtil.beginOfDay(DateTime.now());
-        dateTime = DateUtil.offsetDay(dateTime, -statLogKeepDays);
-        entity.set(" monitorTime", "< " + dateTime.getTime());
-        int del = this.del(entity);
-        log.info(I18nMessageUtil.get("i18n.auto_clear_machine_node_stats_logs.5279"), del);
+        machineNodeStatRollupServer.clear(MachineNodeStatRollupServer.MINUTE, nodeConfig.getStatMinuteRollupKeepDays());
+        machineNodeStatRollupServer.clear(MachineNodeStatRollupServer.HOUR, nodeConfig.getStatHourRollupKeepDays());
     }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.func.assets.server;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Entity;
+import cn.hutool.db.Page;
+import cn.hutool.db.sql.Direction;
+import cn.hutool.db.sql.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.func.assets.model.MachineNodeStatLogModel;
+import org.dromara.jpom.func.assets.model.MachineNodeStatRollupModel;
+import org.dromara.jpom.service.h2db.BaseDbService;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 机器节点统计汇总
+ * <p>
+ * 采样数据在内存中按 1 分钟、1 小时累计，时间段结束后再写入数据库
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Service
+@Slf4j
+public class MachineNodeStatRollupServer extends BaseDbService<MachineNodeStatRollupModel> {
+
+    public static final int MINUTE = 60;
+    public static final int HOUR = 3600;
+    private static final int[] PERIODS = new int[]{MINUTE, HOUR};
+    /**
+     * 时间段结束后等待迟到数据的时间
+     */
+    private static final long CLOSE_DELAY = TimeUnit.MINUTES.toMillis(2);
+
+    private final Map<String, Accumulator> accumulatorMap = new ConcurrentHashMap<>();
+
+    /**
+     * 累计采样数据
+     *
+     * @param model 采样数据
+     */
+    public void accept(MachineNodeStatLogModel model) {
+        Long monitorTime = model.getMonitorTime();
+        if (monitorTime == null) {
+            return;
+        }
+        for (int period : PERIODS) {
+            long periodMillis = TimeUnit.SECONDS.toMillis(period);
+            long bucketTime = monitorTime / periodMillis * periodMillis;
+            String id = StrUtil.format("{}:{}:{}", model.getMachineId(), period, bucketTime);
+            accumulatorMap.computeIfAbsent(id, s -> new Accumulator(model.getMachineId(), period, bucketTime)).add(model);
+        }
+    }
+
+    /**
+     * 保存已经结束的时间段
+     *
+     * @param force 是否保存所有时间段（包含还未结束的）
+     */
+    public synchronized void flush(boolean force) {
+        long now = SystemClock.now();
+        List<MachineNodeStatRollupModel> list = new ArrayList<>();
+        for (Map.Entry<String, Accumulator> entry : accumulatorMap.entrySet()) {
+            Accumulator accumulator = entry.getValue();
+            long endTime = accumulator.bucketTime + TimeUnit.SECONDS.toMillis(accumulator.period);
+            if (force || endTime + CLOSE_DELAY <= now) {
+                // 未结束的时间段保存后也从内存中移除，后续的采样数据保存时合并到已经保存的数据中
+                accumulatorMap.remove(entry.getKey(), accumulator);
+                list.add(accumulator.toModel(entry.getKey()));
+            }
+        }
+        if (list.isEmpty()) {
+            return;
+        }
+        try {
+            this.insert(list);
+        } catch (Exception e) {
+            // 批量写入失败时整批回滚，之前已经保存过同一时间段的部分数据（强制保存或者重启前保存），逐条合并
+            log.debug(I18nMessageUtil.get("i18n.rollup_batch_insert_failure_merge.8e4b"), e.getMessage());
+            list.forEach(this::merge);
+        }
+    }
+
+    /**
+     * 合并到已经保存的同一时间段数据
+     *
+     * @param model 汇总数据
+     */
+    private void merge(MachineNodeStatRollupModel model) {
+        MachineNodeStatRollupModel exist = this.getByKey(model.getId(), false);
+        if (exist == null) {
+            this.insert(model);
+            return;
+        }
+        int existCount = ObjectUtil.defaultIfNull(exist.getSampleCount(), 0);
+        int count = ObjectUtil.defaultIfNull(model.getSampleCount(), 0);
+        MachineNodeStatRollupModel update = new MachineNodeStatRollupModel();
+        update.setId(model.getId());
+        update.setSampleCount(existCount + count);
+        update.setOccupyCpu(mergeAvg(exist.getOccupyCpu(), existCount, model.getOccupyCpu(), count));
+        update.setMaxOccupyCpu(mergeMax(exist.getMaxOccupyCpu(), model.getMaxOccupyCpu()));
+        update.setOccupyMemory(mergeAvg(exist.getOccupyMemory(), existCount, model.getOccupyMemory(), count));
+        update.setMaxOccupyMemory(mergeMax(exist.getMaxOccupyMemory(), model.getMaxOccupyMemory()));
+        update.setOccupySwapMemory(mergeAvg(exist.getOccupySwapMemory(), existCount, model.getOccupySwapMemory(), count));
+        update.setOccupyVirtualMemory(mergeAvg(exist.getOccupyVirtualMemory(), existCount, model.getOccupyVirtualMemory(), count));
+        update.setOccupyDisk(mergeAvg(exist.getOccupyDisk(), existCount, model.getOccupyDisk(), count));
+        update.setNetworkDelay(Optional.ofNullable(mergeAvg(exist.getNetworkDelay(), existCount, model.getNetworkDelay(), count)).map(Double::intValue).orElse(null));
+        update.setNetTxBytes(Optional.ofNullable(mergeAvg(exist.getNetTxBytes(), existCount, model.getNetTxBytes(), count)).map(Double::longValue).orElse(null));
+        update.setNetRxBytes(Optional.ofNullable(mergeAvg(exist.getNetRxBytes(), existCount, model.getNetRxBytes(), count)).map(Double::longValue).orElse(null));
+        this.updateById(update);
+    }
+
+    /**
+     * 按采样次数加权合并平均值
+     */
+    private static Double mergeAvg(Number existAvg, int existCount, Number avg, int count) {
+        if (existAvg == null || existCount <= 0) {
+            return avg == null ? null : avg.doubleValue();
+        }
+        if (avg == null || count <= 0) {
+            return existAvg.doubleValue();
+        }
+        return NumberUtil.div(existAvg.doubleValue() * existCount + avg.doubleValue() * count, existCount + count, 2);
+    }
+
+    private static Double mergeMax(Double existMax, Double max) {
+        if (existMax == null) {
+            return max;
+        }
+        return max == null ? existMax : Math.max(existMax, max);
+    }
+
+    /**
+     * 查询汇总数据，转换为统计日志格式方便前端直接展示
+     *
+     * @param machineId 机器id
+     * @param period    汇总的时间跨度
+     * @param startTime 开始时间
+     * @param endTime   结束时间
+     * @param limit     最大条数
+     * @return list
+     */
+    public List<MachineNodeStatLogModel> listAsStatLog(String machineId, int period, long startTime, long endTime, int limit) {
+        Page page = new Page(1, limit);
+        page.addOrder(new Order("bucketTime", Direction.DESC));
+        Entity entity = Entity.create();
+        entity.set("machineId", machineId);
+        entity.set("periodSecond", period);
+        entity.set(" bucketTime", ">= " + startTime);
+        entity.set("bucketTime", "<= " + endTime);
+        List<MachineNodeStatRollupModel> list = this.listPageOnlyResult(entity, page);
+        return list.stream().map(rollupModel -> {
+            MachineNodeStatLogModel statLogModel = new MachineNodeStatLogModel();
+            statLogModel.setId(rollupModel.getId());
+            statLogModel.setMachineId(rollupModel.getMachineId());
+            statLogModel.setMonitorTime(rollupModel.getBucketTime());
+            statLogModel.setOccupyCpu(rollupModel.getOccupyCpu());
+            statLogModel.setOccupyMemory(rollupModel.getOccupyMemory());
+            statLogModel.setOccupySwapMemory(rollupModel.getOccupySwapMemory());
+            statLogModel.setOccupyVirtualMemory(rollupModel.getOccupyVirtualMemory());
+            statLogModel.setOccupyDisk(rollupModel.getOccupyDisk());
+            statLogModel.setNetworkDelay(rollupModel.getNetworkDelay());
+            statLogModel.setNetTxBytes(rollupModel.getNetTxBytes());
+            statLogModel.setNetRxBytes(rollupModel.getNetRxBytes());
+            return statLogModel;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * 清理过期的汇总数据
+     *
+     * @param period   汇总的时间跨度
+     * @param keepDays 保留天数
+     * @return 删除的行数
+     */
+    public int clear(int period, int keepDays) {
+        if (keepDays <= 0) {
+            return 0;
+        }
+        long time = SystemClock.now() - TimeUnit.DAYS.toMillis(keepDays);
+        Entity where = Entity.create();
+        where.set("periodSecond", period);
+        where.set("bucketTime", "< " + time);
+        return this.del(where);
+    }
+
+    /**
+     * 单个时间段的累计值
+     */
+    private static class Accumulator {
+        private final String machineId;
+        private final int period;
+        private final long bucketTime;
+        private int sampleCount;
+        private final Avg cpu = new Avg();
+        private final Avg memory = new Avg();
+        private final Avg swapMemory = new Avg();
+        private final Avg virtualMemory = new Avg();
+        private final Avg disk = new Avg();
+        private final Avg networkDelay = new Avg();
+        private final Avg netTxBytes = new Avg();
+        private final Avg netRxBytes = new Avg();
+
+        private Accumulator(String machineId, int period, long bucketTime) {
+            this.machineId = machineId;
+            this.period = period;
+            this.bucketTime = bucketTime;
+        }
+
+        private synchronized void add(MachineNodeStatLogModel model) {
+            sampleCount++;
+            cpu.add(model.getOccupyCpu());
+            memory.add(model.getOccupyMemory());
+            swapMemory.add(model.getOccupySwapMemory());
+            virtualMemory.add(model.getOccupyVirtualMemory());
+            disk.add(model.getOccupyDisk());
+            networkDelay.add(model.getNetworkDelay());
+            netTxBytes.add(model.getNetTxBytes());
+            netRxBytes.add(model.getNetRxBytes());
+        }
+
+        private synchronized MachineNodeStatRollupModel toModel(String id) {
+            MachineNodeStatRollupModel model = new MachineNodeStatRollupModel();
+            model.setId(id);
+            model.setMachineId(machineId);
+            model.setPeriodSecond(period);
+            model.setBucketTime(bucketTime);
+            model.setSampleCount(sampleCount);
+            model.setOccupyCpu(cpu.avg());
+            model.setMaxOccupyCpu(cpu.max);
+            model.setOccupyMemory(memory.avg());
+            model.setMaxOccupyMemory(memory.max);
+            model.setOccupySwapMemory(swapMemory.avg());
+            model.setOccupyVirtualMemory(virtualMemory.avg());
+            model.setOccupyDisk(disk.avg());
+            model.setNetworkDelay(Optional.ofNullable(networkDelay.avg()).map(Double::intValue).orElse(null));
+            model.setNetTxBytes(Optional.ofNullable(netTxBytes.avg()).map(Double::longValue).orElse(null));
+            model.setNetRxBytes(Optional.ofNullable(netRxBytes.avg()).map(Double::longValue).orElse(null));
+            return model;
+        }
+    }
+
+    private static class Avg {
+        private double sum;
+        private int count;
+        private Double max;
+
+        private void add(Number number) {
+            if (number == null) {
+                return;
+            }
+            double value = number.doubleValue();
+            sum += value;
+            count++;
+            max = max == null ? value : Math.max(max, value);
+        }
+
+        private Double avg() {
+            return count == 0 ? null : NumberUtil.div(sum, count, 2);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import cn.hutool.core.lang.Opt;
 import cn.hutool.core.map.CaseInsensitiveMap;
 import cn.hutool.core.util.*;
 import cn.hutool.cron.task.Task;
+import cn.hutool.crypto.SecureUtil;
 import cn.hutool.db.Entity;
 import cn.hutool.extra.ssh.JschUtil;
 import cn.keepbx.jpom.Type;
@@ -40,6 +41,7 @@ import org.dromara.jpom.configuration.AssetsConfig;
 import org.dromara.jpom.cron.CronUtils;
 import org.dromara.jpom.dialect.DialectUtil;
 import org.dromara.jpom.func.assets.AssetsExecutorPoolService;
+import org.dromara.jpom.func.assets.SshSessionPoolService;
 import org.dromara.jpom.func.assets.model.MachineSshModel;
 import org.dromara.jpom.func.system.service.ClusterInfoService;
 import org.dromara.jpom.model.data.SshModel;
@@ -58,9 +60,11 @@ import org.springframework.util.Assert;
 
 import javax.annotation.Resource;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author bwcx_jzy
@@ -70,6 +74,10 @@ import java.util.*;
 @Slf4j
 public class MachineSshServer extends BaseDbService<MachineSshModel> implements ILoadEvent, IAsyncLoad, Task {
     private static final String CRON_ID = "ssh-monitor";
+    /**
+     * 监控脚本缓存时间
+     */
+    private static final long MONITOR_TEMPLATE_CACHE_TIME = TimeUnit.MINUTES.toMillis(5);
     @Resource
     @Lazy
     private SshService sshService;
@@ -78,15 +86,20 @@ public class MachineSshServer extends BaseDbService<MachineSshModel> implements
     private final ClusterInfoService clusterInfoService;
     private final AssetsConfig.SshConfig sshConfig;
     private final AssetsExecutorPoolService assetsExecutorPoolService;
+    private final SshSessionPoolService sshSessionPoolService;
+    private volatile String monitorTemplate;
+    private volatile long monitorTemplateTime;
 
     public MachineSshServer(JpomApplication jpomApplication,
                             ClusterInfoService clusterInfoService,
                             AssetsConfig assetsConfig,
-                            AssetsExecutorPoolService assetsExecutorPoolService) {
+                            AssetsExecutorPoolService assetsExecutorPoolService,
+                            SshSessionPoolService sshSessionPoolService) {
         this.jpomApplication = jpomApplication;
         this.clusterInfoService = clusterInfoService;
         this.sshConfig = assetsConfig.getSsh();
         this.assetsExecutorPoolService = assetsExecutorPoolService;
+        this.sshSessionPoolService = sshSessionPoolService;
     }
 
     @Override
@@ -221,15 +234,12 @@ public class MachineSshServer extends BaseDbService<MachineSshModel> implements
             return;
         }
         Session session = null;
+        boolean discard = false;
         try {
-            InputStream sshExecTemplateInputStream = ExtConfigBean.getConfigResourceInputStream("/ssh/monitor-script.sh");
-            String sshExecTemplate = IoUtil.readUtf8(sshExecTemplateInputStream);
-            Map<String, String> map = new HashMap<>(10);
-            map.put("JPOM_AGENT_PID_TAG", Type.Agent.getTag());
-            sshExecTemplate = StringUtil.formatStrByMap(sshExecTemplate, map);
+            String sshExecTemplate = this.getMonitorTemplate();
             Charset charset = machineSshModel.charset();
             //
-            session = this.getSessionByModelNoFill(machineSshModel);
+            session = this.borrowSession(machineSshModel);
             int timeout = machineSshModel.timeout();
             List<String> listStr = new ArrayList<>();
             List<String> error = new ArrayList<>();
@@ -243,9 +253,33 @@ public class MachineSshServer extends BaseDbService<MachineSshModel> implements
                 log.error(I18nMessageUtil.get("i18n.monitor_ssh_exception.e9ce"), machineSshModel.getName(), e);
             }
             this.updateStatus(machineSshModel.getId(), 0, message);
+            discard = true;
         } finally {
-            JschUtil.close(session);
+            this.releaseSession(session, discard);
+        }
+    }
+
+    /**
+     * 获取监控脚本，缓存一段时间避免每次监控都读取配置文件
+     *
+     * @return 监控脚本
+     */
+    private String getMonitorTemplate() {
+        String template = this.monitorTemplate;
+        if (template != null && SystemClock.now() - this.monitorTemplateTime < MONITOR_TEMPLATE_CACHE_TIME) {
+            return template;
+        }
+        try (InputStream sshExecTemplateInputStream = ExtConfigBean.getConfigResourceInputStream("/ssh/monitor-script.sh")) {
+            template = IoUtil.readUtf8(sshExecTemplateInputStream);
+        } catch (IOException e) {
+            throw Lombok.sneakyThrow(e);
         }
+        Map<String, String> map = new HashMap<>(10);
+        map.put("JPOM_AGENT_PID_TAG", Type.Agent.getTag());
+        template = StringUtil.formatStrByMap(template, map);
+        this.monitorTemplate = template;
+        this.monitorTemplateTime = SystemClock.now();
+        return template;
     }
 
     /**
@@ -374,6 +408,40 @@ public class MachineSshServer extends BaseDbService<MachineSshModel> implements
         super.updateById(machineSshModel);
     }
 
+    /**
+     * 从会话池中借出 ssh 会话，使用完成后需要调用 {@link #releaseSession(Session, boolean)} 归还
+     *
+     * @param sshModel sshModel（需要包含完整的认证信息）
+     * @return session
+     */
+    public Session borrowSession(MachineSshModel sshModel) {
+        Assert.notNull(sshModel, I18nMessageUtil.get("i18n.no_ssh_info.a8ec"));
+        // 连接信息变更后 key 随之变化，旧会话会在空闲后被清理
+        String sign = SecureUtil.md5(StrUtil.format("{}:{}:{}:{}:{}:{}", sshModel.host(), sshModel.port(), sshModel.user(),
+            sshModel.connectType(), sshModel.password(), sshModel.privateKey()));
+        String key = StrUtil.format("{}:{}", sshModel.getId(), sign);
+        return sshSessionPoolService.borrow(key, () -> this.getSessionByModelNoFill(sshModel));
+    }
+
+    /**
+     * 归还 ssh 会话
+     *
+     * @param session 会话
+     * @param discard 是否丢弃
+     */
+    public void releaseSession(Session session, boolean discard) {
+        sshSessionPoolService.release(session, discard);
+    }
+
+    /**
+     * 关闭 ssh 复用的会话（修改、删除 ssh 后）
+     *
+     * @param id ssh id
+     */
+    public void invalidateSession(String id) {
+        sshSessionPoolService.invalidate(id + StrUtil.COLON);
+    }
+
     /**
      * 获取 ssh 回话
      * GLOBAL
@@ -344,7 +344,7 @@ public class FileReleaseTaskService extends BaseWorkspaceService<FileReleaseTask
                 try {
                     this.updateStatus(taskId, modelId, 1, I18nMessageUtil.get("i18n.start_publishing_file.a14e"));
                     File logFile = logFile(model);
-                    logRecorder = LogRecorder.builder().file(logFile).charset(CharsetUtil.CHARSET_UTF_8).build();
+                    logRecorder = LogRecorder.builder().file(logFile).charset(CharsetUtil.CHARSET_UTF_8).buffered(true).build();
                     NodeModel item = nodeService.getByKey(model.getTaskDataId());
                     if (item == null) {
                         logRecorder.systemError(I18nMessageUtil.get("i18n.no_node_entry_found.b1ef"), model.getTaskDataId());
@@ -486,7 +486,7 @@ public class FileReleaseTaskService extends BaseWorkspaceService<FileReleaseTask
                 try {
                     this.updateStatus(taskId, modelId, 1, I18nMessageUtil.get("i18n.start_publishing_file.a14e"));
                     File logFile = logFile(model);
-                    logRecorder = LogRecorder.builder().file(logFile).charset(CharsetUtil.CHARSET_UTF_8).build();
+                    logRecorder = LogRecorder.builder().file(logFile).charset(CharsetUtil.CHARSET_UTF_8).buffered(true).build();
                     SshModel item = sshService.getByKey(model.getTaskDataId());
                     if (item == null) {
                         logRecorder.systemError(I18nMessageUtil.get("i18n.no_ssh_entry_found.d0e1"), model.getTaskDataId());
@@ -19,6 +19,7 @@ import cn.hutool.core.io.watch.watchers.DelayWatcher;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.lang.Snowflake;
 import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.map.SafeConcurrentHashMap;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
@@ -28,7 +29,6 @@ import cn.hutool.crypto.SecureUtil;
 import cn.hutool.db.Entity;
 import cn.hutool.extra.servlet.ServletUtil;
 import cn.keepbx.jpom.event.IAsyncLoad;
-import cn.keepbx.jpom.model.BaseIdModel;
 import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.configuration.FileStorageConfig;
@@ -42,15 +42,19 @@ import org.dromara.jpom.service.ITriggerToken;
 import org.dromara.jpom.service.h2db.BaseDbService;
 import org.dromara.jpom.service.system.WorkspaceService;
 import org.dromara.jpom.system.ServerConfig;
+import org.dromara.jpom.util.StrictSyncFinisher;
+import org.dromara.jpom.util.SyncFinisherUtil;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.File;
-import java.nio.file.Path;
-import java.nio.file.WatchEvent;
-import java.nio.file.WatchKey;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 /**
@@ -61,6 +65,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class StaticFileStorageService extends BaseDbService<StaticFileStorageModel> implements IAsyncLoad, Task, Watcher, DisposableBean, ITriggerToken {
 
+    /**
+     * 批量写入数据库的数量
+     */
+    private static final int BATCH_SIZE = 500;
+
     private final FileStorageConfig fileStorageConfig;
     private final WorkspaceService workspaceService;
     private final OutGivingWhitelistService outGivingWhitelistService;
@@ -69,6 +78,10 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
      * 扫描任务进行中
      */
     private volatile boolean scanning = false;
+    /**
+     * 静态目录文件快照，静态目录 -> 文件路径 -> 文件状态
+     */
+    private final Map<String, Map<String, FileState>> snapshots = new SafeConcurrentHashMap<>();
 
     public StaticFileStorageService(ServerConfig serverConfig,
                                     WorkspaceService workspaceService,
@@ -122,6 +135,8 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
         }
         // 先关闭已经存在的监听器
         this.closeWatchMonitor();
+        // 静态目录可能变更，重新加载快照
+        snapshots.clear();
         CronUtils.upsert("scan-static-dir", scanStaticDirCron, this);
         Boolean monitorStaticDir = fileStorageConfig.getWatchMonitorStaticDir();
         int watchMonitorMaxDepth = ObjectUtil.defaultIfNull(fileStorageConfig.getWatchMonitorMaxDepth(), 0);
@@ -133,7 +148,7 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
                 if (!FileUtil.exist(file)) {
                     log.warn(I18nMessageUtil.get("i18n.monitored_directory_does_not_exist.fa4e"), s);
                     // 自动删除已经存在的任务
-                    this.delete(file);
+                    this.deleteStaticDir(s);
                     continue;
                 }
                 DelayWatcher delayWatcher = new DelayWatcher(StaticFileStorageService.this, 1000);
@@ -192,11 +207,7 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
         Snowflake snowflake = IdUtil.getSnowflake();
         long taskId = snowflake.nextId();
         for (String item : list) {
-            // 开始扫描目录
-            this.scanItem(item, item, 0, taskId);
-            // 更新文件状态
-            String sql = StrUtil.format("update {} set status=0 where staticDir=? and scanTaskId <> ?", this.getTableName());
-            this.execute(sql, item, taskId);
+            this.scanStaticDir(item, taskId);
         }
     }
 
@@ -217,71 +228,143 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
     }
 
     /**
-     * 扫描目录
+     * 扫描静态目录，一级子目录并行扫描，只将有变化的文件批量写入数据库
      *
      * @param staticDir 静态目录
-     * @param item      开始目录
-     * @param level     目前层级
      * @param taskId    任务id
      */
-    private void scanItem(String staticDir, String item, int level, Long taskId) {
-        File file = FileUtil.file(item);
-        if (!FileUtil.exist(file)) {
+    private void scanStaticDir(String staticDir, long taskId) {
+        File file = FileUtil.file(staticDir);
+        if (!FileUtil.isDirectory(file)) {
             // 目录不存在了，自动删除
-            this.delete(file);
+            this.deleteStaticDir(staticDir);
             return;
         }
-        if (FileUtil.isFile(file)) {
-            // 文件夹
-            this.doFile(file, staticDir, level, taskId, 1);
-        } else if (FileUtil.isDirectory(file)) {
-            // 处理自身
-            this.doFile(file, staticDir, level, taskId, 0);
-            File[] files = file.listFiles();
-            if (files == null) {
-                return;
-            }
-            for (File subFile : files) {
-                this.scanItem(staticDir, subFile.getAbsolutePath(), level + 1, taskId);
+        Map<String, FileState> snapshot = this.snapshot(staticDir);
+        synchronized (snapshot) {
+            ScanBatch batch = new ScanBatch(staticDir, taskId, snapshot);
+            List<Path> subDirs = new ArrayList<>();
+            this.walk(file.toPath(), batch, subDirs);
+            if (!subDirs.isEmpty()) {
+                int scanConcurrent = ObjectUtil.defaultIfNull(fileStorageConfig.getScanConcurrent(), 4);
+                String name = "scan-static-dir:" + taskId + StrUtil.COLON + staticDir;
+                StrictSyncFinisher syncFinisher = SyncFinisherUtil.create(name, Math.min(scanConcurrent, subDirs.size()), subDirs.size());
+                try {
+                    for (Path subDir : subDirs) {
+                        syncFinisher.addWorker(() -> this.walk(subDir, batch, null));
+                    }
+                    syncFinisher.start();
+                } finally {
+                    SyncFinisherUtil.close(name);
+                }
             }
-        } else {
-            log.warn(I18nMessageUtil.get("i18n.file_type_not_supported_with_placeholder.db22"), file.getAbsolutePath());
+            batch.flush();
+            // 更新文件状态
+            int removed = this.removeSnapshot(snapshot, (path, fileState) -> fileState.seenTaskId != taskId);
+            log.debug(I18nMessageUtil.get("i18n.static_dir_scan_done.4c2e"), staticDir, batch.changed.get(), removed);
         }
     }
 
     /**
-     * 处理文件缓存对象
+     * 遍历目录
+     *
+     * @param start   开始路径
+     * @param batch   批量写入对象
+     * @param subDirs 不为 null 时只处理开始路径下的文件，子目录收集到此集合中
+     */
+    private void walk(Path start, ScanBatch batch, List<Path> subDirs) {
+        try {
+            Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (subDirs != null && !dir.equals(start)) {
+                        subDirs.add(dir);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    batch.visit(dir, attrs, 0);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        batch.visit(file, attrs, 1);
+                    } else {
+                        log.warn(I18nMessageUtil.get("i18n.file_type_not_supported_with_placeholder.db22"), file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    log.warn(I18nMessageUtil.get("i18n.static_file_visit_failure.8d31"), file, exc.getMessage());
+                    // 读取失败的不当做删除处理
+                    batch.keep(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error(I18nMessageUtil.get("i18n.static_file_visit_failure.8d31"), start, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 加载静态目录的文件快照（只在第一次使用时查询数据库）
      *
-     * @param file      文件
      * @param staticDir 静态目录
-     * @param level     层级
-     * @param taskId    任务id
-     * @param fileType  文件类型
+     * @return 文件路径 -> 文件状态
      */
-    private void doFile(File file, String staticDir, int level, Long taskId, int fileType) {
-        String name = file.getName();
-        String absolutePath = this.absNormalize(file);
-        long length = file.length();
-        long lastModified = file.lastModified();
-        String parentAbsolutePath = this.absNormalize(file.getParentFile());
-        if (StrUtil.length(absolutePath) > 500) {
-            log.warn(I18nMessageUtil.get("i18n.file_directory_too_long.c101"), absolutePath);
-            return;
+    private Map<String, FileState> snapshot(String staticDir) {
+        return snapshots.computeIfAbsent(staticDir, key -> {
+            String sql = StrUtil.format("select absolutePath,type,lastModified,size from {} where staticDir=? and status=1", this.getTableName());
+            List<Entity> query = this.query(sql, key);
+            Map<String, FileState> map = new SafeConcurrentHashMap<>(CollUtil.size(query));
+            if (query != null) {
+                for (Entity entity : query) {
+                    FileState fileState = new FileState(
+                        ObjectUtil.defaultIfNull(entity.getInt("type"), 1),
+                        ObjectUtil.defaultIfNull(entity.getLong("lastModified"), 0L),
+                        ObjectUtil.defaultIfNull(entity.getLong("size"), 0L),
+                        0);
+                    map.put(entity.getStr("absolutePath"), fileState);
+                }
+            }
+            return map;
+        });
+    }
+
+    /**
+     * 移除快照中满足条件的文件，并批量更新为删除状态
+     *
+     * @param snapshot  快照
+     * @param predicate 条件
+     * @return 移除数量
+     */
+    private int removeSnapshot(Map<String, FileState> snapshot, BiPredicate<String, FileState> predicate) {
+        List<String> ids = new ArrayList<>();
+        Iterator<Map.Entry<String, FileState>> iterator = snapshot.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, FileState> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue())) {
+                iterator.remove();
+                ids.add(SecureUtil.md5(entry.getKey()));
+            }
         }
-        StaticFileStorageModel storageModel = new StaticFileStorageModel();
-        storageModel.setId(SecureUtil.md5(absolutePath));
-        storageModel.setName(name);
-        storageModel.setAbsolutePath(absolutePath);
-        storageModel.setParentAbsolutePath(parentAbsolutePath);
-        storageModel.setLevel(level);
-        storageModel.setStaticDir(staticDir);
-        storageModel.setStatus(1);
-        storageModel.setType(fileType);
-        storageModel.setScanTaskId(taskId);
-        storageModel.setExtName(FileUtil.extName(file));
-        storageModel.setLastModified(lastModified);
-        storageModel.setSize(length);
-        this.upsert(storageModel);
+        for (List<String> item : CollUtil.split(ids, BATCH_SIZE)) {
+            this.update(Entity.create().set("status", 0), Entity.create().set("id", item));
+        }
+        return ids.size();
+    }
+
+    /**
+     * 是否为路径本身或者子路径
+     *
+     * @param path   路径
+     * @param parent 父级路径
+     * @return true 是
+     */
+    private static boolean isSubPath(String path, String parent) {
+        return StrUtil.equals(path, parent) || StrUtil.startWith(path, StrUtil.addSuffixIfNot(parent, StrUtil.SLASH));
     }
 
     private String absNormalize(File file) {
@@ -290,76 +373,33 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
     }
 
     /**
-     * 处理文件缓存对象
+     * 处理文件监听事件，文件夹重新扫描整个子目录
      *
-     * @param path          文件
-     * @param staticDirPath 静态目录
+     * @param path 文件
      */
-    private void doFile(Path path, Path staticDirPath) {
+    private void doFile(Path path) {
         try {
             File file = path.toFile();
-            String absolutePath = this.absNormalize(file);
-            File parentFile = file.getParentFile();
-            String parentAbsolutePath = this.absNormalize(parentFile);
-            if (StrUtil.length(absolutePath) > 500) {
-                log.warn(I18nMessageUtil.get("i18n.file_directory_too_long.c101"), absolutePath);
+            String staticDir = this.resolveStaticDir(file);
+            if (staticDir == null) {
+                log.warn(I18nMessageUtil.get("i18n.listen_task_lost_or_not_found.347f"), path);
                 return;
             }
-            // 计算层级
-            File staticDir = staticDirPath.toFile();
-            String staticStr = this.absNormalize(staticDir);
-            String subPath = FileUtil.subPath(staticStr, absolutePath);
-            int level = CollUtil.size(StrUtil.splitTrim(subPath, StrUtil.SLASH));
-            StaticFileStorageModel storageModel = new StaticFileStorageModel();
-            storageModel.setId(SecureUtil.md5(absolutePath));
-            storageModel.setName(file.getName());
-            storageModel.setAbsolutePath(absolutePath);
-            storageModel.setParentAbsolutePath(parentAbsolutePath);
-            storageModel.setLevel(level + 1);
-            storageModel.setStaticDir(staticStr);
-            storageModel.setStatus(1);
-            if (FileUtil.isFile(file)) {
-                // 文件夹
-                storageModel.setType(1);
-            } else if (FileUtil.isDirectory(file)) {
-                storageModel.setType(0);
-            } else {
-                log.warn(I18nMessageUtil.get("i18n.file_type_not_supported3.f551"), absolutePath);
+            if (!FileUtil.exist(file)) {
+                this.delete(staticDir, file);
                 return;
             }
-            storageModel.setExtName(FileUtil.extName(file));
-            storageModel.setLastModified(file.lastModified());
-            storageModel.setSize(file.length());
-            this.upsert(storageModel);
-            // 判断类型
-            if (storageModel.getType() == 0) {
-                // 文件夹类型
-                // 需要扫描父级，可能避免删除无法正常监听到并且变更
-                Snowflake snowflake = IdUtil.getSnowflake();
-                long taskId = snowflake.nextId();
-                this.scanItem(storageModel.getStaticDir(), absolutePath, level, taskId);
-                // 删除未被更新的数据
-                StaticFileStorageModel where = new StaticFileStorageModel();
-                where.setParentAbsolutePath(absolutePath);
-                List<StaticFileStorageModel> list = this.listByBean(where);
-                if (CollUtil.isEmpty(list)) {
-                    return;
-                }
-                List<String> collect = list.stream()
-                    .filter(staticFileStorageModel -> !ObjectUtil.equals(staticFileStorageModel.getScanTaskId(), taskId))
-                    .filter(staticFileStorageModel -> {
-                        File file1 = FileUtil.file(staticFileStorageModel.getAbsolutePath());
-                        if (staticFileStorageModel.type() == 1) {
-                            return !FileUtil.exist(file1);
-                        }
-                        // 删除子目录
-                        this.delete(staticFileStorageModel.getId(), staticFileStorageModel.getAbsolutePath());
-                        return !FileUtil.exist(file1);
-                    })
-                    .map(BaseIdModel::getId)
-                    .collect(Collectors.toList());
-                if (CollUtil.isNotEmpty(collect)) {
-                    this.update(Entity.create().set("status", 0), Entity.create().set("id", collect));
+            Map<String, FileState> snapshot = this.snapshot(staticDir);
+            synchronized (snapshot) {
+                long taskId = IdUtil.getSnowflake().nextId();
+                ScanBatch batch = new ScanBatch(staticDir, taskId, snapshot);
+                // 需要扫描整个目录，可能避免删除无法正常监听到并且变更
+                this.walk(path, batch, null);
+                batch.flush();
+                if (FileUtil.isDirectory(file)) {
+                    // 删除未被更新的数据
+                    String absolutePath = this.absNormalize(file);
+                    this.removeSnapshot(snapshot, (itemPath, fileState) -> fileState.seenTaskId != taskId && isSubPath(itemPath, absolutePath));
                 }
             }
         } catch (Exception e) {
@@ -420,6 +460,30 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
         return watchKey;
     }
 
+    /**
+     * 查找文件所属的监听静态目录
+     *
+     * @param file 文件
+     * @return 静态目录
+     */
+    private String resolveStaticDir(File file) {
+        Map<String, WatchMonitor> monitorMap = this.watchMonitor;
+        if (monitorMap == null) {
+            return null;
+        }
+        String absolutePath = this.absNormalize(file);
+        String result = null;
+        int length = 0;
+        for (String staticDir : monitorMap.keySet()) {
+            String staticPath = this.absNormalize(FileUtil.file(staticDir));
+            if (isSubPath(absolutePath, staticPath) && staticPath.length() > length) {
+                result = staticDir;
+                length = staticPath.length();
+            }
+        }
+        return result;
+    }
+
     /**
      * 解析事件全路径
      *
@@ -454,7 +518,7 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
             Path path = this.fullPath(currentPath, context);
             if (path != null) {
                 log.debug(I18nMessageUtil.get("i18n.file_full_path.16cc"), path);
-                this.doFile(path, currentPath);
+                this.doFile(path);
             }
         } else {
             log.warn(I18nMessageUtil.get("i18n.event_type_not_supported.e9c3"), context.getClass().getName());
@@ -471,7 +535,12 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
                 File file = path.toFile();
                 try {
                     // 处理文件删除事件
-                    this.delete(file);
+                    String staticDir = this.resolveStaticDir(file);
+                    if (staticDir == null) {
+                        log.warn(I18nMessageUtil.get("i18n.listen_task_lost_or_not_found.347f"), path);
+                        return;
+                    }
+                    this.delete(staticDir, file);
                 } catch (Exception e) {
                     log.error(I18nMessageUtil.get("i18n.process_file_deletion_exception.1c6e"), e);
                 }
@@ -482,55 +551,40 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
     }
 
     /**
-     * 删除文件
+     * 删除文件（文件夹会删除所有子文件）
      *
-     * @param file 文件
+     * @param staticDir 静态目录
+     * @param file      文件
      */
-    private void delete(File file) {
+    private void delete(String staticDir, File file) {
         String absolutePath = this.absNormalize(file);
-        String md5 = SecureUtil.md5(absolutePath);
-        this.delete(md5, absolutePath);
+        log.debug(I18nMessageUtil.get("i18n.file_deletion_event.a51c"), absolutePath);
+        Map<String, FileState> snapshot = this.snapshot(staticDir);
+        synchronized (snapshot) {
+            this.removeSnapshot(snapshot, (path, fileState) -> isSubPath(path, absolutePath));
+        }
     }
 
     /**
-     * 删除指定文件
+     * 删除整个静态目录
      *
-     * @param md5          文件id
-     * @param absolutePath 文件路径
+     * @param staticDir 静态目录
      */
-    private void delete(String md5, String absolutePath) {
-        StaticFileStorageModel storageModel = new StaticFileStorageModel();
-        storageModel.setId(md5);
-        storageModel.setStatus(0);
-        int update = this.updateById(storageModel);
-        log.debug(I18nMessageUtil.get("i18n.file_deletion_event.a51c"), absolutePath);
-        if (update > 0) {
-            StaticFileStorageModel model = this.getByKey(md5);
-            if (model != null && model.type() == 0) {
-                // 文件夹
-                StaticFileStorageModel where = new StaticFileStorageModel();
-                where.setParentAbsolutePath(absolutePath);
-                List<StaticFileStorageModel> list = this.listByBean(where);
-                if (CollUtil.isEmpty(list)) {
-                    return;
-                }
-                List<String> collect = list.stream()
-                    .filter(staticFileStorageModel -> {
-                        if (staticFileStorageModel.type() == 1) {
-                            return true;
-                        }
-                        // 删除子目录
-                        this.delete(staticFileStorageModel.getId(), staticFileStorageModel.getAbsolutePath());
-                        return false;
-                    })
-                    .map(BaseIdModel::getId)
-                    .collect(Collectors.toList());
-                if (CollUtil.isEmpty(collect)) {
-                    return;
-                }
-                this.update(Entity.create().set("status", 0), Entity.create().set("id", collect));
-            }
+    private void deleteStaticDir(String staticDir) {
+        snapshots.remove(staticDir);
+        String sql = StrUtil.format("update {} set status=0 where staticDir=?", this.getTableName());
+        this.execute(sql, staticDir);
+    }
+
+    @Override
+    public int delByKey(String keyValue) {
+        StaticFileStorageModel storageModel = this.getByKey(keyValue, false);
+        if (storageModel != null) {
+            // 移除快照，下次扫描时重新写入
+            Optional.ofNullable(snapshots.get(storageModel.getStaticDir()))
+                .ifPresent(map -> map.remove(storageModel.getAbsolutePath()));
         }
+        return super.delByKey(keyValue);
     }
 
     @Override
@@ -558,4 +612,126 @@ public class StaticFileStorageService extends BaseDbService<StaticFileStorageMod
         ServerWhitelist whitelistData = outGivingWhitelistService.getServerWhitelistData(workspaceId);
         whitelistData.checkStaticDir(storageModel.getStaticDir());
     }
+
+    /**
+     * 文件状态快照
+     */
+    private static class FileState {
+        private final int type;
+        private final long lastModified;
+        private final long size;
+        /**
+         * 最后一次扫描到的任务id
+         */
+        private volatile long seenTaskId;
+
+        private FileState(int type, long lastModified, long size, long seenTaskId) {
+            this.type = type;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.seenTaskId = seenTaskId;
+        }
+
+        private boolean same(int type, long lastModified, long size) {
+            return this.type == type && this.lastModified == lastModified && this.size == size;
+        }
+    }
+
+    /**
+     * 扫描结果批量写入
+     */
+    private class ScanBatch {
+        private final String staticDir;
+        private final Path staticPath;
+        private final long taskId;
+        private final Map<String, FileState> snapshot;
+        private final List<StaticFileStorageModel> list = new ArrayList<>(BATCH_SIZE);
+        private final AtomicInteger changed = new AtomicInteger();
+
+        private ScanBatch(String staticDir, long taskId, Map<String, FileState> snapshot) {
+            this.staticDir = staticDir;
+            this.staticPath = FileUtil.file(staticDir).toPath().toAbsolutePath().normalize();
+            this.taskId = taskId;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * 处理文件，未变化的只标记扫描到
+         *
+         * @param path     文件
+         * @param attrs    文件属性
+         * @param fileType 文件类型
+         */
+        private void visit(Path path, BasicFileAttributes attrs, int fileType) {
+            Path absPath = path.toAbsolutePath().normalize();
+            File file = absPath.toFile();
+            String absolutePath = absNormalize(file);
+            if (StrUtil.length(absolutePath) > 500) {
+                log.warn(I18nMessageUtil.get("i18n.file_directory_too_long.c101"), absolutePath);
+                return;
+            }
+            long lastModified = attrs.lastModifiedTime().toMillis();
+            long size = attrs.size();
+            FileState fileState = snapshot.get(absolutePath);
+            if (fileState != null && fileState.same(fileType, lastModified, size)) {
+                fileState.seenTaskId = taskId;
+                return;
+            }
+            snapshot.put(absolutePath, new FileState(fileType, lastModified, size, taskId));
+            File parentFile = file.getParentFile();
+            StaticFileStorageModel storageModel = new StaticFileStorageModel();
+            storageModel.setId(SecureUtil.md5(absolutePath));
+            storageModel.setName(file.getName());
+            storageModel.setAbsolutePath(absolutePath);
+            storageModel.setParentAbsolutePath(parentFile == null ? null : absNormalize(parentFile));
+            storageModel.setLevel(absPath.equals(staticPath) ? 0 : staticPath.relativize(absPath).getNameCount());
+            storageModel.setStaticDir(staticDir);
+            storageModel.setStatus(1);
+            storageModel.setType(fileType);
+            storageModel.setScanTaskId(taskId);
+            storageModel.setExtName(FileUtil.extName(file));
+            storageModel.setLastModified(lastModified);
+            storageModel.setSize(size);
+            this.add(storageModel);
+        }
+
+        /**
+         * 保留文件及子文件（读取失败时）
+         *
+         * @param path 文件
+         */
+        private void keep(Path path) {
+            String absolutePath = absNormalize(path.toAbsolutePath().toFile());
+            snapshot.forEach((itemPath, fileState) -> {
+                if (isSubPath(itemPath, absolutePath)) {
+                    fileState.seenTaskId = taskId;
+                }
+            });
+        }
+
+        private synchronized void add(StaticFileStorageModel storageModel) {
+            list.add(storageModel);
+            changed.incrementAndGet();
+            if (list.size() >= BATCH_SIZE) {
+                this.flush();
+            }
+        }
+
+        private synchronized void flush() {
+            if (list.isEmpty()) {
+                return;
+            }
+            try {
+                upsert(list);
+            } catch (Exception e) {
+                log.error(I18nMessageUtil.get("i18n.process_file_event_exception.e8e6"), e);
+                // 写入失败，下次扫描重新写入
+                for (StaticFileStorageModel storageModel : list) {
+                    snapshot.remove(storageModel.getAbsolutePath());
+                }
+            } finally {
+                list.clear();
+            }
+        }
+    }
 }
@@ -111,6 +111,8 @@ public class CacheManageController extends BaseServerController implements ICach
         }
         int oneLineCount = ServiceFileTailWatcher.getOneLineCount();
         map.put("readFileOnLineCount", oneLineCount);
+        // 实时日志的发送积压情况
+        map.put("readFileLagStat", ServiceFileTailWatcher.allLagStat());
         map.put("cacheBuildFileSize", BuildUtil.buildCacheSize);
         map.put("taskList", CronUtils.list());
         map.put("pluginSize", PluginFactory.size());
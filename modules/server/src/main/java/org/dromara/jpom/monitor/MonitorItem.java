@@ -9,6 +9,8 @@
  */
 package org.dromara.jpom.monitor;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.util.EnumUtil;
@@ -43,6 +45,10 @@ import org.dromara.jpom.webhook.DefaultWebhookPluginImpl;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -63,6 +69,18 @@ public class MonitorItem implements Task {
     private final NodeService nodeService;
     private final String monitorId;
     private MonitorModel monitorModel;
+    /**
+     * 节点状态查询的默认超时时间（秒），节点未配置超时时间时使用
+     */
+    private static final int DEFAULT_STATUS_TIMEOUT = 30;
+    /**
+     * 不支持批量查询项目状态的节点（旧版本节点），一段时间内直接逐个查询
+     */
+    private static final TimedCache<String, Boolean> UNSUPPORTED_BATCH_NODE = CacheUtil.newTimedCache(TimeUnit.HOURS.toMillis(1));
+    /**
+     * 项目最近一次的通知记录，key 为 节点id:项目id。产生新的通知记录后失效，下次使用时再从数据库加载
+     */
+    private final Map<String, Optional<MonitorNotifyLog>> preDataCache = new ConcurrentHashMap<>();
 
     public MonitorItem(String id) {
         this.dbMonitorNotifyLogService = SpringUtil.getBean(DbMonitorNotifyLogService.class);
@@ -80,9 +98,9 @@ public class MonitorItem implements Task {
         try {
             I18nMessageUtil.setLanguage(this.monitorModel.getUseLanguage());
             List<MonitorModel.NodeProject> nodeProjects = monitorModel.projects();
-            //
-            List<Boolean> collect = nodeProjects.stream()
-                .map(nodeProject -> {
+            // 各个节点并行检查，单个节点响应慢不影响其他节点
+            List<Future<Boolean>> futures = nodeProjects.stream()
+                .map(nodeProject -> I18nThreadUtil.execAsync(() -> {
                     String nodeId = nodeProject.getNode();
                     NodeModel nodeModel = nodeService.getByKey(nodeId);
                     if (nodeModel == null) {
@@ -90,6 +108,16 @@ public class MonitorItem implements Task {
                         return true;
                     }
                     return this.reqNodeStatus(nodeModel, nodeProject.getProjects());
+                }))
+                .collect(Collectors.toList());
+            List<Boolean> collect = futures.stream()
+                .map(future -> {
+                    try {
+                        return future.get();
+                    } catch (Exception e) {
+                        log.error(I18nMessageUtil.get("i18n.monitor_node_exception.6ff1"), this.monitorModel.getName(), e.getMessage());
+                        return false;
+                    }
                 })
                 .filter(aBoolean -> !aBoolean)
                 .collect(Collectors.toList());
@@ -112,14 +140,47 @@ public class MonitorItem implements Task {
         if (projects == null || projects.isEmpty()) {
             return true;
         }
+        // 一次请求查询节点下所有项目的运行状态，节点端共用一份进程表快照
+        JsonMessage<JSONObject> batchMessage = null;
+        Exception batchException = null;
+        boolean batch = !UNSUPPORTED_BATCH_NODE.containsKey(nodeModel.getId());
+        if (batch) {
+            Future<JsonMessage<JSONObject>> future = I18nThreadUtil.execAsync(() -> NodeForward.request(nodeModel, NodeUrl.Manage_GetProjectStatusBatch, "ids", JSONArray.toJSONString(projects)));
+            int timeout = Optional.ofNullable(nodeModel.getTimeOut()).filter(integer -> integer > 0).orElse(DEFAULT_STATUS_TIMEOUT);
+            try {
+                batchMessage = future.get(timeout, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                batchException = ExceptionUtil.unwrap(e) instanceof Exception ? (Exception) ExceptionUtil.unwrap(e) : e;
+            } catch (Exception e) {
+                future.cancel(true);
+                batchException = e;
+            }
+            if (batchMessage != null && NodeForward.isUnsupportedUrl(batchMessage, NodeUrl.Manage_GetProjectStatusBatch)) {
+                // 旧版本节点没有批量查询接口，回退为逐个查询
+                log.info(I18nMessageUtil.get("i18n.node_not_support_batch_status.1d6e"), nodeModel.getName());
+                UNSUPPORTED_BATCH_NODE.put(nodeModel.getId(), true);
+                batch = false;
+            }
+        }
+        boolean finalBatch = batch;
+        JsonMessage<JSONObject> finalBatchMessage = batchMessage;
+        Exception finalBatchException = batchException;
         List<Boolean> collect = projects.stream()
             .map(id -> {
                 //
                 String title;
                 String context;
                 try {
-                    //查询项目运行状态
-                    JsonMessage<JSONObject> jsonMessage = NodeForward.request(nodeModel, NodeUrl.Manage_GetProjectStatus, "id", id);
+                    JsonMessage<JSONObject> jsonMessage;
+                    if (finalBatch) {
+                        if (finalBatchException != null) {
+                            throw finalBatchException;
+                        }
+                        jsonMessage = this.itemStatusMessage(finalBatchMessage, id);
+                    } else {
+                        //查询项目运行状态
+                        jsonMessage = NodeForward.request(nodeModel, NodeUrl.Manage_GetProjectStatus, "id", id);
+                    }
                     if (jsonMessage.success()) {
                         JSONObject jsonObject = jsonMessage.getData();
                         int pid = jsonObject.getIntValue("pId");
@@ -182,6 +243,30 @@ public class MonitorItem implements Task {
         return CollUtil.isEmpty(collect);
     }
 
+    /**
+     * 从批量查询结果中取出单个项目的状态
+     *
+     * @param batchMessage 批量查询结果
+     * @param id           项目id
+     * @return 单个项目的状态
+     */
+    private JsonMessage<JSONObject> itemStatusMessage(JsonMessage<JSONObject> batchMessage, String id) {
+        if (!batchMessage.success()) {
+            return batchMessage;
+        }
+        JSONObject itemObj = Optional.ofNullable(batchMessage.getData())
+            .map(jsonObject -> jsonObject.getJSONObject(id))
+            .orElse(null);
+        if (itemObj == null) {
+            return new JsonMessage<>(500, I18nMessageUtil.get("i18n.no_project_found.ef5e"));
+        }
+        String error = itemObj.getString("error");
+        if (error != null) {
+            return new JsonMessage<>(500, error);
+        }
+        return JsonMessage.success(StrUtil.EMPTY, itemObj);
+    }
+
     /**
      * 检查状态
      *
@@ -286,6 +371,20 @@ public class MonitorItem implements Task {
      * @return data
      */
     private MonitorNotifyLog getPreData(String monitorId, String nodeId, String projectId) {
+        String key = StrUtil.format("{}:{}", nodeId, projectId);
+        return preDataCache.computeIfAbsent(key, s -> Optional.ofNullable(this.queryPreData(monitorId, nodeId, projectId))).orElse(null);
+    }
+
+    /**
+     * 产生了新的通知记录，清除缓存的上次状态
+     *
+     * @param monitorNotifyLog 通知记录
+     */
+    private void invalidatePreData(MonitorNotifyLog monitorNotifyLog) {
+        preDataCache.remove(StrUtil.format("{}:{}", monitorNotifyLog.getNodeId(), monitorNotifyLog.getProjectId()));
+    }
+
+    private MonitorNotifyLog queryPreData(String monitorId, String nodeId, String projectId) {
         // 检查是否已经触发通知
 
         MonitorNotifyLog monitorNotifyLog = new MonitorNotifyLog();
@@ -314,9 +413,13 @@ public class MonitorItem implements Task {
         }
         monitorNotifyLog.setWorkspaceId(projectInfoCacheModel.getWorkspaceId());
         //
-        notify.forEach(notifyUser -> this.sendNotifyMsgToUser(monitorNotifyLog, notifyUser));
-        //
-        this.sendNotifyMsgToWebhook(monitorNotifyLog, nodeModel, projectInfoCacheModel, monitorModel.getWebhook());
+        try {
+            notify.forEach(notifyUser -> this.sendNotifyMsgToUser(monitorNotifyLog, notifyUser));
+            //
+            this.sendNotifyMsgToWebhook(monitorNotifyLog, nodeModel, projectInfoCacheModel, monitorModel.getWebhook());
+        } finally {
+            this.invalidatePreData(monitorNotifyLog);
+        }
     }
 
     private void sendNotifyMsgToWebhook(MonitorNotifyLog monitorNotifyLog, NodeModel nodeModel, ProjectInfoCacheModel projectInfoCacheModel, String webhook) {
@@ -351,6 +454,8 @@ public class MonitorItem implements Task {
             } catch (Exception e) {
                 log.error(I18nMessageUtil.get("i18n.webhooks_invocation_error.9792"), e);
                 dbMonitorNotifyLogService.updateStatus(logId, false, ExceptionUtil.stacktraceToString(e));
+            } finally {
+                this.invalidatePreData(monitorNotifyLog);
             }
         });
     }
@@ -368,7 +473,7 @@ public class MonitorItem implements Task {
                 monitorNotifyLog.setNotifyObject(notify1.getValue());
                 //
                 dbMonitorNotifyLogService.insert(monitorNotifyLog);
-                this.send(notify1, monitorNotifyLog.getId(), monitorNotifyLog.getTitle(), monitorNotifyLog.getContent());
+                this.send(notify1, monitorNotifyLog, monitorNotifyLog.getId());
                 success = true;
             }
             // dingding
@@ -380,7 +485,7 @@ public class MonitorItem implements Task {
                 monitorNotifyLog.setNotifyObject(notify1.getValue());
                 //
                 dbMonitorNotifyLogService.insert(monitorNotifyLog);
-                this.send(notify1, monitorNotifyLog.getId(), monitorNotifyLog.getTitle(), monitorNotifyLog.getContent());
+                this.send(notify1, monitorNotifyLog, monitorNotifyLog.getId());
                 success = true;
             }
             // 企业微信
@@ -392,7 +497,7 @@ public class MonitorItem implements Task {
                 monitorNotifyLog.setNotifyObject(notify1.getValue());
                 //
                 dbMonitorNotifyLogService.insert(monitorNotifyLog);
-                this.send(notify1, monitorNotifyLog.getId(), monitorNotifyLog.getTitle(), monitorNotifyLog.getContent());
+                this.send(notify1, monitorNotifyLog, monitorNotifyLog.getId());
                 success = true;
             }
         }
@@ -409,7 +514,9 @@ public class MonitorItem implements Task {
         dbMonitorNotifyLogService.insert(monitorNotifyLog);
     }
 
-    private void send(MonitorModel.Notify notify, String logId, String title, String context) {
+    private void send(MonitorModel.Notify notify, MonitorNotifyLog monitorNotifyLog, String logId) {
+        String title = monitorNotifyLog.getTitle();
+        String context = monitorNotifyLog.getContent();
         // 异常发送
         I18nThreadUtil.execute(() -> {
             try {
@@ -418,6 +525,9 @@ public class MonitorItem implements Task {
             } catch (Exception e) {
                 log.error(I18nMessageUtil.get("i18n.send_alert_notification_exception.6788"), e);
                 dbMonitorNotifyLogService.updateStatus(logId, false, ExceptionUtil.stacktraceToString(e));
+            } finally {
+                // 发送结果会影响沉默时间的判断
+                this.invalidatePreData(monitorNotifyLog);
             }
         });
     }
@@ -12,16 +12,22 @@ package org.dromara.jpom.outgiving;
 import cn.hutool.core.date.BetweenFormatter;
 import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.EnumUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.spring.SpringUtil;
 import cn.keepbx.jpom.model.JsonMessage;
 import com.alibaba.fastjson2.JSONObject;
+import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.forward.NodeForward;
+import org.dromara.jpom.common.forward.NodeUrl;
+import org.dromara.jpom.common.forward.ShardingDigest;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.model.AfterOpt;
+import org.dromara.jpom.model.RunMode;
 import org.dromara.jpom.model.data.NodeModel;
 import org.dromara.jpom.model.log.OutGivingLog;
 import org.dromara.jpom.model.outgiving.OutGivingModel;
@@ -32,6 +38,7 @@ import org.dromara.jpom.util.StringUtil;
 
 import java.io.File;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author bwcx_jzy
@@ -42,7 +49,9 @@ import java.util.concurrent.Callable;
 public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
 
     private final String outGivingId;
+    @Getter
     private final OutGivingNodeProject outGivingNodeProject;
+    @Getter
     private final NodeModel nodeModel;
     private final File file;
     private final AfterOpt afterOpt;
@@ -53,6 +62,10 @@ public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
     private final Boolean closeFirst;
     private int stripComponents;
     private String fileName;
+    /**
+     * 分发文件的签名，所有节点共用
+     */
+    private ShardingDigest shardingDigest;
 
     public OutGivingItemRun(OutGivingModel item,
                             OutGivingNodeProject outGivingNodeProject,
@@ -93,7 +106,7 @@ public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
                 unzip,
                 afterOpt,
                 this.nodeModel, this.clearOld,
-                this.sleepTime, this.closeFirst, this.stripComponents, (total, progressSize) -> {
+                this.sleepTime, this.closeFirst, this.stripComponents, this.shardingDigest, (total, progressSize) -> {
 
                     String logId = OutGivingRun.getLogId(outGivingId, outGivingNodeProject);
                     //
@@ -122,6 +135,73 @@ public class OutGivingItemRun implements Callable<OutGivingNodeProject.Status> {
         return result;
     }
 
+    /**
+     * 节点保存分片使用的上传 id，和上传时计算的上传 id 保持一致（中继转发的分片上传时可以直接跳过）。
+     * 相同的上传正在进行时上传会使用新的上传 id，此时中继转发的分片不会被跳过
+     *
+     * @param chunkSize 分片大小
+     * @return 上传 id
+     */
+    public String sliceId(int chunkSize) {
+        JSONObject data = OutGivingRun.uploadData(this.secondaryDirectory, this.outGivingNodeProject.getProjectId(), unzip, afterOpt,
+            this.clearOld, this.sleepTime, this.closeFirst, this.stripComponents);
+        String name = StrUtil.emptyToDefault(this.fileName, this.file.getName());
+        return NodeForward.shardingSliceId(this.nodeModel, NodeUrl.Manage_File_Upload_Sharding, data, this.file, name, chunkSize);
+    }
+
+    /**
+     * 等待项目运行，用于顺序重启时判断是否可以开始下一批次
+     *
+     * @param timeout 最长等待时间，单位秒
+     * @return true 项目已经运行
+     */
+    public boolean waitRunning(int timeout) {
+        if (this.afterOpt == AfterOpt.No) {
+            // 分发后没有重启项目
+            return true;
+        }
+        RunMode runMode = this.projectRunMode();
+        if (runMode == RunMode.File || runMode == RunMode.Link) {
+            // 没有进程的项目
+            return true;
+        }
+        long endTime = SystemClock.now() + TimeUnit.SECONDS.toMillis(timeout);
+        do {
+            try {
+                JsonMessage<JSONObject> jsonMessage = NodeForward.request(this.nodeModel, NodeUrl.Manage_GetProjectStatus, "id", this.outGivingNodeProject.getProjectId());
+                JSONObject data = jsonMessage.getData();
+                // 自定义项目的状态脚本不一定能返回进程号，查询状态成功即可
+                if (jsonMessage.success() && data != null && (runMode == RunMode.Dsl || data.getIntValue("pId") > 0)) {
+                    return true;
+                }
+            } catch (Exception e) {
+                log.debug(I18nMessageUtil.get("i18n.query_project_status_failure.b6a2"), this.outGivingNodeProject.getProjectId(), e.getMessage());
+            }
+            ThreadUtil.sleep(1, TimeUnit.SECONDS);
+        } while (SystemClock.now() < endTime);
+        String msg = StrUtil.format(I18nMessageUtil.get("i18n.project_not_running_after_distribute.5c1e"), timeout);
+        this.updateStatus(this.outGivingId, OutGivingNodeProject.Status.Fail, msg);
+        return false;
+    }
+
+    /**
+     * 查询节点中项目的运行方式
+     *
+     * @return 查询失败返回 null
+     */
+    private RunMode projectRunMode() {
+        try {
+            JsonMessage<JSONObject> jsonMessage = NodeForward.request(this.nodeModel, NodeUrl.Manage_GetProjectItem, "id", this.outGivingNodeProject.getProjectId());
+            JSONObject data = jsonMessage.getData();
+            if (jsonMessage.success() && data != null) {
+                return EnumUtil.fromString(RunMode.class, data.getString("runMode"), null);
+            }
+        } catch (Exception e) {
+            log.debug(I18nMessageUtil.get("i18n.query_project_status_failure.b6a2"), this.outGivingNodeProject.getProjectId(), e.getMessage());
+        }
+        return null;
+    }
+
     /**
      * 更新状态
      *
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.outgiving;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.io.resource.BytesResource;
+import cn.hutool.core.map.SafeConcurrentHashMap;
+import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.keepbx.jpom.model.JsonMessage;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.TypeReference;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.forward.NodeForward;
+import org.dromara.jpom.common.forward.NodeUrl;
+import org.dromara.jpom.common.forward.ShardingDigest;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.common.i18n.I18nThreadUtil;
+import org.dromara.jpom.configuration.NodeConfig;
+import org.dromara.jpom.model.data.NodeModel;
+import org.dromara.jpom.model.outgiving.OutGivingNodeProject;
+import org.dromara.jpom.transport.*;
+import org.dromara.jpom.util.LogRecorder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.*;
+import java.util.concurrent.Future;
+
+/**
+ * 分发文件中继转发（树形扩散）
+ * <p>
+ * 服务端只上传给少量种子节点，种子节点校验、保存分片后转发给下游节点，下游节点继续转发。
+ * 中继只负责将分片预先保存到每个节点，后续的分片上传会跳过已经存在的分片直接合并，中继失败的分片由服务端补传
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class OutGivingRelay {
+
+    private static final TypeReference<JsonMessage<JSONObject>> TYPE_REFERENCE = new TypeReference<JsonMessage<JSONObject>>() {
+    };
+
+    private final List<OutGivingItemRun> itemRuns;
+    private final File file;
+    private final String fileName;
+    private final ShardingDigest shardingDigest;
+    private final NodeConfig nodeConfig;
+    private final LogRecorder logRecorder;
+    private final TransportServer transportServer;
+
+    public OutGivingRelay(List<OutGivingItemRun> itemRuns, File file, String fileName, ShardingDigest shardingDigest, NodeConfig nodeConfig, LogRecorder logRecorder) {
+        this.itemRuns = itemRuns;
+        this.file = file;
+        this.fileName = StrUtil.emptyToDefault(fileName, file.getName());
+        this.shardingDigest = shardingDigest;
+        this.nodeConfig = nodeConfig;
+        this.logRecorder = logRecorder;
+        this.transportServer = TransportServerFactory.get();
+    }
+
+    /**
+     * 中继转发所有分片
+     *
+     * @return 成功接收所有分片的节点数
+     */
+    public int relay() {
+        List<RelayNode> relayNodes = this.relayNodes();
+        int seeds = nodeConfig.getOutGivingRelaySeeds();
+        if (relayNodes.size() <= seeds) {
+            // 节点数不超过种子节点数，中继没有意义
+            return 0;
+        }
+        int fanOut = nodeConfig.getOutGivingRelayFanOut();
+        // 种子节点的下游树，以及每棵树包含的节点
+        List<JSONArray> seedChildren = new ArrayList<>(seeds);
+        List<List<String>> seedKeys = new ArrayList<>(seeds);
+        for (int i = 0; i < seeds; i++) {
+            List<String> keys = new ArrayList<>();
+            keys.add(relayNodes.get(i).key);
+            seedChildren.add(this.children(relayNodes, i, seeds, fanOut, keys));
+            seedKeys.add(keys);
+        }
+        Optional.ofNullable(logRecorder).ifPresent(logRecorder -> logRecorder.system(I18nMessageUtil.get("i18n.distribute_relay_start.0d5b"), relayNodes.size(), seeds, fanOut));
+        Set<String> failed = Collections.newSetFromMap(new SafeConcurrentHashMap<>());
+        int chunkSize = shardingDigest.getChunkSize();
+        String[] chunkMd5 = shardingDigest.getChunkMd5();
+        int total = chunkMd5.length;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            byte[] buffer = new byte[chunkSize];
+            for (int i = 0; i < total && failed.size() < relayNodes.size(); i++) {
+                int size = (int) Math.min(chunkSize, shardingDigest.getLength() - (long) i * chunkSize);
+                randomAccessFile.seek((long) i * chunkSize);
+                randomAccessFile.readFully(buffer, 0, size);
+                byte[] bytes = size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+                // 同一个分片同时发送给所有种子节点
+                List<Future<?>> futures = new ArrayList<>(seeds);
+                for (int j = 0; j < seeds; j++) {
+                    int seedIndex = j;
+                    int index = i;
+                    futures.add(I18nThreadUtil.execAsync(() -> this.sendSeed(relayNodes.get(seedIndex), seedChildren.get(seedIndex), seedKeys.get(seedIndex), bytes, index, total, failed)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.distribute_relay_failure.64e9"), e.getMessage());
+            return 0;
+        }
+        int success = relayNodes.size() - failed.size();
+        Optional.ofNullable(logRecorder).ifPresent(logRecorder -> logRecorder.system(I18nMessageUtil.get("i18n.distribute_relay_done.b7c0"), success, relayNodes.size()));
+        return success;
+    }
+
+    /**
+     * 发送分片给种子节点
+     *
+     * @param seed     种子节点
+     * @param children 种子节点的下游
+     * @param keys     种子节点以及下游的所有节点
+     * @param bytes    分片
+     * @param index    分片序号
+     * @param total    分片总数
+     * @param failed   失败的节点
+     */
+    private void sendSeed(RelayNode seed, JSONArray children, List<String> keys, byte[] bytes, int index, int total, Set<String> failed) {
+        if (failed.containsAll(keys)) {
+            // 整棵树都已经失败
+            return;
+        }
+        JSONObject data = new JSONObject();
+        data.put("file", new BytesResource(bytes, fileName + StrUtil.DOT + index));
+        data.put("nowSlice", index);
+        data.put("totalSlice", total);
+        data.put("sliceMd5", shardingDigest.getChunkMd5()[index]);
+        data.put("fileSumMd5", shardingDigest.getFileMd5());
+        data.put("sliceIds", CollUtil.join(seed.sliceIds, StrUtil.COMMA));
+        data.put("relayKey", seed.key);
+        data.put("relayTargets", children.toString());
+        try {
+            JsonMessage<JSONObject> message = transportServer.executeToType(seed.nodeInfo, seed.urlItem, data, TYPE_REFERENCE);
+            if (message.success()) {
+                Optional.ofNullable(message.getData()).ifPresent(result -> result.forEach((key, value) -> {
+                    if (!Convert.toBool(value, false)) {
+                        failed.add(key);
+                    }
+                }));
+                return;
+            }
+            log.warn(I18nMessageUtil.get("i18n.distribute_relay_seed_failure.2a71"), seed.nodeInfo.name(), index, message);
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.distribute_relay_seed_failure.2a71"), seed.nodeInfo.name(), index, e.getMessage());
+        }
+        // 种子节点失败，下游都没有收到分片
+        failed.addAll(keys);
+    }
+
+    /**
+     * 按照节点合并（同一个节点的多个项目只传输一次分片）
+     *
+     * @return 支持中继的节点
+     */
+    private List<RelayNode> relayNodes() {
+        int chunkSize = shardingDigest.getChunkSize();
+        Map<String, RelayNode> relayNodeMap = new LinkedHashMap<>();
+        for (OutGivingItemRun itemRun : itemRuns) {
+            NodeModel nodeModel = itemRun.getNodeModel();
+            OutGivingNodeProject outGivingNodeProject = itemRun.getOutGivingNodeProject();
+            if (nodeModel == null || BooleanUtil.isTrue(outGivingNodeProject.getDisabled())) {
+                continue;
+            }
+            String nodeId = nodeModel.getId();
+            if (!relayNodeMap.containsKey(nodeId)) {
+                relayNodeMap.put(nodeId, this.createRelayNode(nodeModel));
+            }
+            RelayNode relayNode = relayNodeMap.get(nodeId);
+            if (relayNode != null) {
+                relayNode.sliceIds.add(itemRun.sliceId(chunkSize));
+            }
+        }
+        List<RelayNode> list = new ArrayList<>(relayNodeMap.size());
+        for (RelayNode relayNode : relayNodeMap.values()) {
+            if (relayNode != null) {
+                list.add(relayNode);
+            }
+        }
+        return list;
+    }
+
+    private RelayNode createRelayNode(NodeModel nodeModel) {
+        try {
+            INodeInfo nodeInfo = NodeForward.parseNodeInfo(nodeModel);
+            IUrlItem urlItem = NodeForward.parseUrlItem(nodeInfo, nodeModel.getWorkspaceId(), NodeUrl.Manage_File_Relay_Sharding2, DataContentType.FORM_URLENCODED);
+            Map<String, Object> target = transportServer.relayTarget(nodeInfo, urlItem);
+            return target == null ? null : new RelayNode(nodeModel.getId(), nodeInfo, urlItem, target);
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.distribute_relay_node_unsupported.9f12"), nodeModel.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 按照完全树的方式分配下游，种子节点为第一层，第 index 个节点的下游为 seeds + index * fanOut 开始的 fanOut 个节点
+     *
+     * @param relayNodes 所有节点
+     * @param index      当前节点
+     * @param seeds      种子节点数
+     * @param fanOut     每个节点的下游数
+     * @param keys       收集树包含的节点
+     * @return 下游
+     */
+    private JSONArray children(List<RelayNode> relayNodes, int index, int seeds, int fanOut, List<String> keys) {
+        JSONArray array = new JSONArray();
+        int start = seeds + index * fanOut;
+        int end = Math.min(start + fanOut, relayNodes.size());
+        for (int i = start; i < end; i++) {
+            RelayNode relayNode = relayNodes.get(i);
+            keys.add(relayNode.key);
+            JSONObject jsonObject = new JSONObject(relayNode.target);
+            jsonObject.put("key", relayNode.key);
+            jsonObject.put("sliceIds", CollUtil.join(relayNode.sliceIds, StrUtil.COMMA));
+            jsonObject.put("children", this.children(relayNodes, i, seeds, fanOut, keys));
+            array.add(jsonObject);
+        }
+        return array;
+    }
+
+    private static class RelayNode {
+        private final String key;
+        private final INodeInfo nodeInfo;
+        private final IUrlItem urlItem;
+        private final Map<String, Object> target;
+        private final List<String> sliceIds = new ArrayList<>();
+
+        private RelayNode(String key, INodeInfo nodeInfo, IUrlItem urlItem, Map<String, Object> target) {
+            this.key = key;
+            this.nodeInfo = nodeInfo;
+            this.urlItem = urlItem;
+            this.target = target;
+        }
+    }
+}
@@ -30,8 +30,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.Const;
 import org.dromara.jpom.common.forward.NodeForward;
 import org.dromara.jpom.common.forward.NodeUrl;
+import org.dromara.jpom.common.forward.ShardingDigest;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.common.i18n.I18nThreadUtil;
+import org.dromara.jpom.configuration.NodeConfig;
 import org.dromara.jpom.model.AfterOpt;
 import org.dromara.jpom.model.data.NodeModel;
 import org.dromara.jpom.model.log.OutGivingLog;
@@ -41,6 +43,7 @@ import org.dromara.jpom.model.user.UserModel;
 import org.dromara.jpom.plugin.PluginFactory;
 import org.dromara.jpom.service.outgiving.DbOutGivingLogService;
 import org.dromara.jpom.service.outgiving.OutGivingServer;
+import org.dromara.jpom.system.ServerConfig;
 import org.dromara.jpom.util.LogRecorder;
 import org.dromara.jpom.util.StrictSyncFinisher;
 import org.dromara.jpom.util.SyncFinisherUtil;
@@ -53,7 +56,9 @@ import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -181,54 +186,81 @@ public class OutGivingRun {
         List<OutGivingNodeProject> outGivingNodeProjects = item.outGivingNodeProjectList(select);
         Assert.notEmpty(outGivingNodeProjects, I18nMessageUtil.get("i18n.no_distribution_project.d4d1"));
         int projectSize = outGivingNodeProjects.size();
-        final List<OutGivingNodeProject.Status> statusList = new ArrayList<>(projectSize);
+        final List<OutGivingNodeProject.Status> statusList = Collections.synchronizedList(new ArrayList<>(projectSize));
+        NodeConfig nodeConfig = SpringUtil.getBean(ServerConfig.class).getNode();
+        int concurrent = Math.min(nodeConfig.getOutGivingConcurrent(), projectSize);
+        // 分发文件只读取、计算一次签名，所有节点共用（开始分发前计算）
+        AtomicReference<ShardingDigest> shardingDigest = new AtomicReference<>();
+        boolean order = afterOpt == AfterOpt.Order_Restart || afterOpt == AfterOpt.Order_Must_Restart;
+        // 截取睡眠时间
+        int sleepTime = ObjectUtil.defaultIfNull(item.getIntervalTime(), 10);
+        List<OutGivingItemRun> itemRuns = outGivingNodeProjects.stream()
+            .map(outGivingNodeProject -> {
+                OutGivingItemRun outGivingItemRun = new OutGivingItemRun(item, outGivingNodeProject, file, unzip, order ? sleepTime : null);
+                outGivingItemRun.setStripComponents(stripComponents);
+                outGivingItemRun.setFileName(fileName);
+                return outGivingItemRun;
+            })
+            .collect(Collectors.toList());
         // 开启线程
-        if (afterOpt == AfterOpt.Order_Restart || afterOpt == AfterOpt.Order_Must_Restart) {
+        if (order) {
             syncFinisher = SyncFinisherUtil.create("outgiving:" + id, 1);
             //new StrictSyncFinisher(1, 1);
             syncFinisher.addWorker(() -> {
                 try {
-                    // 截取睡眠时间
-                    int sleepTime = ObjectUtil.defaultIfNull(item.getIntervalTime(), 10);
+                    int batchSize = this.batchSize(nodeConfig.getOutGivingBatchPercent(), projectSize);
+                    int batchCount = (projectSize + batchSize - 1) / batchSize;
                     //
-                    int nowIndex;
-                    for (nowIndex = 0; nowIndex < outGivingNodeProjects.size(); nowIndex++) {
-                        final OutGivingNodeProject outGivingNodeProject = outGivingNodeProjects.get(nowIndex);
-                        final OutGivingItemRun outGivingRun = new OutGivingItemRun(item, outGivingNodeProject, file, unzip, sleepTime);
-                        outGivingRun.setStripComponents(stripComponents);
-                        outGivingRun.setFileName(fileName);
-                        OutGivingNodeProject.Status status = outGivingRun.call();
-                        if (status != OutGivingNodeProject.Status.Ok) {
-                            if (afterOpt == AfterOpt.Order_Must_Restart) {
-                                // 完整重启，不再继续剩余的节点项目
-                                break;
+                    int nowIndex = 0;
+                    for (int batch = 1; nowIndex < projectSize; batch++) {
+                        List<OutGivingItemRun> batchList = CollUtil.sub(itemRuns, nowIndex, nowIndex + batchSize);
+                        nowIndex += batchList.size();
+                        int finalBatch = batch;
+                        Optional.ofNullable(logRecorder).ifPresent(logRecorder -> logRecorder.system(I18nMessageUtil.get("i18n.distribute_batch_start.7e3a"), finalBatch, batchCount, batchList.size()));
+                        List<OutGivingNodeProject.Status> batchStatus = this.runBatch(batchList, Math.min(concurrent, batchList.size()), outGivingRun -> {
+                            outGivingRun.setShardingDigest(shardingDigest.get());
+                            OutGivingNodeProject.Status status = outGivingRun.call();
+                            if (status == OutGivingNodeProject.Status.Ok && nodeConfig.isOutGivingHealthCheck()) {
+                                // 等待项目正常运行后再开始下一批次
+                                status = outGivingRun.waitRunning(sleepTime) ? status : OutGivingNodeProject.Status.Fail;
                             }
+                            return status;
+                        });
+                        statusList.addAll(batchStatus);
+                        for (OutGivingItemRun outGivingRun : batchList) {
+                            // 删除标记 log
+                            removeLogId(id, outGivingRun.getOutGivingNodeProject());
+                        }
+                        this.logProgress(statusList.size(), projectSize);
+                        boolean allOk = batchStatus.stream().allMatch(status -> status == OutGivingNodeProject.Status.Ok);
+                        if (!allOk && afterOpt == AfterOpt.Order_Must_Restart) {
+                            // 完整重启，不再继续剩余的节点项目
+                            break;
+                        }
+                        if (!nodeConfig.isOutGivingHealthCheck() && nowIndex < projectSize) {
+                            // 休眠x秒 等待之前项目正常启动
+                            ThreadUtil.sleep(sleepTime, TimeUnit.SECONDS);
                         }
-                        statusList.add(status);
-                        // 删除标记 log
-                        removeLogId(id, outGivingNodeProject);
-                        // 休眠x秒 等待之前项目正常启动
-                        ThreadUtil.sleep(sleepTime, TimeUnit.SECONDS);
                     }
                     // 取消后面的分发
-                    List<OutGivingNodeProject> cancelList = CollUtil.sub(outGivingNodeProjects, nowIndex + 1, outGivingNodeProjects.size());
+                    List<OutGivingNodeProject> cancelList = CollUtil.sub(outGivingNodeProjects, nowIndex, outGivingNodeProjects.size());
                     systemCancel(id, cancelList);
                 } catch (Exception e) {
                     log.error(I18nMessageUtil.get("i18n.distribute_exception_with_detail.28fe"), id, e);
                 }
             });
         } else if (afterOpt == AfterOpt.Restart || afterOpt == AfterOpt.No) {
-            syncFinisher = SyncFinisherUtil.create("outgiving:" + id, projectSize);
+            // 限制同时上传的节点数
+            syncFinisher = SyncFinisherUtil.create("outgiving:" + id, concurrent, projectSize);
 
-            for (final OutGivingNodeProject outGivingNodeProject : outGivingNodeProjects) {
-                final OutGivingItemRun outGivingItemRun = new OutGivingItemRun(item, outGivingNodeProject, file, unzip, null);
-                outGivingItemRun.setStripComponents(stripComponents);
-                outGivingItemRun.setFileName(fileName);
+            for (final OutGivingItemRun outGivingItemRun : itemRuns) {
                 syncFinisher.addWorker(() -> {
                     try {
+                        outGivingItemRun.setShardingDigest(shardingDigest.get());
                         statusList.add(outGivingItemRun.call());
                         // 删除标记 log
-                        removeLogId(id, outGivingNodeProject);
+                        removeLogId(id, outGivingItemRun.getOutGivingNodeProject());
+                        this.logProgress(statusList.size(), projectSize);
                     } catch (Exception e) {
                         log.error(I18nMessageUtil.get("i18n.distribute_exception.da82"), e);
                     }
@@ -242,17 +274,99 @@ public class OutGivingRun {
         // 更新维准备中
         allPrepare(userId, item, outGivingNodeProjects);
         // 异步执行
-        Callable<OutGivingModel.Status> callable = createRunnable(syncFinisher, statusList, projectSize);
+        Callable<OutGivingModel.Status> callable = createRunnable(syncFinisher, itemRuns, shardingDigest, statusList, projectSize);
         return I18nThreadUtil.execAsync(callable);
     }
 
-    private Callable<OutGivingModel.Status> createRunnable(StrictSyncFinisher syncFinisher,
+    /**
+     * 计算分发文件的签名，失败时由每个节点上传时自行计算
+     *
+     * @return 签名
+     */
+    private ShardingDigest shardingDigest() {
+        try {
+            return NodeForward.shardingDigest(file);
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.distribute_file_digest_failure.b2f4"), file.getAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 每一批次的节点数
+     *
+     * @param batchPercent 批次比例
+     * @param projectSize  总节点数
+     * @return 节点数
+     */
+    private int batchSize(int batchPercent, int projectSize) {
+        if (batchPercent <= 0) {
+            return 1;
+        }
+        return Math.max((int) Math.ceil(projectSize * Math.min(batchPercent, 100) / 100D), 1);
+    }
+
+    /**
+     * 并发执行一个批次，等待批次内所有节点完成
+     *
+     * @param batchList  批次内的节点项目
+     * @param concurrent 并发数
+     * @param function   执行
+     * @return 每个节点项目的结果
+     */
+    private List<OutGivingNodeProject.Status> runBatch(List<OutGivingItemRun> batchList, int concurrent,
+                                                       Function<OutGivingItemRun, OutGivingNodeProject.Status> function) {
+        OutGivingNodeProject.Status[] statuses = new OutGivingNodeProject.Status[batchList.size()];
+        StrictSyncFinisher batchFinisher = new StrictSyncFinisher(concurrent, batchList.size());
+        try {
+            for (int i = 0; i < batchList.size(); i++) {
+                int index = i;
+                batchFinisher.addWorker(() -> {
+                    try {
+                        statuses[index] = function.apply(batchList.get(index));
+                    } catch (Exception e) {
+                        log.error(I18nMessageUtil.get("i18n.distribute_exception.da82"), e);
+                        statuses[index] = OutGivingNodeProject.Status.Fail;
+                    }
+                });
+            }
+            batchFinisher.start();
+        } catch (RuntimeException e) {
+            // 取消分发，结束批次内的上传
+            batchFinisher.stopNow();
+            throw e;
+        } finally {
+            batchFinisher.stop();
+        }
+        return Arrays.stream(statuses)
+            .map(status -> ObjectUtil.defaultIfNull(status, OutGivingNodeProject.Status.Fail))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 输出分发进度
+     *
+     * @param doneCount   已完成数
+     * @param projectSize 总数
+     */
+    private void logProgress(int doneCount, int projectSize) {
+        Optional.ofNullable(logRecorder).ifPresent(logRecorder -> logRecorder.system(I18nMessageUtil.get("i18n.distribute_progress.3f81"), doneCount, projectSize));
+    }
+
+    private Callable<OutGivingModel.Status> createRunnable(StrictSyncFinisher syncFinisher, List<OutGivingItemRun> itemRuns,
+                                                           AtomicReference<ShardingDigest> shardingDigest,
                                                            List<OutGivingNodeProject.Status> statusList, int projectSize) {
         return () -> {
             OutGivingModel.Status status = null;
             try {
                 // 阻塞执行
                 Optional.ofNullable(logRecorder).ifPresent(logRecorder -> logRecorder.system(I18nMessageUtil.get("i18n.start_distribution_with_count.cdc7"), projectSize));
+                shardingDigest.set(this.shardingDigest());
+                NodeConfig nodeConfig = SpringUtil.getBean(ServerConfig.class).getNode();
+                if (nodeConfig.isOutGivingRelay() && shardingDigest.get() != null) {
+                    // 中继转发预先将分片保存到节点，节点上传时跳过已经存在的分片
+                    new OutGivingRelay(itemRuns, file, fileName, shardingDigest.get(), nodeConfig, logRecorder).relay();
+                }
                 syncFinisher.start();
                 // 更新分发状态
                 String msg;
@@ -441,6 +555,71 @@ public class OutGivingRun {
                                                  Integer sleepTime,
                                                  Boolean closeFirst, int stripComponents,
                                                  BiConsumer<Long, Long> streamProgress) {
+        return fileUpload(file, fileName, levelName, projectId, unzip, afterOpt, nodeModel, clearOld, sleepTime, closeFirst, stripComponents, null, streamProgress);
+    }
+
+    /**
+     * 上传项目文件
+     *
+     * @param file           需要上传的文件
+     * @param projectId      项目id
+     * @param unzip          是否需要解压
+     * @param afterOpt       是否需要重启
+     * @param nodeModel      节点
+     * @param clearOld       清空发布
+     * @param levelName      文件夹层级
+     * @param sleepTime      休眠时间
+     * @param closeFirst     保存项目文件前先关闭项目
+     * @param shardingDigest 预先计算的文件签名
+     * @return json
+     */
+    public static JsonMessage<String> fileUpload(File file,
+                                                 String fileName,
+                                                 String levelName,
+                                                 String projectId,
+                                                 boolean unzip,
+                                                 AfterOpt afterOpt,
+                                                 NodeModel nodeModel,
+                                                 boolean clearOld,
+                                                 Integer sleepTime,
+                                                 Boolean closeFirst, int stripComponents,
+                                                 ShardingDigest shardingDigest,
+                                                 BiConsumer<Long, Long> streamProgress) {
+        JSONObject data = uploadData(levelName, projectId, unzip, afterOpt, clearOld, sleepTime, closeFirst, stripComponents);
+        try {
+            return NodeForward.requestSharding(nodeModel, NodeUrl.Manage_File_Upload_Sharding, data, file,
+                fileName,
+                shardingDigest,
+                sliceData -> {
+                    sliceData.putAll(data);
+                    return NodeForward.request(nodeModel, NodeUrl.Manage_File_Sharding_Merge, sliceData);
+                },
+                streamProgress);
+        } catch (IOException e) {
+            throw Lombok.sneakyThrow(e);
+        }
+
+        //return NodeForward.request(nodeModel, NodeUrl.Manage_File_Upload, data);
+    }
+
+    /**
+     * 上传项目文件的参数（分片上传 id 也由参数计算，需要保持一致）
+     *
+     * @param levelName  文件夹层级
+     * @param projectId  项目id
+     * @param unzip      是否需要解压
+     * @param afterOpt   是否需要重启
+     * @param clearOld   清空发布
+     * @param sleepTime  休眠时间
+     * @param closeFirst 保存项目文件前先关闭项目
+     * @return 参数
+     */
+    static JSONObject uploadData(String levelName, String projectId,
+                                 boolean unzip,
+                                 AfterOpt afterOpt,
+                                 boolean clearOld,
+                                 Integer sleepTime,
+                                 Boolean closeFirst, int stripComponents) {
         JSONObject data = new JSONObject();
         //  data.put("file", file);
         data.put("id", projectId);
@@ -461,18 +640,6 @@ public class OutGivingRun {
             data.put("after", afterOpt.getCode());
         }
         data.put("closeFirst", closeFirst);
-        try {
-            return NodeForward.requestSharding(nodeModel, NodeUrl.Manage_File_Upload_Sharding, data, file,
-                fileName,
-                sliceData -> {
-                    sliceData.putAll(data);
-                    return NodeForward.request(nodeModel, NodeUrl.Manage_File_Sharding_Merge, sliceData);
-                },
-                streamProgress);
-        } catch (IOException e) {
-            throw Lombok.sneakyThrow(e);
-        }
-
-        //return NodeForward.request(nodeModel, NodeUrl.Manage_File_Upload, data);
+        return data;
     }
 }
@@ -32,6 +32,8 @@ import org.dromara.jpom.model.enums.BackupTypeEnum;
 import org.dromara.jpom.model.user.UserModel;
 import org.dromara.jpom.plugin.PluginFactory;
 import org.dromara.jpom.service.h2db.BaseDbService;
+import org.dromara.jpom.service.user.UserBindWorkspaceService;
+import org.dromara.jpom.service.user.UserService;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
@@ -235,6 +237,9 @@ public class BackupInfoService extends BaseDbService<BackupInfoModel> implements
             Map<String, Object> map = new HashMap<>(10);
             map.put("backupSqlPath", backupSqlPath);
             plugin.execute("restoreBackupSql", map);
+            // 还原数据没有经过 service，需要让用户和权限的缓存失效
+            UserService.userChanged();
+            UserBindWorkspaceService.permissionChanged();
             // h2BackupService.restoreBackupSql(backupSqlPath);
             long endTs = System.currentTimeMillis();
             log.debug("restore H2 Database backup...success...cast {} ms", endTs - startTs);
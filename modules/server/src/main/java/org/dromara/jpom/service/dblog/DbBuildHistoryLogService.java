@@ -181,6 +181,11 @@ public class DbBuildHistoryLogService extends BaseWorkspaceService<BuildHistoryL
             });
     }
 
+    @Override
+    protected boolean seekPage() {
+        return true;
+    }
+
     @Override
     protected String[] clearTimeColumns() {
         return super.clearTimeColumns();
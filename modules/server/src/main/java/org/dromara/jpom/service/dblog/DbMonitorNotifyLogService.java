@@ -37,6 +37,11 @@ public class DbMonitorNotifyLogService extends BaseWorkspaceService<MonitorNotif
         }
     }
 
+    @Override
+    protected boolean seekPage() {
+        return true;
+    }
+
     @Override
     protected String[] clearTimeColumns() {
         return new String[]{"createTime", "createTimeMillis"};
@@ -300,6 +300,11 @@ public class DbUserOperateLogService extends BaseWorkspaceService<UserOperateLog
         // 忽略检查
     }
 
+    @Override
+    protected boolean seekPage() {
+        return true;
+    }
+
     @Override
     protected String[] clearTimeColumns() {
         return new String[]{"optTime", "createTimeMillis"};
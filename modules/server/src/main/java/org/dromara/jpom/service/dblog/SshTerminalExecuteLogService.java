@@ -33,6 +33,11 @@ import java.util.stream.Collectors;
 @Service
 public class SshTerminalExecuteLogService extends BaseWorkspaceService<SshTerminalExecuteLog> {
 
+    @Override
+    protected boolean seekPage() {
+        return true;
+    }
+
     @Override
     protected String[] clearTimeColumns() {
         return new String[]{"createTimeMillis"};
@@ -9,6 +9,8 @@
  */
 package org.dromara.jpom.service.h2db;
 
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DatePattern;
@@ -20,6 +22,7 @@ import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
 import cn.hutool.db.Entity;
 import cn.hutool.db.Page;
+import cn.hutool.db.sql.Condition;
 import cn.hutool.db.sql.Direction;
 import cn.hutool.db.sql.Order;
 import cn.hutool.extra.servlet.ServletUtil;
@@ -40,6 +43,7 @@ import org.springframework.util.Assert;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -65,6 +69,10 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
      * 新版本分组字段
      */
     private final boolean canGroupName;
+    /**
+     * 默认可以使用游标分页的排序字段，保存数据时都会填充
+     */
+    private static final Set<String> SEEK_FIELDS = CollUtil.newHashSet(ID_STR, "createTimeMillis", "modifyTimeMillis");
     /**
      * 默认排序规则
      */
@@ -74,6 +82,15 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
         new Order("id", Direction.DESC)
     };
 
+    /**
+     * 游标分页每页最后一条数据的游标
+     */
+    private final Cache<String, String> seekCursorCache = CacheUtil.newLRUCache(500, TimeUnit.MINUTES.toMillis(10));
+    /**
+     * 游标分页的总数缓存 [数据版本, 统计时间, 总数]
+     */
+    private final Cache<String, long[]> seekCountCache = CacheUtil.newLRUCache(100);
+
     public BaseDbService() {
         super();
         this.canGroup = ReflectUtil.hasField(this.tClass, "group");
@@ -161,6 +178,40 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
         }
     }
 
+    /**
+     * 批量先尝试更新，不存在的数据批量插入
+     *
+     * @param list 数据（数量需要控制在 in 查询的限制内）
+     */
+    public void upsert(Collection<T> list) {
+        if (CollUtil.isEmpty(list)) {
+            return;
+        }
+        List<String> ids = list.stream().map(BaseDbModel::getId).collect(Collectors.toList());
+        List<T> existsList = this.getByKey(ids, false, entity -> entity.setFieldNames(ID_STR));
+        Set<String> exists = Optional.ofNullable(existsList)
+            .map(ts -> ts.stream().map(BaseDbModel::getId).collect(Collectors.toSet()))
+            .orElse(Collections.emptySet());
+        List<T> insertList = new ArrayList<>();
+        List<Entity> updateList = new ArrayList<>();
+        for (T t : list) {
+            if (!exists.contains(t.getId())) {
+                insertList.add(t);
+                continue;
+            }
+            t.setModifyTimeMillis(ObjectUtil.defaultIfNull(t.getModifyTimeMillis(), SystemClock.now()));
+            Entity entity = this.dataBeanToEntity(t);
+            for (String s : new String[]{"createTimeMillis", "createUser"}) {
+                entity.remove(DialectUtil.wrapField(s));
+            }
+            updateList.add(entity);
+        }
+        super.updateBatchDb(updateList, ID_STR);
+        if (!insertList.isEmpty()) {
+            this.insert(insertList);
+        }
+    }
+
     public void insert(Collection<T> t) {
         // def create time
         t.forEach(this::fillInsert);
@@ -428,8 +479,7 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
     public List<T> queryList(Entity where, int count, Order... orders) {
         Page page = new Page(1, count);
         page.addOrder(orders);
-        PageResultDto<T> tPageResultDto = this.listPage(where, page);
-        return tPageResultDto.getResult();
+        return this.listPageOnlyResult(where, page);
     }
 
 
@@ -452,8 +502,22 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
      * @return 结果
      */
     public List<T> listPageOnlyResult(Entity where, Page page) {
-        PageResultDto<T> pageResultDto = this.listPage(where, page);
-        return pageResultDto.getResult();
+        return this.listPageOnlyResult(where, page, true);
+    }
+
+    /**
+     * 分页查询（不查询总数）
+     *
+     * @param where 条件
+     * @param page  分页
+     * @param fill  是否填充
+     * @return 结果
+     */
+    public List<T> listPageOnlyResult(Entity where, Page page, boolean fill) {
+        if (ArrayUtil.isEmpty(page.getOrders())) {
+            page.addOrder(this.defaultOrders());
+        }
+        return this.listPageNoCountDb(where, page, fill);
     }
 
     /**
@@ -583,6 +647,7 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
     public PageResultDto<T> listPage(Map<String, String> paramMap, boolean fill) {
         String orderField = paramMap.get("order_field");
         String order = paramMap.get("order");
+        String cursor = paramMap.remove("cursor");
         //
         Page pageReq = this.parsePage(paramMap);
         Entity where = Entity.create();
@@ -647,9 +712,138 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
             orderField = StrUtil.removeAll(orderField, "%");
             pageReq.addOrder(new Order(DialectUtil.wrapField(orderField), StrUtil.equalsIgnoreCase(order, "ascend") ? Direction.ASC : Direction.DESC));
         }
+        if (this.seekPage() || StrUtil.isNotEmpty(cursor)) {
+            return this.listPageSeek(where, pageReq, cursor, fill);
+        }
         return this.listPage(where, pageReq, fill);
     }
 
+    /**
+     * 是否默认使用游标分页（数据量大的日志表）
+     *
+     * @return true 游标分页
+     */
+    protected boolean seekPage() {
+        return false;
+    }
+
+    /**
+     * 可以使用游标分页的排序字段，字段的值不能为 NULL（NULL 不满足游标的比较条件，会在后续页中丢失）
+     *
+     * @return 字段名
+     */
+    protected Set<String> seekFields() {
+        return SEEK_FIELDS;
+    }
+
+    /**
+     * 游标分页，按照第一个排序字段 + id 定位下一页的起点，避免大偏移量和每次查询总数
+     * <p>
+     * 没有传入游标时使用上一页缓存的游标，缓存不存在（跳页）时退化为偏移查询。
+     * 排序字段不在 {@link #seekFields()} 中时使用普通分页
+     *
+     * @param where  条件
+     * @param page   分页
+     * @param cursor 游标（排序字段值,id）
+     * @param fill   是否填充
+     * @return 结果
+     */
+    public PageResultDto<T> listPageSeek(Entity where, Page page, String cursor, boolean fill) {
+        if (ArrayUtil.isEmpty(page.getOrders())) {
+            page.addOrder(this.defaultOrders());
+        }
+        Order order = page.getOrders()[0];
+        String field = StrUtil.removeAll(order.getField(), '`', '"');
+        if (!this.seekFields().contains(field)) {
+            // 排序字段可能存在 NULL 值
+            return this.listPage(where, page, fill);
+        }
+        boolean desc = order.getDirection() != Direction.ASC;
+        String cursorKey = StrUtil.format("{}:{}:{}", where, order, page.getPageSize());
+        if (StrUtil.isEmpty(cursor) && page.getPageNumber() > 1) {
+            cursor = seekCursorCache.get(cursorKey + StrUtil.COLON + (page.getPageNumber() - 1));
+        }
+        List<T> list;
+        if (page.getPageNumber() > 1 && StrUtil.isEmpty(cursor)) {
+            // 跳页，没有游标
+            Page offsetPage = new Page(page.getPageNumber(), page.getPageSize());
+            offsetPage.addOrder(new Order(order.getField(), order.getDirection()), new Order(ID_STR, order.getDirection()));
+            list = this.listPageNoCountDb(where.clone(), offsetPage, fill);
+        } else {
+            list = this.seekList(where, order, field, desc, cursor, page.getPageSize(), fill);
+        }
+        PageResultDto<T> pageResultDto = new PageResultDto<>(page.getPageNumber(), page.getPageSize(), this.cacheCount(where));
+        pageResultDto.setResult(list);
+        T last = CollUtil.getLast(list);
+        Object lastValue = last == null ? null : ReflectUtil.getFieldValue(last, field);
+        if (lastValue != null && list.size() >= page.getPageSize()) {
+            String nextCursor = StrUtil.format("{},{}", lastValue, last.getId());
+            pageResultDto.setNextCursor(nextCursor);
+            seekCursorCache.put(cursorKey + StrUtil.COLON + page.getPageNumber(), nextCursor);
+        }
+        return pageResultDto;
+    }
+
+    private List<T> seekList(Entity where, Order order, String field, boolean desc, String cursor, int size, boolean fill) {
+        String compare = desc ? "<" : ">";
+        Page page = new Page(1, size);
+        if (StrUtil.equals(field, ID_STR)) {
+            Entity entity = where.clone();
+            if (StrUtil.isNotEmpty(cursor)) {
+                entity.set("seek:id", new Condition(ID_STR, compare, StrUtil.subAfter(cursor, StrUtil.COMMA, true)));
+            }
+            page.addOrder(new Order(ID_STR, order.getDirection()));
+            return this.listPageNoCountDb(entity, page, fill);
+        }
+        page.addOrder(new Order(order.getField(), order.getDirection()), new Order(ID_STR, order.getDirection()));
+        if (StrUtil.isEmpty(cursor)) {
+            return this.listPageNoCountDb(where.clone(), page, fill);
+        }
+        String cursorValue = StrUtil.subBefore(cursor, StrUtil.COMMA, true);
+        String cursorId = StrUtil.subAfter(cursor, StrUtil.COMMA, true);
+        Object value = NumberUtil.isNumber(cursorValue) ? NumberUtil.parseNumber(cursorValue) : cursorValue;
+        List<T> list = new ArrayList<>(size);
+        {
+            // 排序值相同，id 之后的数据
+            Entity entity = where.clone();
+            entity.set("seek:value", new Condition(field, "=", value));
+            entity.set("seek:id", new Condition(ID_STR, compare, cursorId));
+            Page samePage = new Page(1, size);
+            samePage.addOrder(new Order(ID_STR, order.getDirection()));
+            list.addAll(this.listPageNoCountDb(entity, samePage, fill));
+        }
+        if (list.size() < size) {
+            Entity entity = where.clone();
+            entity.set("seek:value", new Condition(field, compare, value));
+            Page nextPage = new Page(1, size - list.size());
+            nextPage.addOrder(page.getOrders());
+            list.addAll(this.listPageNoCountDb(entity, nextPage, fill));
+        }
+        return list;
+    }
+
+    /**
+     * 缓存的总数，数据没有变化时使用缓存，有变化时在短时间内使用近似值
+     *
+     * @param where 条件
+     * @return 总数
+     */
+    private int cacheCount(Entity where) {
+        String key = where.toString();
+        long version = this.getDataVersion();
+        long now = SystemClock.now();
+        long[] cache = seekCountCache.get(key);
+        if (cache != null) {
+            long age = now - cache[1];
+            if ((cache[0] == version && age < TimeUnit.MINUTES.toMillis(5)) || age < TimeUnit.SECONDS.toMillis(10)) {
+                return (int) cache[2];
+            }
+        }
+        long count = this.count(where.clone());
+        seekCountCache.put(key, new long[]{version, now, count});
+        return (int) count;
+    }
+
     public PageResultDto<T> listPage(Entity where, Page page, boolean fill) {
         if (ArrayUtil.isEmpty(page.getOrders())) {
             page.addOrder(this.defaultOrders());
@@ -771,6 +965,8 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
 
     /**
      * 查询指定字段降序 指定条数对最后一个值
+     * <p>
+     * 第 N 大的值只能通过偏移查询获取，这里只查询时间字段并且不统计总数，偏移量为保留的数量
      *
      * @param timeColumn 时间字段
      * @param maxCount   最大数量
@@ -783,21 +979,21 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
             // 条件
             whereCon.accept(entity);
         }
+        // 只查询时间字段并且不统计总数
+        entity.setFieldNames(timeColumn);
         Page page = new Page(maxCount, 1);
         page.addOrder(new Order(timeColumn, Direction.DESC));
-        PageResultDto<T> pageResult;
+        List<T> list;
         try {
-            pageResult = this.listPage(entity, page);
-        } catch (java.lang.IllegalStateException illegalStateException) {
-            return 0L;
+            list = this.listPageNoCountDb(entity, page, false);
         } catch (Exception e) {
             log.error(I18nMessageUtil.get("i18n.query_data_error.45e7"), e);
             return 0L;
         }
-        if (pageResult.isEmpty()) {
+        T entity1 = CollUtil.getFirst(list);
+        if (entity1 == null) {
             return 0L;
         }
-        T entity1 = pageResult.get(0);
         Object fieldValue = ReflectUtil.getFieldValue(entity1, timeColumn);
         return Convert.toLong(fieldValue, 0L);
     }
@@ -827,17 +1023,45 @@ public abstract class BaseDbService<T extends BaseDbModel> extends BaseDbCommonS
             while (true) {
                 Page page = new Page(1, 50);
                 page.addOrder(new Order(timeClo, Direction.DESC));
-                PageResultDto<T> pageResult = this.listPage(entity, page);
-                if (pageResult.isEmpty()) {
+                List<T> result = this.listPageOnlyResult(entity.clone(), page);
+                if (CollUtil.isEmpty(result)) {
                     return;
                 }
-//                pageResult.each(consumer);
-                List<String> ids = pageResult.getResult().stream().filter(predicate).map(BaseDbModel::getId).collect(Collectors.toList());
+                List<String> ids = result.stream().filter(predicate).map(BaseDbModel::getId).collect(Collectors.toList());
                 this.delByKey(ids, null);
             }
         });
     }
 
+    /**
+     * 按时间分段删除早于指定时间的数据，避免一次删除大量数据长时间占用数据库
+     *
+     * @param timeColumn  时间字段
+     * @param time        删除早于此时间的数据
+     * @param chunkMillis 每次删除的时间跨度
+     * @return 删除的行数
+     */
+    protected int delBeforeTimeByChunk(String timeColumn, long time, long chunkMillis) {
+        Entity entity = Entity.create(super.getTableName());
+        entity.set(timeColumn, "< " + time);
+        Page page = new Page(1, 1);
+        page.addOrder(new Order(timeColumn, Direction.ASC));
+        List<T> first = this.listPageOnlyResult(entity, page);
+        if (CollUtil.isEmpty(first)) {
+            return 0;
+        }
+        long start = Convert.toLong(ReflectUtil.getFieldValue(first.get(0), timeColumn), time);
+        int count = 0;
+        while (start < time) {
+            long end = Math.min(start + Math.max(chunkMillis, 1), time);
+            Entity where = Entity.create(super.getTableName());
+            where.set(timeColumn, "< " + end);
+            count += super.del(where);
+            start = end;
+        }
+        return count;
+    }
+
     /**
      * 根据 节点和数据ID查询数据
      *
@@ -9,8 +9,11 @@
  */
 package org.dromara.jpom.service.h2db;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.date.SystemClock;
 import cn.hutool.core.lang.Opt;
 import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ObjectUtil;
@@ -18,12 +21,15 @@ import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.db.Entity;
 import cn.hutool.extra.servlet.ServletUtil;
+import cn.keepbx.jpom.model.JsonMessage;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.BaseServerController;
 import org.dromara.jpom.common.Const;
 import org.dromara.jpom.common.ServerConst;
+import org.dromara.jpom.common.forward.NodeForward;
+import org.dromara.jpom.common.forward.NodeUrl;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.exception.AgentAuthorizeException;
 import org.dromara.jpom.exception.AgentException;
@@ -37,6 +43,8 @@ import org.dromara.jpom.service.system.WorkspaceService;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -48,9 +56,21 @@ import java.util.stream.Stream;
 @Slf4j
 public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGlobalOrWorkspaceService<T> {
 
+    /**
+     * 增量同步的情况下强制全量同步的间隔，避免数据库中的数据被其他途径修改后一直不一致
+     */
+    private static final long FULL_SYNC_INTERVAL = TimeUnit.HOURS.toMillis(1);
     protected final NodeService nodeService;
     protected final WorkspaceService workspaceService;
     private final String dataName;
+    /**
+     * 节点最近一次同步的版本信息，key 为节点 id
+     */
+    private final Map<String, SyncRevision> syncRevisionMap = new ConcurrentHashMap<>();
+    /**
+     * 不支持增量查询的节点（旧版本插件端），一段时间内不再尝试
+     */
+    private final TimedCache<String, Boolean> unsupportedChangesNode = CacheUtil.newTimedCache(FULL_SYNC_INTERVAL);
 
     protected BaseNodeService(NodeService nodeService,
                               WorkspaceService workspaceService,
@@ -92,8 +112,9 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGloba
                 }
                 return 0;
             });
+            // 依次同步，避免节点较多时同时发起大量请求
             for (NodeModel nodeModel : list) {
-                this.syncNode(nodeModel);
+                this.syncExecuteNode(nodeModel);
             }
         });
     }
@@ -185,6 +206,8 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGloba
 
     /**
      * 同步执行 同步节点信息
+     * <p>
+     * 节点支持增量查询时只拉取上次同步之后变化的数据，版本标识不一致或者距离上次全量同步超过 {@link #FULL_SYNC_INTERVAL} 时全量同步
      *
      * @param nodeModel 节点信息
      * @return json
@@ -195,118 +218,249 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGloba
             log.debug(I18nMessageUtil.get("i18n.node_not_enabled.10ef"), nodeModelName);
             return I18nMessageUtil.get("i18n.node_not_enabled.a14d");
         }
+        String nodeId = nodeModel.getId();
         try {
-            JSONArray jsonArray = this.getLitDataArray(nodeModel);
-            if (CollUtil.isEmpty(jsonArray)) {
-                Entity entity = Entity.create();
-                entity.set("nodeId", nodeModel.getId());
-                int del = super.del(entity);
-                //
-                log.debug(I18nMessageUtil.get("i18n.node_no_data_pulled.0dae"), nodeModelName, dataName, del);
-                return I18nMessageUtil.get("i18n.node_did_not_pull_anything.8af5") + dataName;
+            SyncRevision syncRevision = syncRevisionMap.get(nodeId);
+            if (syncRevision != null && (SystemClock.now() - syncRevision.fullTime > FULL_SYNC_INTERVAL
+                || !StrUtil.equals(syncRevision.workspaceId, nodeModel.getWorkspaceId()))) {
+                // 超过全量同步间隔或者节点工作空间变化
+                syncRevision = null;
             }
-            // 查询现在存在的项目
-            T where = ReflectUtil.newInstance(this.tClass);
-            // where.setWorkspaceId(nodeModel.getWorkspaceId());
-            where.setNodeId(nodeModel.getId());
-            List<T> cacheAll = super.listByBean(where);
-            cacheAll = ObjectUtil.defaultIfNull(cacheAll, Collections.emptyList());
-            Set<String> needDelete = new HashSet<>();
-            Set<String> cacheIds = cacheAll.stream()
-                .map(BaseNodeModel::dataId)
-                .collect(Collectors.toSet());
-            // 转换数据修改时间
-            List<T> projectInfoModels = jsonArray.stream()
-                .map(o -> {
-                    // modifyTime,createTime
-                    JSONObject jsonObject = (JSONObject) o;
-                    T t = jsonObject.to(tClass);
-                    Opt.ofBlankAble(jsonObject.getString("createTime"))
-                        .map(s -> {
-                            try {
-                                return DateUtil.parse(s);
-                            } catch (Exception e) {
-                                log.warn(I18nMessageUtil.get("i18n.data_creation_time_format_incorrect.7772"), s, jsonObject);
-                                return null;
-                            }
-                        }).ifPresent(s -> t.setCreateTimeMillis(s.getTime()));
-                    //
-                    Opt.ofBlankAble(jsonObject.getString("modifyTime"))
-                        .map(s -> {
-                            try {
-                                return DateUtil.parse(s);
-                            } catch (Exception e) {
-                                log.warn(I18nMessageUtil.get("i18n.data_modification_time_format_incorrect.7ffe"), s, jsonObject);
-                                return null;
-                            }
-                        })
-                        .ifPresent(s -> t.setModifyTimeMillis(s.getTime()));
-                    return t;
-                })
-                .peek(item -> this.fullData(item, nodeModel))
-                // 只保留自己节点的数据
-                .filter(t -> StrUtil.equals(t.getNodeId(), nodeModel.getId()))
-                .filter(item -> {
-                    if (StrUtil.equals(item.getWorkspaceId(), ServerConst.WORKSPACE_GLOBAL)) {
-                        return true;
-                    }
-                    // 检查对应的工作空间 是否存在
-                    return workspaceService.exists(new WorkspaceModel(item.getWorkspaceId()));
-                })
-                .filter(item -> {
-                    if (StrUtil.equals(item.getWorkspaceId(), ServerConst.WORKSPACE_GLOBAL)) {
-                        return true;
-                    }
-                    // 避免重复同步
-                    return StrUtil.equals(nodeModel.getWorkspaceId(), item.getWorkspaceId());
-                })
-                .peek(item -> {
-                    item.setNodeName(nodeModel.getName());
-                    WorkspaceModel workspaceModel = workspaceService.getByKey(nodeModel.getWorkspaceId());
-                    item.setWorkspaceName(Optional.ofNullable(workspaceModel).map(WorkspaceModel::getName).orElse(I18nMessageUtil.get("i18n.data_does_not_exist.b201")));
-                    cacheIds.remove(item.dataId());
-                    // 需要删除相反的工作空间的数据（避免出现一个脚本同步出2条数据的问题）
-                    if (StrUtil.equals(item.getWorkspaceId(), ServerConst.WORKSPACE_GLOBAL)) {
-                        needDelete.add(BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), item.dataId()));
-                    } else {
-                        needDelete.add(BaseNodeModel.fullId(ServerConst.WORKSPACE_GLOBAL, nodeModel.getId(), item.dataId()));
-                    }
-                })
-                .collect(Collectors.toList());
-            // 设置 临时缓存，便于放行检查
-            BaseServerController.resetInfo(UserModel.EMPTY);
-            //
-            projectInfoModels.forEach(BaseNodeService.super::upsert);
-            // 删除项目
-            int delCount = 0;
-            Set<String> strings = cacheIds.stream()
-                .flatMap((Function<String, Stream<String>>) s -> Stream.of(
-                    BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), s),
-                    BaseNodeModel.fullId(ServerConst.WORKSPACE_GLOBAL, nodeModel.getId(), s)))
-                .collect(Collectors.toSet());
-            //
-            needDelete.addAll(strings);
-            if (CollUtil.isNotEmpty(needDelete)) {
-                delCount = super.delByKey(needDelete, null);
+            JSONObject changes = unsupportedChangesNode.containsKey(nodeId) ? null : this.getChangedData(nodeModel,
+                syncRevision == null ? null : syncRevision.epoch,
+                syncRevision == null ? 0 : syncRevision.revision);
+            if (changes == null) {
+                syncRevisionMap.remove(nodeId);
+                return this.syncFullData(nodeModel, this.getLitDataArray(nodeModel));
             }
-            int size = CollUtil.size(projectInfoModels);
-            String template = I18nMessageUtil.get("i18n.physical_node_pull.874e");
-            String format = StrUtil.format(
-                template,
-                nodeModelName, CollUtil.size(jsonArray), dataName,
-                CollUtil.size(cacheAll), dataName,
-                size, dataName,
-                delCount);
-            this.refreshCacheStat(nodeModel.getId(), size);
-            log.debug(format);
-            return format;
+            String epoch = changes.getString("epoch");
+            long revision = changes.getLongValue("revision");
+            String result;
+            long fullTime;
+            if (syncRevision == null || changes.getBooleanValue("full")) {
+                result = this.syncFullData(nodeModel, changes.getJSONArray("items"));
+                fullTime = SystemClock.now();
+            } else {
+                result = this.syncChangedData(nodeModel, changes.getJSONArray("items"), changes.getList("deleted", String.class));
+                fullTime = syncRevision.fullTime;
+            }
+            syncRevisionMap.put(nodeId, new SyncRevision(nodeModel.getWorkspaceId(), epoch, revision, fullTime));
+            return result;
         } catch (Exception e) {
+            syncRevisionMap.remove(nodeId);
             return this.checkException(e, nodeModelName);
         } finally {
             BaseServerController.removeEmpty();
         }
     }
 
+    /**
+     * 全量同步
+     *
+     * @param nodeModel 节点
+     * @param jsonArray 节点的所有数据
+     * @return 同步结果
+     */
+    private String syncFullData(NodeModel nodeModel, JSONArray jsonArray) {
+        String nodeModelName = nodeModel.getName();
+        if (CollUtil.isEmpty(jsonArray)) {
+            Entity entity = Entity.create();
+            entity.set("nodeId", nodeModel.getId());
+            int del = super.del(entity);
+            this.refreshCacheStat(nodeModel.getId(), 0);
+            //
+            log.debug(I18nMessageUtil.get("i18n.node_no_data_pulled.0dae"), nodeModelName, dataName, del);
+            return I18nMessageUtil.get("i18n.node_did_not_pull_anything.8af5") + dataName;
+        }
+        // 查询现在存在的项目
+        T where = ReflectUtil.newInstance(this.tClass);
+        // where.setWorkspaceId(nodeModel.getWorkspaceId());
+        where.setNodeId(nodeModel.getId());
+        List<T> cacheAll = super.listByBean(where);
+        cacheAll = ObjectUtil.defaultIfNull(cacheAll, Collections.emptyList());
+        Set<String> needDelete = new HashSet<>();
+        Set<String> cacheIds = cacheAll.stream()
+            .map(BaseNodeModel::dataId)
+            .collect(Collectors.toSet());
+        List<T> projectInfoModels = this.convertDataArray(jsonArray, nodeModel, needDelete);
+        projectInfoModels.forEach(item -> cacheIds.remove(item.dataId()));
+        // 设置 临时缓存，便于放行检查
+        BaseServerController.resetInfo(UserModel.EMPTY);
+        //
+        this.batchUpsert(projectInfoModels, cacheAll);
+        // 删除项目
+        int delCount = 0;
+        Set<String> strings = cacheIds.stream()
+            .flatMap((Function<String, Stream<String>>) s -> Stream.of(
+                BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), s),
+                BaseNodeModel.fullId(ServerConst.WORKSPACE_GLOBAL, nodeModel.getId(), s)))
+            .collect(Collectors.toSet());
+        //
+        needDelete.addAll(strings);
+        if (CollUtil.isNotEmpty(needDelete)) {
+            delCount = super.delByKey(needDelete, null);
+        }
+        int size = CollUtil.size(projectInfoModels);
+        String template = I18nMessageUtil.get("i18n.physical_node_pull.874e");
+        String format = StrUtil.format(
+            template,
+            nodeModelName, CollUtil.size(jsonArray), dataName,
+            CollUtil.size(cacheAll), dataName,
+            size, dataName,
+            delCount);
+        this.refreshCacheStat(nodeModel.getId(), size);
+        log.debug(format);
+        return format;
+    }
+
+    /**
+     * 增量同步
+     *
+     * @param nodeModel 节点
+     * @param jsonArray 变化的数据
+     * @param deleted   删除的数据 id
+     * @return 同步结果
+     */
+    private String syncChangedData(NodeModel nodeModel, JSONArray jsonArray, List<String> deleted) {
+        Set<String> needDelete = new HashSet<>();
+        List<T> changedList = this.convertDataArray(jsonArray, nodeModel, needDelete);
+        if (CollUtil.isNotEmpty(deleted)) {
+            for (String s : deleted) {
+                needDelete.add(BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), s));
+                needDelete.add(BaseNodeModel.fullId(ServerConst.WORKSPACE_GLOBAL, nodeModel.getId(), s));
+            }
+        }
+        if (changedList.isEmpty() && needDelete.isEmpty()) {
+            return StrUtil.format(I18nMessageUtil.get("i18n.node_incremental_sync.4c7e"), nodeModel.getName(), 0, dataName, 0);
+        }
+        // 设置 临时缓存，便于放行检查
+        BaseServerController.resetInfo(UserModel.EMPTY);
+        List<String> ids = changedList.stream().map(BaseNodeModel::getId).collect(Collectors.toList());
+        List<T> existList = ids.isEmpty() ? Collections.emptyList() : super.listById(ids);
+        this.batchUpsert(changedList, existList);
+        int delCount = needDelete.isEmpty() ? 0 : super.delByKey(needDelete, null);
+        //
+        T where = ReflectUtil.newInstance(this.tClass);
+        where.setNodeId(nodeModel.getId());
+        this.refreshCacheStat(nodeModel.getId(), (int) super.count(where));
+        String format = StrUtil.format(I18nMessageUtil.get("i18n.node_incremental_sync.4c7e"), nodeModel.getName(), changedList.size(), dataName, delCount);
+        log.debug(format);
+        return format;
+    }
+
+    /**
+     * 转换节点返回的数据，过滤不属于当前节点和工作空间的数据
+     *
+     * @param jsonArray  节点返回的数据
+     * @param nodeModel  节点
+     * @param needDelete 需要删除的相反工作空间的数据
+     * @return list
+     */
+    private List<T> convertDataArray(JSONArray jsonArray, NodeModel nodeModel, Set<String> needDelete) {
+        if (CollUtil.isEmpty(jsonArray)) {
+            return new ArrayList<>();
+        }
+        // 工作空间信息只查询一次
+        Map<String, Boolean> workspaceExists = new HashMap<>(4);
+        WorkspaceModel nodeWorkspace = workspaceService.getByKey(nodeModel.getWorkspaceId());
+        String workspaceName = Optional.ofNullable(nodeWorkspace).map(WorkspaceModel::getName).orElse(I18nMessageUtil.get("i18n.data_does_not_exist.b201"));
+        return jsonArray.stream()
+            .map(o -> {
+                // modifyTime,createTime
+                JSONObject jsonObject = (JSONObject) o;
+                T t = jsonObject.to(tClass);
+                Opt.ofBlankAble(jsonObject.getString("createTime"))
+                    .map(s -> {
+                        try {
+                            return DateUtil.parse(s);
+                        } catch (Exception e) {
+                            log.warn(I18nMessageUtil.get("i18n.data_creation_time_format_incorrect.7772"), s, jsonObject);
+                            return null;
+                        }
+                    }).ifPresent(s -> t.setCreateTimeMillis(s.getTime()));
+                //
+                Opt.ofBlankAble(jsonObject.getString("modifyTime"))
+                    .map(s -> {
+                        try {
+                            return DateUtil.parse(s);
+                        } catch (Exception e) {
+                            log.warn(I18nMessageUtil.get("i18n.data_modification_time_format_incorrect.7ffe"), s, jsonObject);
+                            return null;
+                        }
+                    })
+                    .ifPresent(s -> t.setModifyTimeMillis(s.getTime()));
+                return t;
+            })
+            .peek(item -> this.fullData(item, nodeModel))
+            // 只保留自己节点的数据
+            .filter(t -> StrUtil.equals(t.getNodeId(), nodeModel.getId()))
+            .filter(item -> {
+                if (StrUtil.equals(item.getWorkspaceId(), ServerConst.WORKSPACE_GLOBAL)) {
+                    return true;
+                }
+                // 检查对应的工作空间 是否存在
+                return workspaceExists.computeIfAbsent(item.getWorkspaceId(), s -> workspaceService.exists(new WorkspaceModel(s)));
+            })
+            .filter(item -> {
+                if (StrUtil.equals(item.getWorkspaceId(), ServerConst.WORKSPACE_GLOBAL)) {
+                    return true;
+                }
+                // 避免重复同步
+                return StrUtil.equals(nodeModel.getWorkspaceId(), item.getWorkspaceId());
+            })
+            .peek(item -> {
+                item.setNodeName(nodeModel.getName());
+                item.setWorkspaceName(workspaceName);
+                // 需要删除相反的工作空间的数据（避免出现一个脚本同步出2条数据的问题）
+                if (StrUtil.equals(item.getWorkspaceId(), ServerConst.WORKSPACE_GLOBAL)) {
+                    needDelete.add(BaseNodeModel.fullId(nodeModel.getWorkspaceId(), nodeModel.getId(), item.dataId()));
+                } else {
+                    needDelete.add(BaseNodeModel.fullId(ServerConst.WORKSPACE_GLOBAL, nodeModel.getId(), item.dataId()));
+                }
+            })
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 批量保存，新数据批量插入，已经存在的数据只更新有变化的
+     *
+     * @param list      数据
+     * @param existList 数据库中已经存在的数据
+     */
+    private void batchUpsert(List<T> list, List<T> existList) {
+        Map<String, T> existMap = existList.stream().collect(Collectors.toMap(BaseNodeModel::getId, t -> t, (t, t2) -> t));
+        List<T> insertList = new ArrayList<>();
+        for (T item : list) {
+            T exist = existMap.get(item.getId());
+            if (exist == null) {
+                insertList.add(item);
+            } else if (this.isChanged(item, exist)) {
+                super.updateById(item);
+            }
+        }
+        if (!insertList.isEmpty()) {
+            super.insert(insertList);
+        }
+    }
+
+    /**
+     * 判断数据是否有变化，只对比新数据中不为空的字段
+     *
+     * @param item  新数据
+     * @param exist 已经存在的数据
+     * @return true 有变化
+     */
+    private boolean isChanged(T item, T exist) {
+        Entity itemEntity = super.dataBeanToEntity(item);
+        Entity existEntity = super.dataBeanToEntity(exist);
+        for (Map.Entry<String, Object> entry : itemEntity.entrySet()) {
+            if (!ObjectUtil.equals(entry.getValue(), existEntity.get(entry.getKey()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * 刷新缓存统计
      *
@@ -396,6 +550,8 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGloba
      */
     public int delCache(String nodeId, HttpServletRequest request) {
         String checkUserWorkspace = this.getCheckUserWorkspace(request);
+        // 缓存被删除后下次需要全量同步
+        syncRevisionMap.remove(nodeId);
         Entity entity = Entity.create();
         entity.set("nodeId", nodeId);
         entity.set("workspaceId", checkUserWorkspace);
@@ -411,6 +567,7 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGloba
      * @return 影响行数
      */
     public int delCache(String dataId, String nodeId, HttpServletRequest request) {
+        syncRevisionMap.remove(nodeId);
         return this.delByWorkspace(request, entity -> {
             T data = ReflectUtil.newInstance(this.tClass);
             data.setNodeId(nodeId);
@@ -454,6 +611,51 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGloba
      */
     public abstract JSONArray getLitDataArray(NodeModel nodeModel);
 
+    /**
+     * 增量查询节点数据，节点不支持时返回 null 使用 {@link #getLitDataArray(NodeModel)} 全量查询
+     *
+     * @param nodeModel 节点
+     * @param epoch     上次同步的版本标识
+     * @param revision  上次同步的版本号
+     * @return json
+     */
+    protected JSONObject getChangedData(NodeModel nodeModel, String epoch, long revision) {
+        return null;
+    }
+
+    /**
+     * 请求节点的增量查询接口
+     *
+     * @param nodeModel 节点
+     * @param nodeUrl   增量查询接口
+     * @param epoch     上次同步的版本标识
+     * @param revision  上次同步的版本号
+     * @return 节点不支持增量查询或者本次请求失败返回 null
+     */
+    protected JSONObject requestChangedData(NodeModel nodeModel, NodeUrl nodeUrl, String epoch, long revision) {
+        JsonMessage<JSONObject> message;
+        try {
+            message = NodeForward.request(nodeModel, nodeUrl, "epoch", StrUtil.emptyIfNull(epoch), "revision", revision);
+        } catch (AgentAuthorizeException e) {
+            throw e;
+        } catch (Exception e) {
+            // 网络波动等临时异常，本次使用全量查询
+            log.debug(I18nMessageUtil.get("i18n.request_changed_data_failure.5c0e"), nodeModel.getName(), e.getMessage());
+            return null;
+        }
+        JSONObject data = message.getData();
+        if (message.success() && data != null && data.containsKey("epoch")) {
+            return data;
+        }
+        if (NodeForward.isUnsupportedUrl(message, nodeUrl)) {
+            // 旧版本节点没有增量查询接口
+            unsupportedChangesNode.put(nodeModel.getId(), true);
+        } else {
+            log.debug(I18nMessageUtil.get("i18n.request_changed_data_failure.5c0e"), nodeModel.getName(), message);
+        }
+        return null;
+    }
+
     /**
      * 查询孤立的数据
      *
@@ -461,4 +663,24 @@ public abstract class BaseNodeService<T extends BaseNodeModel> extends BaseGloba
      * @return json
      */
     public abstract List<T> lonelyDataArray(MachineNodeModel machineNodeModel);
+
+    /**
+     * 节点同步的版本信息
+     */
+    private static class SyncRevision {
+        private final String workspaceId;
+        private final String epoch;
+        private final long revision;
+        /**
+         * 最近一次全量同步的时间
+         */
+        private final long fullTime;
+
+        private SyncRevision(String workspaceId, String epoch, long revision, long fullTime) {
+            this.workspaceId = workspaceId;
+            this.epoch = epoch;
+            this.revision = revision;
+            this.fullTime = fullTime;
+        }
+    }
 }
@@ -99,6 +99,11 @@ public class ProjectInfoCacheService extends BaseNodeService<ProjectInfoCacheMod
         return tJsonMessage.getData();
     }
 
+    @Override
+    protected JSONObject getChangedData(NodeModel nodeModel, String epoch, long revision) {
+        return this.requestChangedData(nodeModel, NodeUrl.Manage_GetProjectInfoChanges, epoch, revision);
+    }
+
     @Override
     public List<ProjectInfoCacheModel> lonelyDataArray(MachineNodeModel machineNodeModel) {
         JSONObject jsonObject = new JSONObject();
@@ -64,6 +64,11 @@ public class NodeScriptServer extends BaseNodeService<NodeScriptCacheModel> impl
         return NodeForward.requestData(nodeModel, NodeUrl.Script_List, null, JSONArray.class);
     }
 
+    @Override
+    protected JSONObject getChangedData(NodeModel nodeModel, String epoch, long revision) {
+        return this.requestChangedData(nodeModel, NodeUrl.Script_ListChanges, epoch, revision);
+    }
+
     @Override
     public List<NodeScriptCacheModel> lonelyDataArray(MachineNodeModel machineNodeModel) {
         JSONArray jsonArray = NodeForward.requestData(machineNodeModel, NodeUrl.Script_List, null, JSONArray.class);
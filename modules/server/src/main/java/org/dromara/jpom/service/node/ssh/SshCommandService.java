@@ -13,7 +13,6 @@ import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.cron.task.Task;
-import cn.hutool.extra.ssh.JschUtil;
 import cn.hutool.system.SystemUtil;
 import cn.keepbx.jpom.cron.ICron;
 import com.jcraft.jsch.Session;
@@ -281,11 +280,12 @@ public class SshCommandService extends BaseWorkspaceService<CommandModel> implem
             MachineSshModel machineSshModel = sshService.getMachineSshModel(sshModel);
             //
             Session session = null;
+            boolean discard = false;
             try {
                 Charset charset = machineSshModel.charset();
                 int timeout = machineSshModel.timeout();
                 //
-                session = sshService.getSessionByModel(machineSshModel);
+                session = sshService.borrowSession(machineSshModel);
                 int exitCode = JschUtils.execCallbackLine(session, charset, timeout, commands, commandParamsLine, logRecorder::info);
                 logRecorder.system(I18nMessageUtil.get("i18n.exit_code.ea65"), exitCode);
                 // 更新状态
@@ -296,8 +296,9 @@ public class SshCommandService extends BaseWorkspaceService<CommandModel> implem
                 this.updateStatus(commandExecLogModel.getId(), CommandExecLogModel.Status.ERROR);
                 // 记录错误日志
                 logRecorder.error(I18nMessageUtil.get("i18n.command_error.d0b4"), e);
+                discard = true;
             } finally {
-                JschUtil.close(session);
+                sshService.releaseSession(session, discard);
             }
         }
     }
@@ -103,6 +103,26 @@ public class SshService extends BaseWorkspaceService<SshModel> {
         return machineSshServer.getSessionByModelNoFill(sshModel);
     }
 
+    /**
+     * 借出复用的 ssh 会话，使用完成后需要调用 {@link #releaseSession(Session, boolean)} 归还
+     *
+     * @param sshModel sshModel
+     * @return session
+     */
+    public Session borrowSession(MachineSshModel sshModel) {
+        return machineSshServer.borrowSession(sshModel);
+    }
+
+    /**
+     * 归还 ssh 会话
+     *
+     * @param session 会话
+     * @param discard 是否丢弃
+     */
+    public void releaseSession(Session session, boolean discard) {
+        machineSshServer.releaseSession(session, discard);
+    }
+
 
     /**
      * 获取 ssh 配置对象
@@ -127,17 +147,20 @@ public class SshService extends BaseWorkspaceService<SshModel> {
     public void uploadDir(MachineSshModel machineSshModel, String remotePath, File desc) {
         Session session = null;
         ChannelSftp channel = null;
+        // 出现异常时会话可能已经不可用，不再归还到会话池
+        boolean discard = true;
         // MachineSshModel machineSshModel = this.getMachineSshModel(sshModel);
         try {
-            session = this.getSessionByModel(machineSshModel);
+            session = this.borrowSession(machineSshModel);
             channel = (ChannelSftp) JschUtil.openChannel(session, ChannelType.SFTP);
             try (Sftp sftp = new Sftp(channel, machineSshModel.charset(), machineSshModel.timeout())) {
                 sftp.syncUpload(desc, remotePath);
             }
+            discard = false;
             //uploadDir(channel, remotePath, desc, sshModel.getCharsetT());
         } finally {
             JschUtil.close(channel);
-            JschUtil.close(session);
+            this.releaseSession(session, discard);
         }
     }
 
@@ -154,15 +177,18 @@ public class SshService extends BaseWorkspaceService<SshModel> {
         Session session = null;
         ChannelSftp channel = null;
         OutputStream output = null;
+        // 出现异常时会话可能已经不可用，不再归还到会话池
+        boolean discard = true;
         try {
-            session = this.getSessionByModel(sshModel);
+            session = this.borrowSession(this.getMachineSshModel(sshModel));
             channel = (ChannelSftp) JschUtil.openChannel(session, ChannelType.SFTP);
             output = Files.newOutputStream(save.toPath());
             channel.get(remoteFile, output);
+            discard = false;
         } finally {
             IoUtil.close(output);
             JschUtil.close(channel);
-            JschUtil.close(session);
+            this.releaseSession(session, discard);
         }
     }
 
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.service.system;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.map.SafeConcurrentHashMap;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Entity;
+import org.dromara.jpom.db.BaseDbCommonService;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 数据统计缓存
+ * <p>
+ * 统计结果缓存在内存中，表数据变化（插入、修改、删除）后下一次读取时使用一次分组查询重新统计所有工作空间，
+ * 并且定期重新统计一次用于校准
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Service
+public class DataStatCacheService {
+
+    /**
+     * 缓存最长有效期（定期校准）
+     */
+    private static final long RECONCILE_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    private final Map<String, CacheItem> cache = new SafeConcurrentHashMap<>();
+
+    /**
+     * 获取统计结果，表数据没有变化时直接使用缓存
+     *
+     * @param service  数据表
+     * @param key      统计类型
+     * @param supplier 统计方法
+     * @param <V>      统计结果
+     * @return 统计结果
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(BaseDbCommonService<?> service, String key, Supplier<V> supplier) {
+        String cacheKey = service.getTableName() + StrUtil.COLON + key;
+        CacheItem item = cache.get(cacheKey);
+        if (this.isValid(service, item)) {
+            return (V) item.value;
+        }
+        synchronized (cacheKey.intern()) {
+            item = cache.get(cacheKey);
+            if (this.isValid(service, item)) {
+                return (V) item.value;
+            }
+            // 先读取版本再统计，统计期间的变化在下一次读取时重新统计
+            long version = service.getDataVersion();
+            V value = supplier.get();
+            cache.put(cacheKey, new CacheItem(version, SystemClock.now(), value));
+            return value;
+        }
+    }
+
+    private boolean isValid(BaseDbCommonService<?> service, CacheItem item) {
+        return item != null && item.version == service.getDataVersion() && SystemClock.now() - item.time < RECONCILE_INTERVAL;
+    }
+
+    /**
+     * 统计指定工作空间的数据数量（一次分组查询统计所有工作空间）
+     *
+     * @param service     数据表
+     * @param workspaceId 工作空间id
+     * @return 数量
+     */
+    public long countByWorkspace(BaseDbCommonService<?> service, String workspaceId) {
+        Map<String, Long> map = this.get(service, "workspaceId", () -> {
+            String sql = "select workspaceId,count(1) as count from " + service.getTableName() + " group by workspaceId";
+            List<Entity> query = service.query(sql);
+            Map<String, Long> result = new HashMap<>(query.size());
+            for (Entity entity : query) {
+                result.put(entity.getStr("workspaceId"), ObjectUtil.defaultIfNull(entity.getLong("count"), 0L));
+            }
+            return result;
+        });
+        return map.getOrDefault(workspaceId, 0L);
+    }
+
+    /**
+     * 按照状态分组统计
+     *
+     * @param service 数据表
+     * @return status,count
+     */
+    public List<Entity> statusStat(BaseDbCommonService<?> service) {
+        return this.get(service, "status", () -> {
+            String sql = "select status,count(1) as count from " + service.getTableName() + " group by status";
+            return service.query(sql);
+        });
+    }
+
+    private static class CacheItem {
+        private final long version;
+        private final long time;
+        private final Object value;
+
+        private CacheItem(long version, long time, Object value) {
+            this.version = version;
+            this.time = time;
+            this.value = value;
+        }
+    }
+}
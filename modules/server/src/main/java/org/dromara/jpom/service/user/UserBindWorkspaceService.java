@@ -10,16 +10,14 @@
 package org.dromara.jpom.service.user;
 
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DateTime;
-import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.date.Week;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.map.SafeConcurrentHashMap;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.db.Entity;
-import com.alibaba.fastjson2.JSONArray;
-import com.alibaba.fastjson2.JSONObject;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.func.system.service.ClusterInfoService;
 import org.dromara.jpom.model.data.WorkspaceModel;
 import org.dromara.jpom.model.user.UserBindWorkspaceModel;
 import org.dromara.jpom.model.user.UserModel;
@@ -27,11 +25,13 @@ import org.dromara.jpom.model.user.UserPermissionGroupBean;
 import org.dromara.jpom.permission.MethodFeature;
 import org.dromara.jpom.service.h2db.BaseDbService;
 import org.dromara.jpom.service.system.WorkspaceService;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
-import java.time.DayOfWeek;
+import javax.annotation.Resource;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +43,17 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
 
     private final WorkspaceService workspaceService;
     private final UserPermissionGroupServer userPermissionGroupServer;
+    /**
+     * 权限数据版本，权限组或者工作空间绑定变化后递增
+     */
+    private static final AtomicLong PERMISSION_VERSION = new AtomicLong();
+    /**
+     * 用户权限快照，key 为 用户id:权限组
+     */
+    private final Map<String, UserPermissionSnapshot> snapshotCache = new SafeConcurrentHashMap<>();
+    @Resource
+    @Lazy
+    private ClusterInfoService clusterInfoService;
 
     /**
      * ssh 终端没有任何限制
@@ -150,21 +161,50 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
     }
 
     /**
-     * 查询用户 是否存在工作空间权限
+     * 权限数据（权限组、工作空间绑定）发生变化，已经创建的权限快照全部失效
+     */
+    public static void permissionChanged() {
+        PERMISSION_VERSION.incrementAndGet();
+    }
+
+    @Override
+    protected void afterDataChange() {
+        permissionChanged();
+    }
+
+    /**
+     * 获取用户的权限快照，权限数据没有变化时直接使用缓存
+     * <p>
+     * 多服务共用一个数据库时，其他服务修改权限不会通知当前服务，每次都重新查询
      *
-     * @param userModel   用户
-     * @param workspaceId 工作空间
-     * @return list
+     * @param userModel 用户
+     * @return 快照
      */
-    private List<UserBindWorkspaceModel> existsList(UserModel userModel, String workspaceId) {
+    private UserPermissionSnapshot getSnapshot(UserModel userModel) {
         String permissionGroup = userModel.getPermissionGroup();
+        String key = StrUtil.format("{}:{}", userModel.getId(), StrUtil.emptyIfNull(permissionGroup));
+        boolean useCache = !clusterInfoService.isMultiServer();
+        long version = PERMISSION_VERSION.get();
+        UserPermissionSnapshot snapshot = useCache ? snapshotCache.get(key) : null;
+        if (snapshot != null && snapshot.getVersion() == version) {
+            return snapshot;
+        }
         List<String> list = StrUtil.splitTrim(permissionGroup, StrUtil.AT);
-        list = list.stream()
-            .map(s -> UserBindWorkspaceModel.getId(s, workspaceId))
-            .collect(Collectors.toList());
+        list = ObjectUtil.defaultIfNull(list, new ArrayList<>());
         // 兼容旧数据
-        list.add(UserBindWorkspaceModel.getId(userModel.getId(), workspaceId));
-        return this.listById(list);
+        list.add(userModel.getId());
+        Entity entity = Entity.create();
+        entity.set("userId", list);
+        List<UserBindWorkspaceModel> bindList = ObjectUtil.defaultIfNull(super.listByEntity(entity), Collections.emptyList());
+        Set<String> groupIds = bindList.stream().map(UserBindWorkspaceModel::getUserId).collect(Collectors.toSet());
+        List<UserPermissionGroupBean> groupList = groupIds.isEmpty() ? Collections.emptyList() : userPermissionGroupServer.listById(groupIds);
+        snapshot = new UserPermissionSnapshot(version, bindList, ObjectUtil.defaultIfNull(groupList, Collections.emptyList()));
+        if (useCache) {
+            snapshotCache.put(key, snapshot);
+        } else {
+            snapshotCache.clear();
+        }
+        return snapshot;
     }
 
     /**
@@ -175,8 +215,7 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
      * @return true 存在
      */
     public boolean exists(UserModel userModel, String workspaceId) {
-        List<UserBindWorkspaceModel> workspaceModels = this.existsList(userModel, workspaceId);
-        return CollUtil.isNotEmpty(workspaceModels);
+        return this.getSnapshot(userModel).containsWorkspace(workspaceId);
     }
 
     /**
@@ -187,17 +226,14 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
      * @return Permission Result
      */
     public UserBindWorkspaceModel.PermissionResult checkPermission(UserModel userModel, String workspaceId) {
-        List<UserBindWorkspaceModel> workspaceModels = this.existsList(userModel, workspaceId);
-        if (CollUtil.isEmpty(workspaceModels)) {
+        UserPermissionSnapshot snapshot = this.getSnapshot(userModel);
+        List<UserPermissionSnapshot.GroupRule> permissionGroups = snapshot.getGroups(workspaceId);
+        if (permissionGroups == null) {
             return UserBindWorkspaceModel.PermissionResult.builder()
                 .state(UserBindWorkspaceModel.PermissionResultEnum.FAIL)
                 .msg(I18nMessageUtil.get("i18n.no_management_permission2.35d4"))
                 .build();
         }
-        List<String> permissionGroupIds = workspaceModels.stream()
-            .map(UserBindWorkspaceModel::getUserId)
-            .collect(Collectors.toList());
-        List<UserPermissionGroupBean> permissionGroups = userPermissionGroupServer.listById(permissionGroupIds);
         if (CollUtil.isEmpty(permissionGroups)) {
             return UserBindWorkspaceModel.PermissionResult.builder()
                 .state(UserBindWorkspaceModel.PermissionResultEnum.FAIL)
@@ -205,16 +241,17 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
                 .build();
         }
         // 判断禁止执行
-        Optional<JSONObject> prohibitExecuteRule = this.findProhibitExecuteRule(permissionGroups);
+        long now = SystemClock.now();
+        Optional<UserPermissionSnapshot.ProhibitRule> prohibitExecuteRule = permissionGroups.stream()
+            .flatMap(groupRule -> groupRule.getProhibitRules().stream())
+            .filter(prohibitRule -> prohibitRule.match(now))
+            .findFirst();
         if (prohibitExecuteRule.isPresent()) {
-            String msg = prohibitExecuteRule.map(jsonObject -> {
-                String reason = jsonObject.getString("reason");
-                String startTime = jsonObject.getString("startTime");
-                String endTime = jsonObject.getString("endTime");
-                if (StrUtil.isEmpty(reason)) {
-                    return StrUtil.format(I18nMessageUtil.get("i18n.forbidden_operation_time_range.92bf"), startTime, endTime);
+            String msg = prohibitExecuteRule.map(prohibitRule -> {
+                if (StrUtil.isEmpty(prohibitRule.reason)) {
+                    return StrUtil.format(I18nMessageUtil.get("i18n.forbidden_operation_time_range.92bf"), prohibitRule.startTime, prohibitRule.endTime);
                 }
-                return StrUtil.format(I18nMessageUtil.get("i18n.forbidden_operation_range.247f"), reason, startTime, endTime);
+                return StrUtil.format(I18nMessageUtil.get("i18n.forbidden_operation_range.247f"), prohibitRule.reason, prohibitRule.startTime, prohibitRule.endTime);
             }).orElse(I18nMessageUtil.get("i18n.forbidden_operation_time.d83d"));
             return UserBindWorkspaceModel.PermissionResult.builder()
                 .state(UserBindWorkspaceModel.PermissionResultEnum.MISS_PROHIBIT)
@@ -231,87 +268,27 @@ public class UserBindWorkspaceService extends BaseDbService<UserBindWorkspaceMod
      * @param permissionGroups 权限组
      * @return 结果
      */
-    private UserBindWorkspaceModel.PermissionResult checkAllowExecute(List<UserPermissionGroupBean> permissionGroups) {
-        List<JSONObject> allowExecuteListRule = permissionGroups.stream()
-            .map(UserPermissionGroupBean::getAllowExecute)
-            .filter(Objects::nonNull)
-            .map(JSONArray::parseArray)
-            .filter(CollUtil::isNotEmpty)
-            .flatMap(jsonArray -> jsonArray.stream().map(o -> (JSONObject) o))
+    private UserBindWorkspaceModel.PermissionResult checkAllowExecute(List<UserPermissionSnapshot.GroupRule> permissionGroups) {
+        List<UserPermissionSnapshot.AllowRule> allowExecuteListRule = permissionGroups.stream()
+            .flatMap(groupRule -> groupRule.getAllowRules().stream())
             .collect(Collectors.toList());
         if (CollUtil.isEmpty(allowExecuteListRule)) {
             // 没有配置规则，直接放行
             return UserBindWorkspaceModel.PermissionResult.builder().state(UserBindWorkspaceModel.PermissionResultEnum.SUCCESS).build();
         }
-        Optional<JSONObject> allowExecuteRule = allowExecuteListRule.stream()
-            .filter(jsonObject -> {
-                DateTime now = DateTime.now();
-                Week nowWeek = now.dayOfWeekEnum();
-                int nowWeekInt = nowWeek.getIso8601Value();
-                JSONArray week = jsonObject.getJSONArray("week");
-                if (CollUtil.isEmpty(week)) {
-                    return false;
-                }
-                if (!CollUtil.contains(week, nowWeekInt)) {
-                    return false;
-                }
-                String startTime = jsonObject.getString("startTime");
-                String endTime = jsonObject.getString("endTime");
-                DateTime startDate = DateUtil.parseTimeToday(startTime);
-                DateTime endDate = DateUtil.parseTimeToday(endTime);
-                return DateUtil.isIn(DateTime.now(), startDate, endDate);
-            })
-            .findAny();
-        if (allowExecuteRule.isPresent()) {
+        DateTime now = DateTime.now();
+        boolean allow = allowExecuteListRule.stream().anyMatch(allowRule -> allowRule.match(now));
+        if (allow) {
             // 允许执行
             return UserBindWorkspaceModel.PermissionResult.builder().state(UserBindWorkspaceModel.PermissionResultEnum.SUCCESS).build();
         }
         // 拼接限制规则
         String ruleStr = allowExecuteListRule.stream()
-            .map(jsonObject -> {
-                JSONArray week = jsonObject.getJSONArray("week");
-                String weekStr = week.stream()
-                    .map(o -> Convert.toInt(o, 0))
-                    .map(weekInt -> {
-                        DayOfWeek dayOfWeek = DayOfWeek.of(weekInt);
-                        return Week.of(dayOfWeek);
-                    })
-                    .map(week1 -> week1.toChinese(StrUtil.EMPTY))
-                    .collect(Collectors.joining(StrUtil.COMMA));
-                String startTime = jsonObject.getString("startTime");
-                String endTime = jsonObject.getString("endTime");
-                return StrUtil.format(I18nMessageUtil.get("i18n.week_day_range_format.ebec"), weekStr, startTime, endTime);
-            })
+            .map(allowRule -> StrUtil.format(I18nMessageUtil.get("i18n.week_day_range_format.ebec"), allowRule.weekStr(), allowRule.startTime, allowRule.endTime))
             .collect(Collectors.joining(StrUtil.SPACE));
         return UserBindWorkspaceModel.PermissionResult.builder()
             .state(UserBindWorkspaceModel.PermissionResultEnum.MISS_PERIOD)
             .msg(I18nMessageUtil.get("i18n.forbidden_operation_time_period.86a3") + ruleStr)
             .build();
     }
-
-    /**
-     * 匹配禁止执行规则
-     *
-     * @param permissionGroups 权限组配置
-     * @return 找到的第一个禁止规则
-     */
-    private Optional<JSONObject> findProhibitExecuteRule(List<UserPermissionGroupBean> permissionGroups) {
-        return permissionGroups.stream()
-            .map(UserPermissionGroupBean::getProhibitExecute)
-            .filter(Objects::nonNull)
-            .map(JSONArray::parseArray)
-            .filter(CollUtil::isNotEmpty)
-            .flatMap(jsonArray -> jsonArray.stream().map(o -> (JSONObject) o))
-            .filter(jsonObject -> {
-                String startTime = jsonObject.getString("startTime");
-                String endTime = jsonObject.getString("endTime");
-                if (StrUtil.hasEmpty(startTime, endTime)) {
-                    return false;
-                }
-                DateTime startDate = DateUtil.parse(startTime);
-                DateTime endDate = DateUtil.parse(endTime);
-                return DateUtil.isIn(DateTime.now(), startDate, endDate);
-            })
-            .findFirst();
-    }
 }
@@ -19,4 +19,10 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class UserPermissionGroupServer extends BaseDbService<UserPermissionGroupBean> {
+
+    @Override
+    protected void afterDataChange() {
+        // 权限组的规则变化
+        UserBindWorkspaceService.permissionChanged();
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.service.user;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.date.Week;
+import cn.hutool.core.util.StrUtil;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.model.user.UserBindWorkspaceModel;
+import org.dromara.jpom.model.user.UserPermissionGroupBean;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 用户权限快照
+ * <p>
+ * 包含用户（权限组）绑定的工作空间、功能权限以及解析后的禁止、允许执行时间规则，创建后不再修改。
+ * 权限校验直接使用快照，不需要查询数据库和解析 json
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class UserPermissionSnapshot {
+
+    /**
+     * 创建快照时的权限数据版本
+     */
+    private final long version;
+    /**
+     * key 工作空间（包含功能后缀），value 绑定的权限组
+     */
+    private final Map<String, List<GroupRule>> workspaceGroups;
+
+    UserPermissionSnapshot(long version, List<UserBindWorkspaceModel> bindList, List<UserPermissionGroupBean> groupList) {
+        this.version = version;
+        Map<String, GroupRule> groupRuleMap = groupList.stream()
+            .collect(Collectors.toMap(UserPermissionGroupBean::getId, GroupRule::new, (groupRule, groupRule2) -> groupRule));
+        Map<String, List<GroupRule>> map = new HashMap<>(bindList.size());
+        for (UserBindWorkspaceModel bindWorkspaceModel : bindList) {
+            List<GroupRule> list = map.computeIfAbsent(bindWorkspaceModel.getWorkspaceId(), s -> new ArrayList<>());
+            Optional.ofNullable(groupRuleMap.get(bindWorkspaceModel.getUserId())).ifPresent(list::add);
+        }
+        this.workspaceGroups = Collections.unmodifiableMap(map);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * 是否绑定了工作空间
+     *
+     * @param workspaceId 工作空间（包含功能后缀）
+     * @return true 绑定
+     */
+    boolean containsWorkspace(String workspaceId) {
+        return workspaceGroups.containsKey(workspaceId);
+    }
+
+    /**
+     * 工作空间绑定的权限组
+     *
+     * @param workspaceId 工作空间（包含功能后缀）
+     * @return 未绑定返回 null
+     */
+    List<GroupRule> getGroups(String workspaceId) {
+        return workspaceGroups.get(workspaceId);
+    }
+
+    /**
+     * 权限组解析后的规则
+     */
+    static class GroupRule {
+        private final List<ProhibitRule> prohibitRules;
+        private final List<AllowRule> allowRules;
+
+        private GroupRule(UserPermissionGroupBean groupBean) {
+            this.prohibitRules = parseArray(groupBean.getProhibitExecute()).stream()
+                .map(ProhibitRule::parse)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+            this.allowRules = parseArray(groupBean.getAllowExecute()).stream()
+                .map(AllowRule::new)
+                .collect(Collectors.toList());
+        }
+
+        List<ProhibitRule> getProhibitRules() {
+            return prohibitRules;
+        }
+
+        List<AllowRule> getAllowRules() {
+            return allowRules;
+        }
+
+        private static List<JSONObject> parseArray(String value) {
+            if (StrUtil.isEmpty(value)) {
+                return Collections.emptyList();
+            }
+            JSONArray jsonArray = JSONArray.parseArray(value);
+            if (CollUtil.isEmpty(jsonArray)) {
+                return Collections.emptyList();
+            }
+            return jsonArray.stream().map(o -> (JSONObject) o).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 禁止执行的时间段
+     */
+    static class ProhibitRule {
+        private final long start;
+        private final long end;
+        final String startTime;
+        final String endTime;
+        final String reason;
+
+        private ProhibitRule(String startTime, String endTime, String reason) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.reason = reason;
+            this.start = DateUtil.parse(startTime).getTime();
+            this.end = DateUtil.parse(endTime).getTime();
+        }
+
+        private static ProhibitRule parse(JSONObject jsonObject) {
+            String startTime = jsonObject.getString("startTime");
+            String endTime = jsonObject.getString("endTime");
+            if (StrUtil.hasEmpty(startTime, endTime)) {
+                return null;
+            }
+            return new ProhibitRule(startTime, endTime, jsonObject.getString("reason"));
+        }
+
+        boolean match(long now) {
+            return now >= start && now <= end;
+        }
+    }
+
+    /**
+     * 允许执行的时间段
+     */
+    static class AllowRule {
+        private final Set<Integer> weeks;
+        private final List<Integer> weekList;
+        private final LocalTime start;
+        private final LocalTime end;
+        final String startTime;
+        final String endTime;
+
+        private AllowRule(JSONObject jsonObject) {
+            JSONArray week = jsonObject.getJSONArray("week");
+            this.weekList = week == null ? Collections.emptyList() : week.stream().map(o -> Convert.toInt(o, 0)).collect(Collectors.toList());
+            this.weeks = new HashSet<>(weekList);
+            this.startTime = jsonObject.getString("startTime");
+            this.endTime = jsonObject.getString("endTime");
+            this.start = parseTime(startTime);
+            this.end = parseTime(endTime);
+        }
+
+        private static LocalTime parseTime(String time) {
+            try {
+                return DateUtil.parseTimeToday(time).toLocalDateTime().toLocalTime();
+            } catch (Exception e) {
+                log.warn(I18nMessageUtil.get("i18n.parse_allow_execute_time_error.3b7d"), time, e.getMessage());
+                return null;
+            }
+        }
+
+        boolean match(DateTime now) {
+            if (weeks.isEmpty() || !weeks.contains(now.dayOfWeekEnum().getIso8601Value())) {
+                return false;
+            }
+            if (start == null || end == null) {
+                return false;
+            }
+            LocalTime localTime = now.toLocalDateTime().toLocalTime();
+            return !localTime.isBefore(start) && !localTime.isAfter(end);
+        }
+
+        String weekStr() {
+            return weekList.stream()
+                .map(weekInt -> Week.of(DayOfWeek.of(weekInt)))
+                .map(week1 -> week1.toChinese(StrUtil.EMPTY))
+                .collect(Collectors.joining(StrUtil.COMMA));
+        }
+    }
+}
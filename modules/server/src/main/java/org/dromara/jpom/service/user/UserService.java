@@ -9,6 +9,9 @@
  */
 package org.dromara.jpom.service.user;
 
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.comparator.CompareUtil;
 import cn.hutool.core.date.SystemClock;
@@ -21,6 +24,7 @@ import com.alibaba.fastjson2.JSONObject;
 import org.dromara.jpom.common.ServerConst;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.controller.user.UserWorkspaceModel;
+import org.dromara.jpom.func.system.service.ClusterInfoService;
 import org.dromara.jpom.model.data.WorkspaceModel;
 import org.dromara.jpom.model.dto.UserLoginDto;
 import org.dromara.jpom.model.user.UserModel;
@@ -28,10 +32,14 @@ import org.dromara.jpom.service.h2db.BaseDbService;
 import org.dromara.jpom.service.system.SystemParametersServer;
 import org.dromara.jpom.util.JwtUtil;
 import org.dromara.jpom.util.TwoFactorAuthUtils;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import javax.annotation.Resource;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +50,17 @@ import java.util.stream.Collectors;
 public class UserService extends BaseDbService<UserModel> {
     private final SystemParametersServer systemParametersServer;
     private final UserBindWorkspaceService userBindWorkspaceService;
+    /**
+     * 登录校验缓存，避免每个请求都查询数据库
+     */
+    private final LRUCache<String, CheckUserItem> checkUserCache = CacheUtil.newLRUCache(1000, TimeUnit.MINUTES.toMillis(10));
+    /**
+     * 用户数据版本，用户数据变化后递增
+     */
+    private static final AtomicLong USER_VERSION = new AtomicLong();
+    @Resource
+    @Lazy
+    private ClusterInfoService clusterInfoService;
 
     public UserService(SystemParametersServer systemParametersServer,
                        UserBindWorkspaceService userBindWorkspaceService) {
@@ -95,9 +114,36 @@ public class UserService extends BaseDbService<UserModel> {
      * @return userModel 用户对象
      */
     public UserModel checkUser(String userMd5) {
+        // 多服务共用一个数据库时，其他服务修改用户数据不会通知当前服务，不使用缓存
+        boolean useCache = !clusterInfoService.isMultiServer();
+        long version = USER_VERSION.get();
+        CheckUserItem checkUserItem = useCache ? checkUserCache.get(userMd5) : null;
+        if (checkUserItem != null && checkUserItem.version == version) {
+            // 返回副本，避免缓存的对象被修改
+            return BeanUtil.toBean(checkUserItem.userModel, UserModel.class);
+        }
         UserModel userModel = new UserModel();
         userModel.setPassword(userMd5);
-        return super.queryByBean(userModel);
+        UserModel queryByBean = super.queryByBean(userModel);
+        if (!useCache) {
+            checkUserCache.clear();
+        } else if (queryByBean != null) {
+            checkUserCache.put(userMd5, new CheckUserItem(version, BeanUtil.toBean(queryByBean, UserModel.class)));
+        }
+        return queryByBean;
+    }
+
+    @Override
+    protected void afterDataChange() {
+        // 用户信息变化（禁用、修改密码、修改权限组等）后登录校验缓存失效
+        userChanged();
+    }
+
+    /**
+     * 用户数据发生变化（包含直接还原数据库等不经过 service 的修改），登录校验缓存全部失效
+     */
+    public static void userChanged() {
+        USER_VERSION.incrementAndGet();
     }
 
     /**
@@ -279,4 +325,14 @@ public class UserService extends BaseDbService<UserModel> {
             .sorted((o1, o2) -> CompareUtil.compare(o1.getSort(), o2.getSort()))
             .collect(Collectors.toList());
     }
+
+    private static class CheckUserItem {
+        private final long version;
+        private final UserModel userModel;
+
+        private CheckUserItem(long version, UserModel userModel) {
+            this.version = version;
+            this.userModel = userModel;
+        }
+    }
 }
@@ -21,7 +21,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Collection;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -48,6 +50,20 @@ public class ServiceFileTailWatcher<T extends AutoCloseable> extends BaseFileTai
         return CONCURRENT_HASH_MAP.size();
     }
 
+    /**
+     * 所有监听文件的会话发送情况
+     *
+     * @return key 为文件路径
+     * @see BaseFileTailWatcher#lagStat()
+     */
+    public static Map<String, Map<String, Map<String, Long>>> allLagStat() {
+        Map<String, Map<String, Map<String, Long>>> map = new HashMap<>(CONCURRENT_HASH_MAP.size());
+        for (Map.Entry<File, ServiceFileTailWatcher<WebSocketSession>> entry : CONCURRENT_HASH_MAP.entrySet()) {
+            map.put(FileUtil.getAbsolutePath(entry.getKey()), entry.getValue().lagStat());
+        }
+        return map;
+    }
+
     /**
      * 添加文件监听
      *
@@ -83,8 +99,7 @@ public class ServiceFileTailWatcher<T extends AutoCloseable> extends BaseFileTai
     public static void offline(WebSocketSession session) {
         Collection<ServiceFileTailWatcher<WebSocketSession>> collection = CONCURRENT_HASH_MAP.values();
         for (ServiceFileTailWatcher<WebSocketSession> agentFileTailWatcher : collection) {
-            agentFileTailWatcher.socketSessions.removeIf(session::equals);
-            if (agentFileTailWatcher.socketSessions.isEmpty()) {
+            if (agentFileTailWatcher.remove(session)) {
                 agentFileTailWatcher.close();
             }
         }
@@ -100,7 +115,7 @@ public class ServiceFileTailWatcher<T extends AutoCloseable> extends BaseFileTai
         if (null == agentFileTailWatcher) {
             return;
         }
-        Set<WebSocketSession> socketSessions = agentFileTailWatcher.socketSessions;
+        List<WebSocketSession> socketSessions = agentFileTailWatcher.sessions();
         for (WebSocketSession socketSession : socketSessions) {
             offline(socketSession);
         }
@@ -118,14 +133,10 @@ public class ServiceFileTailWatcher<T extends AutoCloseable> extends BaseFileTai
         if (null == serviceFileTailWatcher) {
             return;
         }
-        Set<WebSocketSession> socketSessions = serviceFileTailWatcher.socketSessions;
-        for (WebSocketSession socketSession : socketSessions) {
-            if (socketSession.equals(session)) {
-                offline(socketSession);
-                break;
-            }
+        if (serviceFileTailWatcher.sessions().contains(session)) {
+            offline(session);
         }
-        if (serviceFileTailWatcher.socketSessions.isEmpty()) {
+        if (serviceFileTailWatcher.sessions().isEmpty()) {
             serviceFileTailWatcher.close();
         }
     }
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.socket;
+
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.util.SocketSessionUtil;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * 终端输出处理
+ * <p>
+ * 所有终端共用一个轮询线程，只读取输入流中已经可读的数据，不再为每个终端占用一个阻塞读取的线程。
+ * 读取的字节使用流式解码（多字节字符被拆分到两次读取时不会乱码），输出按时间窗口和大小合并成一个消息发送。
+ * 浏览器接收慢时（会话中待发送的消息过多）暂停读取，数据保留在终端的输入流中
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class TerminalOutputEngine {
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    private static final long TICK_MILLIS = 10;
+    /**
+     * 输出合并时间窗口（毫秒）
+     */
+    private static final long FLUSH_WINDOW_MILLIS = 30;
+    /**
+     * 单个消息最大字符数
+     */
+    private static final int MAX_FRAME_SIZE = 32 * 1024;
+    /**
+     * 待发送最大字符数，超过后暂停读取
+     */
+    private static final int MAX_PENDING_SIZE = 256 * 1024;
+    /**
+     * 会话中未发送的消息字节数超过后暂停读取（会话缓存上限为 5MB，超过会被断开）
+     */
+    private static final int SESSION_BUFFER_HIGH_WATER = 1024 * 1024;
+    /**
+     * 单个终端每次轮询最多读取的字节数，避免一个终端占用轮询线程
+     */
+    private static final int MAX_READ_PER_TICK = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 8192;
+    /**
+     * 关闭时等待正在发送的消息的最长时间（毫秒）
+     */
+    private static final long CLOSE_WAIT_MILLIS = 5000;
+
+    private static final Set<Terminal> TERMINALS = ConcurrentHashMap.newKeySet();
+    private static volatile ScheduledExecutorService scheduledExecutorService;
+    private static volatile ExecutorService sendExecutorService;
+
+    /**
+     * 创建终端输出
+     *
+     * @param session websocket 会话
+     * @param sender  发送消息
+     * @param onError 读取异常回调
+     * @return 终端输出
+     */
+    public static Terminal create(WebSocketSession session, Consumer<String> sender, Consumer<Exception> onError) {
+        start();
+        Terminal terminal = new Terminal(session, sender, onError);
+        TERMINALS.add(terminal);
+        return terminal;
+    }
+
+    private static void start() {
+        if (scheduledExecutorService != null) {
+            return;
+        }
+        synchronized (TerminalOutputEngine.class) {
+            if (scheduledExecutorService != null) {
+                return;
+            }
+            sendExecutorService = ExecutorBuilder.create()
+                .setCorePoolSize(4)
+                .setMaxPoolSize(4)
+                .setKeepAliveTime(1, TimeUnit.MINUTES)
+                .setAllowCoreThreadTimeOut(true)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("jpom-terminal-send-").setDaemon(true).build())
+                .build();
+            ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(ThreadFactoryBuilder.create().setNamePrefix("jpom-terminal-poll-").setDaemon(true).build());
+            executorService.scheduleWithFixedDelay(TerminalOutputEngine::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+            scheduledExecutorService = executorService;
+        }
+    }
+
+    private static void tick() {
+        long now = System.currentTimeMillis();
+        for (Terminal terminal : TERMINALS) {
+            if (terminal.closed) {
+                TERMINALS.remove(terminal);
+                continue;
+            }
+            try {
+                if (!terminal.finished) {
+                    terminal.finished = terminal.poll();
+                }
+                terminal.flush(now, terminal.finished);
+                if (terminal.finished && terminal.isDrained()) {
+                    TERMINALS.remove(terminal);
+                }
+            } catch (Exception e) {
+                TERMINALS.remove(terminal);
+                terminal.closed = true;
+                terminal.onError.accept(e);
+            }
+        }
+    }
+
+    /**
+     * 单个终端的输出
+     */
+    public static class Terminal implements AutoCloseable {
+        private final WebSocketSession session;
+        private final Consumer<String> sender;
+        private final Consumer<Exception> onError;
+        private final StringBuilder pending = new StringBuilder();
+        private long pendingTime;
+        private boolean sending;
+        /**
+         * 正在发送消息的线程
+         */
+        private Thread sendThread;
+        private volatile boolean closed;
+        /**
+         * 输入流已经结束
+         */
+        private boolean finished;
+        /**
+         * 终端注册后才绑定输入流，最后赋值，轮询线程读取到输入流时其他字段已经初始化
+         */
+        private volatile InputStream inputStream;
+        private CharsetDecoder decoder;
+        private ByteBuffer byteBuffer;
+        private CharBuffer charBuffer;
+        private Consumer<byte[]> bytesConsumer;
+        private BooleanSupplier eof;
+
+        private Terminal(WebSocketSession session, Consumer<String> sender, Consumer<Exception> onError) {
+            this.session = session;
+            this.sender = sender;
+            this.onError = onError;
+        }
+
+        /**
+         * 绑定终端的输入流，由轮询线程读取
+         *
+         * @param inputStream   输入流
+         * @param charset       编码格式
+         * @param bytesConsumer 读取到的原始字节回调（可以为空）
+         * @param eof           输入流是否已经结束
+         */
+        public void attach(InputStream inputStream, Charset charset, Consumer<byte[]> bytesConsumer, BooleanSupplier eof) {
+            this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.byteBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            this.charBuffer = CharBuffer.allocate((int) Math.ceil(READ_BUFFER_SIZE * (double) decoder.maxCharsPerByte()));
+            this.bytesConsumer = bytesConsumer;
+            this.eof = eof;
+            this.inputStream = inputStream;
+        }
+
+        /**
+         * 写入已经解码的输出，待发送的内容过多时阻塞等待
+         *
+         * @param msg 输出
+         */
+        public void write(String msg) {
+            if (msg == null) {
+                return;
+            }
+            synchronized (this) {
+                while (pending.length() >= MAX_PENDING_SIZE && !closed) {
+                    try {
+                        this.wait(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                this.append(msg);
+            }
+        }
+
+        private void append(CharSequence msg) {
+            if (pending.length() == 0) {
+                pendingTime = System.currentTimeMillis();
+            }
+            pending.append(msg);
+        }
+
+        /**
+         * 读取输入流中可读的数据
+         *
+         * @return 输入流是否已经结束
+         */
+        private boolean poll() throws Exception {
+            if (inputStream == null) {
+                return false;
+            }
+            int read = 0;
+            while (read < MAX_READ_PER_TICK && !this.isBusy()) {
+                int available = inputStream.available();
+                if (available <= 0) {
+                    if (eof.getAsBoolean()) {
+                        this.decode(true);
+                        return true;
+                    }
+                    break;
+                }
+                int len = inputStream.read(byteBuffer.array(), byteBuffer.position(), Math.min(available, byteBuffer.remaining()));
+                if (len < 0) {
+                    this.decode(true);
+                    return true;
+                }
+                if (bytesConsumer != null) {
+                    bytesConsumer.accept(Arrays.copyOfRange(byteBuffer.array(), byteBuffer.position(), byteBuffer.position() + len));
+                }
+                byteBuffer.position(byteBuffer.position() + len);
+                read += len;
+                this.decode(false);
+            }
+            return false;
+        }
+
+        private void decode(boolean endOfInput) {
+            byteBuffer.flip();
+            decoder.decode(byteBuffer, charBuffer, endOfInput);
+            if (endOfInput) {
+                decoder.flush(charBuffer);
+            }
+            // 不完整的多字节字符留到下次读取后再解码
+            byteBuffer.compact();
+            charBuffer.flip();
+            synchronized (this) {
+                this.append(charBuffer);
+            }
+            charBuffer.clear();
+        }
+
+        private synchronized boolean isDrained() {
+            return pending.length() == 0 && !sending;
+        }
+
+        /**
+         * 浏览器接收慢或者待发送内容过多
+         *
+         * @return true 暂停读取
+         */
+        private boolean isBusy() {
+            synchronized (this) {
+                if (pending.length() >= MAX_PENDING_SIZE) {
+                    return true;
+                }
+            }
+            return SocketSessionUtil.getBufferSize(session) >= SESSION_BUFFER_HIGH_WATER;
+        }
+
+        /**
+         * 达到合并时间窗口或者大小后发送，同一个终端同时只有一个消息在发送以保证顺序
+         *
+         * @param now   当前时间
+         * @param force 是否立即发送
+         */
+        private void flush(long now, boolean force) {
+            String frame;
+            synchronized (this) {
+                int length = pending.length();
+                if (length == 0 || sending || closed) {
+                    return;
+                }
+                if (!force && length < MAX_FRAME_SIZE && now - pendingTime < FLUSH_WINDOW_MILLIS) {
+                    return;
+                }
+                int end = Math.min(length, MAX_FRAME_SIZE);
+                if (end < length && Character.isHighSurrogate(pending.charAt(end - 1))) {
+                    end--;
+                }
+                frame = pending.substring(0, end);
+                pending.delete(0, end);
+                pendingTime = now;
+                sending = true;
+            }
+            sendExecutorService.execute(() -> {
+                synchronized (this) {
+                    sendThread = Thread.currentThread();
+                }
+                try {
+                    sender.accept(frame);
+                } finally {
+                    synchronized (this) {
+                        sending = false;
+                        sendThread = null;
+                        this.notifyAll();
+                    }
+                }
+            });
+        }
+
+        /**
+         * 关闭，等待正在发送的消息完成后剩余的输出直接发送
+         */
+        @Override
+        public void close() {
+            String frame;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                // 发送线程中关闭时不能等待自己
+                long endTime = System.currentTimeMillis() + CLOSE_WAIT_MILLIS;
+                while (sending && sendThread != Thread.currentThread()) {
+                    long waitTime = endTime - System.currentTimeMillis();
+                    if (waitTime <= 0) {
+                        break;
+                    }
+                    try {
+                        this.wait(waitTime);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                frame = pending.toString();
+                pending.setLength(0);
+                this.notifyAll();
+            }
+            TERMINALS.remove(this);
+            if (!frame.isEmpty() && session.isOpen()) {
+                sender.accept(frame);
+            }
+        }
+    }
+}
@@ -12,11 +12,13 @@ package org.dromara.jpom.socket.handler;
 import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
 import org.dromara.jpom.socket.BaseHandler;
+import org.dromara.jpom.socket.TerminalOutputEngine;
 import org.dromara.jpom.util.SocketSessionUtil;
 import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
+import java.util.function.Consumer;
 
 /**
  * @author bwcx_jzy
@@ -36,4 +38,15 @@ public abstract class BaseTerminalHandler extends BaseHandler {
             log.error(I18nMessageUtil.get("i18n.send_message_failure_prefix.6f8c") + msg, e);
         }
     }
+
+    /**
+     * 创建终端输出，输出内容合并后发送
+     *
+     * @param session 会话
+     * @param onError 读取异常回调
+     * @return 终端输出
+     */
+    protected TerminalOutputEngine.Terminal createTerminalOutput(WebSocketSession session, Consumer<Exception> onError) {
+        return TerminalOutputEngine.create(session, msg -> this.sendBinary(session, msg), onError);
+    }
 }
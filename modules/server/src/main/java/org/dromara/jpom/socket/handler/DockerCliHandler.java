@@ -30,6 +30,7 @@ import org.dromara.jpom.permission.Feature;
 import org.dromara.jpom.permission.MethodFeature;
 import org.dromara.jpom.plugin.PluginFactory;
 import org.dromara.jpom.service.docker.DockerInfoService;
+import org.dromara.jpom.socket.TerminalOutputEngine;
 import org.dromara.jpom.util.SocketSessionUtil;
 import org.dromara.jpom.util.StringUtil;
 import org.springframework.web.socket.TextMessage;
@@ -129,12 +130,14 @@ public class DockerCliHandler extends BaseTerminalHandler {
         private PipedOutputStream outputStream = new PipedOutputStream(inputStream);
         private String containerId;
         private Thread thread;
+        private final TerminalOutputEngine.Terminal output;
 
         HandlerItem(WebSocketSession session, MachineDockerModel dockerInfoModel, Map<String, Object> map, String containerId) throws IOException {
             this.session = session;
             this.dockerInfoModel = dockerInfoModel;
             this.containerId = containerId;
             this.map = map;
+            this.output = createTerminalOutput(session, e -> log.error(I18nMessageUtil.get("i18n.container_command_execution_exception.a14a"), e));
         }
 
         void startRead() {
@@ -182,13 +185,13 @@ public class DockerCliHandler extends BaseTerminalHandler {
                     map.put("execId", execId);
                     return;
                 }
-                sendBinary(session, s);
+                output.write(s);
             };
             map.put("charset", CharsetUtil.CHARSET_UTF_8);
             map.put("stdin", inputStream);
             map.put("logConsumer", logConsumer);
             Consumer<String> errorConsumer = s -> {
-                sendBinary(session, s);
+                output.write(s);
                 if (StrUtil.equals(s, "exit")) {
                     // 退出
                     destroy(session);
@@ -246,6 +249,7 @@ public class DockerCliHandler extends BaseTerminalHandler {
                 log.error(I18nMessageUtil.get("i18n.container_command_execution_exception.a14a"), e);
             }
             log.debug(I18nMessageUtil.get("i18n.close_docker_exec_terminal.fec3"), dockerInfoModel.getName(), execId);
+            IoUtil.close(this.output);
             IoUtil.close(this.inputStream);
             IoUtil.close(this.outputStream);
             this.inputStream = null;
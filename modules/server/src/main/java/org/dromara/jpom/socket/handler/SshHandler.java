@@ -12,7 +12,6 @@ package org.dromara.jpom.socket.handler;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.io.IoUtil;
-import cn.hutool.core.io.NioUtil;
 import cn.hutool.core.map.SafeConcurrentHashMap;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.spring.SpringUtil;
@@ -26,7 +25,6 @@ import com.jcraft.jsch.Session;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.dromara.jpom.common.i18n.I18nMessageUtil;
-import org.dromara.jpom.common.i18n.I18nThreadUtil;
 import org.dromara.jpom.func.assets.model.MachineSshModel;
 import org.dromara.jpom.model.data.SshModel;
 import org.dromara.jpom.model.user.UserModel;
@@ -36,6 +34,7 @@ import org.dromara.jpom.permission.MethodFeature;
 import org.dromara.jpom.service.dblog.SshTerminalExecuteLogService;
 import org.dromara.jpom.service.node.ssh.SshService;
 import org.dromara.jpom.service.user.UserBindWorkspaceService;
+import org.dromara.jpom.socket.TerminalOutputEngine;
 import org.dromara.jpom.util.SocketSessionUtil;
 import org.dromara.jpom.util.StringUtil;
 import org.springframework.http.HttpHeaders;
@@ -196,7 +195,7 @@ public class SshHandler extends BaseTerminalHandler {
         sshTerminalExecuteLogService.batch(userInfo, machineSshModel, sshItem, ip, userAgent, refuse, split);
     }
 
-    private class HandlerItem implements Runnable, AutoCloseable {
+    private class HandlerItem implements AutoCloseable {
         private final WebSocketSession session;
         private final InputStream inputStream;
         private final OutputStream outputStream;
@@ -206,6 +205,7 @@ public class SshHandler extends BaseTerminalHandler {
         private final MachineSshModel machineSshModel;
         private final StringBuilder nowLineInput = new StringBuilder();
         private final KeyEventCycle keyEventCycle = new KeyEventCycle();
+        private TerminalOutputEngine.Terminal output;
 
         HandlerItem(WebSocketSession session, MachineSshModel machineSshModel, SshModel sshModel) throws IOException {
             this.session = session;
@@ -220,7 +220,9 @@ public class SshHandler extends BaseTerminalHandler {
 
         void startRead() throws JSchException {
             this.channel.connect(machineSshModel.timeout());
-            I18nThreadUtil.execute(this);
+            // 由终端输出统一轮询读取，不再单独占用线程阻塞读取
+            this.output = createTerminalOutput(session, this::onReadError);
+            this.output.attach(inputStream, machineSshModel.charset(), keyEventCycle::receive, channel::isClosed);
         }
 
         /**
@@ -296,29 +298,18 @@ public class SshHandler extends BaseTerminalHandler {
         }
 
 
-        @Override
-        public void run() {
-            try {
-                byte[] buffer = new byte[1024];
-                int i;
-                //如果没有数据来，线程会一直阻塞在这个地方等待数据。
-                while ((i = inputStream.read(buffer)) != NioUtil.EOF) {
-                    byte[] tempBytes = Arrays.copyOfRange(buffer, 0, i);
-                    keyEventCycle.receive(tempBytes);
-                    sendBinary(session, new String(tempBytes, machineSshModel.charset()));
-                }
-            } catch (Exception e) {
-                if (!this.openSession.isConnected()) {
-                    log.error(I18nMessageUtil.get("i18n.ssh_error_string.6bdb"), e.getMessage());
-                    return;
-                }
-                log.error(I18nMessageUtil.get("i18n.read_error.7fa5"), e);
-                SshHandler.this.destroy(this.session);
+        private void onReadError(Exception e) {
+            if (!this.openSession.isConnected()) {
+                log.error(I18nMessageUtil.get("i18n.ssh_error_string.6bdb"), e.getMessage());
+                return;
             }
+            log.error(I18nMessageUtil.get("i18n.read_error.7fa5"), e);
+            SshHandler.this.destroy(this.session);
         }
 
         @Override
         public void close() throws Exception {
+            IoUtil.close(this.output);
             IoUtil.close(this.inputStream);
             IoUtil.close(this.outputStream);
             JschUtil.close(this.channel);
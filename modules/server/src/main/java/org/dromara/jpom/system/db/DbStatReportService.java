@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.system.db;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Db;
+import cn.hutool.db.Entity;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.ILoadEvent;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.common.i18n.I18nThreadUtil;
+import org.dromara.jpom.db.SqlStatCollector;
+import org.dromara.jpom.db.StorageServiceFactory;
+import org.dromara.jpom.db.StorageTableFactory;
+import org.dromara.jpom.dialect.DialectUtil;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 数据库慢 sql 和索引使用情况报告
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Service
+@Slf4j
+public class DbStatReportService implements ILoadEvent {
+
+    /**
+     * 生成报告
+     *
+     * @param limit 慢 sql 数量
+     * @return 报告
+     */
+    public JSONObject report(int limit) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("slowSqlMillis", SqlStatCollector.getSlowMillis());
+        jsonObject.put("sqlStat", SqlStatCollector.top(limit));
+        List<Entity> indexUsage = this.indexUsage();
+        jsonObject.put("supportIndexUsage", indexUsage != null);
+        if (indexUsage != null) {
+            jsonObject.put("indexUsage", indexUsage);
+            jsonObject.put("unusedIndex", this.unusedIndex(indexUsage));
+        }
+        return jsonObject;
+    }
+
+    /**
+     * 查询索引使用次数
+     *
+     * @return null 当前数据库不支持统计
+     */
+    private List<Entity> indexUsage() {
+        String sql = StorageTableFactory.get().indexUsageSql();
+        if (StrUtil.isEmpty(sql)) {
+            return null;
+        }
+        try {
+            Db db = Db.use(StorageServiceFactory.get().getDsFactory().getDataSource(), DialectUtil.getDialectByMode(StorageServiceFactory.getMode()));
+            return db.query(sql);
+        } catch (Exception e) {
+            log.warn(I18nMessageUtil.get("i18n.index_usage_query_failure.7a20"), e.getMessage());
+            return null;
+        }
+    }
+
+    private List<String> unusedIndex(List<Entity> indexUsage) {
+        return indexUsage.stream()
+            .filter(entity -> entity.getLong("scanCount") == null || entity.getLong("scanCount") <= 0)
+            .map(entity -> entity.getStr("tableName") + StrUtil.DOT + entity.getStr("indexName"))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public void afterPropertiesSet(ApplicationContext applicationContext) throws Exception {
+        I18nThreadUtil.execute(() -> {
+            List<Entity> indexUsage = this.indexUsage();
+            if (indexUsage == null) {
+                return;
+            }
+            List<String> unusedIndex = this.unusedIndex(indexUsage);
+            if (!unusedIndex.isEmpty()) {
+                log.info(I18nMessageUtil.get("i18n.unused_index_detected.3c8d"), unusedIndex);
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+}
@@ -63,6 +63,20 @@ public class SocketSessionUtil {
         return true;
     }
 
+    /**
+     * 获取会话中还未发送出去的消息大小
+     *
+     * @param session 会话
+     * @return 字节数
+     */
+    public static int getBufferSize(WebSocketSession session) {
+        WebSocketSession webSocketSession = SOCKET_MAP.get(session.getId());
+        if (webSocketSession instanceof ConcurrentWebSocketSessionDecorator) {
+            return ((ConcurrentWebSocketSessionDecorator) webSocketSession).getBufferSize();
+        }
+        return 0;
+    }
+
     public static void close(WebSocketSession session) {
         SOCKET_MAP.remove(session.getId());
     }
@@ -65,6 +65,20 @@ public final class SyncFinisherUtil {
         return strictSyncFinisher;
     }
 
+    /**
+     * 创建线程同步器，用于 io 密集的任务（线程数不受 cpu 核心数限制）
+     *
+     * @param name          任务名
+     * @param threadSize    线程数
+     * @param queueCapacity 任务队列数
+     * @return 线程同步器
+     */
+    public static StrictSyncFinisher create(String name, int threadSize, int queueCapacity) {
+        StrictSyncFinisher strictSyncFinisher = new StrictSyncFinisher(Math.max(threadSize, 1), queueCapacity);
+        put(name, strictSyncFinisher);
+        return strictSyncFinisher;
+    }
+
     /**
      * 添加任务
      *
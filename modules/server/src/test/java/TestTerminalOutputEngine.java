@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+import org.dromara.jpom.socket.TerminalOutputEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 终端输出解码和分帧
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class TestTerminalOutputEngine {
+
+    @Test
+    public void testMultibyteSplitAcrossReads() throws Exception {
+        String text = "中文输出😀测试\nline2 终端\n";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        // 每次读取 1 到 2 个字节，多字节字符一定会被拆分到多次读取
+        ChunkInputStream inputStream = new ChunkInputStream(bytes, 1, 2);
+        List<String> frames = new CopyOnWriteArrayList<>();
+        CountDownLatch eof = new CountDownLatch(1);
+        TerminalOutputEngine.Terminal terminal = TerminalOutputEngine.create(this.session(), frames::add, e -> Assertions.fail(e));
+        terminal.attach(inputStream, StandardCharsets.UTF_8, null, () -> {
+            if (inputStream.isEnd()) {
+                eof.countDown();
+                return true;
+            }
+            return false;
+        });
+        Assertions.assertTrue(eof.await(10, TimeUnit.SECONDS));
+        this.waitFrames(frames, text.length());
+        Assertions.assertEquals(text, String.join("", frames));
+        Assertions.assertFalse(String.join("", frames).contains("\uFFFD"));
+        terminal.close();
+    }
+
+    @Test
+    public void testFrameSplitAtSurrogate() throws Exception {
+        // 第一个消息的最后一个字符正好是代理对的高位
+        StringBuilder builder = new StringBuilder();
+        char[] chars = new char[32 * 1024 - 1];
+        Arrays.fill(chars, 'a');
+        builder.append(chars).append("😀").append("tail");
+        String text = builder.toString();
+        List<String> frames = new CopyOnWriteArrayList<>();
+        TerminalOutputEngine.Terminal terminal = TerminalOutputEngine.create(this.session(), frames::add, e -> Assertions.fail(e));
+        terminal.write(text);
+        this.waitFrames(frames, text.length());
+        Assertions.assertTrue(frames.size() >= 2);
+        for (String frame : frames) {
+            Assertions.assertFalse(Character.isHighSurrogate(frame.charAt(frame.length() - 1)), "frame end with high surrogate");
+            Assertions.assertFalse(Character.isLowSurrogate(frame.charAt(0)), "frame start with low surrogate");
+        }
+        Assertions.assertEquals(text, String.join("", frames));
+        terminal.close();
+    }
+
+    private WebSocketSession session() {
+        WebSocketSession session = Mockito.mock(WebSocketSession.class);
+        Mockito.when(session.getId()).thenReturn(String.valueOf(System.nanoTime()));
+        Mockito.when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private void waitFrames(List<String> frames, int length) throws InterruptedException {
+        long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (frames.stream().mapToInt(String::length).sum() < length && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 每次只返回少量字节的输入流，模拟终端输出被拆分
+     */
+    private static class ChunkInputStream extends InputStream {
+        private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+
+        private ChunkInputStream(byte[] bytes, int... sizes) {
+            int index = 0;
+            int i = 0;
+            while (index < bytes.length) {
+                int size = Math.min(sizes[i++ % sizes.length], bytes.length - index);
+                chunks.add(Arrays.copyOfRange(bytes, index, index + size));
+                index += size;
+            }
+        }
+
+        private synchronized boolean isEnd() {
+            return chunks.isEmpty();
+        }
+
+        @Override
+        public synchronized int available() {
+            byte[] peek = chunks.peek();
+            return peek == null ? 0 : peek.length;
+        }
+
+        @Override
+        public synchronized int read() {
+            byte[] bytes = new byte[1];
+            return this.read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xff;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            byte[] peek = chunks.peek();
+            if (peek == null) {
+                return -1;
+            }
+            int size = Math.min(len, peek.length);
+            System.arraycopy(peek, 0, b, off, size);
+            chunks.poll();
+            if (size < peek.length) {
+                chunks.addFirst(Arrays.copyOfRange(peek, size, peek.length));
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.build;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.util.ReflectUtil;
+import org.dromara.jpom.configuration.BuildExtConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 构建排队优先级、等待提升和工作空间权重
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class BuildExecutorPoolServiceTest {
+
+    private BuildExtConfig buildExtConfig;
+    private BuildExecutorPoolService poolService;
+    private CountDownLatch blocker;
+
+    @BeforeEach
+    public void before() throws InterruptedException {
+        buildExtConfig = new BuildExtConfig();
+        buildExtConfig.setPoolSize(1);
+        buildExtConfig.setPoolWaitQueue(10);
+        // 不受当前机器负载影响
+        buildExtConfig.setPoolMaxLoad(0);
+        buildExtConfig.setPoolMinFreeMemory(0);
+        poolService = new BuildExecutorPoolService(buildExtConfig);
+        // 占用唯一的执行位置，后续提交的任务都在排队
+        blocker = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        poolService.execute("running", () -> {
+            started.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    public void after() {
+        blocker.countDown();
+    }
+
+    @Test
+    public void testPriority() {
+        poolService.submit("cron", "w1", BuildExecutorPoolService.PRIORITY_CRON, () -> {
+        });
+        poolService.submit("trigger", "w1", BuildExecutorPoolService.PRIORITY_TRIGGER, () -> {
+        });
+        poolService.submit("manual", "w1", BuildExecutorPoolService.PRIORITY_MANUAL, () -> {
+        });
+        Assertions.assertEquals(1, poolService.queuePosition("manual"));
+        Assertions.assertEquals(2, poolService.queuePosition("trigger"));
+        Assertions.assertEquals(3, poolService.queuePosition("cron"));
+        Assertions.assertEquals(-1, poolService.queuePosition("none"));
+    }
+
+    @Test
+    public void testAging() {
+        poolService.submit("cron", "w1", BuildExecutorPoolService.PRIORITY_CRON, () -> {
+        });
+        poolService.submit("manual", "w2", BuildExecutorPoolService.PRIORITY_MANUAL, () -> {
+        });
+        Assertions.assertEquals(2, poolService.queuePosition("cron"));
+        // 等待 5 分钟提升一级
+        this.waited("cron", TimeUnit.MINUTES.toMillis(5));
+        Assertions.assertEquals(2, poolService.queuePosition("cron"));
+        // 等待 10 分钟后和手动构建同一优先级，先提交的先执行
+        this.waited("cron", TimeUnit.MINUTES.toMillis(10));
+        Assertions.assertEquals(1, poolService.queuePosition("cron"));
+        Assertions.assertEquals(2, poolService.queuePosition("manual"));
+    }
+
+    @Test
+    public void testCoalesce() {
+        poolService.submit("cron", "w1", BuildExecutorPoolService.PRIORITY_CRON, () -> {
+        });
+        poolService.submit("trigger", "w1", BuildExecutorPoolService.PRIORITY_TRIGGER, () -> {
+        });
+        Assertions.assertEquals(2, poolService.queuePosition("cron"));
+        // 排队中再次手动触发，合并并且提升优先级
+        Assertions.assertTrue(poolService.coalesce("cron", BuildExecutorPoolService.PRIORITY_MANUAL));
+        Assertions.assertEquals(1, poolService.queuePosition("cron"));
+        Assertions.assertEquals(2, poolService.queueSize());
+        Assertions.assertFalse(poolService.coalesce("none", BuildExecutorPoolService.PRIORITY_MANUAL));
+        //
+        Assertions.assertTrue(poolService.remove("cron"));
+        Assertions.assertEquals(-1, poolService.queuePosition("cron"));
+        Assertions.assertEquals(1, poolService.queueSize());
+    }
+
+    @Test
+    public void testWorkspaceFair() {
+        buildExtConfig.setWorkspaceWeight(Collections.singletonMap("w2", 2));
+        // 运行中的任务属于 running 工作空间，w1 先提交两个，w2 后提交两个
+        poolService.submit("w1-1", "w1", BuildExecutorPoolService.PRIORITY_TRIGGER, () -> {
+        });
+        poolService.submit("w1-2", "w1", BuildExecutorPoolService.PRIORITY_TRIGGER, () -> {
+        });
+        poolService.submit("w2-1", "w2", BuildExecutorPoolService.PRIORITY_TRIGGER, () -> {
+        });
+        poolService.submit("w2-2", "w2", BuildExecutorPoolService.PRIORITY_TRIGGER, () -> {
+        });
+        // w1-1 先提交；之后 w1 运行 1 个，w2 权重为 2 还可以再执行 2 个
+        Assertions.assertEquals(1, poolService.queuePosition("w1-1"));
+        Assertions.assertEquals(2, poolService.queuePosition("w2-1"));
+        Assertions.assertEquals(3, poolService.queuePosition("w2-2"));
+        Assertions.assertEquals(4, poolService.queuePosition("w1-2"));
+    }
+
+    @Test
+    public void testWaitQueueFull() {
+        buildExtConfig.setPoolWaitQueue(1);
+        Assertions.assertTrue(poolService.submit("a", "w1", BuildExecutorPoolService.PRIORITY_CRON, () -> {
+        }));
+        Assertions.assertFalse(poolService.submit("b", "w1", BuildExecutorPoolService.PRIORITY_CRON, () -> {
+        }));
+    }
+
+    @Test
+    public void testDispatchAfterDone() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        poolService.submit("next", "w1", BuildExecutorPoolService.PRIORITY_CRON, done::countDown);
+        Assertions.assertEquals(1, poolService.queueSize());
+        blocker.countDown();
+        Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, poolService.queueSize());
+    }
+
+    /**
+     * 修改排队任务的提交时间，模拟已经等待了一段时间
+     */
+    @SuppressWarnings("unchecked")
+    private void waited(String buildId, long waitTime) {
+        Map<String, List<Object>> queues = (Map<String, List<Object>>) ReflectUtil.getFieldValue(poolService, "queues");
+        synchronized (poolService) {
+            queues.values().stream()
+                .flatMap(List::stream)
+                .filter(item -> Objects.equals(ReflectUtil.getFieldValue(item, "buildId"), buildId))
+                .forEach(item -> ReflectUtil.setFieldValue(item, "submitTime", SystemClock.now() - waitTime));
+        }
+    }
+}
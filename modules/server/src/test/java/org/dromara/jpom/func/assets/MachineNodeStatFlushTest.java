@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.func.assets;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.util.IdUtil;
+import org.dromara.jpom.ApplicationStartTest;
+import org.dromara.jpom.func.assets.model.MachineNodeStatLogModel;
+import org.dromara.jpom.func.assets.model.MachineNodeStatRollupModel;
+import org.dromara.jpom.func.assets.server.MachineNodeStatLogServer;
+import org.dromara.jpom.func.assets.server.MachineNodeStatRollupServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Resource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 统计日志批量写入和汇总数据合并
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class MachineNodeStatFlushTest extends ApplicationStartTest {
+
+    @Resource
+    private MachineNodeStatLogServer machineNodeStatLogServer;
+    @Resource
+    private MachineNodeStatRollupServer machineNodeStatRollupServer;
+
+    @Test
+    public void testRollupMerge() {
+        String machineId = IdUtil.fastSimpleUUID();
+        long time = SystemClock.now() / TimeUnit.HOURS.toMillis(1) * TimeUnit.HOURS.toMillis(1);
+        machineNodeStatRollupServer.accept(this.create(machineId, time, 10D));
+        machineNodeStatRollupServer.accept(this.create(machineId, time + 1000, 20D));
+        machineNodeStatRollupServer.flush(true);
+        // 强制保存后同一时间段继续采样，再次保存时合并
+        machineNodeStatRollupServer.accept(this.create(machineId, time + 2000, 60D));
+        machineNodeStatRollupServer.flush(true);
+        MachineNodeStatRollupModel minute = machineNodeStatRollupServer.getByKey(this.rollupId(machineId, MachineNodeStatRollupServer.MINUTE, time));
+        Assertions.assertEquals(3, minute.getSampleCount());
+        Assertions.assertEquals(30D, minute.getOccupyCpu());
+        Assertions.assertEquals(60D, minute.getMaxOccupyCpu());
+        // 再次保存一次，已经保存的数据不能重复累计
+        machineNodeStatRollupServer.flush(true);
+        MachineNodeStatRollupModel hour = machineNodeStatRollupServer.getByKey(this.rollupId(machineId, MachineNodeStatRollupServer.HOUR, time));
+        Assertions.assertEquals(3, hour.getSampleCount());
+        Assertions.assertEquals(30D, hour.getOccupyCpu());
+    }
+
+    @Test
+    public void testRollupMergeWithNewBucket() {
+        String machineId = IdUtil.fastSimpleUUID();
+        long time = SystemClock.now() / TimeUnit.HOURS.toMillis(1) * TimeUnit.HOURS.toMillis(1);
+        machineNodeStatRollupServer.accept(this.create(machineId, time, 10D));
+        machineNodeStatRollupServer.flush(true);
+        // 同一批中一个时间段已经保存过，另一个时间段是新的。批量写入回滚后逐条合并，已有的数据只合并一次
+        machineNodeStatRollupServer.accept(this.create(machineId, time + 1000, 30D));
+        machineNodeStatRollupServer.accept(this.create(machineId, time + TimeUnit.MINUTES.toMillis(1), 50D));
+        machineNodeStatRollupServer.flush(true);
+        MachineNodeStatRollupModel first = machineNodeStatRollupServer.getByKey(this.rollupId(machineId, MachineNodeStatRollupServer.MINUTE, time));
+        Assertions.assertEquals(2, first.getSampleCount());
+        Assertions.assertEquals(20D, first.getOccupyCpu());
+        MachineNodeStatRollupModel second = machineNodeStatRollupServer.getByKey(this.rollupId(machineId, MachineNodeStatRollupServer.MINUTE, time + TimeUnit.MINUTES.toMillis(1)));
+        Assertions.assertEquals(1, second.getSampleCount());
+        Assertions.assertEquals(50D, second.getOccupyCpu());
+        MachineNodeStatRollupModel hour = machineNodeStatRollupServer.getByKey(this.rollupId(machineId, MachineNodeStatRollupServer.HOUR, time));
+        Assertions.assertEquals(3, hour.getSampleCount());
+        Assertions.assertEquals(30D, hour.getOccupyCpu());
+    }
+
+    @Test
+    public void testStatLogRollbackAndRetry() {
+        String machineId = IdUtil.fastSimpleUUID();
+        long time = SystemClock.now();
+        MachineNodeStatLogModel exist = this.create(machineId, time, 10D);
+        machineNodeStatLogServer.insert(exist);
+        //
+        MachineNodeStatLogModel duplicate = this.create(machineId, time, 20D);
+        duplicate.setId(exist.getId());
+        MachineNodeStatLogModel other = this.create(machineId, time + 1000, 30D);
+        other.setId(IdUtil.fastSimpleUUID());
+        machineNodeStatLogServer.offer(duplicate);
+        machineNodeStatLogServer.offer(other);
+        Assertions.assertThrows(Exception.class, () -> machineNodeStatLogServer.flush(false));
+        // 同一批的数据全部回滚
+        Assertions.assertNull(machineNodeStatLogServer.getByKey(other.getId()));
+        // 冲突解除后重新写入放回队列的数据
+        machineNodeStatLogServer.delByKey(exist.getId());
+        machineNodeStatLogServer.flush(false);
+        Assertions.assertEquals(20D, machineNodeStatLogServer.getByKey(exist.getId()).getOccupyCpu());
+        Assertions.assertEquals(30D, machineNodeStatLogServer.getByKey(other.getId()).getOccupyCpu());
+    }
+
+    private String rollupId(String machineId, int period, long time) {
+        long periodMillis = TimeUnit.SECONDS.toMillis(period);
+        return machineId + ":" + period + ":" + (time / periodMillis * periodMillis);
+    }
+
+    private MachineNodeStatLogModel create(String machineId, long monitorTime, double cpu) {
+        MachineNodeStatLogModel model = new MachineNodeStatLogModel();
+        model.setMachineId(machineId);
+        model.setMonitorTime(monitorTime);
+        model.setOccupyCpu(cpu);
+        return model;
+    }
+}
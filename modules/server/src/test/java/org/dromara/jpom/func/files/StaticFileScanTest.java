@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.func.files;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.db.Entity;
+import org.dromara.jpom.ApplicationStartTest;
+import org.dromara.jpom.func.files.model.StaticFileStorageModel;
+import org.dromara.jpom.func.files.service.StaticFileStorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Resource;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 静态目录扫描快照对比，只写入变化的文件
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class StaticFileScanTest extends ApplicationStartTest {
+
+    @Resource
+    private StaticFileStorageService staticFileStorageService;
+
+    private File staticDir;
+    private String staticDirPath;
+
+    @BeforeEach
+    public void before() {
+        staticDir = FileUtil.file(FileUtil.getTmpDir(), "jpom-test", IdUtil.fastSimpleUUID());
+        staticDirPath = FileUtil.normalize(staticDir.getAbsolutePath());
+        FileUtil.writeUtf8String("a", FileUtil.file(staticDir, "a.txt"));
+        FileUtil.writeUtf8String("b", FileUtil.file(staticDir, "sub1", "b.txt"));
+        FileUtil.writeUtf8String("c", FileUtil.file(staticDir, "sub2", "c.txt"));
+        FileUtil.writeUtf8String("d", FileUtil.file(staticDir, "sub2", "deep", "d.txt"));
+    }
+
+    @AfterEach
+    public void after() {
+        staticFileStorageService.execute("delete from " + staticFileStorageService.getTableName() + " where staticDir=?", staticDirPath);
+        FileUtil.del(staticDir.getParentFile());
+    }
+
+    @Test
+    public void testScanOnlyChanged() {
+        this.scan();
+        Map<String, StaticFileStorageModel> first = this.list();
+        // 根目录、sub1、sub2、deep 和 4 个文件
+        Assertions.assertEquals(8, first.size());
+        Assertions.assertTrue(first.values().stream().allMatch(model -> model.getStatus() == 1));
+        Assertions.assertEquals(2, first.get(this.path("sub2", "deep", "d.txt")).getLevel());
+        long firstTaskId = first.get(this.path("a.txt")).getScanTaskId();
+        // 没有变化时不写入
+        this.scan();
+        Map<String, StaticFileStorageModel> second = this.list();
+        Assertions.assertTrue(second.values().stream().allMatch(model -> model.getScanTaskId() == firstTaskId));
+        // 修改、新增、删除
+        File aFile = FileUtil.file(staticDir, "a.txt");
+        FileUtil.writeUtf8String("a-changed", aFile);
+        FileUtil.writeUtf8String("e", FileUtil.file(staticDir, "sub2", "e.txt"));
+        FileUtil.del(FileUtil.file(staticDir, "sub1", "b.txt"));
+        this.scan();
+        Map<String, StaticFileStorageModel> third = this.list();
+        Assertions.assertNotEquals(firstTaskId, third.get(this.path("a.txt")).getScanTaskId());
+        Assertions.assertEquals(aFile.length(), third.get(this.path("a.txt")).getSize());
+        Assertions.assertEquals(1, third.get(this.path("sub2", "e.txt")).getStatus());
+        Assertions.assertEquals(0, third.get(this.path("sub1", "b.txt")).getStatus());
+        Assertions.assertEquals(firstTaskId, third.get(this.path("sub2", "c.txt")).getScanTaskId());
+        Assertions.assertEquals(firstTaskId, third.get(this.path("sub2", "deep", "d.txt")).getScanTaskId());
+    }
+
+    @Test
+    public void testScanAfterDelete() {
+        this.scan();
+        String id = this.list().get(this.path("sub2", "c.txt")).getId();
+        // 删除记录后快照同步移除，下次扫描重新写入
+        staticFileStorageService.delByKey(id);
+        Assertions.assertNull(staticFileStorageService.getByKey(id));
+        this.scan();
+        Assertions.assertEquals(1, staticFileStorageService.getByKey(id).getStatus());
+    }
+
+    @Test
+    public void testStaticDirRemoved() {
+        this.scan();
+        FileUtil.del(staticDir);
+        this.scan();
+        Assertions.assertTrue(this.list().values().stream().allMatch(model -> model.getStatus() == 0));
+    }
+
+    private void scan() {
+        ReflectUtil.invoke(staticFileStorageService, "scanList", Collections.singletonList(staticDirPath));
+    }
+
+    private String path(String... names) {
+        return FileUtil.normalize(FileUtil.file(staticDir, names).getAbsolutePath());
+    }
+
+    private Map<String, StaticFileStorageModel> list() {
+        List<StaticFileStorageModel> list = staticFileStorageService.listByEntity(Entity.create().set("staticDir", staticDirPath), false);
+        return list.stream().collect(Collectors.toMap(StaticFileStorageModel::getAbsolutePath, Function.identity()));
+    }
+}
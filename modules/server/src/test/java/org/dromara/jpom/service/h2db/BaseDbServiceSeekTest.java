@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.service.h2db;
+
+import cn.hutool.cache.Cache;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Entity;
+import cn.hutool.db.Page;
+import cn.hutool.db.ds.DSFactory;
+import cn.hutool.db.sql.Direction;
+import cn.hutool.db.sql.Order;
+import cn.hutool.extra.spring.SpringUtil;
+import cn.hutool.setting.Setting;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.dromara.jpom.ApplicationStartTest;
+import org.dromara.jpom.db.TableName;
+import org.dromara.jpom.model.BaseDbModel;
+import org.dromara.jpom.model.PageResultDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 游标分页和偏移分页的结果对比
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class BaseDbServiceSeekTest extends ApplicationStartTest {
+
+    private static final int PAGE_SIZE = 7;
+    private static final int TOTAL = 30;
+
+    private DSFactory dsFactory;
+    private SeekTestService seekTestService;
+
+    @BeforeEach
+    public void before() {
+        Setting setting = new Setting();
+        setting.set("url", StrUtil.format("jdbc:h2:mem:{};MODE=MYSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1", IdUtil.fastSimpleUUID()));
+        setting.set("user", "sa");
+        setting.set("pass", "");
+        dsFactory = DSFactory.create(setting);
+        seekTestService = new SeekTestService(dsFactory.getDataSource());
+        SpringUtil.getApplicationContext().getAutowireCapableBeanFactory().autowireBean(seekTestService);
+        seekTestService.execute("create table SEEK_PAGE_TEST (`id` varchar(50) not null primary key, `createTimeMillis` bigint, `modifyTimeMillis` bigint, `name` varchar(50))");
+        List<SeekTestModel> list = new ArrayList<>();
+        for (int i = 0; i < TOTAL; i++) {
+            SeekTestModel model = new SeekTestModel();
+            model.setId(IdUtil.fastSimpleUUID());
+            // 排序字段存在大量相同的值，跨页时需要使用 id 区分
+            model.setCreateTimeMillis(1000L + i / 4);
+            model.setModifyTimeMillis(2000L + i);
+            // 部分数据的 name 为 NULL
+            model.setName(i % 3 == 0 ? null : "name-" + (i % 5));
+            list.add(model);
+        }
+        seekTestService.insert(list);
+    }
+
+    @AfterEach
+    public void after() {
+        dsFactory.destroy();
+    }
+
+    @Test
+    public void testSequentialDesc() {
+        this.checkSequential("createTimeMillis", Direction.DESC);
+    }
+
+    @Test
+    public void testSequentialAsc() {
+        this.checkSequential("createTimeMillis", Direction.ASC);
+    }
+
+    @Test
+    public void testSequentialId() {
+        this.checkSequential("id", Direction.DESC);
+    }
+
+    @Test
+    public void testExplicitCursor() {
+        PageResultDto<SeekTestModel> first = seekTestService.listPageSeek(Entity.create(), this.page(1, "createTimeMillis", Direction.DESC), null, false);
+        Assertions.assertNotNull(first.getNextCursor());
+        // 使用接口返回的游标，不依赖缓存
+        Entity where = Entity.create().set("`modifyTimeMillis`", ">= 0");
+        PageResultDto<SeekTestModel> second = seekTestService.listPageSeek(where, this.page(2, "createTimeMillis", Direction.DESC), first.getNextCursor(), false);
+        Assertions.assertEquals(this.offsetIds(2, "createTimeMillis", Direction.DESC), this.ids(second.getResult()));
+    }
+
+    @Test
+    public void testJumpWithoutCursor() {
+        // 没有上一页的游标，使用偏移查询
+        PageResultDto<SeekTestModel> page = seekTestService.listPageSeek(Entity.create(), this.page(3, "createTimeMillis", Direction.DESC), null, false);
+        Assertions.assertEquals(this.offsetIds(3, "createTimeMillis", Direction.DESC), this.ids(page.getResult()));
+        // 跳页后的下一页可以继续使用游标
+        Assertions.assertNotNull(page.getNextCursor());
+        PageResultDto<SeekTestModel> next = seekTestService.listPageSeek(Entity.create(), this.page(4, "createTimeMillis", Direction.DESC), null, false);
+        Assertions.assertEquals(this.offsetIds(4, "createTimeMillis", Direction.DESC), this.ids(next.getResult()));
+    }
+
+    @Test
+    public void testNullableFieldFallback() {
+        // 排序字段可能为 NULL，使用普通分页，并且不返回游标
+        for (int pageNumber = 1; pageNumber <= 5; pageNumber++) {
+            Page pageReq = new Page(pageNumber, PAGE_SIZE);
+            pageReq.addOrder(new Order("name", Direction.DESC), new Order("id", Direction.DESC));
+            PageResultDto<SeekTestModel> page = seekTestService.listPageSeek(Entity.create(), pageReq, null, false);
+            Assertions.assertEquals(this.offsetIds(pageNumber, "name", Direction.DESC), this.ids(page.getResult()), "page " + pageNumber);
+            Assertions.assertNull(page.getNextCursor());
+            Assertions.assertEquals(TOTAL, page.getTotal());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCacheCount() {
+        PageResultDto<SeekTestModel> page = seekTestService.listPageSeek(Entity.create(), this.page(1, "createTimeMillis", Direction.DESC), null, false);
+        Assertions.assertEquals(TOTAL, page.getTotal());
+        SeekTestModel model = new SeekTestModel();
+        model.setCreateTimeMillis(1L);
+        seekTestService.insert(model);
+        // 数据变化后短时间内使用近似值
+        page = seekTestService.listPageSeek(Entity.create(), this.page(1, "createTimeMillis", Direction.DESC), null, false);
+        Assertions.assertEquals(TOTAL, page.getTotal());
+        // 超过近似时间后重新统计
+        Cache<String, long[]> seekCountCache = (Cache<String, long[]>) ReflectUtil.getFieldValue(seekTestService, "seekCountCache");
+        long[] cache = seekCountCache.get(Entity.create().toString());
+        cache[1] -= 11_000;
+        page = seekTestService.listPageSeek(Entity.create(), this.page(1, "createTimeMillis", Direction.DESC), null, false);
+        Assertions.assertEquals(TOTAL + 1, page.getTotal());
+    }
+
+    /**
+     * 按页码顺序翻页，使用上一页缓存的游标
+     */
+    private void checkSequential(String field, Direction direction) {
+        int pageCount = (TOTAL + PAGE_SIZE - 1) / PAGE_SIZE;
+        for (int pageNumber = 1; pageNumber <= pageCount; pageNumber++) {
+            PageResultDto<SeekTestModel> page = seekTestService.listPageSeek(Entity.create(), this.page(pageNumber, field, direction), null, false);
+            Assertions.assertEquals(this.offsetIds(pageNumber, field, direction), this.ids(page.getResult()), "page " + pageNumber);
+            Assertions.assertEquals(TOTAL, page.getTotal());
+            if (pageNumber < pageCount) {
+                Assertions.assertNotNull(page.getNextCursor());
+            }
+        }
+    }
+
+    private Page page(int pageNumber, String field, Direction direction) {
+        Page page = new Page(pageNumber, PAGE_SIZE);
+        page.addOrder(new Order(field, direction));
+        return page;
+    }
+
+    private List<String> offsetIds(int pageNumber, String field, Direction direction) {
+        Page page = new Page(pageNumber, PAGE_SIZE);
+        page.addOrder(new Order(field, direction), new Order("id", direction));
+        return this.ids(seekTestService.listPage(Entity.create(), page, false).getResult());
+    }
+
+    private List<String> ids(List<SeekTestModel> list) {
+        return list.stream().map(SeekTestModel::getId).collect(Collectors.toList());
+    }
+
+    @TableName(value = "SEEK_PAGE_TEST", nameKey = "seek page test")
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class SeekTestModel extends BaseDbModel {
+        private String name;
+    }
+
+    /**
+     * 使用独立的内存数据库
+     */
+    private static class SeekTestService extends BaseDbService<SeekTestModel> {
+
+        private final DataSource dataSource;
+
+        private SeekTestService(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        protected DataSource getDataSource() {
+            return dataSource;
+        }
+    }
+}
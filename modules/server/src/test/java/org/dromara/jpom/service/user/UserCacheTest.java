@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.service.user;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.db.Db;
+import org.dromara.jpom.ApplicationStartTest;
+import org.dromara.jpom.db.StorageServiceFactory;
+import org.dromara.jpom.func.system.service.ClusterInfoService;
+import org.dromara.jpom.model.user.UserBindWorkspaceModel;
+import org.dromara.jpom.model.user.UserModel;
+import org.dromara.jpom.model.user.UserPermissionGroupBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Resource;
+import java.sql.SQLException;
+
+/**
+ * 登录校验缓存和权限快照失效
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class UserCacheTest extends ApplicationStartTest {
+
+    @Resource
+    private UserService userService;
+    @Resource
+    private UserBindWorkspaceService userBindWorkspaceService;
+    @Resource
+    private UserPermissionGroupServer userPermissionGroupServer;
+    @Resource
+    private ClusterInfoService clusterInfoService;
+
+    private String groupId;
+    private String workspaceId;
+    private String bindId;
+    private UserModel userModel;
+
+    @BeforeEach
+    public void before() {
+        groupId = IdUtil.fastSimpleUUID();
+        workspaceId = IdUtil.fastSimpleUUID();
+        UserPermissionGroupBean groupBean = new UserPermissionGroupBean();
+        groupBean.setId(groupId);
+        groupBean.setName("test");
+        userPermissionGroupServer.insert(groupBean);
+        //
+        UserBindWorkspaceModel bindWorkspaceModel = new UserBindWorkspaceModel();
+        bindId = UserBindWorkspaceModel.getId(groupId, workspaceId);
+        bindWorkspaceModel.setId(bindId);
+        bindWorkspaceModel.setUserId(groupId);
+        bindWorkspaceModel.setWorkspaceId(workspaceId);
+        userBindWorkspaceService.insert(bindWorkspaceModel);
+        //
+        userModel = new UserModel();
+        userModel.setId(IdUtil.fastSimpleUUID());
+        userModel.setName("test");
+        userModel.setPassword(IdUtil.fastSimpleUUID());
+        userModel.setPermissionGroup(groupId);
+        userService.insert(userModel);
+    }
+
+    @AfterEach
+    public void after() {
+        this.setMultiServer(false);
+        userService.delByKey(userModel.getId());
+        userBindWorkspaceService.delByKey(bindId);
+        userPermissionGroupServer.delByKey(groupId);
+    }
+
+    @Test
+    public void testPermissionChangedByService() {
+        Assertions.assertTrue(this.checkPermission());
+        userBindWorkspaceService.delByKey(bindId);
+        Assertions.assertFalse(this.checkPermission());
+    }
+
+    @Test
+    public void testPermissionChangedByRestore() throws SQLException {
+        Assertions.assertTrue(this.checkPermission());
+        // 直接修改数据库（还原备份）不会经过 service，需要主动通知
+        this.deleteDirect(userBindWorkspaceService.getTableName(), bindId);
+        UserBindWorkspaceService.permissionChanged();
+        Assertions.assertFalse(this.checkPermission());
+    }
+
+    @Test
+    public void testPermissionMultiServer() throws SQLException {
+        this.setMultiServer(true);
+        Assertions.assertTrue(this.checkPermission());
+        // 其他服务修改了权限
+        this.deleteDirect(userBindWorkspaceService.getTableName(), bindId);
+        Assertions.assertFalse(this.checkPermission());
+    }
+
+    @Test
+    public void testCheckUserChangedByService() {
+        Assertions.assertNotNull(userService.checkUser(userModel.getPassword()));
+        userService.delByKey(userModel.getId());
+        Assertions.assertNull(userService.checkUser(userModel.getPassword()));
+    }
+
+    @Test
+    public void testCheckUserChangedByRestore() throws SQLException {
+        Assertions.assertNotNull(userService.checkUser(userModel.getPassword()));
+        this.deleteDirect(userService.getTableName(), userModel.getId());
+        UserService.userChanged();
+        Assertions.assertNull(userService.checkUser(userModel.getPassword()));
+    }
+
+    @Test
+    public void testCheckUserMultiServer() throws SQLException {
+        this.setMultiServer(true);
+        Assertions.assertNotNull(userService.checkUser(userModel.getPassword()));
+        // 其他服务删除了用户
+        this.deleteDirect(userService.getTableName(), userModel.getId());
+        Assertions.assertNull(userService.checkUser(userModel.getPassword()));
+    }
+
+    private boolean checkPermission() {
+        UserModel user = userService.getByKey(userModel.getId());
+        if (user == null) {
+            user = userModel;
+        }
+        return userBindWorkspaceService.checkPermission(user, workspaceId).isSuccess();
+    }
+
+    private void deleteDirect(String tableName, String id) throws SQLException {
+        Db db = Db.use(StorageServiceFactory.get().getDsFactory().getDataSource());
+        db.execute("delete from " + tableName + " where id=?", id);
+    }
+
+    private void setMultiServer(boolean multiServer) {
+        ReflectUtil.setFieldValue(clusterInfoService, "multiServer", multiServer);
+    }
+}
@@ -9,8 +9,6 @@
  */
 package org.dromara.jpom.db;
 
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.bean.copier.CopyOptions;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.PageUtil;
 import cn.hutool.core.util.StrUtil;
@@ -20,6 +18,7 @@ import cn.hutool.db.Entity;
 import cn.hutool.db.Page;
 import cn.hutool.db.PageResult;
 import cn.hutool.db.ds.DSFactory;
+import cn.hutool.db.handler.EntityListHandler;
 import cn.hutool.db.sql.Condition;
 import cn.hutool.extra.spring.SpringUtil;
 import lombok.Getter;
@@ -31,10 +30,12 @@ import org.dromara.jpom.system.JpomRuntimeException;
 import org.springframework.util.Assert;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -64,6 +65,14 @@ public abstract class BaseDbCommonService<T> {
     protected final String tableName;
     protected final Class<T> tClass;
     protected final DbExtConfig.Mode dbMode;
+    /**
+     * 数据版本，表数据每次变化自增（用于判断依赖此表的缓存是否有效）
+     */
+    private final AtomicLong dataVersion = new AtomicLong();
+    /**
+     * 实体和 entity 转换器（每个实体类只解析一次）
+     */
+    private final EntityMapper<T> entityMapper;
 
     @SuppressWarnings("unchecked")
     public BaseDbCommonService() {
@@ -71,6 +80,7 @@ public abstract class BaseDbCommonService<T> {
         TableName annotation = tClass.getAnnotation(TableName.class);
         Assert.notNull(annotation, I18nMessageUtil.get("i18n.configure_table_name.f6fd"));
         this.tableName = annotation.value();
+        this.entityMapper = EntityMapper.of(tClass);
         this.dbMode = SpringUtil.getBean(DbExtConfig.class).getMode();
     }
 
@@ -91,17 +101,19 @@ public abstract class BaseDbCommonService<T> {
      * @param t 数据
      */
     protected final int insertDb(T t) {
-        Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+        Db db = this.use("insert");
         try {
             Entity entity = this.dataBeanToEntity(t);
             return db.insert(entity);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            this.dataChanged();
         }
     }
 
     /**
-     * 插入数据
+     * 插入数据，同一批数据在一个事务中写入，失败时全部回滚
      *
      * @param t 数据
      */
@@ -109,12 +121,57 @@ public abstract class BaseDbCommonService<T> {
         if (CollUtil.isEmpty(t)) {
             return;
         }
-        Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+        Db db = this.use("insertBatch");
         try {
             List<Entity> entities = t.stream().map(this::dataBeanToEntity).collect(Collectors.toList());
-            db.insert(entities);
+            db.tx(txDb -> txDb.insert(entities));
+        } catch (Exception e) {
+            throw warpException(e);
+        } finally {
+            this.dataChanged();
+        }
+    }
+
+    /**
+     * 批量修改数据，修改字段相同的数据使用同一个预编译语句批量执行
+     *
+     * @param entities 要修改的数据（需要包含条件字段）
+     * @param keyField 条件字段
+     */
+    protected final void updateBatchDb(Collection<Entity> entities, String keyField) {
+        if (CollUtil.isEmpty(entities)) {
+            return;
+        }
+        String wrapKey = DialectUtil.wrapField(keyField);
+        Map<List<String>, List<Entity>> group = entities.stream()
+            .collect(Collectors.groupingBy(entity -> new ArrayList<>(entity.keySet()), LinkedHashMap::new, Collectors.toList()));
+        Db db = this.use("updateBatch");
+        try {
+            for (Map.Entry<List<String>, List<Entity>> entry : group.entrySet()) {
+                List<String> fields = entry.getKey().stream()
+                    .filter(field -> !StrUtil.equals(field, wrapKey))
+                    .collect(Collectors.toList());
+                if (fields.isEmpty()) {
+                    continue;
+                }
+                String sql = StrUtil.format("update {} set {} where {}=?", tableName,
+                    fields.stream().map(field -> field + "=?").collect(Collectors.joining(",")), wrapKey);
+                List<Object[]> paramsBatch = entry.getValue().stream()
+                    .map(entity -> {
+                        Object[] params = new Object[fields.size() + 1];
+                        for (int i = 0; i < fields.size(); i++) {
+                            params[i] = entity.get(fields.get(i));
+                        }
+                        params[fields.size()] = entity.get(wrapKey);
+                        return params;
+                    })
+                    .collect(Collectors.toList());
+                db.executeBatch(sql, paramsBatch);
+            }
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            this.dataChanged();
         }
     }
 
@@ -125,11 +182,7 @@ public abstract class BaseDbCommonService<T> {
      * @return entity
      */
     public Entity dataBeanToEntity(T data) {
-        Entity entity = new Entity(tableName);
-        // 转换为 map
-        Map<String, Object> beanToMap = BeanUtil.beanToMap(data, new LinkedHashMap<>(), true, DialectUtil::wrapField);
-        entity.putAll(beanToMap);
-        return entity;
+        return entityMapper.toEntity(data, new Entity(tableName));
     }
 
 
@@ -141,7 +194,7 @@ public abstract class BaseDbCommonService<T> {
      * @return 影响行数
      */
     protected final int updateDb(Entity entity, Entity where) {
-        Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+        Db db = this.use("update");
         if (where.isEmpty()) {
             throw new JpomRuntimeException(I18nMessageUtil.get("i18n.update_condition_not_found.0870"));
         }
@@ -151,6 +204,8 @@ public abstract class BaseDbCommonService<T> {
             return db.update(entity, where);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            this.dataChanged();
         }
     }
 
@@ -170,7 +225,7 @@ public abstract class BaseDbCommonService<T> {
         where.set(ID_STR, keyValue);
         Entity entity;
         try {
-            Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+            Db db = this.use("get");
             if (consumer != null) {
                 consumer.accept(where);
             }
@@ -197,7 +252,7 @@ public abstract class BaseDbCommonService<T> {
         where.set(ID_STR, keyValue);
         List<Entity> entities;
         try {
-            Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+            Db db = this.use("find");
             if (consumer != null) {
                 consumer.accept(where);
             }
@@ -220,10 +275,12 @@ public abstract class BaseDbCommonService<T> {
             throw new JpomRuntimeException(I18nMessageUtil.get("i18n.no_deletion_condition.19d0"));
         }
         try {
-            Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+            Db db = this.use("del");
             return db.del(where);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            this.dataChanged();
         }
     }
 
@@ -235,7 +292,7 @@ public abstract class BaseDbCommonService<T> {
      */
     public final long count(Entity where) {
         where.setTableName(getTableName());
-        Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+        Db db = this.use("count");
         try {
             return db.count(where);
         } catch (Exception e) {
@@ -251,7 +308,7 @@ public abstract class BaseDbCommonService<T> {
      */
     public final long count(String sql, Object... params) {
         try {
-            return Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode)).count(sql, params);
+            return this.use(sql).count(sql, params);
         } catch (Exception e) {
             throw warpException(e);
         }
@@ -266,7 +323,7 @@ public abstract class BaseDbCommonService<T> {
      */
     public final List<Entity> queryList(Entity where) {
         where.setTableName(getTableName());
-        Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+        Db db = this.use("find");
         try {
             return db.find(where);
         } catch (Exception e) {
@@ -281,7 +338,7 @@ public abstract class BaseDbCommonService<T> {
      * @return List
      */
     public final List<T> findByCondition(Condition... wheres) {
-        Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+        Db db = this.use("findBy");
         try {
             List<Entity> entities = db.findBy(getTableName(), wheres);
             return this.entityToBeanList(entities);
@@ -301,10 +358,7 @@ public abstract class BaseDbCommonService<T> {
         if (entity == null) {
             return null;
         }
-        CopyOptions copyOptions = new CopyOptions();
-        copyOptions.setIgnoreError(true);
-        copyOptions.setIgnoreCase(true);
-        T toBean = BeanUtil.toBean(entity, this.tClass, copyOptions);
+        T toBean = entityMapper.toBean(entity);
         if (fill) {
             this.fillSelectResult(toBean);
         }
@@ -336,7 +390,7 @@ public abstract class BaseDbCommonService<T> {
     public final PageResultDto<T> listPageDb(Entity where, Page page, boolean fill) {
         where.setTableName(getTableName());
         PageResult<Entity> pageResult;
-        Db db = Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode));
+        Db db = this.use("page");
         try {
             pageResult = db.page(where, page);
         } catch (Exception e) {
@@ -353,6 +407,26 @@ public abstract class BaseDbCommonService<T> {
     }
 
 
+    /**
+     * 分页查询，不查询总数
+     *
+     * @param where 条件（可以通过 fieldNames 指定查询字段）
+     * @param page  分页
+     * @param fill  是否填充
+     * @return 结果
+     */
+    public final List<T> listPageNoCountDb(Entity where, Page page, boolean fill) {
+        where.setTableName(getTableName());
+        List<Entity> entities;
+        Db db = this.use("pageNoCount");
+        try {
+            entities = db.page(where, page, new EntityListHandler(true));
+        } catch (Exception e) {
+            throw warpException(e);
+        }
+        return this.entityToBeanList(entities, fill);
+    }
+
     /**
      * sql 查询
      *
@@ -362,7 +436,7 @@ public abstract class BaseDbCommonService<T> {
      */
     public final List<Entity> query(String sql, Object... params) {
         try {
-            return Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode)).query(sql, params);
+            return this.use(sql).query(sql, params);
         } catch (Exception e) {
             throw warpException(e);
         }
@@ -370,7 +444,7 @@ public abstract class BaseDbCommonService<T> {
 
     public Number queryNumber(String sql, Object... params) {
         try {
-            return Db.use(this.getDataSource()).queryNumber(sql, params);
+            return this.use(sql).queryNumber(sql, params);
         } catch (Exception e) {
             throw warpException(e);
         }
@@ -386,12 +460,44 @@ public abstract class BaseDbCommonService<T> {
      */
     public final int execute(String sql, Object... params) {
         try {
-            return Db.use(this.getDataSource(), DialectUtil.getDialectByMode(dbMode)).execute(sql, params);
+            return this.use(sql).execute(sql, params);
         } catch (Exception e) {
             throw warpException(e);
+        } finally {
+            this.dataChanged();
         }
     }
 
+    /**
+     * 获取统计执行耗时的 Db
+     *
+     * @param operation 操作类型或者 sql 语句
+     * @return db
+     */
+    private Db use(String operation) {
+        return new SqlStatDb(this.getDataSource(), DialectUtil.getDialectByMode(dbMode), tableName + StrUtil.COLON + operation);
+    }
+
+    /**
+     * 当前表的数据版本
+     *
+     * @return 版本号
+     */
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    private void dataChanged() {
+        dataVersion.incrementAndGet();
+        this.afterDataChange();
+    }
+
+    /**
+     * 表数据发生变化（插入、修改、删除、执行 sql）后回调，用于清理依赖此表数据的缓存
+     */
+    protected void afterDataChange() {
+    }
+
     /**
      * 查询结果 填充
      *
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.db;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Db;
+import cn.hutool.db.Entity;
+import cn.hutool.db.ds.DSFactory;
+import cn.hutool.db.sql.SqlExecutor;
+import cn.hutool.db.sql.Wrapper;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.Lombok;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.dromara.jpom.dialect.DialectUtil;
+import org.dromara.jpom.system.JpomRuntimeException;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * H2 数据迁移到其他数据库
+ * <p>
+ * 按主键游标分批读取源数据，目标库使用 jdbc 批量插入并且每批一个事务，多张表并行迁移。
+ * 每批提交后记录进度到本地文件，中断后再次迁移会从断点继续。迁移过程中不修改源数据，
+ * 全部表的数据条数和校验码核对一致后才允许删除源数据
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class DbDataMigrate {
+
+    private static final String CHECKPOINT_FILE = "migrate.checkpoint.json";
+    private static final String ID = "id";
+
+    private final DSFactory sourceDsFactory;
+    private final DSFactory targetDsFactory;
+    private final DbExtConfig.Mode targetMode;
+    private final Wrapper targetWrapper;
+    private final int batchSize;
+    private final File checkpointFile;
+    /**
+     * 表名 -> 迁移进度
+     */
+    private final JSONObject checkpoint;
+
+    public DbDataMigrate(DSFactory sourceDsFactory, DSFactory targetDsFactory, DbExtConfig.Mode targetMode, int batchSize) {
+        this(sourceDsFactory, targetDsFactory, targetMode, batchSize, FileUtil.file(StorageServiceFactory.dbLocalPath(), CHECKPOINT_FILE));
+    }
+
+    /**
+     * @param checkpointFile 迁移进度文件
+     */
+    public DbDataMigrate(DSFactory sourceDsFactory, DSFactory targetDsFactory, DbExtConfig.Mode targetMode, int batchSize, File checkpointFile) {
+        this.sourceDsFactory = sourceDsFactory;
+        this.targetDsFactory = targetDsFactory;
+        this.targetMode = targetMode;
+        this.targetWrapper = DialectUtil.getDialectByMode(targetMode).getWrapper();
+        this.batchSize = Math.max(batchSize, 1);
+        this.checkpointFile = checkpointFile;
+        if (FileUtil.isFile(checkpointFile)) {
+            this.checkpoint = JSONObject.parseObject(FileUtil.readString(checkpointFile, CharsetUtil.CHARSET_UTF_8));
+            log.info(I18nMessageUtil.get("i18n.migrate_resume_from_checkpoint.6b1e"), FileUtil.getAbsolutePath(checkpointFile));
+        } else {
+            this.checkpoint = new JSONObject();
+        }
+    }
+
+    /**
+     * 并行迁移所有表
+     *
+     * @param classes    数据表实体
+     * @param concurrent 并发数
+     * @return 迁移的总条数
+     */
+    public long migrate(Collection<Class<?>> classes, int concurrent) {
+        List<Long> list = this.runAll(classes, concurrent, this::migrateTable);
+        return list.stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * 核对所有表的数据条数和校验码，不一致抛出异常
+     *
+     * @param classes    数据表实体
+     * @param concurrent 并发数
+     */
+    public void verify(Collection<Class<?>> classes, int concurrent) {
+        this.runAll(classes, concurrent, aClass -> {
+            this.verifyTable(aClass);
+            return 0L;
+        });
+        log.info(I18nMessageUtil.get("i18n.migrate_verify_success.2f47"), classes.size());
+    }
+
+    /**
+     * 迁移并且核对成功、源数据文件已经删除后删除进度记录
+     */
+    public void clearCheckpoint() {
+        FileUtil.del(checkpointFile);
+    }
+
+    private List<Long> runAll(Collection<Class<?>> classes, int concurrent, TableFunc func) {
+        ExecutorService executorService = ThreadUtil.newExecutor(Math.max(1, Math.min(concurrent, classes.size())));
+        try {
+            List<Future<Long>> futures = classes.stream()
+                .map(aClass -> executorService.submit(() -> func.apply(aClass)))
+                .collect(Collectors.toList());
+            List<Long> result = new ArrayList<>(futures.size());
+            for (Future<Long> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw Lombok.sneakyThrow(e.getCause());
+        } catch (InterruptedException e) {
+            throw Lombok.sneakyThrow(e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private long migrateTable(Class<?> aClass) throws SQLException {
+        TableName tableName = aClass.getAnnotation(TableName.class);
+        String table = tableName.value();
+        String tableDesc = I18nMessageUtil.get(tableName.nameKey());
+        JSONObject progress = this.getProgress(table);
+        long count = progress.getLongValue("count");
+        if (progress.getBooleanValue("done")) {
+            log.info(I18nMessageUtil.get("i18n.migrate_table_skip_done.91c0"), tableDesc, count);
+            return count;
+        }
+        log.info(I18nMessageUtil.get("i18n.start_migrating.20d6"), tableDesc, table);
+        Set<String> boolFieldSet = Arrays.stream(ReflectUtil.getFields(aClass, field -> Boolean.class.equals(field.getType()) || boolean.class.equals(field.getType())))
+            .map(Field::getName)
+            .collect(Collectors.toSet());
+        String lastId = progress.getString("lastId");
+        long checksum = progress.getLongValue("checksum");
+        if (lastId == null) {
+            // 没有此表的进度（首次迁移、进度已经删除或者第一批提交后还没有记录进度），目标库中的数据都不可信
+            this.deleteTarget(table);
+        }
+        // 断点继续时上一批可能已经提交但是没有记录进度，第一批先删除目标库中的相同数据
+        boolean clean = lastId != null;
+        Db db = Db.use(sourceDsFactory.getDataSource(), DialectUtil.getH2Dialect());
+        while (true) {
+            List<Entity> list = this.nextBatch(db, table, StrUtil.EMPTY, lastId);
+            if (list.isEmpty()) {
+                break;
+            }
+            List<Entity> newResult = list.stream()
+                .map(entity -> this.toTargetEntity(entity, aClass, boolFieldSet))
+                .collect(Collectors.toList());
+            this.insertBatch(table, newResult, clean);
+            clean = false;
+            count += newResult.size();
+            for (Entity entity : newResult) {
+                checksum += rowChecksum(entity);
+            }
+            lastId = CollUtil.getLast(list).getStr(ID);
+            String finalLastId = lastId;
+            long finalCount = count;
+            long finalChecksum = checksum;
+            this.updateProgress(table, jsonObject -> {
+                jsonObject.put("lastId", finalLastId);
+                jsonObject.put("count", finalCount);
+                jsonObject.put("checksum", finalChecksum);
+            });
+            log.debug(I18nMessageUtil.get("i18n.migrate_progress.c84a"), tableDesc, count);
+            if (list.size() < batchSize) {
+                break;
+            }
+        }
+        this.updateProgress(table, jsonObject -> jsonObject.put("done", true));
+        log.info(I18nMessageUtil.get("i18n.migration_success.b20d"), tableDesc, count);
+        return count;
+    }
+
+    private void verifyTable(Class<?> aClass) throws SQLException {
+        TableName tableName = aClass.getAnnotation(TableName.class);
+        String table = tableName.value();
+        Set<String> boolFieldSet = Arrays.stream(ReflectUtil.getFields(aClass, field -> Boolean.class.equals(field.getType()) || boolean.class.equals(field.getType())))
+            .map(Field::getName)
+            .collect(Collectors.toSet());
+        Db sourceDb = Db.use(sourceDsFactory.getDataSource(), DialectUtil.getH2Dialect());
+        Number sourceCount = sourceDb.queryNumber("select count(1) from " + table);
+        Db targetDb = Db.use(targetDsFactory.getDataSource(), DialectUtil.getDialectByMode(targetMode));
+        String targetTable = targetWrapper.wrap(table);
+        long targetCount = 0;
+        long targetChecksum = 0;
+        String lastId = null;
+        while (true) {
+            List<Entity> list = this.nextBatch(targetDb, targetTable, targetWrapper.wrap(ID), lastId);
+            if (list.isEmpty()) {
+                break;
+            }
+            for (Entity entity : list) {
+                targetChecksum += rowChecksum(this.toTargetEntity(entity, aClass, boolFieldSet));
+            }
+            targetCount += list.size();
+            lastId = CollUtil.getLast(list).getStr(ID);
+            if (list.size() < batchSize) {
+                break;
+            }
+        }
+        JSONObject progress = this.getProgress(table);
+        long count = progress.getLongValue("count");
+        long checksum = progress.getLongValue("checksum");
+        if (sourceCount.longValue() != count || targetCount != count || targetChecksum != checksum) {
+            String tableDesc = I18nMessageUtil.get(tableName.nameKey());
+            // 清空目标库中的数据并且重置进度，再次迁移时重新迁移此表
+            this.deleteTarget(table);
+            this.resetProgress(table);
+            log.warn(I18nMessageUtil.get("i18n.migrate_verify_failure_reset.0c7a"), tableDesc);
+            throw new JpomRuntimeException(StrUtil.format(I18nMessageUtil.get("i18n.migrate_verify_failure.e5d9"),
+                tableDesc, sourceCount, targetCount, checksum, targetChecksum));
+        }
+    }
+
+    /**
+     * 删除目标库中表的所有数据
+     *
+     * @param table 表名
+     */
+    private void deleteTarget(String table) throws SQLException {
+        Db targetDb = Db.use(targetDsFactory.getDataSource(), DialectUtil.getDialectByMode(targetMode));
+        targetDb.execute("delete from " + targetWrapper.wrap(table));
+    }
+
+    /**
+     * 按主键游标读取下一批数据
+     *
+     * @param db     数据库
+     * @param table  表名
+     * @param idName 主键字段名，为空使用 id
+     * @param lastId 上一批最后一条数据的主键
+     * @return list
+     */
+    private List<Entity> nextBatch(Db db, String table, String idName, String lastId) throws SQLException {
+        String id = StrUtil.emptyToDefault(idName, ID);
+        if (lastId == null) {
+            return db.query(StrUtil.format("select * from {} order by {} limit ?", table, id), batchSize);
+        }
+        return db.query(StrUtil.format("select * from {} where {} > ? order by {} limit ?", table, id, id), lastId, batchSize);
+    }
+
+    /**
+     * 转换为目标库的数据
+     */
+    private Entity toTargetEntity(Entity row, Class<?> aClass, Set<String> boolFieldSet) {
+        Object bean = row.toBeanIgnoreCase(aClass);
+        Entity entity = Entity.create().parseBean(bean, false, true);
+        if (DbExtConfig.Mode.POSTGRESQL.equals(targetMode)) {
+            // tinyint类型查出来是数字，需转为bool
+            boolFieldSet.forEach(fieldName -> {
+                Object field = entity.get(fieldName);
+                if (field instanceof Number) {
+                    entity.set(fieldName, BooleanUtil.toBoolean(field.toString()));
+                }
+            });
+        }
+        return entity;
+    }
+
+    /**
+     * 批量插入，一批数据一个事务
+     * <p>
+     * hutool 的批量 insert 方法以第一条数据的字段为准，可能导致部分参数被丢弃，这里按字段分组后分别批量插入
+     *
+     * @param table 表名
+     * @param list  数据
+     * @param clean 是否先删除目标库中相同主键的数据
+     */
+    private void insertBatch(String table, List<Entity> list, boolean clean) throws SQLException {
+        String targetTable = targetWrapper.wrap(table);
+        Db db = Db.use(targetDsFactory.getDataSource(), DialectUtil.getDialectByMode(targetMode));
+        Connection connection = db.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+            if (clean) {
+                List<Object> ids = list.stream().map(entity -> entity.get(ID)).collect(Collectors.toList());
+                String placeholder = ids.stream().map(o -> "?").collect(Collectors.joining(","));
+                SqlExecutor.execute(connection, StrUtil.format("delete from {} where {} in ({})", targetTable, targetWrapper.wrap(ID), placeholder), ids.toArray());
+            }
+            Map<List<String>, List<Entity>> group = list.stream()
+                .collect(Collectors.groupingBy(entity -> new ArrayList<>(entity.keySet()), LinkedHashMap::new, Collectors.toList()));
+            for (Map.Entry<List<String>, List<Entity>> entry : group.entrySet()) {
+                List<String> fields = entry.getKey();
+                String columns = fields.stream().map(targetWrapper::wrap).collect(Collectors.joining(","));
+                String placeholder = fields.stream().map(s -> "?").collect(Collectors.joining(","));
+                String sql = StrUtil.format("insert into {} ({}) values ({})", targetTable, columns, placeholder);
+                List<Object[]> params = entry.getValue().stream()
+                    .map(entity -> fields.stream().map(entity::get).toArray())
+                    .collect(Collectors.toList());
+                SqlExecutor.executeBatch(connection, sql, params);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+            db.closeConnection(connection);
+        }
+    }
+
+    /**
+     * 获取表的迁移进度
+     *
+     * @param table 表名
+     * @return 进度副本，修改需要使用 {@link #updateProgress(String, Consumer)}
+     */
+    private synchronized JSONObject getProgress(String table) {
+        JSONObject progress = checkpoint.getJSONObject(table);
+        return progress == null ? new JSONObject() : progress.clone();
+    }
+
+    /**
+     * 修改表的迁移进度并且保存，修改和序列化在同一个锁中，避免多张表并行迁移时保存到不完整的进度
+     *
+     * @param table    表名
+     * @param consumer 修改进度
+     */
+    private synchronized void updateProgress(String table, Consumer<JSONObject> consumer) {
+        JSONObject progress = checkpoint.getJSONObject(table);
+        if (progress == null) {
+            progress = new JSONObject();
+            checkpoint.put(table, progress);
+        }
+        consumer.accept(progress);
+        this.saveCheckpoint();
+    }
+
+    /**
+     * 重置表的迁移进度
+     *
+     * @param table 表名
+     */
+    private synchronized void resetProgress(String table) {
+        checkpoint.remove(table);
+        this.saveCheckpoint();
+    }
+
+    private synchronized void saveCheckpoint() {
+        FileUtil.writeUtf8String(checkpoint.toString(), checkpointFile);
+    }
+
+    /**
+     * 计算单行数据的校验码，和字段顺序无关。布尔和数字统一转为字符串，兼容不同数据库的字段类型
+     *
+     * @param entity 数据
+     * @return 校验码
+     */
+    private static long rowChecksum(Entity entity) {
+        CRC32 crc32 = new CRC32();
+        for (Map.Entry<String, Object> entry : new TreeMap<>(entity).entrySet()) {
+            Object value = entry.getValue();
+            String str = value instanceof Boolean ? (BooleanUtil.isTrue((Boolean) value) ? "1" : "0") : String.valueOf(value);
+            crc32.update(StrUtil.bytes(entry.getKey() + "=" + str + ";", StandardCharsets.UTF_8));
+        }
+        return crc32.getValue();
+    }
+
+    @FunctionalInterface
+    private interface TableFunc {
+        Long apply(Class<?> aClass) throws Exception;
+    }
+}
@@ -9,6 +9,7 @@
  */
 package org.dromara.jpom.db;
 
+import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.db.sql.SqlLog;
 import cn.hutool.setting.Setting;
@@ -94,6 +95,18 @@ public class DbExtConfig implements InitializingBean {
      * @see cn.hutool.db.sql.SqlLog#KEY_SHOW_SQL
      */
     private Boolean showSql = false;
+    /**
+     * 慢 sql 阈值（毫秒），小于等于 0 不记录慢 sql
+     */
+    private Long slowSqlMillis = 500L;
+    /**
+     * h2 迁移到其他数据库时每批迁移的数据条数
+     */
+    private int migrateBatchSize = 1000;
+    /**
+     * h2 迁移到其他数据库时同时迁移的表数量
+     */
+    private int migrateConcurrent = 4;
 
     public String userName() {
         return StrUtil.emptyToDefault(this.userName, DbExtConfig.DEFAULT_USER_OR_AUTHORIZATION);
@@ -133,6 +146,7 @@ public class DbExtConfig implements InitializingBean {
     @Override
     public void afterPropertiesSet() throws Exception {
         StorageServiceFactory.setMode(this.getMode());
+        SqlStatCollector.setSlowMillis(ObjectUtil.defaultIfNull(this.getSlowSqlMillis(), 0L));
     }
 
     public enum Mode {
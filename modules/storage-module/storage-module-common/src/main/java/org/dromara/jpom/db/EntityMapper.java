@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.db;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.bean.PropDesc;
+import cn.hutool.core.convert.BasicType;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.map.SafeConcurrentHashMap;
+import cn.hutool.db.Entity;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.dialect.DialectUtil;
+import org.dromara.jpom.system.JpomRuntimeException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实体与数据库 Entity 的转换器
+ * <p>
+ * 每个数据表实体类只解析一次属性，getter、setter 预先绑定为 MethodHandle，转换时不再反射查找属性和忽略大小写匹配
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class EntityMapper<T> {
+
+    private static final Map<Class<?>, EntityMapper<?>> CACHE = new SafeConcurrentHashMap<>();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> tClass;
+    private final MethodHandle constructor;
+    /**
+     * 可读属性（实体转 Entity）
+     */
+    private final Prop[] readProps;
+    /**
+     * 字段名小写 -> 可写属性（Entity 转实体）
+     */
+    private final Map<String, Prop> writeProps;
+
+    /**
+     * 获取实体类对应的转换器
+     *
+     * @param tClass 实体类
+     * @param <T>    泛型
+     * @return 转换器
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMapper<T> of(Class<T> tClass) {
+        return (EntityMapper<T>) CACHE.computeIfAbsent(tClass, aClass -> new EntityMapper<>(tClass));
+    }
+
+    private EntityMapper(Class<T> tClass) {
+        this.tClass = tClass;
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            this.constructor = lookup.findConstructor(tClass, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new JpomRuntimeException(tClass.getName() + " not found public no-arg constructor", e);
+        }
+        List<Prop> readList = new ArrayList<>();
+        Map<String, Prop> writeMap = new HashMap<>(32);
+        for (PropDesc propDesc : BeanUtil.getBeanDesc(tClass).getProps()) {
+            Prop prop = new Prop(propDesc.getFieldName(), propDesc.getFieldType(), propDesc.getFieldClass());
+            // 和 BeanUtil.beanToMap、BeanUtil.toBean 默认行为一致，忽略 transient 属性
+            if (propDesc.isReadable(true)) {
+                prop.getter = this.unreflect(lookup, propDesc.getGetter(), GETTER_TYPE);
+            }
+            if (propDesc.isWritable(true)) {
+                prop.setter = this.unreflect(lookup, propDesc.getSetter(), SETTER_TYPE);
+            }
+            if (prop.getter != null) {
+                readList.add(prop);
+            }
+            if (prop.setter != null) {
+                writeMap.put(prop.name.toLowerCase(), prop);
+            }
+        }
+        this.readProps = readList.toArray(new Prop[0]);
+        this.writeProps = writeMap;
+    }
+
+    private MethodHandle unreflect(MethodHandles.Lookup lookup, Method method, MethodType type) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            return lookup.unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            // 非 public 的方法不参与转换，和 hutool 忽略不可访问属性保持一致
+            log.debug("{} {} unreflect error {}", tClass.getName(), method.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 实体转 Entity，忽略 null 值，字段名使用当前数据库的包装符
+     *
+     * @param data   实体
+     * @param entity 写入的 entity
+     * @return entity
+     */
+    public Entity toEntity(T data, Entity entity) {
+        if (data == null) {
+            return entity;
+        }
+        try {
+            for (Prop prop : readProps) {
+                Object value = prop.getter.invokeExact((Object) data);
+                if (value != null) {
+                    entity.put(prop.wrapName(), value);
+                }
+            }
+        } catch (Throwable e) {
+            throw new JpomRuntimeException(tClass.getName() + " to entity error", e);
+        }
+        return entity;
+    }
+
+    /**
+     * Entity 转实体，字段名忽略大小写，类型转换失败的字段忽略
+     *
+     * @param entity 数据库查询结果
+     * @return 实体
+     */
+    @SuppressWarnings("unchecked")
+    public T toBean(Map<String, Object> entity) {
+        T data;
+        try {
+            data = (T) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new JpomRuntimeException(tClass.getName() + " new instance error", e);
+        }
+        for (Map.Entry<String, Object> entry : entity.entrySet()) {
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+            Prop prop = writeProps.get(entry.getKey().toLowerCase());
+            if (prop == null) {
+                continue;
+            }
+            Object convert = prop.convert(value);
+            if (convert == null) {
+                continue;
+            }
+            try {
+                prop.setter.invokeExact((Object) data, convert);
+            } catch (Throwable e) {
+                log.debug("{} {} set value error {}", tClass.getName(), prop.name, e.getMessage());
+            }
+        }
+        return data;
+    }
+
+    private static class Prop {
+        private final String name;
+        private final Type type;
+        private final Class<?> typeClass;
+        private final Class<?> boxClass;
+        private MethodHandle getter;
+        private MethodHandle setter;
+        private volatile String wrapName;
+
+        private Prop(String name, Type type, Class<?> typeClass) {
+            this.name = name;
+            this.type = type;
+            this.typeClass = typeClass;
+            this.boxClass = BasicType.wrap(typeClass);
+        }
+
+        /**
+         * 数据库模式在启动后才能确定，包装后的字段名在首次使用时计算
+         *
+         * @return 包装后的字段名
+         */
+        private String wrapName() {
+            String wrap = this.wrapName;
+            if (wrap == null) {
+                wrap = DialectUtil.wrapField(name);
+                this.wrapName = wrap;
+            }
+            return wrap;
+        }
+
+        private Object convert(Object value) {
+            if (boxClass.isInstance(value)) {
+                return value;
+            }
+            if (value instanceof Number) {
+                Number number = (Number) value;
+                if (boxClass == Long.class) {
+                    return number.longValue();
+                }
+                if (boxClass == Integer.class) {
+                    return number.intValue();
+                }
+            }
+            try {
+                return Convert.convertWithCheck(type, value, null, true);
+            } catch (Exception e) {
+                log.debug("{} convert error {}", typeClass.getName(), e.getMessage());
+                return null;
+            }
+        }
+    }
+}
@@ -64,6 +64,15 @@ public interface IStorageSqlBuilderService extends IMode {
         return generateColumnSql(tableViewRowData);
     }
 
+    /**
+     * 查询索引使用次数的 sql，结果需要包含 tableName、indexName、scanCount 字段
+     *
+     * @return sql，null 不支持统计
+     */
+    default String indexUsageSql() {
+        return null;
+    }
+
     /**
      * sql 分隔执行标记
      *
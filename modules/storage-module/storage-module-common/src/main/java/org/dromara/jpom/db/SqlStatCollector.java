@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.db;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.map.SafeConcurrentHashMap;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * sql 执行耗时统计
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class SqlStatCollector {
+
+    /**
+     * 最多统计的语句数量，避免拼接参数的 sql 无限增长
+     */
+    private static final int MAX_SIZE = 1000;
+    private static final Map<String, Item> STAT_MAP = new SafeConcurrentHashMap<>();
+    /**
+     * 慢 sql 阈值（毫秒），小于等于 0 不记录慢 sql 日志
+     */
+    @Getter
+    private static volatile long slowMillis = 500;
+
+    public static void setSlowMillis(long slowMillis) {
+        SqlStatCollector.slowMillis = slowMillis;
+    }
+
+    /**
+     * 记录执行耗时
+     *
+     * @param name   语句（表名 + 操作类型或者 sql）
+     * @param millis 耗时
+     */
+    public static void record(String name, long millis) {
+        long slow = slowMillis;
+        boolean isSlow = slow > 0 && millis >= slow;
+        if (isSlow) {
+            // 统计数量达到上限后仍然需要输出慢 sql 日志
+            log.warn(I18nMessageUtil.get("i18n.slow_sql_detected.5e1a"), millis, name);
+        }
+        Item item = STAT_MAP.get(name);
+        if (item == null) {
+            if (STAT_MAP.size() >= MAX_SIZE) {
+                return;
+            }
+            item = STAT_MAP.computeIfAbsent(name, Item::new);
+        }
+        item.count.increment();
+        item.totalMillis.add(millis);
+        item.maxMillis.accumulateAndGet(millis, Math::max);
+        if (isSlow) {
+            item.slowCount.increment();
+            item.lastSlowTime = SystemClock.now();
+        }
+    }
+
+    /**
+     * 按照总耗时倒序
+     *
+     * @param limit 数量
+     * @return list
+     */
+    public static List<Item> top(int limit) {
+        return STAT_MAP.values()
+            .stream()
+            .sorted(Comparator.comparingLong((Item item) -> item.totalMillis.sum()).reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 清空统计
+     */
+    public static void clear() {
+        STAT_MAP.clear();
+    }
+
+    /**
+     * 单个语句的统计
+     */
+    public static class Item {
+        @Getter
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAdder slowCount = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+        @Getter
+        private volatile long lastSlowTime;
+
+        private Item(String name) {
+            this.name = name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalMillis() {
+            return totalMillis.sum();
+        }
+
+        public long getAvgMillis() {
+            long sum = count.sum();
+            return sum == 0 ? 0 : totalMillis.sum() / sum;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis.get();
+        }
+
+        public long getSlowCount() {
+            return slowCount.sum();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.db;
+
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.db.Db;
+import cn.hutool.db.dialect.Dialect;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 统计执行耗时的 Db，从获取连接到释放连接记为一次执行
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class SqlStatDb extends Db {
+
+    private final String name;
+    private long startTime;
+
+    public SqlStatDb(DataSource ds, Dialect dialect, String name) {
+        super(ds, dialect);
+        this.name = name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (this.startTime == 0) {
+            // 事务中会多次获取同一个连接，从第一次获取开始计时
+            this.startTime = SystemClock.now();
+        }
+        return super.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection conn) {
+        if (inTransaction(conn)) {
+            // 事务中的连接不会释放，等事务结束后再统计
+            super.closeConnection(conn);
+            return;
+        }
+        try {
+            super.closeConnection(conn);
+        } finally {
+            SqlStatCollector.record(name, SystemClock.now() - startTime);
+            this.startTime = 0;
+        }
+    }
+
+    private static boolean inTransaction(Connection conn) {
+        try {
+            return conn != null && !conn.getAutoCommit();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -47,6 +47,10 @@ public class PageResultDto<T> implements Serializable {
      * 总数
      */
     private Integer total;
+    /**
+     * 下一页游标（游标分页时返回）
+     */
+    private String nextCursor;
 
     public PageResultDto(PageResult<T> pageResult) {
         this.setPage(pageResult.getPage());
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.db.Db;
+import cn.hutool.db.Entity;
+import cn.hutool.db.ds.DSFactory;
+import cn.hutool.extra.spring.SpringUtil;
+import cn.hutool.setting.Setting;
+import com.alibaba.fastjson2.JSONObject;
+import org.dromara.jpom.db.DbDataMigrate;
+import org.dromara.jpom.db.DbExtConfig;
+import org.dromara.jpom.db.TableName;
+import org.dromara.jpom.dialect.DialectUtil;
+import org.dromara.jpom.system.JpomRuntimeException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * H2 数据迁移断点继续和校验
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class TestDbDataMigrate {
+
+    private static final String CREATE_SQL = "create table MIGRATE_TEST (`id` varchar(50) not null primary key, `name` varchar(100), `num` int, `enabled` tinyint)";
+
+    private DSFactory source;
+    private DSFactory target;
+    private File checkpointFile;
+
+    @BeforeClass
+    public static void beforeClass() {
+        // 没有 spring 环境，日志中的国际化消息需要 MessageSource
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.registerBean(MessageSource.class, () -> {
+            ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+            messageSource.setBasename("i18n/messages");
+            messageSource.setDefaultEncoding("UTF-8");
+            messageSource.setUseCodeAsDefaultMessage(true);
+            return messageSource;
+        });
+        context.refresh();
+        new SpringUtil().setApplicationContext(context);
+    }
+
+    @Before
+    public void before() throws SQLException {
+        source = this.createDs();
+        target = this.createDs();
+        this.db(source).execute(CREATE_SQL);
+        this.db(target).execute(CREATE_SQL);
+        checkpointFile = FileUtil.file(FileUtil.getTmpDir(), "jpom-test", IdUtil.fastSimpleUUID(), "migrate.checkpoint.json");
+    }
+
+    @After
+    public void after() {
+        source.destroy();
+        target.destroy();
+        FileUtil.del(checkpointFile.getParentFile());
+    }
+
+    @Test
+    public void testMigrateAndVerify() throws SQLException {
+        this.insertSource(1, 35);
+        DbDataMigrate migrate = this.create();
+        long count = migrate.migrate(Collections.singletonList(MigrateTestModel.class), 2);
+        Assert.assertEquals(35, count);
+        migrate.verify(Collections.singletonList(MigrateTestModel.class), 2);
+        Assert.assertEquals(35, this.db(target).queryNumber("select count(1) from MIGRATE_TEST").intValue());
+    }
+
+    @Test
+    public void testResume() throws SQLException {
+        // 第一次只迁移了前 20 条
+        this.insertSource(1, 20);
+        this.create().migrate(Collections.singletonList(MigrateTestModel.class), 1);
+        // 模拟中断：进度未完成，下一批已经提交但是没有记录进度
+        JSONObject checkpoint = JSONObject.parseObject(FileUtil.readUtf8String(checkpointFile));
+        checkpoint.getJSONObject("MIGRATE_TEST").put("done", false);
+        FileUtil.writeUtf8String(checkpoint.toString(), checkpointFile);
+        this.insertSource(21, 35);
+        for (int i = 21; i <= 25; i++) {
+            this.db(target).insert(this.row(i));
+        }
+        //
+        DbDataMigrate migrate = this.create();
+        long count = migrate.migrate(Collections.singletonList(MigrateTestModel.class), 1);
+        Assert.assertEquals(35, count);
+        migrate.verify(Collections.singletonList(MigrateTestModel.class), 1);
+        Assert.assertEquals(35, this.db(target).queryNumber("select count(1) from MIGRATE_TEST").intValue());
+    }
+
+    @Test
+    public void testRestartWithoutCheckpoint() throws SQLException {
+        this.insertSource(1, 35);
+        this.create().migrate(Collections.singletonList(MigrateTestModel.class), 1);
+        // 进度已经删除，但是源数据没有删除成功
+        FileUtil.del(checkpointFile);
+        DbDataMigrate migrate = this.create();
+        Assert.assertEquals(35, migrate.migrate(Collections.singletonList(MigrateTestModel.class), 1));
+        migrate.verify(Collections.singletonList(MigrateTestModel.class), 1);
+        Assert.assertEquals(35, this.db(target).queryNumber("select count(1) from MIGRATE_TEST").intValue());
+    }
+
+    @Test
+    public void testFirstBatchWithoutCheckpoint() throws SQLException {
+        this.insertSource(1, 35);
+        // 第一批已经提交，还没有记录进度就中断了
+        for (int i = 1; i <= 10; i++) {
+            this.db(target).insert(this.row(i));
+        }
+        Assert.assertFalse(checkpointFile.exists());
+        DbDataMigrate migrate = this.create();
+        Assert.assertEquals(35, migrate.migrate(Collections.singletonList(MigrateTestModel.class), 1));
+        migrate.verify(Collections.singletonList(MigrateTestModel.class), 1);
+    }
+
+    @Test
+    public void testChecksumMismatch() throws SQLException {
+        this.insertSource(1, 35);
+        DbDataMigrate migrate = this.create();
+        migrate.migrate(Collections.singletonList(MigrateTestModel.class), 1);
+        // 条数一致，内容不一致
+        this.db(target).execute("update MIGRATE_TEST set name = ? where id = ?", "changed", id(7));
+        Assert.assertThrows(JpomRuntimeException.class, () -> migrate.verify(Collections.singletonList(MigrateTestModel.class), 1));
+        // 校验失败后清空目标数据并且重置进度
+        Assert.assertEquals(0, this.db(target).queryNumber("select count(1) from MIGRATE_TEST").intValue());
+        JSONObject checkpoint = JSONObject.parseObject(FileUtil.readUtf8String(checkpointFile));
+        Assert.assertFalse(checkpoint.containsKey("MIGRATE_TEST"));
+        // 再次迁移
+        DbDataMigrate migrate2 = this.create();
+        Assert.assertEquals(35, migrate2.migrate(Collections.singletonList(MigrateTestModel.class), 1));
+        migrate2.verify(Collections.singletonList(MigrateTestModel.class), 1);
+        List<Entity> list = this.db(target).query("select name from MIGRATE_TEST where id = ?", id(7));
+        Assert.assertEquals("name-7", list.get(0).getStr("name"));
+    }
+
+    private DbDataMigrate create() {
+        return new DbDataMigrate(source, target, DbExtConfig.Mode.H2, 10, checkpointFile);
+    }
+
+    private DSFactory createDs() {
+        Setting setting = new Setting();
+        setting.set("url", StrUtil.format("jdbc:h2:mem:{};MODE=MYSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1", IdUtil.fastSimpleUUID()));
+        setting.set("user", "sa");
+        setting.set("pass", "");
+        return DSFactory.create(setting);
+    }
+
+    private Db db(DSFactory dsFactory) {
+        return Db.use(dsFactory.getDataSource(), DialectUtil.getH2Dialect());
+    }
+
+    private void insertSource(int start, int end) throws SQLException {
+        for (int i = start; i <= end; i++) {
+            this.db(source).insert(this.row(i));
+        }
+    }
+
+    private Entity row(int i) {
+        return Entity.create("MIGRATE_TEST")
+            .set("id", id(i))
+            .set("name", "name-" + i)
+            .set("num", i % 3 == 0 ? null : i)
+            .set("enabled", i % 2);
+    }
+
+    private static String id(int i) {
+        return StrUtil.padPre(String.valueOf(i), 5, '0');
+    }
+
+    @TableName(value = "MIGRATE_TEST", nameKey = "i18n.migrate_test")
+    public static class MigrateTestModel {
+        private String id;
+        private String name;
+        private Integer num;
+        private Boolean enabled;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getNum() {
+            return num;
+        }
+
+        public void setNum(Integer num) {
+            this.num = num;
+        }
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+}
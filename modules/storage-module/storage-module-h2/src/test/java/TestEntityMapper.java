@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.db.Entity;
+import cn.hutool.db.sql.Wrapper;
+import com.alibaba.fastjson2.JSON;
+import org.dromara.jpom.db.EntityMapper;
+import org.dromara.jpom.dialect.DialectUtil;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * EntityMapper 和 hutool BeanUtil 转换结果对比
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+public class TestEntityMapper {
+
+    @BeforeClass
+    public static void beforeClass() {
+        // 没有 spring 环境，直接指定字段包装符
+        ReflectUtil.setFieldValue(DialectUtil.class, "currentDbFieldWrapper", new Wrapper('`'));
+    }
+
+    @Test
+    public void testToBean() {
+        // 数据库查询结果的字段名为大写，数字类型和实体的类型不一定相同
+        Map<String, Object> row = new HashMap<>();
+        row.put("ID", "abc");
+        row.put("NAME", "jpom");
+        row.put("CREATETIMEMILLIS", new BigDecimal("1700000000000"));
+        row.put("STATUS", 1L);
+        row.put("ENABLED", 1);
+        row.put("RATE", "1.5");
+        row.put("COUNT", (short) 3);
+        row.put("UNKNOWN", "ignore");
+        row.put("MODIFYTIMEMILLIS", null);
+        MapperTestModel mapper = EntityMapper.of(MapperTestModel.class).toBean(row);
+        MapperTestModel hutool = BeanUtil.toBeanIgnoreCase(row, MapperTestModel.class, true);
+        Assert.assertEquals(JSON.toJSONString(hutool), JSON.toJSONString(mapper));
+        Assert.assertEquals(Long.valueOf(1700000000000L), mapper.getCreateTimeMillis());
+        Assert.assertEquals(Integer.valueOf(1), mapper.getStatus());
+        Assert.assertEquals(Boolean.TRUE, mapper.getEnabled());
+        Assert.assertEquals(3, mapper.getCount());
+    }
+
+    @Test
+    public void testToEntity() {
+        MapperTestModel model = new MapperTestModel();
+        model.setId("abc");
+        model.setName("jpom");
+        model.setCreateTimeMillis(1700000000000L);
+        model.setEnabled(false);
+        model.setCount(2);
+        Entity entity = EntityMapper.of(MapperTestModel.class).toEntity(model, Entity.create());
+        Entity hutool = Entity.create().parseBean(model, false, true);
+        Map<String, Object> unwrap = new HashMap<>();
+        entity.forEach((key, value) -> unwrap.put(DialectUtil.unWrapField(key), value));
+        Assert.assertEquals(new HashMap<>(hutool), unwrap);
+        // null 值忽略
+        Assert.assertFalse(unwrap.containsKey("status"));
+        Assert.assertEquals("`name`", entity.keySet().stream().filter(s -> s.contains("name")).findFirst().orElse(null));
+    }
+
+    public static class MapperTestModel {
+        private String id;
+        private String name;
+        private Long createTimeMillis;
+        private Long modifyTimeMillis;
+        private Integer status;
+        private Boolean enabled;
+        private Double rate;
+        private int count;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getCreateTimeMillis() {
+            return createTimeMillis;
+        }
+
+        public void setCreateTimeMillis(Long createTimeMillis) {
+            this.createTimeMillis = createTimeMillis;
+        }
+
+        public Long getModifyTimeMillis() {
+            return modifyTimeMillis;
+        }
+
+        public void setModifyTimeMillis(Long modifyTimeMillis) {
+            this.modifyTimeMillis = modifyTimeMillis;
+        }
+
+        public Integer getStatus() {
+            return status;
+        }
+
+        public void setStatus(Integer status) {
+            this.status = status;
+        }
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Double getRate() {
+            return rate;
+        }
+
+        public void setRate(Double rate) {
+            this.rate = rate;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+}
@@ -194,6 +194,14 @@ public class MysqlTableBuilderImpl implements IStorageSqlBuilderService {
         return columnSql;
     }
 
+    @Override
+    public String indexUsageSql() {
+        // 需要开启 performance_schema
+        return "select object_name as tableName, index_name as indexName, count_star as scanCount" +
+            " from performance_schema.table_io_waits_summary_by_index_usage" +
+            " where object_schema = database() and index_name is not null and index_name <> 'PRIMARY'";
+    }
+
     @Override
     public String delimiter() {
         return "-- mysql delimiter";
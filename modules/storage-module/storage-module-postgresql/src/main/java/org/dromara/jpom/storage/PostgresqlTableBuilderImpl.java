@@ -298,6 +298,13 @@ public class PostgresqlTableBuilderImpl implements IStorageSqlBuilderService {
     }
 
 
+    @Override
+    public String indexUsageSql() {
+        return "select s.relname as tableName, s.indexrelname as indexName, s.idx_scan as scanCount" +
+            " from pg_stat_user_indexes s join pg_index i on i.indexrelid = s.indexrelid" +
+            " where not i.indisprimary";
+    }
+
     @Override
     public String delimiter() {
         return "-- postgresql $delimiter$";
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2019 Of Him Code Technology Studio
+ * Jpom is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ * 			http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND, EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT, MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package org.dromara.jpom.plugin;
+
+import cn.hutool.core.comparator.VersionComparator;
+import cn.hutool.core.date.SystemClock;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.Tuple;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.jpom.common.i18n.I18nMessageUtil;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.SubmoduleUpdateCommand;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.URIish;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * git 仓库本地镜像
+ * <p>
+ * 同一个仓库只保留一个裸仓库镜像，多个构建同时同步时合并为一次拉取。
+ * 构建目录通过 alternates 引用镜像中的对象，只需要从镜像中拉取引用即可。
+ * 镜像每次重新创建都会生成新的版本标识，引用了旧镜像的构建目录需要重新初始化（旧镜像中的对象已经不存在）
+ *
+ * @author bwcx_jzy
+ * @since 2026/10/17
+ */
+@Slf4j
+public class GitMirror {
+
+    private static final Map<String, MirrorState> MIRROR_STATE = new ConcurrentHashMap<>();
+    /**
+     * 标记当前参数已经同步过镜像（获取分支和拉取代码共用同一个参数对象）
+     */
+    private static final String MIRROR_SYNCED = "mirrorSynced";
+    /**
+     * 镜像版本标识文件，镜像和构建目录的 .git 中都会保存
+     */
+    private static final String GENERATION_FILE = "jpom-mirror-generation";
+
+    /**
+     * 是否启用镜像
+     *
+     * @param parameter 参数
+     * @return true 启用
+     */
+    public static boolean enabled(Map<String, Object> parameter) {
+        return parameter.get("mirrorPath") instanceof File;
+    }
+
+    /**
+     * 镜像仓库路径
+     *
+     * @param parameter 参数
+     * @return 裸仓库路径
+     */
+    public static File getMirrorPath(Map<String, Object> parameter) {
+        return (File) parameter.get("mirrorPath");
+    }
+
+    /**
+     * 同步镜像并获取分支和标签
+     * <p>
+     * 等待锁期间如果有其他构建开始了拉取，直接复用该次拉取的结果
+     *
+     * @param parameter   参数
+     * @param printWriter 日志
+     * @param fetcher     拉取实现
+     * @return 分支和标签
+     * @throws Exception 异常
+     */
+    public static Tuple sync(Map<String, Object> parameter, PrintWriter printWriter, Fetcher fetcher) throws Exception {
+        File mirrorPath = getMirrorPath(parameter);
+        String key = FileUtil.getAbsolutePath(mirrorPath);
+        MirrorState state = MIRROR_STATE.computeIfAbsent(key, s -> new MirrorState());
+        long requestTime = SystemClock.now();
+        Integer interval = (Integer) parameter.get("mirrorFetchInterval");
+        long intervalMillis = interval == null || interval <= 0 ? 0 : interval * 1000L;
+        synchronized (state) {
+            // 镜像可能已经被删除（删除仓库）
+            boolean fresh = state.refs != null && FileUtil.isFile(FileUtil.file(mirrorPath, Constants.HEAD))
+                && (state.lastFetchStart >= requestTime || requestTime - state.lastFetchEnd < intervalMillis);
+            if (fresh) {
+                JGitUtil.println(printWriter, I18nMessageUtil.get("i18n.reuse_git_mirror.8d3b"), key);
+            } else {
+                JGitUtil.println(printWriter, I18nMessageUtil.get("i18n.sync_git_mirror.2f6a"), key);
+                state.refs = null;
+                state.lastFetchStart = SystemClock.now();
+                fetcher.fetch(mirrorPath);
+                state.refs = readRefs(mirrorPath);
+                state.lastFetchEnd = SystemClock.now();
+            }
+            parameter.put(MIRROR_SYNCED, true);
+            return state.refs;
+        }
+    }
+
+    /**
+     * 当前参数是否已经同步过镜像
+     *
+     * @param parameter 参数
+     * @return true 已经同步
+     */
+    public static boolean isSynced(Map<String, Object> parameter) {
+        return parameter.get(MIRROR_SYNCED) != null;
+    }
+
+    /**
+     * 使用 jgit 同步镜像
+     *
+     * @param parameter   参数
+     * @param mirrorPath  镜像路径
+     * @param printWriter 日志
+     * @throws Exception 异常
+     */
+    public static void jgitFetch(Map<String, Object> parameter, File mirrorPath, PrintWriter printWriter) throws Exception {
+        String url = (String) parameter.get("url");
+        boolean exists = FileUtil.isFile(FileUtil.file(mirrorPath, Constants.HEAD)) && JGitUtil.checkRemoteUrl(url, mirrorPath);
+        if (!exists) {
+            FileUtil.del(mirrorPath);
+            try (Git git = Git.init().setBare(true).setDirectory(mirrorPath).call()) {
+                git.remoteAdd().setName(Constants.DEFAULT_REMOTE_NAME).setUri(new URIish(url)).call();
+            }
+            newGeneration(mirrorPath);
+        }
+        try (Git git = Git.open(mirrorPath)) {
+            Integer progressRatio = (Integer) parameter.get("reduceProgressRatio");
+            FetchCommand fetch = git.fetch()
+                .setRemote(Constants.DEFAULT_REMOTE_NAME)
+                .setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*"), new RefSpec("+refs/tags/*:refs/tags/*"))
+                .setTagOpt(TagOpt.NO_TAGS)
+                .setRemoveDeletedRefs(true);
+            if (printWriter != null) {
+                fetch.setProgressMonitor(new SmallTextProgressMonitor(printWriter, progressRatio == null ? 5 : progressRatio));
+            }
+            JGitUtil.setCredentials(fetch, parameter);
+            fetch.call();
+        }
+    }
+
+    /**
+     * 读取镜像中的分支和标签
+     *
+     * @param mirrorPath 镜像路径
+     * @return 分支和标签
+     * @throws IOException io
+     */
+    private static Tuple readRefs(File mirrorPath) throws IOException {
+        try (Git git = Git.open(mirrorPath)) {
+            Repository repository = git.getRepository();
+            List<String> branchList = readRefs(repository, Constants.R_HEADS);
+            if (branchList.isEmpty()) {
+                return null;
+            }
+            List<String> tagList = readRefs(repository, Constants.R_TAGS);
+            return new Tuple(branchList, tagList);
+        }
+    }
+
+    private static List<String> readRefs(Repository repository, String prefix) throws IOException {
+        List<Ref> refs = repository.getRefDatabase().getRefsByPrefix(prefix);
+        return refs.stream()
+            .map(ref -> StrUtil.removePrefix(ref.getName(), prefix))
+            .filter(StrUtil::isNotEmpty)
+            .sorted((o1, o2) -> VersionComparator.INSTANCE.compare(o2, o1))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 镜像重新创建后生成新的版本标识
+     *
+     * @param mirrorPath 镜像路径
+     */
+    public static void newGeneration(File mirrorPath) {
+        FileUtil.writeUtf8String(IdUtil.fastSimpleUUID(), FileUtil.file(mirrorPath, GENERATION_FILE));
+    }
+
+    /**
+     * 获取镜像的版本标识，旧版本创建的镜像没有标识时生成新的标识
+     *
+     * @param mirrorPath 镜像路径
+     * @return 版本标识
+     */
+    private static String generation(File mirrorPath) {
+        File file = FileUtil.file(mirrorPath, GENERATION_FILE);
+        if (!FileUtil.isFile(file)) {
+            newGeneration(mirrorPath);
+        }
+        return StrUtil.trim(FileUtil.readUtf8String(file));
+    }
+
+    /**
+     * 构建目录是否引用了已经被删除（重新创建）的镜像，此时构建目录中的对象已经不完整需要重新初始化
+     *
+     * @param gitDir     构建目录 .git 文件夹
+     * @param mirrorPath 镜像路径
+     * @return true 需要重新初始化
+     */
+    public static boolean isStale(File gitDir, File mirrorPath) {
+        File alternates = FileUtil.file(gitDir, Constants.OBJECTS, "info", "alternates");
+        if (!FileUtil.isFile(alternates) || StrUtil.isBlank(FileUtil.readUtf8String(alternates))) {
+            // 没有引用其他仓库的对象
+            return false;
+        }
+        File generationFile = FileUtil.file(gitDir, GENERATION_FILE);
+        String generation = FileUtil.isFile(generationFile) ? StrUtil.trim(FileUtil.readUtf8String(generationFile)) : null;
+        return !StrUtil.equals(generation, generation(mirrorPath));
+    }
+
+    /**
+     * 让构建目录引用镜像中的对象，需要先通过 {@link #isStale(File, File)} 判断构建目录是否可用
+     *
+     * @param gitDir     构建目录 .git 文件夹
+     * @param mirrorPath 镜像路径
+     */
+    public static void linkAlternates(File gitDir, File mirrorPath) {
+        File alternates = FileUtil.file(gitDir, Constants.OBJECTS, "info", "alternates");
+        String objects = FileUtil.getAbsolutePath(FileUtil.file(mirrorPath, Constants.OBJECTS));
+        FileUtil.writeUtf8String(generation(mirrorPath), FileUtil.file(gitDir, GENERATION_FILE));
+        if (FileUtil.isFile(alternates) && StrUtil.contains(FileUtil.readUtf8String(alternates), objects)) {
+            return;
+        }
+        FileUtil.writeUtf8String(objects + StrUtil.LF, alternates);
+    }
+
+    /**
+     * 从镜像检出分支或者标签到构建目录
+     *
+     * @param parameter   参数
+     * @param file        构建目录
+     * @param branchName  分支
+     * @param tagName     标签
+     * @param printWriter 日志
+     * @return 最后一次提交信息
+     * @throws Exception 异常
+     */
+    public static String[] checkout(Map<String, Object> parameter, File file, String branchName, String tagName, PrintWriter printWriter) throws Exception {
+        String url = (String) parameter.get("url");
+        File mirrorPath = getMirrorPath(parameter);
+        boolean tag = StrUtil.isNotEmpty(tagName);
+        String path = FileUtil.getAbsolutePath(file);
+        synchronized (StrUtil.concat(false, url, path).intern()) {
+            try (Git git = openWorkTree(url, file, mirrorPath)) {
+                Integer progressRatio = (Integer) parameter.get("reduceProgressRatio");
+                SmallTextProgressMonitor progressMonitor = new SmallTextProgressMonitor(printWriter, progressRatio == null ? 5 : progressRatio);
+                String remoteRef = tag ? Constants.R_TAGS + tagName : Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branchName;
+                String sourceRef = tag ? Constants.R_TAGS + tagName : Constants.R_HEADS + branchName;
+                // 对象已经通过 alternates 共享，这里只会同步引用
+                git.fetch()
+                    .setRemote(FileUtil.getAbsolutePath(mirrorPath))
+                    .setRefSpecs(new RefSpec("+" + sourceRef + ":" + remoteRef))
+                    .setTagOpt(TagOpt.NO_TAGS)
+                    .setProgressMonitor(progressMonitor)
+                    .call();
+                if (tag) {
+                    git.checkout().setName(remoteRef).setForced(true).setProgressMonitor(progressMonitor).call();
+                } else {
+                    boolean exists = git.getRepository().findRef(Constants.R_HEADS + branchName) != null;
+                    git.checkout()
+                        .setName(branchName)
+                        .setCreateBranch(!exists)
+                        .setStartPoint(remoteRef)
+                        .setForced(true)
+                        .setProgressMonitor(progressMonitor)
+                        .call();
+                }
+                // 放弃本地修改
+                git.reset().setMode(ResetCommand.ResetType.HARD).setRef(remoteRef).call();
+                //
+                SubmoduleUpdateCommand subUpdate = git.submoduleUpdate();
+                JGitUtil.setCredentials(subUpdate, parameter);
+                Collection<String> rst = subUpdate
+                    .setProgressMonitor(progressMonitor)
+                    .setFetch(true)
+                    .setStrategy(MergeStrategy.THEIRS)
+                    .call();
+                JGitUtil.println(printWriter, String.join("\n", rst));
+                return JGitUtil.getLastCommitMsg(file, tag, tag ? tagName : branchName);
+            } catch (Exception t) {
+                JGitUtil.checkTransportException(t, file, printWriter);
+            }
+        }
+        return new String[]{StrUtil.EMPTY, StrUtil.EMPTY};
+    }
+
+    /**
+     * 打开构建目录，不存在、远程地址不一致或者引用的镜像已经重新创建时重新初始化
+     *
+     * @param url        仓库地址
+     * @param file       构建目录
+     * @param mirrorPath 镜像路径
+     * @return git
+     * @throws Exception 异常
+     */
+    private static Git openWorkTree(String url, File file, File mirrorPath) throws Exception {
+        File gitDir = FileUtil.file(file, Constants.DOT_GIT);
+        boolean exists = FileUtil.isDirectory(gitDir) && JGitUtil.checkRemoteUrl(url, file) && !isStale(gitDir, mirrorPath);
+        if (!exists) {
+            if (!FileUtil.clean(file)) {
+                FileUtil.del(file.toPath());
+            }
+            try (Git git = Git.init().setDirectory(file).call()) {
+                git.remoteAdd().setName(Constants.DEFAULT_REMOTE_NAME).setUri(new URIish(url)).call();
+            }
+        }
+        // 需要在打开仓库之前写入，jgit 打开时会读取 alternates
+        linkAlternates(gitDir, mirrorPath);
+        return Git.open(file);
+    }
+
+    /**
+     * 镜像拉取实现
+     */
+    @FunctionalInterface
+    public interface Fetcher {
+        /**
+         * 拉取镜像
+         *
+         * @param mirrorPath 镜像路径
+         * @throws Exception 异常
+         */
+        void fetch(File mirrorPath) throws Exception;
+    }
+
+    private static class MirrorState {
+        private volatile long lastFetchStart;
+        private volatile long lastFetchEnd;
+        private volatile Tuple refs;
+    }
+}
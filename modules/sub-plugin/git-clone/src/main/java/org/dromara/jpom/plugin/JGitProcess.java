@@ -29,18 +29,46 @@ public class JGitProcess extends AbstractGitProcess {
 
     @Override
     public Tuple branchAndTagList() throws Exception {
+        if (GitMirror.enabled(parameter)) {
+            PrintWriter printWriter = (PrintWriter) parameter.get("logWriter");
+            try {
+                return GitMirror.sync(parameter, printWriter, mirrorPath -> GitMirror.jgitFetch(parameter, mirrorPath, printWriter));
+            } catch (Exception e) {
+                JGitUtil.checkTransportException(e, null, printWriter);
+                return null;
+            }
+        }
         return JGitUtil.getBranchAndTagList(parameter);
     }
 
     @Override
     public String[] pull() throws Exception {
         PrintWriter printWriter = (PrintWriter) parameter.get("logWriter");
+        if (GitMirror.enabled(parameter)) {
+            this.syncMirror();
+            return GitMirror.checkout(parameter, getSaveFile(), getBranchName(), null, printWriter);
+        }
         return JGitUtil.checkoutPull(parameter, getSaveFile(), getBranchName(), printWriter);
     }
 
     @Override
     public String[] pullByTag() throws Exception {
         PrintWriter printWriter = (PrintWriter) parameter.get("logWriter");
+        if (GitMirror.enabled(parameter)) {
+            this.syncMirror();
+            return GitMirror.checkout(parameter, getSaveFile(), null, getTagName(), printWriter);
+        }
         return JGitUtil.checkoutPullTag(parameter, getSaveFile(), getTagName(), printWriter);
     }
+
+    /**
+     * 拉取代码前保证镜像已经同步
+     *
+     * @throws Exception 异常
+     */
+    private void syncMirror() throws Exception {
+        if (!GitMirror.isSynced(parameter)) {
+            this.branchAndTagList();
+        }
+    }
 }
@@ -509,7 +509,7 @@ public class JGitUtil {
      * @param template    日志内容模版
      * @param params      参数
      */
-    private static void println(PrintWriter printWriter, CharSequence template, Object... params) {
+    static void println(PrintWriter printWriter, CharSequence template, Object... params) {
         if (printWriter == null) {
             return;
         }
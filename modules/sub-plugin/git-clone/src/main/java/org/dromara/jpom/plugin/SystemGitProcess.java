@@ -12,7 +12,9 @@ package org.dromara.jpom.plugin;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.comparator.VersionComparator;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.LineHandler;
 import cn.hutool.core.lang.Tuple;
+import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -75,6 +77,27 @@ public class SystemGitProcess extends AbstractGitProcess {
         return url;
     }
 
+    /**
+     * 去掉仓库地址中的账号密码，用于对比远程地址（账号密码修改后仍然是同一个仓库）
+     *
+     * @param url 仓库地址
+     * @return url
+     */
+    private static String removeUserInfo(String url) {
+        return ReUtil.replaceAll(StrUtil.trim(url), "^([a-zA-Z][a-zA-Z0-9+.-]*://)[^/@]*@", "$1");
+    }
+
+    /**
+     * 判断本地仓库的远程地址是否为当前仓库
+     *
+     * @param remoteUrl 本地仓库记录的远程地址
+     * @return true 相同
+     */
+    private boolean isSameRemote(String remoteUrl) {
+        String url = (String) parameter.get("url");
+        return StrUtil.isNotBlank(remoteUrl) && StrUtil.equals(removeUserInfo(remoteUrl), removeUserInfo(url));
+    }
+
     private static URL getUrl(String username, String password, String url) throws MalformedURLException {
         String userInfo = username + ":" + password;
         return new URL(null, url, new URLStreamHandler() {
@@ -109,6 +132,10 @@ public class SystemGitProcess extends AbstractGitProcess {
 
     @Override
     public Tuple branchAndTagList() throws Exception {
+        if (GitMirror.enabled(parameter)) {
+            PrintWriter printWriter = (PrintWriter) parameter.get("logWriter");
+            return GitMirror.sync(parameter, printWriter, mirrorPath -> this.fetchMirror(mirrorPath, printWriter));
+        }
         String command = StrUtil.format("git ls-remote {}", this.getCovertUrl());
         command = this.warpSsh(command);
         String result = CommandUtil.execSystemCommand(command);
@@ -143,14 +170,22 @@ public class SystemGitProcess extends AbstractGitProcess {
         return pull(tagName);
     }
 
-    private String[] pull(String branchOrTag) throws IOException {
+    private String[] pull(String branchOrTag) throws Exception {
         PrintWriter printWriter = (PrintWriter) parameter.get("logWriter");
+        boolean mirror = GitMirror.enabled(parameter);
+        if (mirror && !GitMirror.isSynced(parameter)) {
+            this.branchAndTagList();
+        }
         boolean needClone = this.needClone();
         if (needClone) {
             // clone
             this.reClone(printWriter, branchOrTag);
         }
         File saveFile = getSaveFile();
+        if (mirror) {
+            // 已经存在的仓库也引用镜像中的对象，fetch 时只需要下载镜像中没有的对象
+            GitMirror.linkAlternates(FileUtil.file(saveFile, Constants.DOT_GIT), GitMirror.getMirrorPath(parameter));
+        }
 
         {
             Boolean strictlyEnforce = (Boolean) parameter.get("strictlyEnforce");
@@ -160,10 +195,15 @@ public class SystemGitProcess extends AbstractGitProcess {
                 printWriter.println(line);
                 printWriter.flush();
             }, "git", "pull");*/
+            // 启用镜像时直接从本地镜像拉取，镜像已经同步过远程仓库
+            String[] fetchCommand = mirror ?
+                new String[]{"git", "fetch", "--prune", FileUtil.getAbsolutePath(GitMirror.getMirrorPath(parameter)),
+                    "+refs/heads/*:refs/remotes/" + Constants.DEFAULT_REMOTE_NAME + "/*", "+refs/tags/*:refs/tags/*"} :
+                new String[]{"git", "fetch", "--all"};
             int code = CommandUtil.exec(saveFile, null, line -> {
                 printWriter.println(line);
                 printWriter.flush();
-            }, "git", "fetch", "--all");
+            }, fetchCommand);
             if (code != 0 && strictlyEnforce) {
                 return new String[]{null, null, I18nMessageUtil.get("i18n.git_fetch_failed_status_code.5187") + code};
             }
@@ -230,7 +270,11 @@ public class SystemGitProcess extends AbstractGitProcess {
                 return null;
             }).ifPresent(integer -> env.put("GIT_HTTP_TIMEOUT", String.valueOf(integer)));
         //
-        String[] command = new String[]{"git", "clone", "--recursive", depthStr, "-b", branchOrTag, this.getCovertUrl(), savePath.getAbsolutePath()};
+        String referenceStr = GitMirror.enabled(parameter) ?
+            "--reference-if-able=" + FileUtil.getAbsolutePath(GitMirror.getMirrorPath(parameter)) : StrUtil.EMPTY;
+        String[] command = Arrays.stream(new String[]{"git", "clone", "--recursive", depthStr, referenceStr, "-b", branchOrTag, this.getCovertUrl(), savePath.getAbsolutePath()})
+            .filter(StrUtil::isNotEmpty)
+            .toArray(String[]::new);
         FileUtil.mkdir(savePath);
         CommandUtil.exec(savePath, env, line -> {
             printWriter.println(line);
@@ -238,19 +282,68 @@ public class SystemGitProcess extends AbstractGitProcess {
         }, command);
     }
 
+    /**
+     * 同步本地镜像（裸仓库）
+     *
+     * @param mirrorPath  镜像路径
+     * @param printWriter 日志
+     * @throws IOException io
+     */
+    private void fetchMirror(File mirrorPath, PrintWriter printWriter) throws IOException {
+        this.warpSsh(StrUtil.EMPTY);
+        String url = (String) parameter.get("url");
+        String covertUrl = this.getCovertUrl();
+        LineHandler lineHandler = line -> {
+            if (printWriter != null) {
+                printWriter.println(line);
+                printWriter.flush();
+            }
+        };
+        String remoteUrl = FileUtil.isFile(FileUtil.file(mirrorPath, Constants.HEAD)) ?
+            StrUtil.trim(CommandUtil.execSystemCommand("git config --get remote.origin.url", mirrorPath)) : null;
+        if (!this.isSameRemote(remoteUrl)) {
+            FileUtil.del(mirrorPath);
+            FileUtil.mkdir(mirrorPath);
+            CommandUtil.exec(mirrorPath, null, lineHandler, "git", "init", "--bare");
+            // 镜像中只保存不含账号密码的地址，拉取时再使用带账号密码的地址
+            CommandUtil.exec(mirrorPath, null, lineHandler, "git", "remote", "add", Constants.DEFAULT_REMOTE_NAME, url);
+            GitMirror.newGeneration(mirrorPath);
+        } else if (!StrUtil.equals(remoteUrl, url)) {
+            // 旧版本保存了带账号密码的地址
+            CommandUtil.exec(mirrorPath, null, lineHandler, "git", "remote", "set-url", Constants.DEFAULT_REMOTE_NAME, url);
+        }
+        Map<String, String> env = new HashMap<>(4);
+        Optional.ofNullable((Integer) parameter.get("timeout"))
+            .filter(integer -> integer > 0)
+            .ifPresent(integer -> env.put("GIT_HTTP_TIMEOUT", String.valueOf(integer)));
+        // 构建目录通过 alternates 引用镜像对象，禁止自动 gc 清理对象
+        int code = CommandUtil.exec(mirrorPath, env, lineHandler, "git", "-c", "gc.auto=0", "fetch", "--prune", covertUrl,
+            "+refs/heads/*:refs/heads/*", "+refs/tags/*:refs/tags/*");
+        Assert.state(code == 0, StrUtil.format(I18nMessageUtil.get("i18n.git_mirror_fetch_failed.c41e"), code));
+    }
+
     /**
      * 是否存在GIT仓库
      */
-    private boolean needClone() throws MalformedURLException {
+    private boolean needClone() throws IOException {
         File savePath = getSaveFile();
         File file = FileUtil.file(savePath, Constants.DOT_GIT);
         if (!FileUtil.exist(file)) {
             return true;
         }
         // 判断远程
-        String url = (String) parameter.get("url");
-        String checkRemote = CommandUtil.execSystemCommand("git remote -v", savePath);
-        if (!StrUtil.containsAny(checkRemote, url, this.getCovertUrl())) {
+        String remoteUrl = StrUtil.trim(CommandUtil.execSystemCommand("git config --get remote.origin.url", savePath));
+        if (!this.isSameRemote(remoteUrl)) {
+            return true;
+        }
+        String covertUrl = this.getCovertUrl();
+        if (!StrUtil.equals(remoteUrl, covertUrl)) {
+            // 账号密码已经修改
+            CommandUtil.exec(savePath, null, line -> {
+            }, "git", "remote", "set-url", Constants.DEFAULT_REMOTE_NAME, covertUrl);
+        }
+        if (GitMirror.enabled(parameter) && GitMirror.isStale(file, GitMirror.getMirrorPath(parameter))) {
+            // 引用的镜像已经重新创建，构建目录中的对象不完整
             return true;
         }
         String branchName = getBranchName();